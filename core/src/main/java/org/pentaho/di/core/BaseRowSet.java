@@ -13,6 +13,7 @@
 
 package org.pentaho.di.core;
 
+import java.lang.invoke.VarHandle;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,6 +42,9 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   protected volatile String remoteSlaveServerName;
   private ReadWriteLock lock;
 
+  /** Raised when a row is added or the row set is done, null as long as the reader doesn't wait for it */
+  private volatile RowSetSignal readySignal;
+
   public BaseRowSet() {
     // not done putting data into this RowSet
     done = new AtomicBoolean( false );
@@ -127,6 +131,7 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   @Override
   public void setDone() {
     done.set( true );
+    signalReady();
   }
 
   /*
@@ -293,4 +298,24 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
     return false;
   }
 
+  @Override
+  public boolean setReadySignal( RowSetSignal signal ) {
+    readySignal = signal;
+    return true;
+  }
+
+  /**
+   * Wake up the reader if it waits for a row: call this after a row was added that the reader can get.<br>
+   * <br>
+   * This costs a single volatile read as long as the reader never waited for this row set. A reader that registers
+   * its signal while a row is being added can miss that row's signal, it then finds the row when its wait times out.
+   */
+  protected void signalReady() {
+    RowSetSignal signal = readySignal;
+    if ( signal != null ) {
+      VarHandle.fullFence(); // the reader either sees the row or we see it waiting
+      signal.signal();
+    }
+  }
+
 }
@@ -13,6 +13,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -97,6 +98,7 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       try {
         getArray.offer( inputBuffer, time, tu );
         inputBuffer = null;
+        signalReady();
       } catch ( InterruptedException e ) {
         return false;
       }
@@ -117,15 +119,19 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
     return getRowWait( Const.TIMEOUT_GET_MILLIS, TimeUnit.MILLISECONDS );
   }
 
-  /*
-   * (non-Javadoc)
-   *
-   * @see org.pentaho.di.core.RowSetInterface#getRowImmediate()
+  /**
+   * Get a row from a buffer that is already delivered, without waiting for the next one.
    */
   @Override
   public Object[] getRowImmediate() {
-
-    return getRow();
+    if ( outputBuffer == null ) {
+      outputBuffer = getArray.poll();
+      if ( outputBuffer == null ) {
+        return null;
+      }
+      getIndex = 0;
+    }
+    return nextRow();
   }
 
   @Override
@@ -141,7 +147,10 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       }
       getIndex = 0;
     }
+    return nextRow();
+  }
 
+  private Object[] nextRow() {
     Object[] row = outputBuffer[getIndex];
     outputBuffer[getIndex++] = null; // prevent any hold-up to GC
     if ( getIndex == size ) {
@@ -152,6 +161,20 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
     return row;
   }
 
+  @Override
+  public int drainTo( List<Object[]> rows, int max ) {
+    int nrRows = 0;
+    while ( nrRows < max ) {
+      Object[] row = getRowImmediate();
+      if ( row == null ) {
+        break; // nothing delivered yet, or the end of the last buffer
+      }
+      rows.add( row );
+      nrRows++;
+    }
+    return nrRows;
+  }
+
   @Override
   public int size() {
     // does BlockingQueue.size() grab a lock? If so, frequent call to this method
@@ -170,6 +193,7 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       getArray.offer( inputBuffer );
     }
     putArray.clear();
+    signalReady(); // the last rows are only readable now
   }
 
   @Override
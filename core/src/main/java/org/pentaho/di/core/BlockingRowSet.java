@@ -13,6 +13,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -69,7 +70,11 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
     this.rowMeta = rowMeta;
     try {
 
-      return queArray.offer( rowData, time, tu );
+      if ( queArray.offer( rowData, time, tu ) ) {
+        signalReady();
+        return true;
+      }
+      return false;
     } catch ( InterruptedException e ) {
       return false;
     } catch ( NullPointerException e ) {
@@ -116,6 +121,17 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
     }
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.pentaho.di.core.RowSetInterface#drainTo(java.util.List, int)
+   */
+  @Override
+  public int drainTo( List<Object[]> rows, int max ) {
+    // One lock acquisition for the whole batch
+    return queArray.drainTo( rows, max );
+  }
+
   @Override
   public int size() {
     return queArray.size();
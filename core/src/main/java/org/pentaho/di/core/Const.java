@@ -883,11 +883,18 @@ public class Const {
   public static final String KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES = "KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES";
 
   /**
-   * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep all
-   * snapshots indefinitely (default)
+   * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep
+   * {@link #KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT} snapshots (default)
    */
   public static final String KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT = "KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT";
 
+  /**
+   * System wide parameter: the maximum number of step performance snapshots to keep in memory when no limit is set.
+   * The default value is 10000.
+   */
+  public static final String KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT =
+    "KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT";
+
   /**
    * A variable to configure the maximum number of job trackers kept in memory.
    */
@@ -1050,6 +1057,42 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to N to disable the lock-free ring buffer row set on hops between two single copy steps.
+   * (default = Y)
+   */
+  public static final String KETTLE_RING_BUFFER_ROWSET = "KETTLE_RING_BUFFER_ROWSET";
+
+  /**
+   * Set this variable to Y to run the steps of all transformations on virtual threads, like transformations that have
+   * the option switched on. This needs a Java runtime with virtual threads. (default = N)
+   */
+  public static final String KETTLE_TRANS_VIRTUAL_THREADS = "KETTLE_TRANS_VIRTUAL_THREADS";
+
+  /**
+   * The size in bytes of the read buffer of every temporary file when the Sort Rows step merges them (default = 65536)
+   */
+  public static final String KETTLE_SORT_MERGE_BUFFER_SIZE = "KETTLE_SORT_MERGE_BUFFER_SIZE";
+
+  /**
+   * The maximum number of temporary files the Sort Rows step reads from at the same time. If there are more, groups of
+   * files are first merged into larger ones. (default = 512)
+   */
+  public static final String KETTLE_SORT_MAX_OPEN_FILES = "KETTLE_SORT_MAX_OPEN_FILES";
+
+  /**
+   * The name of the compression provider (None, LZ4, Snappy, GZip, ...) to use for the temporary files of steps that
+   * spill rows to disk, like Sort Rows and Group By. When empty, Sort Rows uses GZip if it is set to compress its
+   * temporary files and the other steps don't compress.
+   */
+  public static final String KETTLE_SPILL_COMPRESSION = "KETTLE_SPILL_COMPRESSION";
+
+  /**
+   * The number of megabytes the shared lookup caches of a scope (transformation, job or JVM) can use before the caches
+   * that no step is attached to are dropped. (default = 0, no limit for a transformation or a job, 256 for the JVM)
+   */
+  public static final String KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY = "KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
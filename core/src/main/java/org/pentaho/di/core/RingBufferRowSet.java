@@ -0,0 +1,252 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free buffer of rows for hops with exactly one writing and one reading thread (single producer, single
+ * consumer). Rows are kept in a fixed size ring buffer and the producer and consumer only communicate through two
+ * ever increasing sequence counters, so no lock or condition is ever taken on the data path.<br>
+ * <br>
+ * When the buffer is full (put) or empty (get) the calling thread first spins, then yields and finally parks for short
+ * periods until either room/data becomes available or the requested timeout expires.<br>
+ * <br>
+ * <b>Note:</b> this row set is NOT safe for use by more than one producer or more than one consumer thread at the same
+ * time. Use {@link BlockingRowSet} for that.
+ *
+ * @since 11.1
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /** Number of busy-spin iterations before we start yielding */
+  private static final int SPIN_TRIES = 128;
+
+  /** Number of yield iterations before we start parking */
+  private static final int YIELD_TRIES = 64;
+
+  /** Maximum time to park in one go while waiting for the other side */
+  private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+
+  /** The sequence of the next row to read, only ever written by the consumer */
+  private final AtomicLong head;
+
+  /** The sequence of the next row to write, only ever written by the producer */
+  private final AtomicLong tail;
+
+  /** Producer side copy of the head, refreshed only when the buffer looks full */
+  private long cachedHead;
+
+  /** Consumer side copy of the tail, refreshed only when the buffer looks empty */
+  private long cachedTail;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new single producer, single consumer row set with maxSize capacity.
+   *
+   * @param maxSize
+   */
+  public RingBufferRowSet( int maxSize ) {
+    super();
+
+    if ( maxSize < 1 ) {
+      throw new IllegalArgumentException( "The size of a row set needs to be at least 1, not " + maxSize );
+    }
+    capacity = maxSize;
+
+    // Round up to the next power of 2 so we can use a mask instead of a modulo
+    //
+    int length = Integer.highestOneBit( maxSize );
+    if ( length < maxSize ) {
+      length <<= 1;
+    }
+    buffer = new Object[length][];
+    mask = length - 1;
+
+    head = new AtomicLong( 0L );
+    tail = new AtomicLong( 0L );
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      // Same contract as the blocking queue based row set
+      return false;
+    }
+
+    long sequence = tail.get();
+    if ( sequence - cachedHead >= capacity ) {
+      cachedHead = head.get();
+      if ( sequence - cachedHead >= capacity && !waitForRoom( sequence, tu.toNanos( time ) ) ) {
+        return false;
+      }
+    }
+
+    buffer[ (int) sequence & mask ] = rowData;
+    tail.lazySet( sequence + 1 ); // publish the row to the consumer
+    signalReady();
+    return true;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long sequence = head.get();
+    if ( sequence >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( sequence >= cachedTail ) {
+        return null;
+      }
+    }
+    return take( sequence );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long sequence = head.get();
+    if ( sequence >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( sequence >= cachedTail && !waitForData( sequence, tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+    }
+    return take( sequence );
+  }
+
+  @Override
+  public int drainTo( List<Object[]> rows, int max ) {
+    long sequence = head.get();
+    cachedTail = tail.get();
+    int nrRows = (int) Math.min( max, cachedTail - sequence );
+    for ( int i = 0; i < nrRows; i++ ) {
+      int index = (int) ( sequence + i ) & mask;
+      rows.add( buffer[ index ] );
+      buffer[ index ] = null;
+    }
+    if ( nrRows > 0 ) {
+      head.lazySet( sequence + nrRows ); // hand all the slots back to the producer at once
+    }
+    return nrRows;
+  }
+
+  private Object[] take( long sequence ) {
+    int index = (int) sequence & mask;
+    Object[] row = buffer[ index ];
+    buffer[ index ] = null; // prevent any hold-up to GC
+    head.lazySet( sequence + 1 ); // hand the slot back to the producer
+    return row;
+  }
+
+  private boolean waitForRoom( long sequence, long timeoutNanos ) {
+    if ( timeoutNanos <= 0 ) {
+      return false;
+    }
+    long deadline = System.nanoTime() + timeoutNanos;
+    for ( int attempt = 0;; attempt++ ) {
+      if ( !idle( attempt, deadline ) ) {
+        return false;
+      }
+      cachedHead = head.get();
+      if ( sequence - cachedHead < capacity ) {
+        return true;
+      }
+    }
+  }
+
+  private boolean waitForData( long sequence, long timeoutNanos ) {
+    if ( timeoutNanos <= 0 ) {
+      return false;
+    }
+    long deadline = System.nanoTime() + timeoutNanos;
+    for ( int attempt = 0;; attempt++ ) {
+      if ( !idle( attempt, deadline ) ) {
+        return false;
+      }
+      cachedTail = tail.get();
+      if ( sequence < cachedTail ) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Back off progressively: spin, then yield, then park for short periods.
+   *
+   * @return false if the deadline has passed or the thread was interrupted
+   */
+  private static boolean idle( int attempt, long deadline ) {
+    if ( attempt < SPIN_TRIES ) {
+      Thread.onSpinWait();
+      return true;
+    }
+    long remaining = deadline - System.nanoTime();
+    if ( remaining <= 0 || Thread.interrupted() ) {
+      return false;
+    }
+    if ( attempt < SPIN_TRIES + YIELD_TRIES ) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos( Math.min( remaining, MAX_PARK_NANOS ) );
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    // Read the head first: this way the result can never be negative
+    long h = head.get();
+    return (int) Math.max( 0L, tail.get() - h );
+  }
+
+  /**
+   * Clear this row set. This is only safe to call when neither the producer nor the consumer is active.
+   */
+  @Override
+  public void clear() {
+    long h = head.get();
+    long t = tail.get();
+    for ( long s = h; s < t; s++ ) {
+      buffer[ (int) s & mask ] = null;
+    }
+    head.set( t );
+    cachedHead = t;
+    cachedTail = t;
+    done.set( false );
+  }
+
+}
@@ -13,6 +13,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -69,6 +70,26 @@ public interface RowSet {
    */
   Object[] getRowWait( long timeout, TimeUnit tu );
 
+  /**
+   * Move the rows that are available right now to the given list, without waiting. Implementations can override this
+   * to hand over a whole batch of rows at the cost of a single synchronization.
+   *
+   * @param rows
+   *          the list to add the rows to
+   * @param max
+   *          the maximum number of rows to move
+   * @return the number of rows added to the list
+   */
+  default int drainTo( List<Object[]> rows, int max ) {
+    int nrRows = 0;
+    Object[] row;
+    while ( nrRows < max && ( row = getRowImmediate() ) != null ) {
+      rows.add( row );
+      nrRows++;
+    }
+    return nrRows;
+  }
+
   /**
    * @return Set indication that there is no more input
    */
@@ -145,4 +166,16 @@ public interface RowSet {
    * Clear this rowset: remove all rows and remove the "done" flag.
    */
   void clear();
+
+  /**
+   * Set the signal to raise when a row is added to this row set or when it is marked done. A step reading from several
+   * row sets uses it to wait until one of them has something to read, instead of polling them in turn.
+   *
+   * @param signal
+   *          the signal to raise, null for none
+   * @return false if this row set doesn't raise the signal: the reader then has to keep polling it
+   */
+  default boolean setReadySignal( RowSetSignal signal ) {
+    return false;
+  }
 }
@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes up the thread reading from a number of row sets when one of them receives a row or is marked done. The reader
+ * registers the signal with its row sets ({@link RowSet#setReadySignal(RowSetSignal)}) and parks on it instead of
+ * polling the row sets in turn while all of them are empty.<br>
+ * <br>
+ * The reader follows this protocol:
+ *
+ * <pre>
+ * signal.prepareToWait();
+ * // register the signal with the row sets and check them one last time
+ * if ( nothing to read ) {
+ *   signal.await( timeout, unit );
+ * }
+ * signal.cancelWait();
+ * </pre>
+ *
+ * A writer raising the signal after it added a row either sees the waiting reader and wakes it up, or it added the row
+ * before the reader checked the row sets one last time.<br>
+ * <br>
+ * <b>Note:</b> a signal has one reading thread.
+ *
+ * @since 11.1
+ */
+public class RowSetSignal {
+  private volatile Thread waiter;
+
+  /**
+   * Announce that the current thread is about to wait for this signal. Call this before checking the row sets one last
+   * time.
+   */
+  public void prepareToWait() {
+    waiter = Thread.currentThread();
+    VarHandle.fullFence(); // the checks of the row sets can't move before this point
+  }
+
+  /**
+   * Wait until the signal is raised, the timeout expires or the thread is interrupted. This can return early, the
+   * reader checks its row sets again anyway.
+   *
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   */
+  public void await( long timeout, TimeUnit unit ) {
+    if ( waiter == Thread.currentThread() ) {
+      LockSupport.parkNanos( this, unit.toNanos( timeout ) );
+    }
+  }
+
+  /**
+   * The current thread is no longer waiting for this signal.
+   */
+  public void cancelWait() {
+    waiter = null;
+  }
+
+  /**
+   * Wake up the reader if it is waiting. Writers call this after they added a row to a row set, or marked it done, and
+   * issued a full fence.
+   */
+  public void signal() {
+    Thread thread = waiter;
+    if ( thread != null ) {
+      LockSupport.unpark( thread );
+    }
+  }
+
+  /**
+   * @return true if a thread is waiting for this signal
+   */
+  public boolean isWaiting() {
+    return waiter != null;
+  }
+}
@@ -47,6 +47,7 @@ public class SingleRowRowSet extends BaseRowSet implements Comparable<RowSet>, R
   public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
     this.rowMeta = rowMeta;
     this.row = rowData;
+    signalReady();
     return true;
   }
 
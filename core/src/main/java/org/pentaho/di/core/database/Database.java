@@ -42,8 +42,11 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileObject;
@@ -134,6 +137,16 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   private Connection connection;
 
+  /**
+   * The locks that serialize reading result sets of Database objects sharing a connection (PDI-19750), by connection.
+   * A lock instead of a monitor on the connection doesn't pin the carrier thread of a virtual thread waiting for rows.
+   */
+  private static final Map<Connection, ReentrantLock> connectionLocks =
+    Collections.synchronizedMap( new WeakHashMap<>() );
+
+  private Connection lockedConnection;
+  private ReentrantLock connectionLock;
+
   private Statement selStmt;
   private PreparedStatement pstmt;
   private PreparedStatement prepStatementLookup;
@@ -2717,6 +2730,18 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     return getRow( rs, null, rowMeta );
   }
 
+  /**
+   * @return the lock shared by all the Database objects using the current connection
+   */
+  private ReentrantLock getConnectionLock() {
+    Connection current = Objects.requireNonNull( connection );
+    if ( current != lockedConnection ) {
+      connectionLock = connectionLocks.computeIfAbsent( current, c -> new ReentrantLock() );
+      lockedConnection = current;
+    }
+    return connectionLock;
+  }
+
   /**
    * Get a row from the resultset.
    *
@@ -2728,9 +2753,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     long startTime = System.currentTimeMillis();
 
     try {
-      // PDI-19750 - synchronize on the connection to prevent data inconsistency
+      // PDI-19750 - lock the connection to prevent data inconsistency
       // when multiple Database objects share the same connection and access ResultSets concurrently
-      synchronized ( connection ) {
+      ReentrantLock lock = getConnectionLock();
+      lock.lock();
+      try {
         int nrcols = rowInfo.size();
         Object[] data = RowDataUtil.allocateRowData( nrcols );
 
@@ -2745,6 +2772,8 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
         }
 
         return data;
+      } finally {
+        lock.unlock();
       }
     } catch ( Exception ex ) {
       throw new KettleDatabaseException( "Couldn't get row from result set", ex );
@@ -0,0 +1,259 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * A hash index of serialized keys and values that are stored outside of the Java heap, for lookups in millions of
+ * rows without the garbage collector having to walk through them.<br>
+ * <br>
+ * The keys and values are appended to direct byte buffers ("arenas"). The index itself is a direct buffer of slots
+ * with open addressing and linear probing: every slot holds the hash code of the key and the address of its record in
+ * the arenas, so a lookup only reads the arenas for a key with the same hash code, and only copies the value of the
+ * key that matches back on the heap.<br>
+ * <br>
+ * Keys are compared byte by byte, like in {@link ByteArrayHashIndex}. Putting a key that is already in the index
+ * replaces its value: the old record stays in the arena. The memory is given back when the index is garbage collected,
+ * it is limited by the -XX:MaxDirectMemorySize option of the JVM. An index is not thread-safe.
+ */
+public class OffHeapHashIndex {
+  /** The default size of an arena in bytes */
+  public static final int DEFAULT_ARENA_SIZE = 64 * 1024 * 1024;
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+
+  // A slot is the hash code of the key (int) and the address of the record + 1 (long), 0 for an empty slot
+  private static final int SLOT_SIZE = 12;
+  private static final int MAX_CAPACITY = 1 << 27; // the slots have to fit in a single buffer
+
+  // A record is the length of the key (int), the length of the value (int), the key and the value
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final int arenaSize;
+  private final List<ByteBuffer> arenas = new ArrayList<>();
+  private ByteBuffer arena;
+  private long arenaBytesUsed;
+
+  private ByteBuffer slots;
+  private int capacity;
+  private int size;
+  private int resizeThreshold;
+
+  /**
+   * @param expectedSize the number of keys to size the index for
+   * @param arenaSize    the size of the buffers the keys and values are stored in
+   */
+  public OffHeapHashIndex( int expectedSize, int arenaSize ) {
+    this.arenaSize = arenaSize;
+
+    int factor2Size = 1;
+    while ( factor2Size < expectedSize / STANDARD_LOAD_FACTOR && factor2Size < MAX_CAPACITY ) {
+      factor2Size <<= 1;
+    }
+    allocateSlots( factor2Size );
+  }
+
+  public OffHeapHashIndex() {
+    this( STANDARD_INDEX_SIZE, DEFAULT_ARENA_SIZE );
+  }
+
+  private void allocateSlots( int newCapacity ) {
+    capacity = newCapacity;
+    resizeThreshold = (int) ( newCapacity * STANDARD_LOAD_FACTOR );
+    slots = ByteBuffer.allocateDirect( newCapacity * SLOT_SIZE );
+  }
+
+  /**
+   * @return the number of keys in the index
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of slots of the index
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of arenas allocated to store the keys and values
+   */
+  public int getNrOfArenas() {
+    return arenas.size();
+  }
+
+  /**
+   * @return the number of bytes of the arenas used by the records of the keys and values
+   */
+  public long getArenaBytesUsed() {
+    return arenaBytesUsed;
+  }
+
+  /**
+   * @return the number of bytes allocated outside of the heap: the slots and all the arenas
+   */
+  public long getMemorySize() {
+    long memorySize = (long) capacity * SLOT_SIZE;
+    for ( ByteBuffer buffer : arenas ) {
+      memorySize += buffer.capacity();
+    }
+    return memorySize;
+  }
+
+  /**
+   * @param key the serialized key
+   * @return the serialized value stored for the key or null if the key isn't in the index
+   */
+  public byte[] get( byte[] key ) {
+    int hashCode = generateHashCode( key );
+    int slot = findSlot( key, hashCode );
+    long address = slots.getLong( slot * SLOT_SIZE + 4 );
+    if ( address == 0L ) {
+      return null;
+    }
+    ByteBuffer buffer = arenas.get( (int) ( ( address - 1 ) >>> 32 ) );
+    int offset = (int) ( address - 1 );
+    int keyLength = buffer.getInt( offset );
+    int valueLength = buffer.getInt( offset + 4 );
+
+    byte[] value = new byte[ valueLength ];
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position( offset + RECORD_HEADER_SIZE + keyLength );
+    duplicate.get( value );
+    return value;
+  }
+
+  /**
+   * Store the value of a key, replacing the value if the key is already in the index.
+   *
+   * @param key   the serialized key
+   * @param value the serialized value
+   * @throws KettleValueException if the index can't hold more keys
+   */
+  public void put( byte[] key, byte[] value ) throws KettleValueException {
+    int hashCode = generateHashCode( key );
+    int slot = findSlot( key, hashCode );
+    boolean newKey = slots.getLong( slot * SLOT_SIZE + 4 ) == 0L;
+    if ( newKey && size >= resizeThreshold ) {
+      resize();
+      slot = findSlot( key, hashCode );
+    }
+
+    long address = append( key, value );
+    slots.putInt( slot * SLOT_SIZE, hashCode );
+    slots.putLong( slot * SLOT_SIZE + 4, address + 1 );
+    if ( newKey ) {
+      size++;
+    }
+  }
+
+  /**
+   * @return the slot of the key, or the empty slot where it can be stored
+   */
+  private int findSlot( byte[] key, int hashCode ) {
+    int mask = capacity - 1;
+    int slot = hashCode & mask;
+    while ( true ) {
+      long address = slots.getLong( slot * SLOT_SIZE + 4 );
+      if ( address == 0L || ( slots.getInt( slot * SLOT_SIZE ) == hashCode && equalsKey( address - 1, key ) ) ) {
+        return slot;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+  }
+
+  private boolean equalsKey( long address, byte[] key ) {
+    ByteBuffer buffer = arenas.get( (int) ( address >>> 32 ) );
+    int offset = (int) address;
+    if ( buffer.getInt( offset ) != key.length ) {
+      return false;
+    }
+    int keyOffset = offset + RECORD_HEADER_SIZE;
+    for ( int i = 0; i < key.length; i++ ) {
+      if ( buffer.get( keyOffset + i ) != key[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Append a record to the current arena, or to a new one if it doesn't fit.
+   *
+   * @return the address of the record: the number of the arena in the high int and the offset in the low int
+   */
+  private long append( byte[] key, byte[] value ) {
+    int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+    if ( arena == null || arena.remaining() < recordSize ) {
+      arena = ByteBuffer.allocateDirect( Math.max( arenaSize, recordSize ) );
+      arenas.add( arena );
+    }
+    int offset = arena.position();
+    arena.putInt( key.length );
+    arena.putInt( value.length );
+    arena.put( key );
+    arena.put( value );
+    arenaBytesUsed += recordSize;
+    return ( (long) ( arenas.size() - 1 ) << 32 ) | offset;
+  }
+
+  private void resize() throws KettleValueException {
+    if ( capacity >= MAX_CAPACITY ) {
+      throw new KettleValueException( "The off-heap hash index can't hold more than " + resizeThreshold + " keys" );
+    }
+    ByteBuffer oldSlots = slots;
+    int oldCapacity = capacity;
+    allocateSlots( capacity << 1 );
+
+    // The hash codes are in the slots: no need to read the keys back
+    int mask = capacity - 1;
+    for ( int i = 0; i < oldCapacity; i++ ) {
+      long address = oldSlots.getLong( i * SLOT_SIZE + 4 );
+      if ( address != 0L ) {
+        int hashCode = oldSlots.getInt( i * SLOT_SIZE );
+        int slot = hashCode & mask;
+        while ( slots.getLong( slot * SLOT_SIZE + 4 ) != 0L ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        slots.putInt( slot * SLOT_SIZE, hashCode );
+        slots.putLong( slot * SLOT_SIZE + 4, address );
+      }
+    }
+  }
+
+  /**
+   * Hash the bytes of a key, with the bits spread out so keys that differ in their last bytes don't end up next to
+   * each other in the slots.
+   */
+  static int generateHashCode( byte[] key ) {
+    int hash = 1;
+    for ( byte b : key ) {
+      hash = 31 * hash + b;
+    }
+    hash *= 0x9E3779B9;
+    return hash ^ ( hash >>> 16 );
+  }
+}
@@ -125,6 +125,15 @@ public class Metrics implements MetricsInterface {
   public static Metrics METRIC_STEP_INIT_STOP = new Metrics(
     MetricsSnapshotType.STOP, "METRIC_STEP_INIT", "Initialize a step" );
 
+  // Step caches
+  //
+  public static Metrics METRIC_STEP_CACHE_HITS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_HITS", "Lookups answered by the step cache" );
+  public static Metrics METRIC_STEP_CACHE_MISSES = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_MISSES", "Lookups not found in the step cache" );
+  public static Metrics METRIC_STEP_CACHE_EVICTIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_EVICTIONS", "Entries evicted from the step cache" );
+
   // Logging back-end
   //
   public static Metrics METRIC_CENTRAL_LOG_STORE_TIMEOUT_CLEAN_TIME = new Metrics(
@@ -0,0 +1,255 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleFileException;
+
+/**
+ * A compact binary encoding of rows for temporary files that are written and read back by the same step, like the
+ * spill files of Sort rows and Group by.<br>
+ * <br>
+ * Compared to {@link RowMetaInterface#writeData(DataOutputStream, Object[])} every row starts with a bitmap of the null
+ * values, so no null flag is written per value. Integers are written as variable length (zig-zag) numbers, and strings,
+ * big numbers and binaries are prefixed with a variable length size instead of 4 bytes. Values with a type or storage
+ * type that isn't handled here are written by their value metadata.<br>
+ * <br>
+ * The format is not meant to be stored: it can only be read back with the same row metadata. An instance can write
+ * on one thread while it reads on another, but it can't be shared by several writers or readers.
+ */
+public class CompactRowCodec {
+  private static final int KIND_OTHER = 0;
+  private static final int KIND_STRING = 1;
+  private static final int KIND_NUMBER = 2;
+  private static final int KIND_INTEGER = 3;
+  private static final int KIND_DATE = 4;
+  private static final int KIND_BOOLEAN = 5;
+  private static final int KIND_BIGNUMBER = 6;
+  private static final int KIND_BINARY = 7;
+
+  private final ValueMetaInterface[] valueMetas;
+  private final int[] kinds;
+  private final byte[] writeNulls;
+  private final byte[] readNulls;
+
+  public CompactRowCodec( RowMetaInterface rowMeta ) {
+    valueMetas = rowMeta.getValueMetaList().toArray( new ValueMetaInterface[ 0 ] );
+    kinds = new int[ valueMetas.length ];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      kinds[ i ] = getKind( valueMetas[ i ] );
+    }
+    // Always write at least one byte per row, even without fields, so the end of the stream can be detected
+    writeNulls = new byte[ Math.max( 1, ( valueMetas.length + 7 ) / 8 ) ];
+    readNulls = new byte[ writeNulls.length ];
+  }
+
+  private static int getKind( ValueMetaInterface valueMeta ) {
+    switch ( valueMeta.getStorageType() ) {
+      case ValueMetaInterface.STORAGE_TYPE_BINARY_STRING:
+        return KIND_BINARY;
+      case ValueMetaInterface.STORAGE_TYPE_NORMAL:
+        switch ( valueMeta.getType() ) {
+          case ValueMetaInterface.TYPE_STRING:
+            return KIND_STRING;
+          case ValueMetaInterface.TYPE_NUMBER:
+            return KIND_NUMBER;
+          case ValueMetaInterface.TYPE_INTEGER:
+            return KIND_INTEGER;
+          case ValueMetaInterface.TYPE_DATE:
+            return KIND_DATE;
+          case ValueMetaInterface.TYPE_BOOLEAN:
+            return KIND_BOOLEAN;
+          case ValueMetaInterface.TYPE_BIGNUMBER:
+            return KIND_BIGNUMBER;
+          case ValueMetaInterface.TYPE_BINARY:
+            return KIND_BINARY;
+          default:
+            return KIND_OTHER;
+        }
+      default:
+        return KIND_OTHER;
+    }
+  }
+
+  /**
+   * Write the data of a row.
+   *
+   * @param outputStream the stream to write to
+   * @param row          the row, at least as long as the row metadata
+   * @throws KettleFileException in case the data can't be written
+   */
+  public void writeData( DataOutputStream outputStream, Object[] row ) throws KettleFileException {
+    try {
+      for ( int i = 0; i < writeNulls.length; i++ ) {
+        writeNulls[ i ] = 0;
+      }
+      for ( int i = 0; i < valueMetas.length; i++ ) {
+        if ( row[ i ] == null ) {
+          writeNulls[ i >>> 3 ] |= 1 << ( i & 7 );
+        }
+      }
+      outputStream.write( writeNulls );
+
+      for ( int i = 0; i < valueMetas.length; i++ ) {
+        Object value = row[ i ];
+        if ( value == null ) {
+          continue;
+        }
+        switch ( kinds[ i ] ) {
+          case KIND_STRING:
+            writeBytes( outputStream, ( (String) value ).getBytes( StandardCharsets.UTF_8 ) );
+            break;
+          case KIND_NUMBER:
+            outputStream.writeDouble( (Double) value );
+            break;
+          case KIND_INTEGER:
+            writeVarLong( outputStream, (Long) value );
+            break;
+          case KIND_DATE:
+            writeVarLong( outputStream, ( (Date) value ).getTime() );
+            break;
+          case KIND_BOOLEAN:
+            outputStream.writeBoolean( (Boolean) value );
+            break;
+          case KIND_BIGNUMBER:
+            writeBytes( outputStream, value.toString().getBytes( StandardCharsets.UTF_8 ) );
+            break;
+          case KIND_BINARY:
+            writeBytes( outputStream, (byte[]) value );
+            break;
+          default:
+            valueMetas[ i ].writeData( outputStream, value );
+            break;
+        }
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write row data to output stream", e );
+    }
+  }
+
+  /**
+   * Read the data of a row that was written with {@link #writeData(DataOutputStream, Object[])}.
+   *
+   * @param inputStream the stream to read from
+   * @return the row data
+   * @throws KettleEOFException  at the end of the stream
+   * @throws KettleFileException in case the data can't be read
+   */
+  public Object[] readData( DataInputStream inputStream ) throws KettleFileException {
+    try {
+      inputStream.readFully( readNulls );
+
+      Object[] row = new Object[ valueMetas.length ];
+      for ( int i = 0; i < valueMetas.length; i++ ) {
+        if ( ( readNulls[ i >>> 3 ] & ( 1 << ( i & 7 ) ) ) != 0 ) {
+          continue;
+        }
+        switch ( kinds[ i ] ) {
+          case KIND_STRING:
+            row[ i ] = new String( readBytes( inputStream ), StandardCharsets.UTF_8 );
+            break;
+          case KIND_NUMBER:
+            row[ i ] = inputStream.readDouble();
+            break;
+          case KIND_INTEGER:
+            row[ i ] = readVarLong( inputStream );
+            break;
+          case KIND_DATE:
+            row[ i ] = new Date( readVarLong( inputStream ) );
+            break;
+          case KIND_BOOLEAN:
+            row[ i ] = inputStream.readBoolean();
+            break;
+          case KIND_BIGNUMBER:
+            row[ i ] = new BigDecimal( new String( readBytes( inputStream ), StandardCharsets.UTF_8 ) );
+            break;
+          case KIND_BINARY:
+            row[ i ] = readBytes( inputStream );
+            break;
+          default:
+            row[ i ] = valueMetas[ i ].readData( inputStream );
+            break;
+        }
+      }
+      return row;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( e );
+    } catch ( SocketTimeoutException e ) {
+      throw new KettleFileException( "Timeout reading row data from input stream", e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read row data from input stream", e );
+    }
+  }
+
+  private static void writeBytes( DataOutputStream outputStream, byte[] bytes ) throws IOException {
+    writeVarInt( outputStream, bytes.length );
+    outputStream.write( bytes );
+  }
+
+  private static byte[] readBytes( DataInputStream inputStream ) throws IOException {
+    byte[] bytes = new byte[ readVarInt( inputStream ) ];
+    inputStream.readFully( bytes );
+    return bytes;
+  }
+
+  private static void writeVarInt( DataOutputStream outputStream, int value ) throws IOException {
+    while ( ( value & ~0x7F ) != 0 ) {
+      outputStream.write( ( value & 0x7F ) | 0x80 );
+      value >>>= 7;
+    }
+    outputStream.write( value );
+  }
+
+  private static int readVarInt( DataInputStream inputStream ) throws IOException {
+    int value = 0;
+    for ( int shift = 0; shift < 32; shift += 7 ) {
+      int b = inputStream.readUnsignedByte();
+      value |= ( b & 0x7F ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed variable length integer" );
+  }
+
+  private static void writeVarLong( DataOutputStream outputStream, long value ) throws IOException {
+    long zigZag = ( value << 1 ) ^ ( value >> 63 ); // small negative numbers stay small
+    while ( ( zigZag & ~0x7FL ) != 0 ) {
+      outputStream.write( (int) ( zigZag & 0x7F ) | 0x80 );
+      zigZag >>>= 7;
+    }
+    outputStream.write( (int) zigZag );
+  }
+
+  private static long readVarLong( DataInputStream inputStream ) throws IOException {
+    long zigZag = 0L;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      int b = inputStream.readUnsignedByte();
+      zigZag |= (long) ( b & 0x7F ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return ( zigZag >>> 1 ) ^ -( zigZag & 1 );
+      }
+    }
+    throw new IOException( "Malformed variable length long" );
+  }
+}
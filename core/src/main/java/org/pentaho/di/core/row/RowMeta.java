@@ -42,16 +42,34 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The row metadata keeps its list of value metadata as an immutable snapshot. Every modification publishes a new copy
+ * of the list, so reading the metadata, which is what happens for every row, never needs a lock. Only the modifications
+ * are serialized.
+ */
 public class RowMeta implements RowMetaInterface {
   public static final String XML_META_TAG = "row-meta";
   public static final String XML_DATA_TAG = "row-data";
 
-  private final ReentrantReadWriteLock lock;
+  /**
+   * Shared by all row metadata instances: a version stamp identifies both the instance and the state of its list of
+   * value metadata.
+   */
+  private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+  /** Serializes the modifications, reads don't take it */
+  private final ReentrantLock lock;
   private final RowMetaCache cache;
-  List<ValueMetaInterface> valueMetaList;
-  List<Integer> needRealClone;
+  private volatile long version;
+
+  /** The current snapshot, never modified once published */
+  volatile List<ValueMetaInterface> valueMetaList;
+
+  /** Indexes in the current snapshot that need a real clone, calculated lazily */
+  volatile List<Integer> needRealClone;
 
   public RowMeta() {
     this( new ArrayList<ValueMetaInterface>(), new RowMetaCache() );
@@ -65,29 +83,29 @@ public class RowMeta implements RowMetaInterface {
    */
   private RowMeta( RowMeta rowMeta, Integer targetType ) throws KettlePluginException {
     this( new ArrayList<ValueMetaInterface>( rowMeta.valueMetaList.size() ), new RowMetaCache( rowMeta.cache ) );
-    for ( ValueMetaInterface valueMetaInterface : rowMeta.valueMetaList ) {
+    List<ValueMetaInterface> source = rowMeta.valueMetaList;
+    for ( ValueMetaInterface valueMetaInterface : source ) {
       valueMetaList.add( ValueMetaFactory
         .cloneValueMeta( valueMetaInterface, targetType == null ? valueMetaInterface.getType() : targetType ) );
     }
-    this.needRealClone = rowMeta.needRealClone;
+    List<Integer> sourceNeedRealClone = rowMeta.needRealClone;
+    this.needRealClone = ( targetType == null && source == rowMeta.valueMetaList ) ? sourceNeedRealClone : null;
   }
 
   private RowMeta( List<ValueMetaInterface> valueMetaList, RowMetaCache rowMetaCache ) {
-    lock = new ReentrantReadWriteLock();
+    lock = new ReentrantLock();
     this.cache = rowMetaCache;
     this.valueMetaList = valueMetaList;
     this.needRealClone = new ArrayList<>();
+    this.version = VERSION_SEQUENCE.incrementAndGet();
   }
 
   @Override
   public RowMeta clone() {
-    lock.readLock().lock();
     try {
       return new RowMeta( this, null );
     } catch ( Exception e ) {
       throw new RuntimeException( e );
-    } finally {
-      lock.readLock().unlock();
     }
   }
 
@@ -100,34 +118,26 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public RowMetaInterface cloneToType( int targetType ) throws KettleValueException {
-    lock.readLock().lock();
     try {
       return new RowMeta( this, targetType );
     } catch ( KettlePluginException e ) {
       throw new KettleValueException( e );
-    } finally {
-      lock.readLock().unlock();
     }
   }
 
   @Override
   public String toString() {
     StringBuilder buffer = new StringBuilder();
-    lock.readLock().lock();
-    try {
-      boolean notFirst = false;
-      for ( ValueMetaInterface valueMeta : valueMetaList ) {
-        if ( notFirst ) {
-          buffer.append( ", " );
-        } else {
-          notFirst = true;
-        }
-        buffer.append( "[" ).append( valueMeta.toString() ).append( "]" );
+    boolean notFirst = false;
+    for ( ValueMetaInterface valueMeta : valueMetaList ) {
+      if ( notFirst ) {
+        buffer.append( ", " );
+      } else {
+        notFirst = true;
       }
-      return buffer.toString();
-    } finally {
-      lock.readLock().unlock();
+      buffer.append( "[" ).append( valueMeta.toString() ).append( "]" );
     }
+    return buffer.toString();
   }
 
   /**
@@ -135,16 +145,14 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public List<ValueMetaInterface> getValueMetaList() {
-    List<ValueMetaInterface> copy;
+    // The snapshot never changes, so there is no need to copy it.
+    // Unmodifiable: kept for backward compatibility
+    return Collections.unmodifiableList( valueMetaList );
+  }
 
-    lock.readLock().lock();
-    try {
-      copy = new ArrayList<>( valueMetaList );
-    } finally {
-      lock.readLock().unlock();
-    }
-    // kept for backward compatibility
-    return Collections.unmodifiableList( copy );
+  @Override
+  public long getVersion() {
+    return version;
   }
 
   /**
@@ -152,31 +160,38 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public void setValueMetaList( List<ValueMetaInterface> valueMetaList ) {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      this.valueMetaList = valueMetaList;
+      List<ValueMetaInterface> snapshot = new ArrayList<>( valueMetaList );
       this.cache.invalidate();
-      for ( int i = 0, len = valueMetaList.size(); i < len; i++ ) {
-        ValueMetaInterface valueMeta = valueMetaList.get( i );
+      for ( int i = 0, len = snapshot.size(); i < len; i++ ) {
+        ValueMetaInterface valueMeta = snapshot.get( i );
         cache.storeMapping( valueMeta.getName(), i );
       }
-      this.needRealClone = null;
+      publish( snapshot );
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
+  /**
+   * Make a new snapshot of the value metadata visible to the readers. Only call this while holding the lock.
+   *
+   * @param snapshot the new list of value metadata, it's not modified anymore after this call
+   */
+  private void publish( List<ValueMetaInterface> snapshot ) {
+    // Clear the derived data BEFORE the new snapshot becomes visible, see getOrCreateValuesThatNeedRealClone()
+    needRealClone = null;
+    valueMetaList = snapshot;
+    version = VERSION_SEQUENCE.incrementAndGet();
+  }
+
   /**
    * @return the number of values in the row
    */
   @Override
   public int size() {
-    lock.readLock().lock();
-    try {
-      return valueMetaList.size();
-    } finally {
-      lock.readLock().unlock();
-    }
+    return valueMetaList.size();
   }
 
   /**
@@ -184,12 +199,7 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public boolean isEmpty() {
-    lock.readLock().lock();
-    try {
-      return valueMetaList.isEmpty();
-    } finally {
-      lock.readLock().unlock();
-    }
+    return valueMetaList.isEmpty();
   }
 
   @Override
@@ -205,7 +215,7 @@ public class RowMeta implements RowMetaInterface {
   @Override
   public void addValueMeta( ValueMetaInterface meta ) {
     if ( meta != null ) {
-      lock.writeLock().lock();
+      lock.lock();
       try {
         ValueMetaInterface newMeta;
         Integer existsIdx = cache.findAndCompare( meta.getName(), valueMetaList );
@@ -215,11 +225,13 @@ public class RowMeta implements RowMetaInterface {
           newMeta = renameValueMetaIfInRow( meta, null );
         }
         int sz = valueMetaList.size();
-        valueMetaList.add( newMeta );
+        List<ValueMetaInterface> snapshot = new ArrayList<>( sz + 1 );
+        snapshot.addAll( valueMetaList );
+        snapshot.add( newMeta );
+        publish( snapshot );
         cache.storeMapping( newMeta.getName(), sz );
-        needRealClone = null;
       } finally {
-        lock.writeLock().unlock();
+        lock.unlock();
       }
     }
   }
@@ -234,7 +246,7 @@ public class RowMeta implements RowMetaInterface {
   @Override
   public void addValueMeta( int index, ValueMetaInterface meta ) {
     if ( meta != null ) {
-      lock.writeLock().lock();
+      lock.lock();
       try {
         ValueMetaInterface newMeta;
         Integer existsIdx = cache.findAndCompare( meta.getName(), valueMetaList );
@@ -243,12 +255,14 @@ public class RowMeta implements RowMetaInterface {
         } else {
           newMeta = renameValueMetaIfInRow( meta, null );
         }
-        valueMetaList.add( index, newMeta );
+        List<ValueMetaInterface> snapshot = new ArrayList<>( valueMetaList.size() + 1 );
+        snapshot.addAll( valueMetaList );
+        snapshot.add( index, newMeta );
+        publish( snapshot );
         cache.storeMapping( newMeta.getName(), index );
-        cache.updateFrom( index + 1, valueMetaList );
-        needRealClone = null;
+        cache.updateFrom( index + 1, snapshot );
       } finally {
-        lock.writeLock().unlock();
+        lock.unlock();
       }
     }
   }
@@ -261,15 +275,11 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public ValueMetaInterface getValueMeta( int index ) {
-    lock.readLock().lock();
-    try {
-      if ( ( index >= 0 ) && ( index < valueMetaList.size() ) ) {
-        return valueMetaList.get( index );
-      } else {
-        return null;
-      }
-    } finally {
-      lock.readLock().unlock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    if ( ( index >= 0 ) && ( index < snapshot.size() ) ) {
+      return snapshot.get( index );
+    } else {
+      return null;
     }
   }
 
@@ -282,7 +292,7 @@ public class RowMeta implements RowMetaInterface {
   @Override
   public void setValueMeta( int index, ValueMetaInterface valueMeta ) {
     if ( valueMeta != null ) {
-      lock.writeLock().lock();
+      lock.lock();
       try {
         ValueMetaInterface old = valueMetaList.get( index );
         ValueMetaInterface newMeta = valueMeta;
@@ -294,11 +304,12 @@ public class RowMeta implements RowMetaInterface {
         if ( existsIndex >= 0 && existsIndex != index ) {
           newMeta = renameValueMetaIfInRow( valueMeta, null );
         }
-        valueMetaList.set( index, newMeta );
+        List<ValueMetaInterface> snapshot = new ArrayList<>( valueMetaList );
+        snapshot.set( index, newMeta );
+        publish( snapshot );
         cache.replaceMapping( old.getName(), newMeta.getName(), index );
-        needRealClone = null;
       } finally {
-        lock.writeLock().unlock();
+        lock.unlock();
       }
     }
   }
@@ -454,37 +465,47 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public Object[] cloneRow( Object[] objects, Object[] newObjects ) throws KettleValueException {
-    lock.writeLock().lock();
-    List<Integer> list = getOrCreateValuesThatNeedRealClone( valueMetaList );
-    try {
-      for ( Integer i : list ) {
-        ValueMetaInterface valueMeta = valueMetaList.get( i );
-        newObjects[ i ] = valueMeta.cloneValueData( objects[ i ] );
-      }
-      return newObjects;
-    } finally {
-      lock.writeLock().unlock();
-    }
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    List<Integer> list = getOrCreateValuesThatNeedRealClone( snapshot );
+    for ( int j = 0, len = list.size(); j < len; j++ ) {
+      int i = list.get( j );
+      ValueMetaInterface valueMeta = snapshot.get( i );
+      newObjects[ i ] = valueMeta.cloneValueData( objects[ i ] );
+    }
+    return newObjects;
   }
 
+  /**
+   * @param values a snapshot of the value metadata, read BEFORE calling this method
+   * @return the indexes of the values in the snapshot that need a real clone
+   */
   @VisibleForTesting
   List<Integer> getOrCreateValuesThatNeedRealClone( List<ValueMetaInterface> values ) {
-    lock.writeLock().lock();
+    List<Integer> list = needRealClone;
+    if ( list != null && values == valueMetaList ) {
+      // needRealClone is cleared before a new snapshot is published, so this is the list for our snapshot
+      return list;
+    }
+
+    int len = values.size();
+    list = new ArrayList<>( len );
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta = values.get( i );
+      if ( valueMeta.requiresRealClone() ) {
+        list.add( i );
+      }
+    }
+
+    // Only keep the result if nobody published a new snapshot in the meantime
+    lock.lock();
     try {
-      if ( needRealClone == null ) {
-        int len = values.size();
-        needRealClone = new ArrayList<>( len );
-        for ( int i = 0; i < len; i++ ) {
-          ValueMetaInterface valueMeta = values.get( i );
-          if ( valueMeta.requiresRealClone() ) {
-            needRealClone.add( i );
-          }
-        }
+      if ( values == valueMetaList ) {
+        needRealClone = list;
       }
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
-    return needRealClone;
+    return list;
   }
 
   @Override
@@ -522,30 +543,27 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public int indexOfValue( String valueName ) {
+    return indexOfValue( valueName, valueMetaList );
+  }
+
+  private int indexOfValue( String valueName, List<ValueMetaInterface> snapshot ) {
     if ( valueName == null ) {
       return -1;
     }
 
-    lock.writeLock().lock();
-    try {
-      Integer index = cache.findAndCompare( valueName, valueMetaList );
-      for ( int i = 0; ( index == null ) && ( i < valueMetaList.size() ); i++ ) {
-        if ( valueName.equalsIgnoreCase( valueMetaList.get( i ).getName() ) ) {
-          index = i;
-          // it is possible, that several threads can call storing simultaneously
-          // but it makes no harm as they will put the same value,
-          // because valueMetaList is defended from modifications by read lock
-          cache.storeMapping( valueName, index );
-          needRealClone = null;
-        }
-      }
-      if ( index == null ) {
-        return -1;
+    Integer index = cache.findAndCompare( valueName, snapshot );
+    for ( int i = 0; ( index == null ) && ( i < snapshot.size() ); i++ ) {
+      if ( valueName.equalsIgnoreCase( snapshot.get( i ).getName() ) ) {
+        index = i;
+        // it is possible, that several threads can call storing simultaneously
+        // but it makes no harm: every lookup in the cache is verified against the snapshot used
+        cache.storeMapping( valueName, index );
       }
-      return index;
-    } finally {
-      lock.writeLock().unlock();
     }
+    if ( index == null ) {
+      return -1;
+    }
+    return index;
   }
 
   /**
@@ -556,23 +574,17 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public ValueMetaInterface searchValueMeta( String valueName ) {
-    lock.writeLock().lock();
-    try {
-      Integer index = indexOfValue( valueName );
-      if ( index < 0 ) {
-        return null;
-      }
-      return valueMetaList.get( index );
-    } finally {
-      lock.writeLock().unlock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    int index = indexOfValue( valueName, snapshot );
+    if ( index < 0 ) {
+      return null;
     }
+    return snapshot.get( index );
   }
 
   @Override
   public void addRowMeta( RowMetaInterface rowMeta ) {
-    for ( int i = 0; i < rowMeta.size(); i++ ) {
-      addValueMeta( rowMeta.getValueMeta( i ) );
-    }
+    addValueMetas( rowMeta, null );
   }
 
   /**
@@ -596,29 +608,58 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public void mergeRowMeta( RowMetaInterface r, String originStepName ) {
-    lock.writeLock().lock();
+    addValueMetas( r, originStepName );
+  }
+
+  /**
+   * Add the values of another row metadata at the end of the row, renaming the ones that are already in the row. The
+   * new list is built under the lock and published once: readers see either none or all of the added values.
+   *
+   * @param rowMeta    the row metadata to add
+   * @param originStep the origin step of the renamed values, null to keep their origin
+   */
+  private void addValueMetas( RowMetaInterface rowMeta, String originStep ) {
+    // Read the values first, rowMeta can be this row metadata
+    int nrAdded = rowMeta.size();
+    List<ValueMetaInterface> added = new ArrayList<>( nrAdded );
+    for ( int i = 0; i < nrAdded; i++ ) {
+      added.add( rowMeta.getValueMeta( i ) );
+    }
+    lock.lock();
     try {
-      for ( int x = 0; x < r.size(); x++ ) {
-        ValueMetaInterface field = r.getValueMeta( x );
-        if ( searchValueMeta( field.getName() ) == null ) {
-          addValueMeta( field ); // Not in list yet: add
-        } else {
-          // We want to rename the field to Name[2], Name[3], ...
-          //
-          addValueMeta( renameValueMetaIfInRow( field, originStepName ) );
+      int start = valueMetaList.size();
+      List<ValueMetaInterface> snapshot = new ArrayList<>( start + added.size() );
+      snapshot.addAll( valueMetaList );
+      for ( ValueMetaInterface meta : added ) {
+        if ( meta == null ) {
+          continue;
+        }
+        if ( indexOfValue( meta.getName(), snapshot ) >= 0 ) {
+          meta = renameValueMetaIfInRow( meta, originStep, snapshot );
         }
+        snapshot.add( meta );
+        // Lookups against older snapshots ignore the indexes past their size
+        cache.storeMapping( meta.getName(), snapshot.size() - 1 );
+      }
+      if ( snapshot.size() > start ) {
+        publish( snapshot );
       }
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
   private ValueMetaInterface renameValueMetaIfInRow( ValueMetaInterface valueMeta, String originStep ) {
+    return renameValueMetaIfInRow( valueMeta, originStep, valueMetaList );
+  }
+
+  private ValueMetaInterface renameValueMetaIfInRow( ValueMetaInterface valueMeta, String originStep,
+    List<ValueMetaInterface> values ) {
     // We want to rename the field to Name[2], Name[3], ...
     //
     int index = 1;
     String name = valueMeta.getName() + "_" + index;
-    while ( searchValueMeta( name ) != null ) {
+    while ( indexOfValue( name, values ) >= 0 ) {
       index++;
       name = valueMeta.getName() + "_" + index;
     }
@@ -644,19 +685,15 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public String[] getFieldNames() {
-    lock.readLock().lock();
-    try {
-      String[] retval = new String[ size() ];
-
-      for ( int i = 0; i < size(); i++ ) {
-        String valueName = getValueMeta( i ).getName();
-        retval[i] = valueName == null ? "" : valueName;
-      }
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    String[] retval = new String[ snapshot.size() ];
 
-      return retval;
-    } finally {
-      lock.readLock().unlock();
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      String valueName = snapshot.get( i ).getName();
+      retval[i] = valueName == null ? "" : valueName;
     }
+
+    return retval;
   }
 
   /**
@@ -666,25 +703,21 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public void writeData( DataOutputStream outputStream, Object[] data ) throws KettleFileException {
-    lock.readLock().lock();
-    try {
-      // Write all values in the row
-      for ( int i = 0; i < size(); i++ ) {
-        getValueMeta( i ).writeData( outputStream, data[ i ] );
-      }
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    // Write all values in the row
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      snapshot.get( i ).writeData( outputStream, data[ i ] );
+    }
 
-      // If there are 0 values in the row, we write a marker flag to be able to detect an EOF on the other end (sockets
-      // etc)
-      //
-      if ( size() == 0 ) {
-        try {
-          outputStream.writeBoolean( true );
-        } catch ( IOException e ) {
-          throw new KettleFileException( "Error writing marker flag", e );
-        }
+    // If there are 0 values in the row, we write a marker flag to be able to detect an EOF on the other end (sockets
+    // etc)
+    //
+    if ( snapshot.size() == 0 ) {
+      try {
+        outputStream.writeBoolean( true );
+      } catch ( IOException e ) {
+        throw new KettleFileException( "Error writing marker flag", e );
       }
-    } finally {
-      lock.readLock().unlock();
     }
   }
 
@@ -695,21 +728,17 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public void writeMeta( DataOutputStream outputStream ) throws KettleFileException {
-    lock.readLock().lock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    // First handle the number of fields in a row
     try {
-      // First handle the number of fields in a row
-      try {
-        outputStream.writeInt( size() );
-      } catch ( IOException e ) {
-        throw new KettleFileException( "Unable to write nr of metadata values", e );
-      }
+      outputStream.writeInt( snapshot.size() );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write nr of metadata values", e );
+    }
 
-      // Write all values in the row
-      for ( int i = 0; i < size(); i++ ) {
-        getValueMeta( i ).writeMeta( outputStream );
-      }
-    } finally {
-      lock.readLock().unlock();
+    // Write all values in the row
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      snapshot.get( i ).writeMeta( outputStream );
     }
 
   }
@@ -746,45 +775,40 @@ public class RowMeta implements RowMetaInterface {
 
   @Override
   public Object[] readData( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
-    lock.readLock().lock();
-    try {
-      Object[] data = new Object[ size() ];
-      for ( int i = 0; i < size(); i++ ) {
-        data[ i ] = getValueMeta( i ).readData( inputStream );
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    Object[] data = new Object[ snapshot.size() ];
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      data[ i ] = snapshot.get( i ).readData( inputStream );
+    }
+    if ( snapshot.size() == 0 ) {
+      try {
+        inputStream.readBoolean();
+      } catch ( EOFException e ) {
+        throw new KettleEOFException( e );
+      } catch ( SocketTimeoutException e ) {
+        throw e;
+      } catch ( IOException e ) {
+        throw new KettleFileException( toString() + " : Unable to read the marker flag data from input stream", e );
       }
-      if ( size() == 0 ) {
-        try {
-          inputStream.readBoolean();
-        } catch ( EOFException e ) {
-          throw new KettleEOFException( e );
-        } catch ( SocketTimeoutException e ) {
-          throw e;
-        } catch ( IOException e ) {
-          throw new KettleFileException( toString() + " : Unable to read the marker flag data from input stream", e );
-        }
 
-      }
-      return data;
-    } finally {
-      lock.readLock().unlock();
     }
+    return data;
   }
 
   @Override
   public void clear() {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      valueMetaList.clear();
+      publish( new ArrayList<>() );
       cache.invalidate();
-      needRealClone = null;
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
   @Override
   public void removeValueMeta( String valueName ) throws KettleValueException {
-    lock.writeLock().lock();
+    lock.lock();
     try {
       int index = indexOfValue( valueName );
       if ( index < 0 ) {
@@ -793,22 +817,23 @@ public class RowMeta implements RowMetaInterface {
       }
       removeValueMeta( index );
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
   @Override
   public void removeValueMeta( int index ) {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      ValueMetaInterface old = valueMetaList.remove( index );
+      List<ValueMetaInterface> snapshot = new ArrayList<>( valueMetaList );
+      ValueMetaInterface old = snapshot.remove( index );
+      publish( snapshot );
       if ( old != null ) {
         cache.removeMapping( old.getName() );
-        cache.updateFrom( index, valueMetaList );
+        cache.updateFrom( index, snapshot );
       }
-      needRealClone = null;
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -818,21 +843,16 @@ public class RowMeta implements RowMetaInterface {
   @Override
   public String toStringMeta() {
     StringBuilder buffer = new StringBuilder();
-    lock.readLock().lock();
-    try {
-      boolean notFirst = false;
-      for ( ValueMetaInterface valueMeta : valueMetaList ) {
-        if ( notFirst ) {
-          buffer.append( ", " );
-        } else {
-          notFirst = true;
-        }
-        buffer.append( "[" ).append( valueMeta.toStringMeta() ).append( "]" );
+    boolean notFirst = false;
+    for ( ValueMetaInterface valueMeta : valueMetaList ) {
+      if ( notFirst ) {
+        buffer.append( ", " );
+      } else {
+        notFirst = true;
       }
-      return buffer.toString();
-    } finally {
-      lock.readLock().unlock();
+      buffer.append( "[" ).append( valueMeta.toStringMeta() ).append( "]" );
     }
+    return buffer.toString();
   }
 
   /**
@@ -844,21 +864,17 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public String getString( Object[] row ) throws KettleValueException {
-    lock.readLock().lock();
-    try {
-      StringBuilder buffer = new StringBuilder();
-      for ( int i = 0; i < size(); i++ ) {
-        if ( i > 0 ) {
-          buffer.append( ", " );
-        }
-        buffer.append( "[" );
-        buffer.append( getString( row, i ) );
-        buffer.append( "]" );
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    StringBuilder buffer = new StringBuilder();
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      if ( i > 0 ) {
+        buffer.append( ", " );
       }
-      return buffer.toString();
-    } finally {
-      lock.readLock().unlock();
+      buffer.append( "[" );
+      buffer.append( getString( row, i ) );
+      buffer.append( "]" );
     }
+    return buffer.toString();
   }
 
   /**
@@ -870,20 +886,16 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public String[] getFieldNamesAndTypes( int maxlen ) {
-    lock.readLock().lock();
-    try {
-      final int size = size();
-      String[] retval = new String[ size ];
-
-      for ( int i = 0; i < size; i++ ) {
-        ValueMetaInterface v = getValueMeta( i );
-        retval[ i ] = Const.rightPad( v.getName(), maxlen ) + "   (" + v.getTypeDesc() + ")";
-      }
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    final int size = snapshot.size();
+    String[] retval = new String[ size ];
 
-      return retval;
-    } finally {
-      lock.readLock().unlock();
+    for ( int i = 0; i < size; i++ ) {
+      ValueMetaInterface v = snapshot.get( i );
+      retval[ i ] = Const.rightPad( v.getName(), maxlen ) + "   (" + v.getTypeDesc() + ")";
     }
+
+    return retval;
   }
 
   /**
@@ -898,21 +910,16 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
-    lock.readLock().lock();
-    try {
-      for ( int fieldnr : fieldnrs ) {
-        ValueMetaInterface valueMeta = getValueMeta( fieldnr );
+    for ( int fieldnr : fieldnrs ) {
+      ValueMetaInterface valueMeta = getValueMeta( fieldnr );
 
-        int cmp = valueMeta.compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
-        if ( cmp != 0 ) {
-          return cmp;
-        }
+      int cmp = valueMeta.compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
+      if ( cmp != 0 ) {
+        return cmp;
       }
-
-      return 0;
-    } finally {
-      lock.readLock().unlock();
     }
+
+    return 0;
   }
 
   /**
@@ -927,21 +934,16 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public boolean equals( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
-    lock.readLock().lock();
-    try {
-      for ( int fieldnr : fieldnrs ) {
-        ValueMetaInterface valueMeta = getValueMeta( fieldnr );
+    for ( int fieldnr : fieldnrs ) {
+      ValueMetaInterface valueMeta = getValueMeta( fieldnr );
 
-        int cmp = valueMeta.compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
-        if ( cmp != 0 ) {
-          return false;
-        }
+      int cmp = valueMeta.compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
+      if ( cmp != 0 ) {
+        return false;
       }
-
-      return true;
-    } finally {
-      lock.readLock().unlock();
     }
+
+    return true;
   }
 
   /**
@@ -959,21 +961,16 @@ public class RowMeta implements RowMetaInterface {
   public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2 )
     throws KettleValueException {
     int len = ( fieldnrs1.length < fieldnrs2.length ) ? fieldnrs1.length : fieldnrs2.length;
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < len; i++ ) {
-        ValueMetaInterface valueMeta = getValueMeta( fieldnrs1[ i ] );
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta = getValueMeta( fieldnrs1[ i ] );
 
-        int cmp = valueMeta.compare( rowData1[ fieldnrs1[ i ] ], rowData2[ fieldnrs2[ i ] ] );
-        if ( cmp != 0 ) {
-          return cmp;
-        }
+      int cmp = valueMeta.compare( rowData1[ fieldnrs1[ i ] ], rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
       }
-
-      return 0;
-    } finally {
-      lock.readLock().unlock();
     }
+
+    return 0;
   }
 
   /**
@@ -992,22 +989,17 @@ public class RowMeta implements RowMetaInterface {
   public int compare( Object[] rowData1, RowMetaInterface rowMeta2, Object[] rowData2, int[] fieldnrs1,
                       int[] fieldnrs2 ) throws KettleValueException {
     int len = ( fieldnrs1.length < fieldnrs2.length ) ? fieldnrs1.length : fieldnrs2.length;
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < len; i++ ) {
-        ValueMetaInterface valueMeta1 = getValueMeta( fieldnrs1[ i ] );
-        ValueMetaInterface valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[ i ] );
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta1 = getValueMeta( fieldnrs1[ i ] );
+      ValueMetaInterface valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[ i ] );
 
-        int cmp = valueMeta1.compare( rowData1[ fieldnrs1[ i ] ], valueMeta2, rowData2[ fieldnrs2[ i ] ] );
-        if ( cmp != 0 ) {
-          return cmp;
-        }
+      int cmp = valueMeta1.compare( rowData1[ fieldnrs1[ i ] ], valueMeta2, rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
       }
-
-      return 0;
-    } finally {
-      lock.readLock().unlock();
     }
+
+    return 0;
   }
 
   /**
@@ -1021,21 +1013,17 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public int compare( Object[] rowData1, Object[] rowData2 ) throws KettleValueException {
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < size(); i++ ) {
-        ValueMetaInterface valueMeta = getValueMeta( i );
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      ValueMetaInterface valueMeta = snapshot.get( i );
 
-        int cmp = valueMeta.compare( rowData1[ i ], rowData2[ i ] );
-        if ( cmp != 0 ) {
-          return cmp;
-        }
+      int cmp = valueMeta.compare( rowData1[ i ], rowData2[ i ] );
+      if ( cmp != 0 ) {
+        return cmp;
       }
-
-      return 0;
-    } finally {
-      lock.readLock().unlock();
     }
+
+    return 0;
   }
 
   /**
@@ -1052,17 +1040,13 @@ public class RowMeta implements RowMetaInterface {
   @Deprecated
   public int oldXORHashCode( Object[] rowData ) throws KettleValueException {
     int hash = 0;
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < size(); i++ ) {
-        ValueMetaInterface valueMeta = getValueMeta( i );
-        hash ^= valueMeta.hashCode( rowData[ i ] );
-      }
-
-      return hash;
-    } finally {
-      lock.readLock().unlock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      ValueMetaInterface valueMeta = snapshot.get( i );
+      hash ^= valueMeta.hashCode( rowData[ i ] );
     }
+
+    return hash;
   }
 
   /**
@@ -1099,15 +1083,10 @@ public class RowMeta implements RowMetaInterface {
     }
 
     int result = 1;
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < rowData.length; i++ ) {
-        result = 31 * result + getValueMeta( i ).hashCode();
-      }
-      return result;
-    } finally {
-      lock.readLock().unlock();
+    for ( int i = 0; i < rowData.length; i++ ) {
+      result = 31 * result + getValueMeta( i ).hashCode();
     }
+    return result;
   }
 
   /**
@@ -1171,13 +1150,9 @@ public class RowMeta implements RowMetaInterface {
 
     xml.append( "<" ).append( XML_META_TAG ).append( ">" );
 
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < size(); i++ ) {
-        xml.append( getValueMeta( i ).getMetaXML() );
-      }
-    } finally {
-      lock.readLock().unlock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      xml.append( snapshot.get( i ).getMetaXML() );
     }
 
     xml.append( "</" ).append( XML_META_TAG ).append( ">" );
@@ -1215,13 +1190,9 @@ public class RowMeta implements RowMetaInterface {
 
     xml.append( "<" ).append( XML_DATA_TAG ).append( ">" );
 
-    lock.readLock().lock();
-    try {
-      for ( int i = 0; i < size(); i++ ) {
-        xml.append( getValueMeta( i ).getDataXML( rowData[ i ] ) );
-      }
-    } finally {
-      lock.readLock().unlock();
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      xml.append( snapshot.get( i ).getDataXML( rowData[ i ] ) );
     }
 
     xml.append( "</" ).append( XML_DATA_TAG ).append( ">" );
@@ -1238,18 +1209,14 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public Object[] getRow( Node node ) throws KettleException {
-    lock.readLock().lock();
-    try {
-      Object[] rowData = RowDataUtil.allocateRowData( size() );
+    List<ValueMetaInterface> snapshot = valueMetaList;
+    Object[] rowData = RowDataUtil.allocateRowData( snapshot.size() );
 
-      for ( int i = 0; i < size(); i++ ) {
-        Node valueDataNode = XMLHandler.getSubNodeByNr( node, ValueMeta.XML_DATA_TAG, i );
-        rowData[ i ] = getValueMeta( i ).getValue( valueDataNode );
-      }
-      return rowData;
-    } finally {
-      lock.readLock().unlock();
+    for ( int i = 0; i < snapshot.size(); i++ ) {
+      Node valueDataNode = XMLHandler.getSubNodeByNr( node, ValueMeta.XML_DATA_TAG, i );
+      rowData[ i ] = snapshot.get( i ).getValue( valueDataNode );
     }
+    return rowData;
   }
 
   @VisibleForTesting
@@ -1309,6 +1276,10 @@ public class RowMeta implements RowMetaInterface {
 
       name = name.toLowerCase();
       Integer index = mapping.get( name );
+      if ( index != null && index >= metas.size() ) {
+        // stored by a newer snapshot than the one we're looking at
+        return null;
+      }
       if ( index != null ) {
         ValueMetaInterface value = metas.get( index );
         if ( !name.equalsIgnoreCase( value.getName() ) ) {
@@ -72,6 +72,17 @@ public interface RowMetaInterface extends Cloneable {
    */
   public void setValueMetaList( List<ValueMetaInterface> valueMetaList );
 
+  /**
+   * Gets a stamp that changes every time a value metadata is added, removed or replaced. This allows callers to cache
+   * checks done on the list of value metadata. Note that changes made to the value metadata themselves are not
+   * tracked.
+   *
+   * @return the version stamp or -1 if the implementation doesn't keep track of changes.
+   */
+  public default long getVersion() {
+    return -1L;
+  }
+
   /**
    * Check if a value is already present in this row with the same name.
    *
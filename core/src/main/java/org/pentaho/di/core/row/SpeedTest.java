@@ -13,7 +13,14 @@
 
 package org.pentaho.di.core.row;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -176,6 +183,46 @@ public class SpeedTest {
     return stopTime - startTime;
   }
 
+  /**
+   * Compare rows on all the fields of the shared 'Mixed10' row metadata from a number of threads at the same time. The
+   * row metadata is read for every field of every row, so this shows the cost of any locking done on these reads.
+   *
+   * @param threads    the number of threads reading the same row metadata
+   * @param iterations the number of comparisons done by every thread
+   * @return the elapsed time in ms
+   */
+  public long runTestConcurrentReadsMixed10( int threads, final int iterations ) throws KettleValueException {
+    ExecutorService executor = Executors.newFixedThreadPool( threads );
+    List<Callable<Integer>> readers = new ArrayList<>( threads );
+    for ( int t = 0; t < threads; t++ ) {
+      readers.add( () -> {
+        int result = 0;
+        for ( int i = 0; i < iterations; i++ ) {
+          result += metaMixed10.compare( rowMixed10, rowMixed10 );
+          result += metaMixed10.indexOfValue( "String" + ( ( i % 10 ) * 5 + 1 ) );
+        }
+        return result;
+      } );
+    }
+
+    long startTime = System.currentTimeMillis();
+    try {
+      for ( Future<Integer> future : executor.invokeAll( readers ) ) {
+        future.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleValueException( e );
+    } catch ( ExecutionException e ) {
+      throw new KettleValueException( e.getCause() );
+    } finally {
+      executor.shutdown();
+    }
+    long stopTime = System.currentTimeMillis();
+
+    return stopTime - startTime;
+  }
+
   public static final int ITERATIONS = 1000000;
 
   public static void main( String[] args ) throws KettleValueException {
@@ -208,6 +255,14 @@ public class SpeedTest {
     runtimeTestMessage.append( "Time to run 'Mixed1000' test "
       + ITERATIONS + strTimesPrefix + timeMixed1000 + strMsPrefix + ( 1000 * ITERATIONS / timeMixed1000 ) + strRowPerSec );
 
+    // The row metadata reads don't take any lock, so this should scale with the number of threads
+    //
+    int threads = Runtime.getRuntime().availableProcessors();
+    long timeConcurrent = speedTest.runTestConcurrentReadsMixed10( threads, ITERATIONS );
+    runtimeTestMessage.append( "Time to run 'ConcurrentReadsMixed10' test with " + threads + " threads "
+      + ITERATIONS + strTimesPrefix + timeConcurrent + strMsPrefix
+      + ( 1000L * threads * ITERATIONS / timeConcurrent ) + strRowPerSec );
+
     log.info( runtimeTestMessage );
   }
 
@@ -0,0 +1,292 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * A date conversion mask compiled into a parser and formatter that work directly on characters or bytes.<br>
+ * <br>
+ * Only numeric patterns are compiled: yyyy (3 letters or more), M, MM, d, H, m, s, S and literal characters other than
+ * letters, digits and quotes, for example yyyy-MM-dd HH:mm:ss.SSS or yyyyMMdd. Text that doesn't match the pattern
+ * exactly is reported as not parsed: the caller then falls back to the {@link SimpleDateFormat} the mask was compiled
+ * from, so the results and the error messages stay the same. Like the date format, characters after the end of the
+ * pattern are ignored.<br>
+ * <br>
+ * The parsed fields are set on a calendar that is a copy of the one of the date format, with its time zone, leniency
+ * and daylight saving rules. Every thread gets its own copy, so instances can be shared by any number of threads.
+ */
+public final class CompiledDateMask {
+  /**
+   * Returned by {@link #parse(CharSequence)} if the text can't be handled by the compiled mask.
+   */
+  public static final long NOT_PARSED = Long.MIN_VALUE;
+
+  /**
+   * Numeric fields followed by a literal read up to this many digits, more is left to the date format
+   */
+  private static final int MAX_DIGITS = 9;
+
+  private final SimpleDateFormat source;
+  private final boolean supported;
+
+  /**
+   * The calendar field of every element of the pattern, -1 for a literal
+   */
+  private final int[] fields;
+  private final int[] counts;
+  private final boolean[] abutting;
+  private final String[] literals;
+
+  private final ThreadLocal<Calendar> calendars;
+
+  private CompiledDateMask( SimpleDateFormat source ) {
+    this.source = source;
+
+    List<Integer> fieldList = new ArrayList<>();
+    List<Integer> countList = new ArrayList<>();
+    List<String> literalList = new ArrayList<>();
+    boolean ok = source.getClass() == SimpleDateFormat.class
+      && source.getCalendar().getClass() == GregorianCalendar.class
+      && hasAsciiDigits( source.getNumberFormat() );
+
+    String pattern = source.toPattern();
+    int i = 0;
+    while ( ok && i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      int j = i + 1;
+      if ( isLetter( c ) ) {
+        while ( j < pattern.length() && pattern.charAt( j ) == c ) {
+          j++;
+        }
+        int field = getCalendarField( c, j - i );
+        ok = field >= 0;
+        fieldList.add( field );
+        countList.add( j - i );
+        literalList.add( null );
+      } else {
+        while ( j < pattern.length() && !isLetter( pattern.charAt( j ) ) ) {
+          j++;
+        }
+        String literal = pattern.substring( i, j );
+        for ( int k = 0; k < literal.length(); k++ ) {
+          char l = literal.charAt( k );
+          ok &= l != '\'' && !CompiledNumberMask.isDigit( l );
+        }
+        fieldList.add( -1 );
+        countList.add( 0 );
+        literalList.add( literal );
+      }
+      i = j;
+    }
+
+    int n = fieldList.size();
+    fields = new int[ n ];
+    counts = new int[ n ];
+    abutting = new boolean[ n ];
+    literals = literalList.toArray( new String[ n ] );
+    for ( int e = 0; e < n; e++ ) {
+      fields[ e ] = fieldList.get( e );
+      counts[ e ] = countList.get( e );
+      // Like SimpleDateFormat: a field followed by another field is read with a fixed width
+      abutting[ e ] = fields[ e ] >= 0 && e + 1 < n && fieldList.get( e + 1 ) >= 0;
+    }
+    supported = ok && n > 0;
+
+    final Calendar template = (Calendar) source.getCalendar().clone();
+    calendars = ThreadLocal.withInitial( () -> (Calendar) template.clone() );
+  }
+
+  /**
+   * Compile the pattern of a date format. The format is not modified and can keep on being used.
+   *
+   * @param format the date format to compile
+   * @return the compiled mask, see {@link #isSupported()} to know if it can parse anything at all
+   */
+  public static CompiledDateMask compile( SimpleDateFormat format ) {
+    return new CompiledDateMask( format );
+  }
+
+  /**
+   * @param format a date format
+   * @return true if this mask was compiled from exactly that date format instance
+   */
+  public boolean isCompiledFrom( SimpleDateFormat format ) {
+    return source == format;
+  }
+
+  /**
+   * @return false if the pattern of the date format can't be compiled and nothing will ever be parsed or formatted
+   */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * @return true if the literals of the pattern are ASCII characters, so bytes can be parsed in any encoding that is
+   *         compatible with ASCII
+   */
+  boolean isAscii() {
+    for ( String literal : literals ) {
+      if ( literal != null ) {
+        for ( int i = 0; i < literal.length(); i++ ) {
+          if ( literal.charAt( i ) >= 0x80 ) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse the text as a date.
+   *
+   * @param text the text to parse, trimmed
+   * @return the date in milliseconds since the epoch or {@link #NOT_PARSED} if the text can't be handled by the
+   *         compiled mask
+   */
+  public long parse( CharSequence text ) {
+    return parse( text, null, 0, text.length() );
+  }
+
+  /**
+   * Parse an ASCII compatible binary string as a date.
+   *
+   * @param bytes  the encoded text
+   * @param offset the index of the first byte
+   * @param length the number of bytes to parse
+   * @return the date in milliseconds since the epoch or {@link #NOT_PARSED} if the bytes can't be handled by the
+   *         compiled mask
+   */
+  public long parse( byte[] bytes, int offset, int length ) {
+    return parse( null, bytes, offset, offset + length );
+  }
+
+  private long parse( CharSequence text, byte[] bytes, int start, int end ) {
+    if ( !supported ) {
+      return NOT_PARSED;
+    }
+    Calendar calendar = calendars.get();
+    calendar.clear();
+
+    int pos = start;
+    for ( int e = 0; e < fields.length; e++ ) {
+      if ( fields[ e ] < 0 ) {
+        String literal = literals[ e ];
+        for ( int i = 0; i < literal.length(); i++, pos++ ) {
+          if ( pos >= end || charAt( text, bytes, pos ) != literal.charAt( i ) ) {
+            return NOT_PARSED;
+          }
+        }
+        continue;
+      }
+
+      int maxDigits = abutting[ e ] ? counts[ e ] : MAX_DIGITS;
+      int value = 0;
+      int digits = 0;
+      while ( digits < maxDigits && pos < end && CompiledNumberMask.isDigit( charAt( text, bytes, pos ) ) ) {
+        value = value * 10 + ( charAt( text, bytes, pos ) - '0' );
+        digits++;
+        pos++;
+      }
+      if ( digits == 0 || ( abutting[ e ] && digits < counts[ e ] )
+        || ( !abutting[ e ] && pos < end && CompiledNumberMask.isDigit( charAt( text, bytes, pos ) ) ) ) {
+        return NOT_PARSED;
+      }
+      calendar.set( fields[ e ], fields[ e ] == Calendar.MONTH ? value - 1 : value );
+    }
+
+    try {
+      return calendar.getTimeInMillis();
+    } catch ( IllegalArgumentException e ) {
+      // Not lenient and out of range: let the date format report it
+      return NOT_PARSED;
+    }
+  }
+
+  /**
+   * Format a date.
+   *
+   * @param millis the date in milliseconds since the epoch
+   * @return the formatted date or null if the compiled mask isn't supported
+   */
+  public String format( long millis ) {
+    if ( !supported ) {
+      return null;
+    }
+    Calendar calendar = calendars.get();
+    calendar.setTimeInMillis( millis );
+
+    StringBuilder formatted = new StringBuilder( 32 );
+    for ( int e = 0; e < fields.length; e++ ) {
+      if ( fields[ e ] < 0 ) {
+        formatted.append( literals[ e ] );
+        continue;
+      }
+      int value = calendar.get( fields[ e ] );
+      if ( fields[ e ] == Calendar.MONTH ) {
+        value++;
+      }
+      int length = formatted.length();
+      formatted.append( value );
+      for ( int pad = counts[ e ] - ( formatted.length() - length ); pad > 0; pad-- ) {
+        formatted.insert( length, '0' );
+      }
+    }
+    return formatted.toString();
+  }
+
+  private static int getCalendarField( char letter, int count ) {
+    switch ( letter ) {
+      case 'y':
+        // Two digit years are resolved against a century, leave that to the date format
+        return count >= 3 ? Calendar.YEAR : -1;
+      case 'M':
+        // MMM and longer are month names
+        return count <= 2 ? Calendar.MONTH : -1;
+      case 'd':
+        return Calendar.DAY_OF_MONTH;
+      case 'H':
+        return Calendar.HOUR_OF_DAY;
+      case 'm':
+        return Calendar.MINUTE;
+      case 's':
+        return Calendar.SECOND;
+      case 'S':
+        return Calendar.MILLISECOND;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean hasAsciiDigits( NumberFormat numberFormat ) {
+    return numberFormat instanceof DecimalFormat
+      && ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() == '0';
+  }
+
+  private static boolean isLetter( char c ) {
+    return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' );
+  }
+
+  private static char charAt( CharSequence text, byte[] bytes, int i ) {
+    return text != null ? text.charAt( i ) : (char) ( bytes[ i ] & 0xFF );
+  }
+}
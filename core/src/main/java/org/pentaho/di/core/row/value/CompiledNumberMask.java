@@ -0,0 +1,251 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * A number conversion mask compiled into a parser that works directly on characters or bytes.<br>
+ * <br>
+ * Only the plain patterns that make up nearly all Kettle masks are compiled: digits, grouping and decimal separators
+ * and a minus sign, without prefix, suffix, percent or currency. Text that doesn't match that grammar exactly, or that
+ * needs more precision than a double can represent exactly, is reported as not parsed: the caller then falls back to
+ * the {@link DecimalFormat} the mask was compiled from, so the results and the error messages stay the same.<br>
+ * <br>
+ * Instances are immutable and can be shared by any number of threads. Parsing doesn't allocate.
+ */
+public final class CompiledNumberMask {
+  /**
+   * Returned by {@link #parseInteger(CharSequence)} if the text can't be handled by the compiled mask.
+   */
+  public static final long NOT_PARSED = Long.MIN_VALUE;
+
+  /**
+   * The largest mantissa that is exactly representable as a double, with some margin to spare
+   */
+  private static final long MAX_EXACT_MANTISSA = 999_999_999_999_999L;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+    1e21, 1e22 };
+
+  private final DecimalFormat source;
+  private final boolean supported;
+  private final char decimalSeparator;
+  private final char groupingSeparator;
+  private final boolean groupingUsed;
+  private final char minusSign;
+
+  private CompiledNumberMask( DecimalFormat source ) {
+    this.source = source;
+
+    DecimalFormatSymbols symbols = source.getDecimalFormatSymbols();
+    decimalSeparator = symbols.getDecimalSeparator();
+    groupingSeparator = symbols.getGroupingSeparator();
+    groupingUsed = source.isGroupingUsed();
+    String negativePrefix = source.getNegativePrefix();
+    minusSign = negativePrefix.length() == 1 ? negativePrefix.charAt( 0 ) : 0;
+
+    supported = source.getPositivePrefix().isEmpty()
+      && source.getPositiveSuffix().isEmpty()
+      && source.getNegativeSuffix().isEmpty()
+      && negativePrefix.length() == 1
+      && source.getMultiplier() == 1
+      && !source.isParseIntegerOnly()
+      && !isDigit( decimalSeparator ) && !isDigit( groupingSeparator ) && !isDigit( minusSign )
+      && decimalSeparator != groupingSeparator
+      && minusSign != decimalSeparator && minusSign != groupingSeparator;
+  }
+
+  /**
+   * Compile the parsing rules of a decimal format. The format is not modified and can keep on being used.
+   *
+   * @param format the decimal format to compile
+   * @return the compiled mask, see {@link #isSupported()} to know if it can parse anything at all
+   */
+  public static CompiledNumberMask compile( DecimalFormat format ) {
+    return new CompiledNumberMask( format );
+  }
+
+  /**
+   * @param format a decimal format
+   * @return true if this mask was compiled from exactly that decimal format instance
+   */
+  public boolean isCompiledFrom( DecimalFormat format ) {
+    return source == format;
+  }
+
+  /**
+   * @return false if the pattern of the decimal format can't be compiled and nothing will ever be parsed
+   */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * @return true if the separators and the minus sign are ASCII characters, so bytes can be parsed in any encoding
+   *         that is compatible with ASCII
+   */
+  boolean isAscii() {
+    return decimalSeparator < 0x80 && groupingSeparator < 0x80 && minusSign < 0x80;
+  }
+
+  /**
+   * Parse the complete text as a number.
+   *
+   * @param text the text to parse, trimmed
+   * @return the number or {@link Double#NaN} if the text can't be handled by the compiled mask
+   */
+  public double parseNumber( CharSequence text ) {
+    return parseNumber( text, null, 0, text.length() );
+  }
+
+  /**
+   * Parse an ASCII compatible binary string as a number.
+   *
+   * @param bytes  the encoded text
+   * @param offset the index of the first byte
+   * @param length the number of bytes to parse
+   * @return the number or {@link Double#NaN} if the bytes can't be handled by the compiled mask
+   */
+  public double parseNumber( byte[] bytes, int offset, int length ) {
+    return parseNumber( null, bytes, offset, offset + length );
+  }
+
+  /**
+   * Parse the complete text as an integer. A fraction is only accepted if it's zero.
+   *
+   * @param text the text to parse, trimmed
+   * @return the integer or {@link #NOT_PARSED} if the text can't be handled by the compiled mask
+   */
+  public long parseInteger( CharSequence text ) {
+    return parseInteger( text, null, 0, text.length() );
+  }
+
+  /**
+   * Parse an ASCII compatible binary string as an integer. A fraction is only accepted if it's zero.
+   *
+   * @param bytes  the encoded text
+   * @param offset the index of the first byte
+   * @param length the number of bytes to parse
+   * @return the integer or {@link #NOT_PARSED} if the bytes can't be handled by the compiled mask
+   */
+  public long parseInteger( byte[] bytes, int offset, int length ) {
+    return parseInteger( null, bytes, offset, offset + length );
+  }
+
+  private double parseNumber( CharSequence text, byte[] bytes, int start, int end ) {
+    if ( !supported ) {
+      return Double.NaN;
+    }
+    int i = start;
+    boolean negative = i < end && charAt( text, bytes, i ) == minusSign;
+    if ( negative ) {
+      i++;
+    }
+
+    long mantissa = 0L;
+    int scale = 0;
+    boolean digits = false;
+    boolean decimal = false;
+    boolean afterDigit = false;
+    for ( ; i < end; i++ ) {
+      char c = charAt( text, bytes, i );
+      if ( isDigit( c ) ) {
+        digits = true;
+        afterDigit = true;
+        if ( decimal ) {
+          scale++;
+        }
+        mantissa = mantissa * 10 + ( c - '0' );
+        if ( mantissa > MAX_EXACT_MANTISSA ) {
+          return Double.NaN;
+        }
+      } else if ( c == decimalSeparator && !decimal ) {
+        decimal = true;
+        afterDigit = false;
+      } else if ( c == groupingSeparator && groupingUsed && !decimal && afterDigit && i + 1 < end
+        && isDigit( charAt( text, bytes, i + 1 ) ) ) {
+        afterDigit = false;
+      } else {
+        return Double.NaN;
+      }
+    }
+    if ( !digits || scale >= POWERS_OF_TEN.length ) {
+      return Double.NaN;
+    }
+
+    // Both operands are exact, so the division is correctly rounded like Double.parseDouble()
+    double value = scale == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[ scale ];
+    return negative ? -value : value;
+  }
+
+  private long parseInteger( CharSequence text, byte[] bytes, int start, int end ) {
+    if ( !supported ) {
+      return NOT_PARSED;
+    }
+    int i = start;
+    boolean negative = i < end && charAt( text, bytes, i ) == minusSign;
+    if ( negative ) {
+      i++;
+    }
+
+    long value = 0L;
+    boolean digits = false;
+    boolean decimal = false;
+    boolean afterDigit = false;
+    for ( ; i < end; i++ ) {
+      char c = charAt( text, bytes, i );
+      if ( isDigit( c ) ) {
+        digits = true;
+        afterDigit = true;
+        if ( decimal ) {
+          if ( c != '0' ) {
+            return NOT_PARSED;
+          }
+        } else {
+          int digit = c - '0';
+          if ( value > ( Long.MAX_VALUE - digit ) / 10 ) {
+            return NOT_PARSED;
+          }
+          value = value * 10 + digit;
+        }
+      } else if ( c == decimalSeparator && !decimal ) {
+        decimal = true;
+        afterDigit = false;
+      } else if ( c == groupingSeparator && groupingUsed && !decimal && afterDigit && i + 1 < end
+        && isDigit( charAt( text, bytes, i + 1 ) ) ) {
+        afterDigit = false;
+      } else {
+        return NOT_PARSED;
+      }
+    }
+    if ( !digits ) {
+      return NOT_PARSED;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Bytes outside of the ASCII range never match a digit or one of the (ASCII) separators.
+   */
+  private static char charAt( CharSequence text, byte[] bytes, int i ) {
+    return text != null ? text.charAt( i ) : (char) ( bytes[ i ] & 0xFF );
+  }
+
+  static boolean isDigit( char c ) {
+    return c >= '0' && c <= '9';
+  }
+}
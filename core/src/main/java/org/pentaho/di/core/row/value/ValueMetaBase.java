@@ -50,6 +50,7 @@ import java.math.BigDecimal;
 import java.net.InetAddress;
 import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.Blob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -69,7 +70,9 @@ import java.util.Calendar;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ValueMetaBase implements ValueMetaInterface {
 
@@ -152,6 +155,14 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  /**
+   * The decimal and date formats compiled for conversions that don't need to lock this object, see
+   * {@link #getCompiledNumberMask()}
+   */
+  private volatile CompiledNumberMask compiledNumberMask;
+  private volatile CompiledDateMask compiledDateParseMask;
+  private volatile CompiledDateMask compiledDateFormatMask;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -386,6 +397,8 @@ public class ValueMetaBase implements ValueMetaInterface {
     "ISO8859_13", "ISO8859_15", "ISO8859_15_FDIS", "MacCentralEurope", "MacCroatian", "MacCyrillic", "MacDingbat",
     "MacGreek", "MacHebrew", "MacIceland", "MacRoman", "MacRomania", "MacSymbol", "MacTurkish", "MacUkraine", };
 
+  private static final Map<String, Boolean> ASCII_COMPATIBLE_ENCODINGS = new ConcurrentHashMap<>();
+
   protected void setDefaultConversionMask() {
     // Set some sensible default mask on the numbers
     //
@@ -432,6 +445,9 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.compiledNumberMask = null;
+      valueMeta.compiledDateParseMask = null;
+      valueMeta.compiledDateFormatMask = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -893,11 +909,19 @@ public class ValueMetaBase implements ValueMetaInterface {
 
   // DATE + STRING
 
-  protected synchronized String convertDateToString( Date date ) {
+  protected String convertDateToString( Date date ) {
     if ( date == null ) {
       return null;
     }
 
+    CompiledDateMask mask = getCompiledDateFormatMask();
+    if ( mask != null ) {
+      return mask.format( date.getTime() );
+    }
+    return formatDate( date );
+  }
+
+  private synchronized String formatDate( Date date ) {
     return getDateFormat().format( date );
   }
 
@@ -910,7 +934,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return compatibleDateFormat.format( date );
   }
 
-  protected synchronized Date convertStringToDate( String string ) throws KettleValueException {
+  protected Date convertStringToDate( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -919,6 +943,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    CompiledDateMask mask = getCompiledDateParseMask();
+    if ( mask != null ) {
+      long millis = mask.parse( string );
+      if ( millis != CompiledDateMask.NOT_PARSED ) {
+        return new Date( millis );
+      }
+    }
+    return parseDate( string );
+  }
+
+  private synchronized Date parseDate( String string ) throws KettleValueException {
     try {
       ParsePosition pp = new ParsePosition( 0 );
       Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
@@ -1006,7 +1041,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return Double.toString( number );
   }
 
-  protected synchronized Double convertStringToNumber( String string ) throws KettleValueException {
+  protected Double convertStringToNumber( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1015,6 +1050,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    CompiledNumberMask mask = getCompiledNumberMask();
+    if ( mask != null ) {
+      double number = mask.parseNumber( string );
+      if ( !Double.isNaN( number ) ) {
+        return number;
+      }
+    }
+    return parseNumber( string );
+  }
+
+  private synchronized Double parseNumber( String string ) throws KettleValueException {
     try {
       DecimalFormat format = getDecimalFormat( false );
       Number number;
@@ -1140,6 +1186,76 @@ public class ValueMetaBase implements ValueMetaInterface {
     return decimalFormat;
   }
 
+  /**
+   * Get the decimal format used to parse strings compiled into a parser that doesn't need to lock this object. The
+   * mask is compiled again when the format changes. Conversion metadata isn't compiled: its format can change without
+   * this object knowing about it.
+   *
+   * @return the compiled number mask or null if the decimal format can't be compiled
+   */
+  CompiledNumberMask getCompiledNumberMask() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    CompiledNumberMask mask = compiledNumberMask;
+    if ( mask == null || decimalFormatChanged ) {
+      mask = compileNumberMask();
+    }
+    return mask.isSupported() ? mask : null;
+  }
+
+  private synchronized CompiledNumberMask compileNumberMask() {
+    DecimalFormat format = getDecimalFormat( false );
+    CompiledNumberMask mask = compiledNumberMask;
+    if ( mask == null || !mask.isCompiledFrom( format ) ) {
+      mask = CompiledNumberMask.compile( format );
+      compiledNumberMask = mask;
+    }
+    return mask;
+  }
+
+  /**
+   * @return the date format used to parse strings compiled into a parser, null if it can't be compiled
+   */
+  CompiledDateMask getCompiledDateParseMask() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    CompiledDateMask mask = compiledDateParseMask;
+    if ( mask == null || dateFormatChanged ) {
+      mask = compileDateMask( true );
+    }
+    return mask.isSupported() ? mask : null;
+  }
+
+  /**
+   * @return the date format used to format dates compiled into a formatter, null if it can't be compiled
+   */
+  CompiledDateMask getCompiledDateFormatMask() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    CompiledDateMask mask = compiledDateFormatMask;
+    if ( mask == null || dateFormatChanged ) {
+      mask = compileDateMask( false );
+    }
+    return mask.isSupported() ? mask : null;
+  }
+
+  private synchronized CompiledDateMask compileDateMask( boolean parse ) {
+    SimpleDateFormat format = parse ? getDateFormat( TYPE_DATE ) : getDateFormat();
+    CompiledDateMask mask = parse ? compiledDateParseMask : compiledDateFormatMask;
+    if ( mask == null || !mask.isCompiledFrom( format ) ) {
+      mask = CompiledDateMask.compile( format );
+      if ( parse ) {
+        compiledDateParseMask = mask;
+      } else {
+        compiledDateFormatMask = mask;
+      }
+    }
+    return mask;
+  }
+
   @Override
   public String getFormatMask() {
     return getMask( getType() );
@@ -1319,7 +1435,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return Long.toString( integer );
   }
 
-  protected synchronized Long convertStringToInteger( String string ) throws KettleValueException {
+  protected Long convertStringToInteger( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1328,6 +1444,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    CompiledNumberMask mask = getCompiledNumberMask();
+    if ( mask != null ) {
+      long integer = mask.parseInteger( string );
+      if ( integer != CompiledNumberMask.NOT_PARSED ) {
+        return integer;
+      }
+    }
+    return parseInteger( string );
+  }
+
+  private synchronized Long parseInteger( String string ) throws KettleValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
@@ -1611,6 +1738,13 @@ public class ValueMetaBase implements ValueMetaInterface {
 
     numberOfBinaryStringConversions++;
 
+    // Numbers, integers and dates with a compiled mask are parsed straight from the bytes
+    //
+    Object value = parseBinaryString( binary );
+    if ( value != null ) {
+      return value;
+    }
+
     // OK, so we have an internal representation of the original object, read
     // from file.
     // First we decode it in the correct encoding
@@ -1625,6 +1759,86 @@ public class ValueMetaBase implements ValueMetaInterface {
     return convertData( storageMetadata, string );
   }
 
+  /**
+   * Parse a binary string with the compiled mask of the storage metadata, without decoding it into a String first.
+   * This gives the same result as converting the decoded String with the storage metadata, but only works for text in
+   * an encoding that is compatible with ASCII.
+   *
+   * @param binary the binary string, not null
+   * @return the converted value or null if the binary string has to be decoded and converted as a String
+   */
+  private Object parseBinaryString( byte[] binary ) {
+    int type = getType();
+    if ( binary.length == 0 || ( type != TYPE_NUMBER && type != TYPE_INTEGER && type != TYPE_DATE )
+      || !( storageMetadata instanceof ValueMetaBase ) ) {
+      return null;
+    }
+    ValueMetaBase storage = (ValueMetaBase) storageMetadata;
+    if ( !storage.isString() || !storage.isStorageNormal()
+      || !isAsciiCompatible( identicalFormat ? getStringEncoding() : storage.getStringEncoding() ) ) {
+      return null;
+    }
+
+    int start = 0;
+    int end = binary.length;
+    int trimType = storage.getTrimType();
+    if ( trimType == TRIM_TYPE_LEFT || trimType == TRIM_TYPE_BOTH ) {
+      while ( start < end && isAsciiSpace( binary[start] ) ) {
+        start++;
+      }
+    }
+    if ( trimType == TRIM_TYPE_RIGHT || trimType == TRIM_TYPE_BOTH ) {
+      while ( end > start && isAsciiSpace( binary[end - 1] ) ) {
+        end--;
+      }
+    }
+    if ( start == end ) {
+      return null;
+    }
+
+    if ( type == TYPE_DATE ) {
+      CompiledDateMask mask = storage.getCompiledDateParseMask();
+      if ( mask != null && mask.isAscii() ) {
+        long millis = mask.parse( binary, start, end - start );
+        return millis == CompiledDateMask.NOT_PARSED ? null : new Date( millis );
+      }
+      return null;
+    }
+
+    CompiledNumberMask mask = storage.getCompiledNumberMask();
+    if ( mask == null || !mask.isAscii() ) {
+      return null;
+    }
+    if ( type == TYPE_NUMBER ) {
+      double number = mask.parseNumber( binary, start, end - start );
+      return Double.isNaN( number ) ? null : number;
+    }
+    long integer = mask.parseInteger( binary, start, end - start );
+    return integer == CompiledNumberMask.NOT_PARSED ? null : integer;
+  }
+
+  private static boolean isAsciiSpace( byte b ) {
+    return b >= 0 && Const.isSpace( (char) b );
+  }
+
+  /**
+   * @param encoding the name of the encoding, empty for the default encoding
+   * @return true if the digits, separators and spaces are encoded as the same single bytes as in ASCII. The compiled
+   *         masks stop at the first byte outside of the ASCII range, before they could misread the rest of a multi-byte
+   *         character.
+   */
+  static boolean isAsciiCompatible( String encoding ) {
+    return ASCII_COMPATIBLE_ENCODINGS.computeIfAbsent( Const.NVL( encoding, "" ), name -> {
+      try {
+        Charset charset = Utils.isEmpty( name ) ? Charset.defaultCharset() : Charset.forName( name );
+        String sample = "0123456789 \t-+.,:/";
+        return Arrays.equals( sample.getBytes( charset ), sample.getBytes( StandardCharsets.US_ASCII ) );
+      } catch ( Exception e ) {
+        return false;
+      }
+    } );
+  }
+
   @Override
   public Object convertNormalStorageTypeToBinaryString( Object object ) throws KettleValueException {
     if ( object == null ) {
@@ -0,0 +1,76 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads when the Java runtime supports them (Java 21 and later). The API is looked up by reflection
+ * so that Kettle still compiles and runs on older runtimes, where {@link #isSupported()} returns false.
+ */
+public class VirtualThreads {
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    try {
+      ofVirtual = Thread.class.getMethod( "ofVirtual" );
+      unstarted = Class.forName( "java.lang.Thread$Builder" ).getMethod( "unstarted", Runnable.class );
+    } catch ( ReflectiveOperationException e ) {
+      ofVirtual = null;
+      unstarted = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return true if the Java runtime can create virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a virtual thread that isn't started yet.
+   *
+   * @param runnable
+   *          the code to run in the thread
+   * @param name
+   *          the name of the thread
+   * @return the new virtual thread
+   * @throws UnsupportedOperationException
+   *           if the Java runtime doesn't support virtual threads
+   */
+  public static Thread newThread( Runnable runnable, String name ) {
+    if ( !isSupported() ) {
+      throw new UnsupportedOperationException( "Virtual threads need Java 21 or later" );
+    }
+    try {
+      Thread thread = (Thread) UNSTARTED.invoke( OF_VIRTUAL.invoke( null ), runnable );
+      thread.setName( name );
+      return thread;
+    } catch ( IllegalAccessException e ) {
+      throw new IllegalStateException( e );
+    } catch ( InvocationTargetException e ) {
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+}
@@ -116,4 +116,69 @@ public class BlockingBatchingRowSetTest {
     assertNotNull( r );
     assertArrayEquals( rows.get( 2 ), r );
   }
+
+  @Test
+  public void testGetRowImmediateDoesNotWait() {
+    BlockingBatchingRowSet set = new BlockingBatchingRowSet( 4 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    // Nothing delivered yet: no wait for the get time-out
+    long start = System.nanoTime();
+    for ( int i = 0; i < 10; i++ ) {
+      assertNull( set.getRowImmediate() );
+    }
+    assertTrue( System.nanoTime() - start < Const.TIMEOUT_GET_MILLIS * 1000000L );
+
+    // The first buffer of 2 rows is delivered, the third row is still batched
+    for ( long i = 0; i < 3; i++ ) {
+      set.putRow( rm, new Object[] { i } );
+    }
+    assertArrayEquals( new Object[] { 0L }, set.getRowImmediate() );
+    assertArrayEquals( new Object[] { 1L }, set.getRowImmediate() );
+    assertNull( set.getRowImmediate() );
+
+    set.setDone();
+    assertArrayEquals( new Object[] { 2L }, set.getRowImmediate() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testDrainToStopsAtTheEndOfThePartialLastBuffer() {
+    BlockingBatchingRowSet set = new BlockingBatchingRowSet( 8 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    // The first buffer of 4 rows is delivered, the fifth row is still batched
+    for ( long i = 0; i < 5; i++ ) {
+      set.putRow( rm, new Object[] { i } );
+    }
+    List<Object[]> rows = new ArrayList<Object[]>();
+    assertEquals( 4, set.drainTo( rows, 10 ) );
+    assertEquals( 4, rows.size() );
+    assertEquals( 0, set.drainTo( rows, 10 ) );
+
+    // Done: the partial buffer is delivered with a terminator that isn't returned as a row
+    set.setDone();
+    assertEquals( 1, set.drainTo( rows, 10 ) );
+    assertEquals( 5, rows.size() );
+    for ( int i = 0; i < 5; i++ ) {
+      assertArrayEquals( new Object[] { (long) i }, rows.get( i ) );
+    }
+    assertEquals( 0, set.drainTo( rows, 10 ) );
+    assertEquals( 5, rows.size() );
+  }
+
+  @Test
+  public void testDrainToTakesNoMoreThanTheMaximum() {
+    BlockingBatchingRowSet set = new BlockingBatchingRowSet( 8 );
+    RowMetaInterface rm = createRowMetaInterface();
+    for ( long i = 0; i < 8; i++ ) {
+      set.putRow( rm, new Object[] { i } );
+    }
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+    assertEquals( 3, set.drainTo( rows, 3 ) );
+    assertEquals( 5, set.drainTo( rows, 10 ) );
+    assertEquals( 8, rows.size() );
+    assertArrayEquals( new Object[] { 3L }, rows.get( 3 ) );
+  }
 }
@@ -16,6 +16,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.di.core.row.RowMeta;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -58,4 +60,18 @@ public class QueueRowSetTest {
     rowSet.clear();
     assertEquals( 0, rowSet.size() );
   }
+
+  @Test
+  public void testDrainTo() throws Exception {
+    Object[] row2 = new Object[]{};
+    rowSet.putRow( new RowMeta(), row );
+    rowSet.putRow( new RowMeta(), row2 );
+    List<Object[]> rows = new ArrayList<>();
+    assertEquals( 1, rowSet.drainTo( rows, 1 ) );
+    assertEquals( 1, rowSet.drainTo( rows, 5 ) );
+    assertEquals( 0, rowSet.drainTo( rows, 5 ) );
+    assertEquals( 2, rows.size() );
+    assertSame( row, rows.get( 0 ) );
+    assertSame( row2, rows.get( 1 ) );
+  }
 }
@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferRowSetTest {
+  RingBufferRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowSet = new RingBufferRowSet( 3 );
+  }
+
+  @Test
+  public void testPutGetInOrder() {
+    Object[] r1 = new Object[] { 1L };
+    Object[] r2 = new Object[] { 2L };
+    Object[] r3 = new Object[] { 3L };
+
+    assertTrue( rowSet.putRow( new RowMeta(), r1 ) );
+    assertTrue( rowSet.putRow( new RowMeta(), r2 ) );
+    assertTrue( rowSet.putRow( new RowMeta(), r3 ) );
+    assertEquals( 3, rowSet.size() );
+
+    assertSame( r1, rowSet.getRow() );
+    assertSame( r2, rowSet.getRowImmediate() );
+    assertSame( r3, rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 0, rowSet.size() );
+  }
+
+  @Test
+  public void testPutTimesOutWhenFull() {
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( rowSet.putRowWait( new RowMeta(), new Object[] { i }, 1, TimeUnit.MILLISECONDS ) );
+    }
+    // The capacity is honoured, even though the ring itself is rounded up to 4 slots
+    assertFalse( rowSet.putRowWait( new RowMeta(), new Object[] { 3 }, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, rowSet.size() );
+  }
+
+  @Test
+  public void testGetTimesOutWhenEmpty() {
+    assertNull( rowSet.getRowImmediate() );
+    assertNull( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testDrainTo() {
+    for ( long i = 0; i < 3; i++ ) {
+      rowSet.putRow( new RowMeta(), new Object[] { i } );
+    }
+    List<Object[]> rows = new ArrayList<>();
+    assertEquals( 2, rowSet.drainTo( rows, 2 ) );
+    assertEquals( 1, rowSet.size() );
+    // The freed slots can be used again while rows are left
+    assertTrue( rowSet.putRow( new RowMeta(), new Object[] { 3L } ) );
+    assertEquals( 2, rowSet.drainTo( rows, 5 ) );
+    assertEquals( 0, rowSet.drainTo( rows, 5 ) );
+    assertEquals( 4, rows.size() );
+    for ( int i = 0; i < 4; i++ ) {
+      assertEquals( (long) i, rows.get( i )[ 0 ] );
+    }
+  }
+
+  @Test
+  public void testClear() {
+    rowSet.putRow( new RowMeta(), new Object[] {} );
+    rowSet.putRow( new RowMeta(), new Object[] {} );
+    rowSet.setDone();
+    rowSet.clear();
+    assertEquals( 0, rowSet.size() );
+    assertFalse( rowSet.isDone() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void testProducerConsumer() throws Exception {
+    final int nrRows = 100000;
+    final RowMeta rowMeta = new RowMeta();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        Object[] row = new Object[] { i };
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          // retry, like BaseStep does
+        }
+      }
+      rowSet.setDone();
+    } );
+    producer.setUncaughtExceptionHandler( ( t, e ) -> failure.set( e ) );
+    producer.start();
+
+    long expected = 0;
+    while ( true ) {
+      Object[] row = rowSet.getRow();
+      if ( row == null ) {
+        if ( rowSet.isDone() ) {
+          row = rowSet.getRowImmediate();
+          if ( row == null ) {
+            break;
+          }
+        } else {
+          continue;
+        }
+      }
+      assertEquals( expected++, row[0] );
+    }
+    producer.join();
+
+    assertNull( failure.get() );
+    assertEquals( nrRows, expected );
+  }
+}
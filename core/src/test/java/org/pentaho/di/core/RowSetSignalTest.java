@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowSetSignalTest {
+
+  @Test
+  public void testRowSetsAcceptTheSignal() {
+    RowSetSignal signal = new RowSetSignal();
+    assertTrue( new BlockingRowSet( 1 ).setReadySignal( signal ) );
+    assertTrue( new RingBufferRowSet( 1 ).setReadySignal( signal ) );
+    assertTrue( new BlockingBatchingRowSet( 1 ).setReadySignal( signal ) );
+    assertTrue( new QueueRowSet().setReadySignal( signal ) );
+    assertTrue( new SingleRowRowSet().setReadySignal( signal ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void testPutRowWakesUpTheReader() throws Exception {
+    final RowSetSignal signal = new RowSetSignal();
+    final RowSet[] rowSets = new RowSet[] { new BlockingRowSet( 10 ), new RingBufferRowSet( 10 ) };
+    for ( RowSet rowSet : rowSets ) {
+      rowSet.setReadySignal( signal );
+    }
+
+    Thread writer = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        while ( !signal.isWaiting() ) {
+          Thread.yield();
+        }
+        rowSets[1].putRow( new RowMeta(), new Object[] { 1L } );
+      }
+    } );
+    writer.start();
+
+    // Without the signal the reader would sleep for a minute
+    long start = System.nanoTime();
+    signal.prepareToWait();
+    while ( rowSets[0].size() == 0 && rowSets[1].size() == 0 ) {
+      signal.await( 1, TimeUnit.MINUTES );
+    }
+    signal.cancelWait();
+
+    assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 10 ) );
+    assertFalse( signal.isWaiting() );
+    writer.join();
+  }
+
+  @Test( timeout = 10000 )
+  public void testSetDoneWakesUpTheReader() throws Exception {
+    final RowSetSignal signal = new RowSetSignal();
+    final RowSet rowSet = new BlockingRowSet( 10 );
+    rowSet.setReadySignal( signal );
+
+    Thread writer = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        while ( !signal.isWaiting() ) {
+          Thread.yield();
+        }
+        rowSet.setDone();
+      }
+    } );
+    writer.start();
+
+    signal.prepareToWait();
+    while ( !rowSet.isDone() ) {
+      signal.await( 1, TimeUnit.MINUTES );
+    }
+    signal.cancelWait();
+    writer.join();
+  }
+}
@@ -14,6 +14,9 @@
 package org.pentaho.di.core;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.row.RowMeta;
@@ -177,4 +180,23 @@ public class RowSetTest {
     assertEquals( set.toString(), set.getName() );
     assertEquals( "from.2 - to.3", set.getName() );
   }
+
+  @Test
+  public void testDrainTo() {
+    RowSet set = new BlockingRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+    for ( long i = 0; i < 5; i++ ) {
+      set.putRow( rm, new Object[] { i } );
+    }
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+    assertEquals( 3, set.drainTo( rows, 3 ) );
+    assertEquals( 2, set.size() );
+    assertEquals( 2, set.drainTo( rows, 3 ) );
+    assertEquals( 0, set.drainTo( rows, 3 ) );
+    assertEquals( 5, rows.size() );
+    for ( int i = 0; i < 5; i++ ) {
+      assertEquals( (long) i, rows.get( i )[0] );
+    }
+  }
 }
@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class OffHeapHashIndexTest {
+
+  private static byte[] bytes( String string ) {
+    return string.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testPutAndGetOverResizesAndArenas() throws Exception {
+    // Small slots and arenas to go through several resizes and arenas
+    OffHeapHashIndex index = new OffHeapHashIndex( 4, 256 );
+    for ( int i = 0; i < 1000; i++ ) {
+      index.put( bytes( "key" + i ), bytes( "value" + i ) );
+    }
+    assertEquals( 1000, index.getSize() );
+    assertTrue( index.getNrOfArenas() > 1 );
+    assertTrue( index.getCapacity() >= 1000 );
+    assertTrue( index.getMemorySize() >= index.getArenaBytesUsed() );
+
+    for ( int i = 0; i < 1000; i++ ) {
+      assertArrayEquals( bytes( "value" + i ), index.get( bytes( "key" + i ) ) );
+    }
+    assertNull( index.get( bytes( "key1000" ) ) );
+    assertNull( index.get( new byte[ 0 ] ) );
+  }
+
+  @Test
+  public void testPutReplacesTheValue() throws Exception {
+    OffHeapHashIndex index = new OffHeapHashIndex();
+    index.put( bytes( "key" ), bytes( "first" ) );
+    index.put( bytes( "key" ), bytes( "second" ) );
+    assertEquals( 1, index.getSize() );
+    assertArrayEquals( bytes( "second" ), index.get( bytes( "key" ) ) );
+  }
+
+  @Test
+  public void testRecordLargerThanTheArena() throws Exception {
+    OffHeapHashIndex index = new OffHeapHashIndex( 16, 16 );
+    byte[] large = new byte[ 1000 ];
+    large[ 999 ] = 1;
+    index.put( bytes( "small" ), bytes( "a" ) );
+    index.put( bytes( "large" ), large );
+    index.put( bytes( "next" ), bytes( "b" ) );
+    assertArrayEquals( large, index.get( bytes( "large" ) ) );
+    assertArrayEquals( bytes( "a" ), index.get( bytes( "small" ) ) );
+    assertArrayEquals( bytes( "b" ), index.get( bytes( "next" ) ) );
+  }
+}
@@ -0,0 +1,135 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CompactRowCodecTest {
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    ValueMetaString lazy = new ValueMetaString( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazy.setStorageMetadata( new ValueMetaString( "lazy" ) );
+    rowMeta.addValueMeta( lazy );
+    return rowMeta;
+  }
+
+  private static byte[] write( CompactRowCodec codec, Object[]... rows ) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try ( DataOutputStream out = new DataOutputStream( bytes ) ) {
+      for ( Object[] row : rows ) {
+        codec.writeData( out, row );
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    CompactRowCodec codec = new CompactRowCodec( rowMeta );
+
+    Timestamp timestamp = new Timestamp( 1234567890123L );
+    timestamp.setNanos( 123456789 );
+    Object[] row1 = new Object[] { "caf\u00e9", 1.5d, -3L, new Date( 1500000000000L ), true,
+      new BigDecimal( "123456789012345678.9349" ), new byte[] { 1, 2, 3 }, timestamp, "lazy".getBytes() };
+    Object[] row2 = new Object[] { "", -0.25d, Long.MIN_VALUE, new Date( -1L ), false, BigDecimal.ZERO, new byte[ 0 ],
+      null, null };
+    Object[] row3 = new Object[ rowMeta.size() ];
+
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( write( codec, row1, row2, row3 ) ) );
+    for ( Object[] expected : new Object[][] { row1, row2, row3 } ) {
+      Object[] actual = codec.readData( in );
+      assertEquals( rowMeta.size(), actual.length );
+      for ( int i = 0; i < expected.length; i++ ) {
+        if ( expected[ i ] instanceof byte[] ) {
+          assertArrayEquals( (byte[]) expected[ i ], (byte[]) actual[ i ] );
+        } else {
+          assertEquals( expected[ i ], actual[ i ] );
+        }
+      }
+    }
+
+    try {
+      codec.readData( in );
+      fail( "Expected the end of the stream" );
+    } catch ( KettleEOFException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSmallerThanWriteData() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "empty" ) );
+    Object[] row = new Object[] { 42L, "name", null };
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try ( DataOutputStream out = new DataOutputStream( bytes ) ) {
+      rowMeta.writeData( out, row );
+    }
+    byte[] compact = write( new CompactRowCodec( rowMeta ), row );
+
+    // null flags (3) + long (8) + length (4) + "name" (4) versus bitmap (1) + long (1) + length (1) + "name" (4)
+    assertEquals( 19, bytes.size() );
+    assertEquals( 7, compact.length );
+  }
+
+  @Test
+  public void testNoFields() throws Exception {
+    CompactRowCodec codec = new CompactRowCodec( new RowMeta() );
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( write( codec, new Object[ 0 ],
+      new Object[ 0 ] ) ) );
+    assertEquals( 0, codec.readData( in ).length );
+    assertEquals( 0, codec.readData( in ).length );
+    try {
+      codec.readData( in );
+      fail( "Expected the end of the stream" );
+    } catch ( KettleEOFException e ) {
+      // expected
+    }
+  }
+}
@@ -40,6 +40,7 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -289,6 +290,36 @@ public class RowMetaTest {
     assertNotNull( found );
   }
 
+  @Test
+  public void testMergeRowMetaPublishesOnce() throws KettlePluginException {
+    List<ValueMetaInterface> list =
+      this.generateVList( new String[] { "integer", "integer", "mars" }, new int[] { 5, 5, 6 } );
+    RowMeta toMerge = new RowMeta();
+    toMerge.setValueMetaList( list );
+    List<ValueMetaInterface> before = rowMeta.getValueMetaList();
+    long version = rowMeta.getVersion();
+
+    rowMeta.mergeRowMeta( toMerge, "newOriginStep" );
+
+    // One new version, the list seen before the merge is unchanged
+    assertEquals( 3, before.size() );
+    assertEquals( 6, rowMeta.size() );
+    assertNotEquals( version, rowMeta.getVersion() );
+    assertEquals( "integer_1", rowMeta.getValueMeta( 3 ).getName() );
+    assertEquals( "integer_2", rowMeta.getValueMeta( 4 ).getName() );
+    assertEquals( 4, rowMeta.indexOfValue( "integer_2" ) );
+    assertEquals( 5, rowMeta.indexOfValue( "mars" ) );
+  }
+
+  @Test
+  public void testAddRowMetaToItself() {
+    rowMeta.addRowMeta( rowMeta );
+
+    assertEquals( 6, rowMeta.size() );
+    assertEquals( "string_1", rowMeta.getValueMeta( 3 ).getName() );
+    assertEquals( 5, rowMeta.indexOfValue( "date_1" ) );
+  }
+
   @Test
   public void testRemoveValueMetaString() throws KettleValueException {
     rowMeta.removeValueMeta( "string" );
@@ -388,6 +419,36 @@ public class RowMetaTest {
       .size() ); // Should still only be charly, dup and bin, charly_1, bin_1 - adding a string doesn't change of result
   }
 
+  @Test
+  public void testVersion() throws Exception {
+    long version = rowMeta.getVersion();
+    assertTrue( version > 0 );
+    assertEquals( version, rowMeta.getVersion() );
+
+    // lookups don't change the version
+    rowMeta.indexOfValue( "integer" );
+    rowMeta.searchValueMeta( "date" );
+    assertEquals( version, rowMeta.getVersion() );
+
+    // a clone is a different row metadata instance
+    assertNotEquals( version, rowMeta.clone().getVersion() );
+
+    rowMeta.addValueMeta( charly );
+    assertNotEquals( version, rowMeta.getVersion() );
+    version = rowMeta.getVersion();
+
+    rowMeta.setValueMeta( 3, bin );
+    assertNotEquals( version, rowMeta.getVersion() );
+    version = rowMeta.getVersion();
+
+    rowMeta.removeValueMeta( "bin" );
+    assertNotEquals( version, rowMeta.getVersion() );
+    version = rowMeta.getVersion();
+
+    rowMeta.clear();
+    assertNotEquals( version, rowMeta.getVersion() );
+  }
+
   @Test
   public void testMergeRowMetaWithOriginStep() throws Exception {
 
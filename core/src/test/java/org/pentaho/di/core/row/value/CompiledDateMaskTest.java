@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledDateMaskTest {
+  private static final String[] VALUES = {
+    "2024-02-29 13:45:07.123", "2023-02-29 13:45:07.123", "1918-03-25 07:40:03.012", "2024-3-5 1:2:3.4",
+    "2024-13-40 25:61:61.999", "0001-01-01 00:00:00.000", "2024-03-31 02:30:00.000", "2024-10-27 02:30:00.000",
+    "2024-02-29", "2024-02-29 13:45", "2024-02-29T13:45:07.123", "2024-02-29 13:45:07.123+01:00", " 2024-02-29",
+    "24-02-29 13:45:07.123", "2024/02/29 13:45:07.123", "2024-02-29 13:45:07.1234567890", "" };
+
+  private static SimpleDateFormat createFormat( String pattern, boolean lenient, String timeZone ) {
+    SimpleDateFormat format = new SimpleDateFormat( pattern, Locale.US );
+    format.setLenient( lenient );
+    format.setTimeZone( TimeZone.getTimeZone( timeZone ) );
+    return format;
+  }
+
+  private static Date parse( SimpleDateFormat format, String text ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Date date = format.parse( text, position );
+    return position.getErrorIndex() >= 0 ? null : date;
+  }
+
+  private static void assertSameAsDateFormat( SimpleDateFormat format, String text ) {
+    CompiledDateMask mask = CompiledDateMask.compile( format );
+    long millis = mask.parse( text );
+    if ( millis != CompiledDateMask.NOT_PARSED ) {
+      Date expected = parse( format, text );
+      assertNotNull( "Parsed [" + text + "] that the format rejects", expected );
+      assertEquals( "Date [" + text + "]", expected.getTime(), millis );
+    }
+    byte[] bytes = text.getBytes( StandardCharsets.UTF_8 );
+    assertEquals( millis, mask.parse( bytes, 0, bytes.length ) );
+  }
+
+  @Test
+  public void testSameResultsAsDateFormat() {
+    for ( String timeZone : new String[] { "UTC", "Europe/Brussels", "America/New_York" } ) {
+      for ( boolean lenient : new boolean[] { true, false } ) {
+        SimpleDateFormat format = createFormat( "yyyy-MM-dd HH:mm:ss.SSS", lenient, timeZone );
+        assertTrue( CompiledDateMask.compile( format ).isSupported() );
+        for ( String value : VALUES ) {
+          assertSameAsDateFormat( format, value );
+        }
+        assertSameAsDateFormat( createFormat( "yyyy-MM-dd", lenient, timeZone ), "2024-02-29 13:45" );
+        assertSameAsDateFormat( createFormat( "yyyyMMdd", lenient, timeZone ), "20240229" );
+        assertSameAsDateFormat( createFormat( "yyyyMMddHHmmss", lenient, timeZone ), "20240229134507" );
+        assertSameAsDateFormat( createFormat( "dd/MM/yyyy", lenient, timeZone ), "29/02/2024" );
+      }
+    }
+  }
+
+  @Test
+  public void testFormatSameAsDateFormat() {
+    String[] patterns = { "yyyy/MM/dd HH:mm:ss.SSS", "yyyyMMdd", "d-M-yyyy H:m:s.S", "yyyy-MM-dd" };
+    long[] dates = { 0L, 1709214307123L, -1633239597000L, 253402300799999L, -62135596800000L, 1711848600000L };
+    for ( String pattern : patterns ) {
+      SimpleDateFormat format = createFormat( pattern, true, "Europe/Brussels" );
+      CompiledDateMask mask = CompiledDateMask.compile( format );
+      for ( long date : dates ) {
+        assertEquals( format.format( new Date( date ) ), mask.format( date ) );
+      }
+    }
+  }
+
+  @Test
+  public void testUnsupportedPatterns() {
+    assertFalse( CompiledDateMask.compile( createFormat( "yy-MM-dd", true, "UTC" ) ).isSupported() );
+    assertFalse( CompiledDateMask.compile( createFormat( "dd MMM yyyy", true, "UTC" ) ).isSupported() );
+    assertFalse( CompiledDateMask.compile( createFormat( "yyyy-MM-dd'T'HH:mm:ss", true, "UTC" ) ).isSupported() );
+    assertFalse( CompiledDateMask.compile( createFormat( "yyyy-MM-dd hh:mm a", true, "UTC" ) ).isSupported() );
+    assertFalse( CompiledDateMask.compile( createFormat( "yyyy-MM-dd HH:mm:ssXXX", true, "UTC" ) ).isSupported() );
+  }
+
+  @Test
+  public void testThreadSafe() throws Exception {
+    SimpleDateFormat format = createFormat( "yyyy-MM-dd HH:mm:ss.SSS", true, "UTC" );
+    CompiledDateMask mask = CompiledDateMask.compile( format );
+    ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for ( int t = 0; t < 4; t++ ) {
+        final int thread = t;
+        results.add( executor.submit( (Callable<Boolean>) () -> {
+          for ( int i = 0; i < 10000; i++ ) {
+            long millis = 86400000L * ( thread * 10000 + i ) + i;
+            if ( mask.parse( mask.format( millis ) ) != millis ) {
+              return false;
+            }
+          }
+          return true;
+        } ) );
+      }
+      for ( Future<Boolean> result : results ) {
+        assertTrue( result.get() );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledNumberMaskTest {
+  private static final String[] VALUES = {
+    "0", "-0", "1", "-1", "12", "1234567", "1,234,567", "1,234,567.891", "-1,234.5", "0.1", ".5", "5.", "-.25",
+    "3.14159265358979", "0.000001", "123456789012345", "1234567890123456789", "9223372036854775807",
+    "99999999999999999999", "1.0", "1.000", "2.50", "1,2,3", ",123", "123,", "1,,2", "1.2.3", "1e3", "+1", "-",
+    ".", "", "1a", "a1", "1 000", "0001.100", "-0.0", "1,234.0000000000000000000001" };
+
+  private static DecimalFormat createFormat( String pattern, char decimal, char grouping ) {
+    DecimalFormat format = (DecimalFormat) DecimalFormat.getInstance( Locale.US );
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    symbols.setDecimalSeparator( decimal );
+    symbols.setGroupingSeparator( grouping );
+    format.setDecimalFormatSymbols( symbols );
+    format.applyPattern( pattern );
+    return format;
+  }
+
+  /**
+   * The result of DecimalFormat if the complete text is parsed, null otherwise
+   */
+  private static Number parseFully( DecimalFormat format, String text ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Number number = format.parse( text, position );
+    return position.getIndex() < text.length() || position.getIndex() == 0 ? null : number;
+  }
+
+  private static void assertSameAsDecimalFormat( DecimalFormat format, String text ) {
+    CompiledNumberMask mask = CompiledNumberMask.compile( format );
+    Number expected = parseFully( format, text );
+
+    double number = mask.parseNumber( text );
+    if ( !Double.isNaN( number ) ) {
+      assertTrue( "Parsed [" + text + "] that the format rejects", expected != null );
+      assertEquals( "Number [" + text + "]", Double.doubleToLongBits( expected.doubleValue() ),
+        Double.doubleToLongBits( number ) );
+    }
+    long integer = mask.parseInteger( text );
+    if ( integer != CompiledNumberMask.NOT_PARSED ) {
+      assertTrue( "Parsed [" + text + "] that the format rejects", expected != null );
+      assertEquals( "Integer [" + text + "]", expected.longValue(), integer );
+    }
+
+    // The binary string gives the same result
+    byte[] bytes = ( "  " + text ).getBytes( StandardCharsets.UTF_8 );
+    assertEquals( Double.doubleToLongBits( number ),
+      Double.doubleToLongBits( mask.parseNumber( bytes, 2, bytes.length - 2 ) ) );
+    assertEquals( integer, mask.parseInteger( bytes, 2, bytes.length - 2 ) );
+  }
+
+  @Test
+  public void testSameResultsAsDecimalFormat() {
+    DecimalFormat[] formats = {
+      createFormat( "#.#", '.', ',' ),
+      createFormat( "#,##0.00", '.', ',' ),
+      createFormat( "#,##0.###", ',', '.' ),
+      createFormat( "0", '.', ',' ),
+    };
+    for ( DecimalFormat format : formats ) {
+      assertTrue( CompiledNumberMask.compile( format ).isSupported() );
+      for ( String value : VALUES ) {
+        assertSameAsDecimalFormat( format, value );
+        assertSameAsDecimalFormat( format, value.replace( ',', '_' ).replace( '.', ',' ).replace( '_', '.' ) );
+      }
+    }
+  }
+
+  @Test
+  public void testPlainValues() {
+    CompiledNumberMask mask = CompiledNumberMask.compile( createFormat( "#,##0.###", '.', ',' ) );
+    assertEquals( 1234567.891, mask.parseNumber( "1,234,567.891" ), 0.0 );
+    assertEquals( -0.25, mask.parseNumber( "-.25" ), 0.0 );
+    assertEquals( 1234567L, mask.parseInteger( "1,234,567" ) );
+    assertEquals( 12L, mask.parseInteger( "12.00" ) );
+    assertEquals( Long.MAX_VALUE, mask.parseInteger( "9223372036854775807" ) );
+
+    // Left to the decimal format
+    assertTrue( Double.isNaN( mask.parseNumber( "1e3" ) ) );
+    assertTrue( Double.isNaN( mask.parseNumber( "12345678901234567" ) ) );
+    assertEquals( CompiledNumberMask.NOT_PARSED, mask.parseInteger( "1.5" ) );
+    assertEquals( CompiledNumberMask.NOT_PARSED, mask.parseInteger( "9223372036854775808" ) );
+  }
+
+  @Test
+  public void testGroupingOnlyWhenUsed() {
+    CompiledNumberMask mask = CompiledNumberMask.compile( createFormat( "#.#", '.', ',' ) );
+    assertTrue( Double.isNaN( mask.parseNumber( "1,234" ) ) );
+    assertEquals( CompiledNumberMask.NOT_PARSED, mask.parseInteger( "1,234" ) );
+  }
+
+  @Test
+  public void testUnsupportedPatterns() {
+    assertFalse( CompiledNumberMask.compile( createFormat( "#,##0.00%", '.', ',' ) ).isSupported() );
+    assertFalse( CompiledNumberMask.compile( createFormat( "#,##0.00;(#,##0.00)", '.', ',' ) ).isSupported() );
+    assertFalse( CompiledNumberMask.compile( createFormat( "\u00A4#,##0.00", '.', ',' ) ).isSupported() );
+    assertFalse( CompiledNumberMask.compile( createFormat( "#.#", '.', '.' ) ).isSupported() );
+  }
+}
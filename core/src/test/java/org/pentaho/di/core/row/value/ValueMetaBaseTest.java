@@ -640,6 +640,31 @@ public class ValueMetaBaseTest {
     assertEquals( -1, dateMeta.compare( date.getBytes(), targetDateMeta, futureDate ) );
   }
 
+  @Test
+  public void testConvertBinaryStringWithCompiledMask() throws KettleValueException {
+    ValueMetaBase storageMeta = new ValueMetaBase( "string", ValueMetaInterface.TYPE_STRING );
+    storageMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+    storageMeta.setConversionMask( "#,##0.00" );
+    storageMeta.setDecimalSymbol( "." );
+    storageMeta.setGroupingSymbol( "," );
+    storageMeta.setTrimType( ValueMetaInterface.TRIM_TYPE_BOTH );
+
+    ValueMetaBase numberMeta = new ValueMetaBase( "number", ValueMetaInterface.TYPE_NUMBER );
+    numberMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    numberMeta.setStorageMetadata( storageMeta );
+    assertEquals( 1234567.5, numberMeta.getNumber( " 1,234,567.50 ".getBytes() ), 0.0 );
+    assertEquals( -0.25, numberMeta.getNumber( "-.25".getBytes() ), 0.0 );
+    // Left to the decimal format, with the same result
+    assertEquals( 1000.0, numberMeta.getNumber( "1E3".getBytes() ), 0.0 );
+
+    ValueMetaBase integerMeta = new ValueMetaBase( "integer", ValueMetaInterface.TYPE_INTEGER );
+    integerMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    integerMeta.setStorageMetadata( storageMeta );
+    assertEquals( Long.valueOf( 1234567L ), integerMeta.getInteger( "1,234,567.00\t".getBytes() ) );
+    assertEquals( Long.valueOf( 1L ), integerMeta.getInteger( "1.5".getBytes() ) );
+    assertNull( integerMeta.getInteger( "   ".getBytes() ) );
+  }
+
   @Test
   public void testCompareDateNoStorageMask() throws KettleValueException {
     ValueMetaBase storageMeta = new ValueMetaBase( "string", ValueMetaInterface.TYPE_STRING );
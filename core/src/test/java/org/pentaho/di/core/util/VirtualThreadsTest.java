@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadsTest {
+
+  @Test( timeout = 10000 )
+  public void testNewThreadRunsTheRunnable() throws Exception {
+    assumeTrue( VirtualThreads.isSupported() );
+
+    final AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = VirtualThreads.newThread( new Runnable() {
+      @Override
+      public void run() {
+        ran.set( true );
+      }
+    }, "step - copy 0" );
+
+    assertEquals( "step - copy 0", thread.getName() );
+    assertFalse( thread.isAlive() );
+    thread.start();
+    thread.join();
+    assertTrue( ran.get() );
+    assertTrue( (Boolean) Thread.class.getMethod( "isVirtual" ).invoke( thread ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testNewThreadFailsWithoutVirtualThreads() {
+    assumeFalse( VirtualThreads.isSupported() );
+
+    VirtualThreads.newThread( new Runnable() {
+      @Override
+      public void run() {
+      }
+    }, "step" );
+  }
+}
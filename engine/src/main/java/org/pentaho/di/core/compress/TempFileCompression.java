@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.variables.VariableSpace;
+
+/**
+ * Opens the streams of the temporary files that steps spill rows to, compressed with the provider that is set with the
+ * {@link Const#KETTLE_SPILL_COMPRESSION} variable.
+ */
+public class TempFileCompression {
+
+  /** The name of the provider Sort Rows uses when it is set to compress its temporary files */
+  public static final String DEFAULT_COMPRESSION = "GZip";
+
+  /** The default size of the buffers in bytes */
+  public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+  private TempFileCompression() {
+  }
+
+  /**
+   * Look up the compression provider for temporary files.
+   *
+   * @param space
+   *          the variables to look up {@link Const#KETTLE_SPILL_COMPRESSION} in
+   * @param defaultName
+   *          the name of the provider to use when the variable isn't set, null for no compression
+   * @return the compression provider or null if the files aren't compressed
+   * @throws KettleException
+   *           in case there is no provider with the name
+   */
+  public static CompressionProvider getCompressionProvider( VariableSpace space, String defaultName )
+    throws KettleException {
+    String name = Const.NVL( space.getVariable( Const.KETTLE_SPILL_COMPRESSION ), defaultName );
+    if ( Utils.isEmpty( name ) || "None".equalsIgnoreCase( name ) ) {
+      return null;
+    }
+    CompressionProvider provider = CompressionProviderFactory.getInstance().createCompressionProviderInstance( name );
+    if ( provider == null || !provider.supportsInput() || !provider.supportsOutput() ) {
+      throw new KettleException( "Unknown compression provider for temporary files: " + name );
+    }
+    return provider;
+  }
+
+  public static DataOutputStream getOutputStream( OutputStream out, CompressionProvider provider )
+    throws IOException {
+    return getOutputStream( out, provider, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * @param out
+   *          the stream of the file
+   * @param provider
+   *          the compression provider, null for no compression
+   * @param bufferSize
+   *          the size of the buffers in bytes
+   * @return a buffered stream that compresses the data written to it
+   */
+  public static DataOutputStream getOutputStream( OutputStream out, CompressionProvider provider, int bufferSize )
+    throws IOException {
+    OutputStream stream = new BufferedOutputStream( out, bufferSize );
+    if ( provider != null ) {
+      // Rows are written a few bytes at a time: buffer both sides of the compressor
+      stream = new BufferedOutputStream( provider.createOutputStream( stream ), bufferSize );
+    }
+    return new DataOutputStream( stream );
+  }
+
+  public static DataInputStream getInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    return getInputStream( in, provider, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * @param in
+   *          the stream of the file
+   * @param provider
+   *          the compression provider the file was written with, null for no compression
+   * @param bufferSize
+   *          the size of the buffers in bytes
+   * @return a buffered stream that decompresses the data read from it
+   */
+  public static DataInputStream getInputStream( InputStream in, CompressionProvider provider, int bufferSize )
+    throws IOException {
+    InputStream stream = new BufferedInputStream( in, bufferSize );
+    if ( provider != null ) {
+      stream = new BufferedInputStream( provider.createInputStream( stream ), bufferSize );
+    }
+    return new DataInputStream( stream );
+  }
+}
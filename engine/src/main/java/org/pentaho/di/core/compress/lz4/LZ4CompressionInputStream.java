@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+public class LZ4CompressionInputStream extends CompressionInputStream {
+
+  public LZ4CompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( getDelegate( in ), provider );
+  }
+
+  protected static FramedLZ4CompressorInputStream getDelegate( InputStream in ) throws IOException {
+    FramedLZ4CompressorInputStream delegate;
+    if ( in instanceof FramedLZ4CompressorInputStream ) {
+      delegate = (FramedLZ4CompressorInputStream) in;
+    } else {
+      delegate = new FramedLZ4CompressorInputStream( in );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    FramedLZ4CompressorInputStream lis = (FramedLZ4CompressorInputStream) delegate;
+    lis.close();
+  }
+}
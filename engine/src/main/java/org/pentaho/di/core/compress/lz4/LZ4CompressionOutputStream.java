@@ -0,0 +1,46 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.lz4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+public class LZ4CompressionOutputStream extends CompressionOutputStream {
+
+  public LZ4CompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    super( getDelegate( out ), provider );
+  }
+
+  protected static FramedLZ4CompressorOutputStream getDelegate( OutputStream out ) throws IOException {
+    FramedLZ4CompressorOutputStream delegate;
+    if ( out instanceof FramedLZ4CompressorOutputStream ) {
+      delegate = (FramedLZ4CompressorOutputStream) out;
+    } else {
+      // Small blocks keep the memory use low when a lot of streams are open at the same time
+      delegate = new FramedLZ4CompressorOutputStream( out, new FramedLZ4CompressorOutputStream.Parameters(
+        FramedLZ4CompressorOutputStream.BlockSize.K64 ) );
+    }
+    return delegate;
+  }
+
+  @Override
+  public void close() throws IOException {
+    FramedLZ4CompressorOutputStream zos = (FramedLZ4CompressorOutputStream) delegate;
+    zos.close();
+  }
+}
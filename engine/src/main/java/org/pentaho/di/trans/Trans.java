@@ -27,6 +27,7 @@ import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
@@ -73,6 +74,7 @@ import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.ConnectionUtil;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.util.VirtualThreads;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -88,11 +90,13 @@ import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.resource.ResourceUtil;
 import org.pentaho.di.resource.TopLevelResource;
 import org.pentaho.di.trans.cluster.TransSplitter;
+import org.pentaho.di.trans.performance.StepPerformanceHistory;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.di.trans.step.RunThread;
 import org.pentaho.di.trans.step.StepAdapter;
+import org.pentaho.di.trans.step.StepCountersSnapshot;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInitThread;
 import org.pentaho.di.trans.step.StepInterface;
@@ -134,6 +138,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -429,9 +434,14 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
   private boolean readyToStart;
 
   /**
-   * Step performance snapshots.
+   * Whether the step threads and the step init threads are virtual threads.
    */
-  private Map<String, List<StepPerformanceSnapShot>> stepPerformanceSnapShots;
+  private boolean usingVirtualThreads;
+
+  /**
+   * Step performance snapshots, per step copy.
+   */
+  private ConcurrentMap<String, StepPerformanceHistory> stepPerformanceHistories;
 
   /**
    * The step performance snapshot timer.
@@ -981,6 +991,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
                 if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
+                } else if ( dispatchType == TYPE_DISP_1_1 && isUsingRingBufferRowSet() ) {
+                  // Exactly one writing and one reading thread: no need for locks.
+                  //
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
                 }
@@ -1233,6 +1247,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.InitialisingSteps", String.valueOf( steps.size() ) ) );
     }
 
+    usingVirtualThreads = isUsingVirtualThreads();
+
     StepInitThread[] initThreads = new StepInitThread[ steps.size() ];
     Thread[] threads = new Thread[ steps.size() ];
 
@@ -1250,8 +1266,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         // Put it in a separate thread!
         //
-        threads[ i ] = new Thread( initThreads[ i ] );
-        threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
+        if ( usingVirtualThreads ) {
+          threads[ i ] = VirtualThreads.newThread( initThreads[ i ], "init of " + sid.stepname + "." + sid.copy );
+        } else {
+          threads[ i ] = new Thread( initThreads[ i ] );
+          threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
+        }
 
         ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeInitialize.id, initThreads[ i ] );
         threads[ i ].start();
@@ -1348,6 +1368,37 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     setReadyToStart( true );
   }
 
+  /**
+   * The lock-free ring buffer row set is used on 1:1 hops unless it is explicitly switched off with
+   * KETTLE_RING_BUFFER_ROWSET=N.
+   *
+   * @return true if 1:1 hops should use a {@link RingBufferRowSet}
+   */
+  private boolean isUsingRingBufferRowSet() {
+    Boolean ringBufferRowSet =
+      ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_RING_BUFFER_ROWSET ) );
+    return ringBufferRowSet == null || ringBufferRowSet.booleanValue();
+  }
+
+  /**
+   * The steps run on virtual threads if the transformation asks for it, or if KETTLE_TRANS_VIRTUAL_THREADS=Y, and the
+   * Java runtime supports virtual threads.
+   *
+   * @return true if the step threads and the step init threads should be virtual threads
+   */
+  private boolean isUsingVirtualThreads() {
+    Boolean virtualThreads =
+      ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_TRANS_VIRTUAL_THREADS ) );
+    if ( !transMeta.isUsingVirtualThreads() && ( virtualThreads == null || !virtualThreads.booleanValue() ) ) {
+      return false;
+    }
+    if ( !VirtualThreads.isSupported() ) {
+      log.logBasic( BaseMessages.getString( PKG, "Trans.Log.VirtualThreadsNotSupported" ) );
+      return false;
+    }
+    return true;
+  }
+
   @SuppressWarnings ( "deprecation" )
   private void checkCompatibility() {
     // If we don't have a previous result and transMeta does have one, someone has been using a deprecated method.
@@ -1450,7 +1501,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     if ( transMeta.isCapturingStepPerformanceSnapShots() ) {
       stepPerformanceSnapshotSeqNr = new AtomicInteger( 0 );
-      stepPerformanceSnapShots = new ConcurrentHashMap<>();
+      stepPerformanceHistories = new ConcurrentHashMap<>();
 
       // Calculate the maximum number of snapshots to be kept in memory
       //
@@ -1553,8 +1604,13 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
           RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
-          thread.setName( getName() + " - " + combi.stepname );
+          Thread thread;
+          if ( usingVirtualThreads ) {
+            thread = VirtualThreads.newThread( runThread, getName() + " - " + combi.stepname );
+          } else {
+            thread = new Thread( runThread );
+            thread.setName( getName() + " - " + combi.stepname );
+          }
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
           //
@@ -1707,45 +1763,31 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   protected void addStepPerformanceSnapShot() {
 
-    if ( stepPerformanceSnapShots == null ) {
+    if ( stepPerformanceHistories == null ) {
       return; // Race condition somewhere?
     }
 
-    boolean pausedAndNotEmpty = isPaused() && !stepPerformanceSnapShots.isEmpty();
-    boolean stoppedAndNotEmpty = isStopped() && !stepPerformanceSnapShots.isEmpty();
+    boolean pausedAndNotEmpty = isPaused() && !stepPerformanceHistories.isEmpty();
+    boolean stoppedAndNotEmpty = isStopped() && !stepPerformanceHistories.isEmpty();
 
     if ( transMeta.isCapturingStepPerformanceSnapShots() && !pausedAndNotEmpty && !stoppedAndNotEmpty ) {
       // get the statistics from the steps and keep them...
       //
       int seqNr = stepPerformanceSnapshotSeqNr.incrementAndGet();
+      long time = System.currentTimeMillis();
       for ( int i = 0; i < steps.size(); i++ ) {
         StepMeta stepMeta = steps.get( i ).stepMeta;
         StepInterface step = steps.get( i ).step;
 
-        StepPerformanceSnapShot snapShot =
-          new StepPerformanceSnapShot( seqNr, getBatchId(), new Date(), getName(), stepMeta.getName(), step.getCopy(),
-            step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(), step.getLinesOutput(), step
-            .getLinesUpdated(), step.getLinesRejected(), step.getErrors() );
-
-        synchronized ( stepPerformanceSnapShots ) {
-          List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( step.toString() );
-          StepPerformanceSnapShot previous;
-          if ( snapShotList == null ) {
-            snapShotList = new ArrayList<>();
-            stepPerformanceSnapShots.put( step.toString(), snapShotList );
-            previous = null;
-          } else {
-            previous = snapShotList.get( snapShotList.size() - 1 ); // the last one...
-          }
-          // Make the difference...
-          //
-          snapShot.diff( previous, step.rowsetInputSize(), step.rowsetOutputSize() );
-          snapShotList.add( snapShot );
+        // The timer and the final snapshot of the last step that finishes can get here at the same time
+        StepPerformanceHistory history = stepPerformanceHistories.computeIfAbsent( step.toString(),
+          key -> new StepPerformanceHistory( getName(), stepMeta.getName(), step.getCopy(),
+            stepPerformanceSnapshotSizeLimit ) );
 
-          if ( stepPerformanceSnapshotSizeLimit > 0 && snapShotList.size() > stepPerformanceSnapshotSizeLimit ) {
-            snapShotList.remove( 0 );
-          }
-        }
+        StepCountersSnapshot counters = step.getCountersSnapshot();
+        history.addSnapShot( seqNr, getBatchId(), time, counters.getLinesRead(), counters.getLinesWritten(),
+          counters.getLinesInput(), counters.getLinesOutput(), counters.getLinesUpdated(),
+          counters.getLinesRejected(), counters.getErrors(), step.rowsetInputSize(), step.rowsetOutputSize() );
       }
 
       lastStepPerformanceSnapshotSeqNrAdded = stepPerformanceSnapshotSeqNr.get();
@@ -2922,7 +2964,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     PerformanceLogTable performanceLogTable = transMeta.getPerformanceLogTable();
 
     if ( !performanceLogTable.isDefined() || !transMeta.isCapturingStepPerformanceSnapShots()
-      || stepPerformanceSnapShots == null || stepPerformanceSnapShots.isEmpty() ) {
+      || stepPerformanceHistories == null || stepPerformanceHistories.isEmpty() ) {
       return 0; // nothing to do here!
     }
 
@@ -2937,25 +2979,19 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       RowMetaInterface rowMeta = performanceLogTable.getLogRecord( LogStatus.START, null, null ).getRowMeta();
       ldb.prepareInsert( rowMeta, performanceLogTable.getActualSchemaName(), performanceLogTable.getActualTableName() );
 
-      synchronized ( stepPerformanceSnapShots ) {
-        Iterator<List<StepPerformanceSnapShot>> iterator = stepPerformanceSnapShots.values().iterator();
-        while ( iterator.hasNext() ) {
-          List<StepPerformanceSnapShot> snapshots = iterator.next();
-          synchronized ( snapshots ) {
-            Iterator<StepPerformanceSnapShot> snapshotsIterator = snapshots.iterator();
-            while ( snapshotsIterator.hasNext() ) {
-              StepPerformanceSnapShot snapshot = snapshotsIterator.next();
-              if ( snapshot.getSeqNr() >= startSequenceNr && snapshot
-                .getSeqNr() <= lastStepPerformanceSnapshotSeqNrAdded ) {
-
-                RowMetaAndData row = performanceLogTable.getLogRecord( LogStatus.START, snapshot, null );
-
-                ldb.setValuesInsert( row.getRowMeta(), row.getData() );
-                ldb.insertRow( true );
-              }
-              lastSeqNr = snapshot.getSeqNr();
-            }
+      // Only the snapshots that were added since the last write are read from the histories
+      //
+      for ( StepPerformanceHistory history : stepPerformanceHistories.values() ) {
+        List<StepPerformanceSnapShot> snapshots =
+          history.getSnapShots( StepPerformanceHistory.RESOLUTION_CAPTURED, startSequenceNr - 1 );
+        for ( StepPerformanceSnapShot snapshot : snapshots ) {
+          if ( snapshot.getSeqNr() <= lastStepPerformanceSnapshotSeqNrAdded ) {
+            RowMetaAndData row = performanceLogTable.getLogRecord( LogStatus.START, snapshot, null );
+
+            ldb.setValuesInsert( row.getRowMeta(), row.getData() );
+            ldb.insertRow( true );
           }
+          lastSeqNr = snapshot.getSeqNr();
         }
       }
 
@@ -4748,11 +4784,19 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
   }
 
   /**
-   * Gets a named list (map) of step performance snapshots.
+   * Gets a named list (map) of step performance snapshots. The lists are copies of the captured snapshots that are
+   * kept, use {@link #getStepPerformanceHistories()} to read only the new snapshots or a coarser resolution.
    *
    * @return a named list (map) of step performance snapshots
    */
   public Map<String, List<StepPerformanceSnapShot>> getStepPerformanceSnapShots() {
+    if ( stepPerformanceHistories == null ) {
+      return null;
+    }
+    Map<String, List<StepPerformanceSnapShot>> stepPerformanceSnapShots = new HashMap<>();
+    for ( Map.Entry<String, StepPerformanceHistory> entry : stepPerformanceHistories.entrySet() ) {
+      stepPerformanceSnapShots.put( entry.getKey(), entry.getValue().getSnapShots() );
+    }
     return stepPerformanceSnapShots;
   }
 
@@ -4762,7 +4806,38 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    * @param stepPerformanceSnapShots a named list (map) of step performance snapshots to set
    */
   public void setStepPerformanceSnapShots( Map<String, List<StepPerformanceSnapShot>> stepPerformanceSnapShots ) {
-    this.stepPerformanceSnapShots = stepPerformanceSnapShots;
+    if ( stepPerformanceSnapShots == null ) {
+      this.stepPerformanceHistories = null;
+      return;
+    }
+    ConcurrentMap<String, StepPerformanceHistory> histories = new ConcurrentHashMap<>();
+    for ( Map.Entry<String, List<StepPerformanceSnapShot>> entry : stepPerformanceSnapShots.entrySet() ) {
+      StepPerformanceHistory history = null;
+      for ( StepPerformanceSnapShot snapShot : entry.getValue() ) {
+        if ( history == null ) {
+          history = new StepPerformanceHistory( snapShot.getTransName(), snapShot.getStepName(),
+            snapShot.getStepCopy(), stepPerformanceSnapshotSizeLimit );
+        }
+        history.addSnapShot( snapShot.getSeqNr(), snapShot.getBatchId(), snapShot.getDate().getTime(),
+          snapShot.getTotalLinesRead(), snapShot.getTotalLinesWritten(), snapShot.getTotalLinesInput(),
+          snapShot.getTotalLinesOutput(), snapShot.getTotalLinesUpdated(), snapShot.getTotalLinesRejected(),
+          snapShot.getTotalErrors(), snapShot.getInputBufferSize(), snapShot.getOutputBufferSize() );
+      }
+      if ( history != null ) {
+        histories.put( entry.getKey(), history );
+      }
+    }
+    this.stepPerformanceHistories = histories;
+  }
+
+  /**
+   * Gets the step performance histories, per step copy. They hold the snapshots at a number of resolutions and can
+   * return only the snapshots added after a sequence number.
+   *
+   * @return the step performance histories, or null if no snapshots are captured
+   */
+  public Map<String, StepPerformanceHistory> getStepPerformanceHistories() {
+    return stepPerformanceHistories;
   }
 
   /**
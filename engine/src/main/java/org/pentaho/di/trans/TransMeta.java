@@ -283,6 +283,9 @@ public class TransMeta extends AbstractMeta
    */
   protected boolean usingThreadPriorityManagment;
 
+  /** Flag to indicate that the step threads run on virtual threads instead of platform threads. */
+  protected boolean usingVirtualThreads;
+
   /** The slave-step-copy/partition distribution. Only used for slave transformations in a clustering environment. */
   protected SlaveStepCopyPartitionDistribution slaveStepCopyPartitionDistribution;
 
@@ -609,6 +612,9 @@ public class TransMeta extends AbstractMeta
         transMeta.dependencies = new ArrayList<>();
         transMeta.namedParams = new NamedParamsDefault();
         transMeta.stepChangeListeners = new ArrayList<>();
+        transMeta.stepsFieldsCache = new HashMap<>();
+        transMeta.loopCache = new HashMap<>();
+        transMeta.previousStepCache = new HashMap<>();
       }
       // lock these after the object cloning is done
       localSharedObjects.lock();
@@ -740,6 +746,8 @@ public class TransMeta extends AbstractMeta
     //
     usingThreadPriorityManagment = true;
 
+    usingVirtualThreads = false;
+
     // The performance monitoring options
     //
     capturingStepPerformanceSnapShots = false;
@@ -2566,6 +2574,7 @@ public class TransMeta extends AbstractMeta
     retval.append( "    " ).append( XMLHandler.addTagValue( "feedback_shown", feedbackShown ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "feedback_size", feedbackSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "using_thread_priorities", usingThreadPriorityManagment ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "using_virtual_threads", usingVirtualThreads ) );
 
     // Performance monitoring
     //
@@ -3679,6 +3688,7 @@ public class TransMeta extends AbstractMeta
         feedbackSize = Const.toInt( XMLHandler.getTagValue( infonode, "feedback_size" ), Const.ROWS_UPDATE );
         usingThreadPriorityManagment =
             !"N".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "using_thread_priorities" ) );
+        usingVirtualThreads = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "using_virtual_threads" ) );
 
         // Performance monitoring for steps...
         //
@@ -5952,6 +5962,26 @@ public class TransMeta extends AbstractMeta
     this.usingThreadPriorityManagment = usingThreadPriorityManagment;
   }
 
+  /**
+   * Checks whether the steps of the transformation run on virtual threads. The threads are platform threads if the
+   * Java runtime doesn't support virtual threads. See also {@link Const#KETTLE_TRANS_VIRTUAL_THREADS}.
+   *
+   * @return true if the steps of the transformation run on virtual threads, false otherwise
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads;
+  }
+
+  /**
+   * Sets whether the steps of the transformation run on virtual threads.
+   *
+   * @param usingVirtualThreads
+   *          true if the steps of the transformation run on virtual threads, false otherwise
+   */
+  public void setUsingVirtualThreads( boolean usingVirtualThreads ) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
   /**
    * Check a step to see if there are no multiple steps to read from. If so, check to see if the receiving rows are all
    * the same in layout. We only want to ONLY use the DBCache for this to prevent GUI stalls.
@@ -6755,6 +6785,7 @@ public class TransMeta extends AbstractMeta
         .append( this.isFeedbackShown() )
         .append( this.getFeedbackSize() )
         .append( this.isUsingThreadPriorityManagment() )
+        .append( this.isUsingVirtualThreads() )
         .append( this.isCapturingStepPerformanceSnapShots() )
         .append( this.getStepPerformanceCapturingDelay() )
         .append( this.getStepPerformanceCapturingSizeLimit() )
@@ -0,0 +1,310 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.performance;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * The performance snapshots of one step copy. The counters are kept in primitive ring buffers at three resolutions:
+ * every captured snapshot, one snapshot per minute and one snapshot per hour. A coarser resolution keeps the last
+ * snapshot of every interval, plus the largest row set sizes seen in that interval.<br>
+ * <br>
+ * The buffers start small and grow up to their maximum size: one day of minutes, one month of hours and the configured
+ * number of captured snapshots, {@link Const#KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT} when no limit is set.
+ * Memory use is therefore bounded no matter how long the transformation runs, and small for a short run.<br>
+ * <br>
+ * Readers ask for the snapshots after the last sequence number they've seen to get only the new ones.
+ *
+ * @since 11.1
+ */
+public class StepPerformanceHistory {
+
+  /** Every snapshot that was captured */
+  public static final long RESOLUTION_CAPTURED = 0L;
+
+  /** One snapshot per minute */
+  public static final long RESOLUTION_MINUTE = 60000L;
+
+  /** One snapshot per hour */
+  public static final long RESOLUTION_HOUR = 3600000L;
+
+  /** One day of minutes */
+  private static final int MINUTE_CAPACITY = 24 * 60;
+
+  /** One month of hours */
+  private static final int HOUR_CAPACITY = 30 * 24;
+
+  /** The number of captured snapshots kept when no limit is set */
+  public static final int DEFAULT_CAPTURED_CAPACITY = 10000;
+
+  /** The initial size of a buffer */
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final int LINES_READ = 0;
+  private static final int LINES_WRITTEN = 1;
+  private static final int LINES_INPUT = 2;
+  private static final int LINES_OUTPUT = 3;
+  private static final int LINES_UPDATED = 4;
+  private static final int LINES_REJECTED = 5;
+  private static final int ERRORS = 6;
+  private static final int INPUT_BUFFER_SIZE = 7;
+  private static final int OUTPUT_BUFFER_SIZE = 8;
+  private static final int NR_COLUMNS = 9;
+
+  /**
+   * A ring buffer of snapshots, stored column by column.
+   */
+  private static class Buffer {
+    private final long resolution;
+    private final int maxLength;
+    private int[] seqNrs;
+    private long[] times;
+    private long[][] columns;
+    private int start;
+    private int size;
+
+    /**
+     * @param resolution
+     *          the length of the interval of a snapshot in ms, 0 to keep every snapshot
+     * @param capacity
+     *          the number of snapshots to keep
+     */
+    Buffer( long resolution, int capacity ) {
+      this.resolution = resolution;
+      // One more row is kept as the base of the oldest difference
+      this.maxLength = capacity + 1;
+      allocate( Math.min( INITIAL_CAPACITY, maxLength ) );
+    }
+
+    private void allocate( int length ) {
+      seqNrs = new int[length];
+      times = new long[length];
+      columns = new long[NR_COLUMNS][length];
+    }
+
+    private int index( int i ) {
+      return ( start + i ) % seqNrs.length;
+    }
+
+    void add( int seqNr, long time, long[] values ) {
+      if ( size > 0 && resolution > 0 ) {
+        int last = index( size - 1 );
+        if ( times[last] / resolution == time / resolution ) {
+          // Same interval: keep the last counters and the largest row set sizes
+          seqNrs[last] = seqNr;
+          times[last] = time;
+          for ( int c = 0; c < NR_COLUMNS; c++ ) {
+            if ( c == INPUT_BUFFER_SIZE || c == OUTPUT_BUFFER_SIZE ) {
+              columns[c][last] = Math.max( columns[c][last], values[c] );
+            } else {
+              columns[c][last] = values[c];
+            }
+          }
+          return;
+        }
+      }
+      if ( size == seqNrs.length ) {
+        if ( size < maxLength ) {
+          grow();
+        } else {
+          start = index( 1 );
+          size--;
+        }
+      }
+      int next = index( size++ );
+      seqNrs[next] = seqNr;
+      times[next] = time;
+      for ( int c = 0; c < NR_COLUMNS; c++ ) {
+        columns[c][next] = values[c];
+      }
+    }
+
+    private void grow() {
+      int[] oldSeqNrs = seqNrs;
+      long[] oldTimes = times;
+      long[][] oldColumns = columns;
+      int oldStart = start;
+      allocate( (int) Math.min( oldSeqNrs.length * 2L, maxLength ) );
+      for ( int i = 0; i < size; i++ ) {
+        int from = ( oldStart + i ) % oldSeqNrs.length;
+        seqNrs[i] = oldSeqNrs[from];
+        times[i] = oldTimes[from];
+        for ( int c = 0; c < NR_COLUMNS; c++ ) {
+          columns[c][i] = oldColumns[c][from];
+        }
+      }
+      start = 0;
+    }
+
+    /**
+     * @return true if the oldest row only serves as the base of the difference of the next one
+     */
+    boolean hasBase() {
+      return size == maxLength;
+    }
+  }
+
+  private final String transName;
+  private final String stepName;
+  private final int stepCopy;
+  private volatile long batchId;
+
+  private final Buffer captured;
+  private final Buffer minutes;
+  private final Buffer hours;
+
+  private final long[] values = new long[NR_COLUMNS];
+
+  /**
+   * @param transName
+   *          the name of the transformation
+   * @param stepName
+   *          the name of the step
+   * @param stepCopy
+   *          the step copy number
+   * @param limit
+   *          the maximum number of captured snapshots to keep, 0 for the value of
+   *          {@link Const#KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT}
+   */
+  public StepPerformanceHistory( String transName, String stepName, int stepCopy, int limit ) {
+    this.transName = transName;
+    this.stepName = stepName;
+    this.stepCopy = stepCopy;
+    this.captured = new Buffer( RESOLUTION_CAPTURED, limit > 0 ? limit : getDefaultLimit() );
+    this.minutes = new Buffer( RESOLUTION_MINUTE, MINUTE_CAPACITY );
+    this.hours = new Buffer( RESOLUTION_HOUR, HOUR_CAPACITY );
+  }
+
+  private static int getDefaultLimit() {
+    int limit = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT ),
+      DEFAULT_CAPTURED_CAPACITY );
+    return limit > 0 ? limit : DEFAULT_CAPTURED_CAPACITY;
+  }
+
+  /**
+   * Add a snapshot of the counters of the step. The counters are totals since the step started.
+   */
+  public synchronized void addSnapShot( int seqNr, long batchId, long time, long totalLinesRead,
+    long totalLinesWritten, long totalLinesInput, long totalLinesOutput, long totalLinesUpdated,
+    long totalLinesRejected, long totalErrors, long inputBufferSize, long outputBufferSize ) {
+    this.batchId = batchId;
+    values[LINES_READ] = totalLinesRead;
+    values[LINES_WRITTEN] = totalLinesWritten;
+    values[LINES_INPUT] = totalLinesInput;
+    values[LINES_OUTPUT] = totalLinesOutput;
+    values[LINES_UPDATED] = totalLinesUpdated;
+    values[LINES_REJECTED] = totalLinesRejected;
+    values[ERRORS] = totalErrors;
+    values[INPUT_BUFFER_SIZE] = inputBufferSize;
+    values[OUTPUT_BUFFER_SIZE] = outputBufferSize;
+
+    captured.add( seqNr, time, values );
+    minutes.add( seqNr, time, values );
+    hours.add( seqNr, time, values );
+  }
+
+  /**
+   * @return all the captured snapshots that are kept
+   */
+  public List<StepPerformanceSnapShot> getSnapShots() {
+    return getSnapShots( RESOLUTION_CAPTURED, 0 );
+  }
+
+  /**
+   * Get the snapshots after a sequence number. The differences of the snapshots are calculated with the previous
+   * snapshot at the same resolution.<br>
+   * <br>
+   * The last snapshot of a minute or an hour keeps changing until that interval is over. Ask again from the sequence
+   * number of the snapshot before it to see the changes.
+   *
+   * @param resolution
+   *          {@link #RESOLUTION_CAPTURED}, {@link #RESOLUTION_MINUTE} or {@link #RESOLUTION_HOUR}
+   * @param afterSeqNr
+   *          only return the snapshots with a higher sequence number, 0 for all of them
+   * @return the snapshots, oldest first
+   */
+  public synchronized List<StepPerformanceSnapShot> getSnapShots( long resolution, int afterSeqNr ) {
+    Buffer buffer = getBuffer( resolution );
+    List<StepPerformanceSnapShot> snapShots = new ArrayList<>();
+
+    // Start at the first row after the sequence number, keep the row before it as the base of the difference
+    //
+    int first = buffer.hasBase() ? 1 : 0;
+    int i = first;
+    while ( i < buffer.size && buffer.seqNrs[buffer.index( i )] <= afterSeqNr ) {
+      i++;
+    }
+    StepPerformanceSnapShot previous = i > 0 ? createSnapShot( buffer, i - 1 ) : null;
+    for ( ; i < buffer.size; i++ ) {
+      StepPerformanceSnapShot snapShot = createSnapShot( buffer, i );
+      int row = buffer.index( i );
+      snapShot.diff( previous, buffer.columns[INPUT_BUFFER_SIZE][row], buffer.columns[OUTPUT_BUFFER_SIZE][row] );
+      snapShots.add( snapShot );
+      previous = snapShot;
+    }
+    return snapShots;
+  }
+
+  private StepPerformanceSnapShot createSnapShot( Buffer buffer, int i ) {
+    int row = buffer.index( i );
+    long[][] columns = buffer.columns;
+    return new StepPerformanceSnapShot( buffer.seqNrs[row], batchId, new Date( buffer.times[row] ), transName,
+      stepName, stepCopy, columns[LINES_READ][row], columns[LINES_WRITTEN][row], columns[LINES_INPUT][row],
+      columns[LINES_OUTPUT][row], columns[LINES_UPDATED][row], columns[LINES_REJECTED][row], columns[ERRORS][row] );
+  }
+
+  private Buffer getBuffer( long resolution ) {
+    if ( resolution == RESOLUTION_MINUTE ) {
+      return minutes;
+    } else if ( resolution == RESOLUTION_HOUR ) {
+      return hours;
+    } else if ( resolution == RESOLUTION_CAPTURED ) {
+      return captured;
+    }
+    throw new IllegalArgumentException( "Unknown resolution: " + resolution );
+  }
+
+  /**
+   * @return the sequence number of the last captured snapshot, 0 if there is none
+   */
+  public synchronized int getLastSeqNr() {
+    return captured.size == 0 ? 0 : captured.seqNrs[captured.index( captured.size - 1 )];
+  }
+
+  /**
+   * @return the number of captured snapshots that are kept
+   */
+  public synchronized int size() {
+    return captured.hasBase() ? captured.size - 1 : captured.size;
+  }
+
+  /**
+   * @return the name of the step
+   */
+  public String getStepName() {
+    return stepName;
+  }
+
+  /**
+   * @return the step copy number
+   */
+  public int getStepCopy() {
+    return stepCopy;
+  }
+}
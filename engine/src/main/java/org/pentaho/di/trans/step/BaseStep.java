@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -45,6 +46,7 @@ import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.RowSetSignal;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleRowException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -158,7 +160,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /*
+   * The row counters are updated by the step thread for every row and read by the monitoring threads: status pages,
+   * performance snapshots, the transformation log. A LongAdder keeps the updates free of locks and of contention with
+   * the readers.
+   *
+   * Compatibility: the deprecated public fields linesRead, linesWritten, linesInput, linesOutput, linesUpdated,
+   * linesSkipped and linesRejected are kept for the plugins that still update them directly, like linesRead++. The
+   * getLinesXxx() methods and the counters snapshot add them to the LongAdders, setLinesXxx() resets them. They are
+   * not thread-safe: a monitor can see their updates late.
+   *
+   * - incrementLinesXxx(), addLinesXxx() and decrementLinesXxx() return the sum of the counter after the update. When
+   *   several threads update the same counter, two calls can return the same value: don't use it as a unique number.
+   * - setLinesXxx() resets the counter and then adds the value. An update by another thread in between is lost or
+   *   added to the new value, so only the thread that updates the counter may set it.
+   */
 
   /**
    * nr of lines read from previous step(s)
@@ -209,20 +225,55 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   public long linesSkipped;
 
   /**
-   * total sleep time in ns caused by an empty input buffer (previous step is slow)
+   * nr of lines rejected to an error handling step
    *
    * @deprecated use {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
    */
   @Deprecated
   public long linesRejected;
 
+  /**
+   * nr of lines read from previous step(s)
+   */
+  private final LongAdder linesReadAdder = new LongAdder();
+
+  /**
+   * nr of lines written to next step(s)
+   */
+  private final LongAdder linesWrittenAdder = new LongAdder();
+
+  /**
+   * nr of lines read from file or database
+   */
+  private final LongAdder linesInputAdder = new LongAdder();
+
+  /**
+   * nr of lines written to file or database
+   */
+  private final LongAdder linesOutputAdder = new LongAdder();
+
+  /**
+   * nr of updates in a database table or file
+   */
+  private final LongAdder linesUpdatedAdder = new LongAdder();
+
+  /**
+   * nr of lines skipped
+   */
+  private final LongAdder linesSkippedAdder = new LongAdder();
+
+  /**
+   * nr of lines rejected to an error handling step
+   */
+  private final LongAdder linesRejectedAdder = new LongAdder();
+
   private boolean distributed;
 
   private String rowDistributionCode;
 
   private RowDistributionInterface rowDistribution;
 
-  private long errors;
+  private volatile long errors;
 
   private StepMeta[] nextSteps;
 
@@ -366,8 +417,31 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private static int NR_OF_ROWS_IN_BLOCK = 500;
 
+  /**
+   * The number of rows that steps using {@link #getRows(int)} and {@link #putRows(RowMetaInterface, List)} typically
+   * handle in one go.
+   */
+  public static final int ROW_BATCH_SIZE = 100;
+
   private int blockPointer;
 
+  /**
+   * The input row set that the last row read by {@link #handleGetRow()} came from, null if there was no row.
+   */
+  private RowSet lastInputRowSet;
+
+  /**
+   * The longest time a step reading from several row sets parks until one of them signals it has a row. The wait is
+   * bounded so that the step notices it was stopped or paused.
+   */
+  private static final long INPUT_WAIT_MILLIS = 50L;
+
+  /** Wakes up this step when one of its input row sets gets a row, null until it first waits for input */
+  private RowSetSignal inputSignal;
+
+  /** False when an input row set doesn't raise the signal, so the input row sets need to be polled */
+  private boolean inputSignalSupported = true;
+
   /**
    * A flag to indicate that clustered partitioning was not yet initialized
    */
@@ -417,6 +491,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   private boolean allowEmptyFieldNamesAndTypes = false;
 
+  /**
+   * The version of the last row metadata that passed the field name and type check, see
+   * {@link RowMetaInterface#getVersion()}
+   */
+  private volatile long checkedRowMetaVersion = -1L;
+
   /**
    * Keeps track of the number of rows read for input deadlock verification.
    */
@@ -479,16 +559,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
-
     inputRowSets = null;
     outputRowSets = null;
     nextSteps = null;
@@ -905,40 +975,49 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return linesReadAdder.sum() + linesRead;
   }
 
   /**
    * Increments the number of lines read from previous steps by one
    *
-   * @return Returns the new value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    linesReadAdder.increment();
+    return getLinesRead();
+  }
+
+  /**
+   * Increments the number of lines read from previous steps
+   *
+   * @param nrLines the number of lines to add
+   * @return the counter after the update, not unique when other threads update it too
+   */
+  public long addLinesRead( long nrLines ) {
+    linesReadAdder.add( nrLines );
+    return getLinesRead();
   }
 
   /**
    * Decrements the number of lines read from previous steps by one
    *
-   * @return Returns the new value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    linesReadAdder.decrement();
+    return getLinesRead();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    linesRead = 0L;
+    linesReadAdder.reset();
+    linesReadAdder.add( newLinesReadValue );
   }
 
   /**
@@ -946,29 +1025,28 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return linesInputAdder.sum() + linesInput;
   }
 
   /**
    * Increments the number of lines read from an input source: database, file, socket, etc.
    *
-   * @return the new incremented value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    linesInputAdder.increment();
+    return getLinesInput();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    linesInput = 0L;
+    linesInputAdder.reset();
+    linesInputAdder.add( newLinesInputValue );
   }
 
   /**
@@ -976,29 +1054,28 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return linesOutputAdder.sum() + linesOutput;
   }
 
   /**
    * Increments the number of lines written to an output target: database, file, socket, etc.
    *
-   * @return the new incremented value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    linesOutputAdder.increment();
+    return getLinesOutput();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    linesOutput = 0L;
+    linesOutputAdder.reset();
+    linesOutputAdder.add( newLinesOutputValue );
   }
 
   /**
@@ -1006,40 +1083,49 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return linesWrittenAdder.sum() + linesWritten;
   }
 
   /**
    * Increments the number of lines written to next steps by one
    *
-   * @return Returns the new value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    linesWrittenAdder.increment();
+    return getLinesWritten();
+  }
+
+  /**
+   * Increments the number of lines written to next steps
+   *
+   * @param nrLines the number of lines to add
+   * @return the counter after the update, not unique when other threads update it too
+   */
+  public long addLinesWritten( long nrLines ) {
+    linesWrittenAdder.add( nrLines );
+    return getLinesWritten();
   }
 
   /**
    * Decrements the number of lines written to next steps by one
    *
-   * @return Returns the new value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    linesWrittenAdder.decrement();
+    return getLinesWritten();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    linesWritten = 0L;
+    linesWrittenAdder.reset();
+    linesWrittenAdder.add( newLinesWrittenValue );
   }
 
   /**
@@ -1047,29 +1133,28 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return linesUpdatedAdder.sum() + linesUpdated;
   }
 
   /**
    * Increments the number of lines updated in an output target: database, file, socket, etc.
    *
-   * @return the new incremented value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    linesUpdatedAdder.increment();
+    return getLinesUpdated();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    linesUpdated = 0L;
+    linesUpdatedAdder.reset();
+    linesUpdatedAdder.add( newLinesUpdatedValue );
   }
 
   /**
@@ -1077,59 +1162,57 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return linesRejectedAdder.sum() + linesRejected;
   }
 
   /**
    * Increments the number of lines rejected to an error handling step
    *
-   * @return the new incremented value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    linesRejectedAdder.increment();
+    return getLinesRejected();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesRejectedValue lines number of lines rejected to an error handling step
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    linesRejected = 0L;
+    linesRejectedAdder.reset();
+    linesRejectedAdder.add( newLinesRejectedValue );
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return linesSkippedAdder.sum() + linesSkipped;
   }
 
   /**
    * Increments the number of lines skipped
    *
-   * @return the new incremented value
+   * @return the counter after the update, not unique when other threads update it too
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    linesSkippedAdder.increment();
+    return getLinesSkipped();
   }
 
   /**
+   * Not atomic: only call it from the thread that updates the counter.
+   *
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    linesSkipped = 0L;
+    linesSkippedAdder.reset();
+    linesSkippedAdder.add( newLinesSkippedValue );
   }
 
   /*
@@ -1245,8 +1328,37 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    checkFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  /**
+   * Put a batch of rows with the same layout on the destination rowsets. The pause, stop and locking overhead of
+   * {@link #putRow(RowMetaInterface, Object[])} is paid once for the whole batch. Row listeners are still called for
+   * every row.
+   *
+   * @param rowMeta The layout of the rows
+   * @param rows    The rows to send to the destination rowset(s)
+   * @throws KettleStepException
+   */
+  @Override
+  public void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    if ( rows.isEmpty() ) {
+      return;
+    }
+    checkFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRows( rowMeta, rows );
+  }
+
+  private void checkFieldNamesAndTypes( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
+        // The row metadata is usually the same for every row: only check it again when it has changed.
+        //
+        long version = rowMeta.getVersion();
+        if ( version >= 0 && version == checkedRowMetaVersion ) {
+          return;
+        }
         // check row meta for empty field name (BACKLOG-18004)
         for ( ValueMetaInterface vmi : rowMeta.getValueMetaList() ) {
           if ( StringUtils.isBlank( vmi.getName() ) ) {
@@ -1256,12 +1368,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
             throw new KettleStepException( "Please set a value for the missing field(s) type." );
           }
         }
+        checkedRowMetaVersion = version;
       }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
-  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+  /**
+   * Wait while the step is paused and until the transformation is running.
+   *
+   * @return false if the step was stopped and rows should no longer be passed on
+   */
+  private boolean waitUntilReadyToPutRows() throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
     while ( paused.get() && !stopped.get() ) {
@@ -1280,7 +1397,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
       }
       stopAll();
-      return;
+      return false;
     }
 
     // Have all threads started?
@@ -1297,7 +1414,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       }
       this.checkTransRunning = true;
     }
+    return true;
+  }
 
+  /**
+   * Call the row listeners and keep the terminator rows for a row that is about to be written.
+   */
+  private void rowWritten( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
     // call all row listeners...
     //
     for ( RowListener listener : rowListeners ) {
@@ -1313,6 +1436,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         throw new KettleStepException( "Unable to clone row while adding rows to the terminator rows.", e );
       }
     }
+  }
+
+  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    if ( !waitUntilReadyToPutRows() ) {
+      return;
+    }
+
+    rowWritten( rowMeta, row );
 
     outputRowSetsLock.readLock().lock();
     try {
@@ -1348,6 +1479,59 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  private void handlePutRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    if ( !waitUntilReadyToPutRows() ) {
+      return;
+    }
+
+    for ( Object[] row : rows ) {
+      rowWritten( rowMeta, row );
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.isEmpty() ) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        addLinesWritten( rows.size() );
+
+        return; // we're done here!
+      }
+
+      // The common case: a single target, nothing to distribute, copy or partition.
+      //
+      if ( repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE
+        && outputRowSets.size() == 1 && rowDistribution == null ) {
+        RowSet rs = outputRowSets.get( 0 );
+        for ( Object[] row : rows ) {
+          putRowToRowSet( rs, rowMeta, row );
+        }
+        addLinesWritten( rows.size() );
+        return;
+      }
+
+      for ( Object[] row : rows ) {
+        switch ( repartitioning ) {
+          case StepPartitioningMeta.PARTITIONING_METHOD_NONE:
+            noPartitioning( rowMeta, row );
+            break;
+
+          case StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
+            specialPartitioning( rowMeta, row );
+            break;
+          case StepPartitioningMeta.PARTITIONING_METHOD_MIRROR:
+            mirrorPartitioning( rowMeta, row );
+            break;
+          default:
+            throw new KettleStepException( "Internal error: invalid repartitioning type: " + repartitioning );
+        }
+      }
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
   /**
    * Copy always to all target steps/copies
    */
@@ -1763,6 +1947,40 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Park until one of the input row sets signals it got a row or is done. The caller holds the read lock of the input
+   * row sets.
+   *
+   * @return false if an input row set doesn't raise the signal: the input row sets then need to be polled
+   */
+  private boolean waitForInputSignal() {
+    if ( inputSignal == null ) {
+      inputSignal = new RowSetSignal();
+    }
+    inputSignal.prepareToWait();
+    try {
+      // (Re-)register the signal before checking the row sets one last time: new input row sets can show up.
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( !rowSet.setReadySignal( inputSignal ) ) {
+          inputSignalSupported = false;
+          for ( RowSet registered : inputRowSets ) {
+            registered.setReadySignal( null );
+          }
+          return false;
+        }
+      }
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( rowSet.size() > 0 || rowSet.isDone() ) {
+          return true;
+        }
+      }
+      inputSignal.await( INPUT_WAIT_MILLIS, TimeUnit.MILLISECONDS );
+      return true;
+    } finally {
+      inputSignal.cancelWait();
+    }
+  }
+
   /**
    * Find the next not-finished input-stream... in_handling says which one...
    */
@@ -1819,6 +2037,81 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
 
+  /**
+   * Get up to max rows in one go. This waits for the first row exactly like {@link #getRow()} and then adds the rows
+   * that are already waiting in the same input rowset, so the pause, stop and locking overhead is paid once per batch.
+   * Row listeners are still called for every row.
+   *
+   * @param max the maximum number of rows to return
+   * @return the rows read, an empty list if there is no more input.
+   */
+  @Override
+  public List<Object[]> getRows( int max ) throws KettleException {
+    return getRowHandler().getRows( max );
+  }
+
+  private List<Object[]> handleGetRows( int max ) throws KettleException {
+    // The first row goes through getRow() so that everything that waits, switches input streams or overrides
+    // getRow() keeps working as before.
+    //
+    lastInputRowSet = null;
+    Object[] first = getRow();
+    if ( first == null ) {
+      return Collections.emptyList();
+    }
+    List<Object[]> rows = new ArrayList<>( Math.max( 1, max ) );
+    rows.add( first );
+    if ( max <= 1 || stopped.get() || paused.get() ) {
+      return rows;
+    }
+
+    inputRowSetsLock.readLock().lock();
+    try {
+      if ( inputRowSets.isEmpty() || currentInputRowSetNr >= inputRowSets.size() ) {
+        return rows;
+      }
+      // Stay fair to the other input streams: don't read more than a block from the current one.
+      //
+      int room = Math.min( max - 1, NR_OF_ROWS_IN_BLOCK - blockPointer );
+      if ( room <= 0 ) {
+        return rows;
+      }
+      // Only drain the row set the first row came from: the input row metadata is the one of that row set.
+      // An overridden getRow() that doesn't read through handleGetRow() leaves it unset and gets no extra rows.
+      //
+      RowSet rowSet = currentInputStream();
+      if ( rowSet != lastInputRowSet ) {
+        return rows;
+      }
+      int nrRows = rowSet.drainTo( rows, room );
+      if ( nrRows == 0 ) {
+        return rows;
+      }
+      blockPointer += nrRows;
+      addLinesRead( nrRows );
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+
+    // The same checks as handleGetRow() does for every row
+    //
+    if ( trans.isSafeModeEnabled() ) {
+      transMeta.checkRowMixingStatically( stepMeta, null );
+    }
+
+    if ( !rowListeners.isEmpty() ) {
+      for ( int i = 1; i < rows.size(); i++ ) {
+        for ( RowListener listener : rowListeners ) {
+          listener.rowReadEvent( inputRowMeta, rows.get( i ) );
+        }
+      }
+    }
+
+    verifyRejectionRates();
+
+    return rows;
+  }
+
   private Object[] handleGetRow() throws KettleException {
 
     // Are we pausing the step? If so, stall forever...
@@ -1879,11 +2172,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         inputRowSet = currentInputStream();
       }
 
+      // With several input row sets we don't block on one of them while another one might have rows: we check them
+      // in turn and park until one of them signals it has a row once all of them turned out to be empty.
+      //
+      boolean waitForInput = inputSignalSupported && inputRowSets.size() > 1;
+      int emptyInputs = 0;
+
       // To reduce stress on the locking system we are going to allow
       // The buffer to grow beyond "a few" entries.
       // We'll only do that if the previous step has not ended...
       //
-      if ( isUsingThreadPriorityManagment()
+      if ( !waitForInput && isUsingThreadPriorityManagment()
         && !inputRowSet.isDone() && inputRowSet.size() <= lowerBufferBoundary && !isStopped() ) {
         try {
           Thread.sleep( 0, 1 );
@@ -1909,7 +2208,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
         //
-        row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        if ( waitForInput ) {
+          row = inputRowSet.getRowImmediate();
+        } else {
+          row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        }
         if ( row != null ) {
           incrementLinesRead();
           blockPointer++;
@@ -1944,6 +2247,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
             } else {
               incrementLinesRead();
             }
+            emptyInputs = 0;
+          } else if ( waitForInput && ++emptyInputs >= inputRowSets.size() ) {
+            // All the input row sets are empty
+            waitForInput = waitForInputSignal();
+            emptyInputs = 0;
           }
           nextInputStream();
           inputRowSet = currentInputStream();
@@ -1977,6 +2285,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
 
     if ( row != null ) {
+      lastInputRowSet = inputRowSet;
+
       // OK, before we return the row, let's see if we need to check on mixing
       // row compositions...
       //
@@ -3380,25 +3690,45 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    StepCountersSnapshot counters = getCountersSnapshot();
+    long li = counters.getLinesInput();
+    long lo = counters.getLinesOutput();
+    long lr = counters.getLinesRead();
+    long lw = counters.getLinesWritten();
+    long lu = counters.getLinesUpdated();
+    long lj = counters.getLinesRejected();
+    long le = counters.getErrors();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || le > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
     }
   }
 
+  /**
+   * Read all the row counters at once without blocking the step thread: the counters are read from the end of the
+   * data path to its start, so the snapshot never shows more rows written than read.
+   *
+   * @return a snapshot of the row counters
+   */
+  @Override
+  public StepCountersSnapshot getCountersSnapshot() {
+    long errors = getErrors();
+    long lj = getLinesRejected();
+    long ls = getLinesSkipped();
+    long lu = getLinesUpdated();
+    long lo = getLinesOutput();
+    long lw = getLinesWritten();
+    long lr = getLinesRead();
+    long li = getLinesInput();
+    return new StepCountersSnapshot( lr, lw, li, lo, lu, ls, lj, errors );
+  }
+
+
   /*
    * (non-Javadoc)
    *
@@ -3730,6 +4060,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Same as {@link #checkFeedback(long)} for steps that handle rows in batches: true if a feedback line was passed
+   * after linesBefore, up to and including linesAfter.
+   */
+  protected boolean checkFeedback( long linesBefore, long linesAfter ) {
+    int feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown()
+      && ( linesAfter > 0 ) && ( feedbackSize > 0 )
+      && ( linesAfter / feedbackSize ) != ( linesBefore / feedbackSize );
+  }
+
   /**
    * @return the rowMeta
    */
@@ -4411,6 +4752,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       handlePutRowTo( rowMeta, row, rowSet );
     }
 
+    @Override public List<Object[]> getRows( int max ) throws KettleException {
+      return handleGetRows( max );
+    }
+
+    @Override public void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+      handlePutRows( rowMeta, rows );
+    }
+
   }
 
   private boolean isFailedResponse( JSONObject response ) {
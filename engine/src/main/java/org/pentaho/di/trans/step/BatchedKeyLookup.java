@@ -0,0 +1,283 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Looks up the rows of a table for a batch of keys with a single query instead of one query per key. The keys are
+ * compared with "=" only: a single key column becomes an IN list, several key columns become a list of OR-ed
+ * conditions.<br>
+ * <br>
+ * The number of keys per query is limited to keep the number of parameters below what the common databases accept.
+ * Larger batches are split over several queries, and the last query of a batch is padded with the last key so the
+ * same prepared statement is used every time.<br>
+ * <br>
+ * The rows returned by the query are matched with the keys with the metadata of the key fields of the stream, not
+ * with the collation of the database. That is only the same comparison for keys without strings: the database can
+ * ignore case or accents, or the trailing spaces of a CHAR column, so a string key could match a row in the query but
+ * not in the stream. Steps only look up keys in batches when {@link #isMatchedExactly(ValueMetaInterface)} holds for
+ * every key field. Keys containing a null value never match, like a "=" comparison in SQL.
+ */
+public class BatchedKeyLookup {
+  /**
+   * The maximum number of parameters of a single lookup query, Oracle for example doesn't allow more than 1000
+   * expressions in an IN list.
+   */
+  public static final int MAX_PARAMETERS_PER_QUERY = 1000;
+
+  private final Database db;
+  private final RowMetaInterface streamKeyRowMeta;
+  private final RowMetaInterface keyRowMeta;
+  private final int nrOfReturnColumns;
+  private final int keysPerQuery;
+  private final RowMetaInterface parameterRowMeta;
+  private final String sql;
+
+  private PreparedStatement preparedStatement;
+  private RowMetaInterface returnRowMeta;
+
+  /**
+   * @param db            the connected database to query
+   * @param schemaTable   the quoted schema and table name
+   * @param keyColumns    the key columns of the table
+   * @param keyRowMeta    the metadata of the key fields in the stream, in the order of the key columns
+   * @param returnColumns the columns to return for every key that is found
+   * @param batchSize     the largest number of keys that will be looked up at once
+   */
+  public BatchedKeyLookup( Database db, String schemaTable, String[] keyColumns, RowMetaInterface keyRowMeta,
+                           String[] returnColumns, int batchSize ) {
+    this( db, schemaTable, keyColumns, keyRowMeta, returnColumns, null, batchSize );
+  }
+
+  /**
+   * @param db            the connected database to query
+   * @param schemaTable   the quoted schema and table name
+   * @param keyColumns    the key columns of the table
+   * @param keyRowMeta    the metadata of the key fields in the stream, in the order of the key columns
+   * @param returnColumns the columns to return for every key that is found
+   * @param orderBy       the order by clause that decides which row is kept when a key matches several rows, or null
+   * @param batchSize     the largest number of keys that will be looked up at once
+   */
+  public BatchedKeyLookup( Database db, String schemaTable, String[] keyColumns, RowMetaInterface keyRowMeta,
+                           String[] returnColumns, String orderBy, int batchSize ) {
+    this.db = db;
+    this.streamKeyRowMeta = keyRowMeta;
+    this.nrOfReturnColumns = returnColumns.length;
+    this.keysPerQuery = Math.max( 1, Math.min( batchSize, MAX_PARAMETERS_PER_QUERY / keyColumns.length ) );
+
+    // Keys are kept in normal storage so they can be compared with the values that come from the database
+    this.keyRowMeta = new RowMeta();
+    for ( ValueMetaInterface valueMeta : keyRowMeta.getValueMetaList() ) {
+      ValueMetaInterface keyMeta = valueMeta.clone();
+      keyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      this.keyRowMeta.addValueMeta( keyMeta );
+    }
+    // The key metadata repeated for every key of the query, without renaming the duplicate names
+    List<ValueMetaInterface> parameterValueMetas = new ArrayList<>( keysPerQuery * keyColumns.length );
+    for ( int i = 0; i < keysPerQuery; i++ ) {
+      parameterValueMetas.addAll( this.keyRowMeta.getValueMetaList() );
+    }
+    this.parameterRowMeta = new RowMeta();
+    this.parameterRowMeta.setValueMetaList( parameterValueMetas );
+    this.sql = getSQL( db.getDatabaseMeta(), schemaTable, keyColumns, returnColumns, orderBy, keysPerQuery );
+  }
+
+  /**
+   * @param keyValueMeta the metadata of a key field of the stream
+   * @return true if a key value is matched with the value returned by the database the same way the database matches
+   * it with the column, false for strings which are compared with the collation of the database
+   */
+  public static boolean isMatchedExactly( ValueMetaInterface keyValueMeta ) {
+    return !keyValueMeta.isString();
+  }
+
+  static String getSQL( DatabaseMeta databaseMeta, String schemaTable, String[] keyColumns, String[] returnColumns,
+                        String orderBy, int keysPerQuery ) {
+    StringBuilder sql = new StringBuilder( "SELECT " );
+    for ( int i = 0; i < returnColumns.length; i++ ) {
+      sql.append( databaseMeta.quoteField( returnColumns[ i ] ) ).append( ", " );
+    }
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      if ( i > 0 ) {
+        sql.append( ", " );
+      }
+      sql.append( databaseMeta.quoteField( keyColumns[ i ] ) );
+    }
+    sql.append( " FROM " ).append( schemaTable ).append( " WHERE " );
+
+    if ( keyColumns.length == 1 ) {
+      sql.append( databaseMeta.quoteField( keyColumns[ 0 ] ) ).append( " IN ( " );
+      for ( int k = 0; k < keysPerQuery; k++ ) {
+        sql.append( k > 0 ? ", ?" : "?" );
+      }
+      sql.append( " )" );
+    } else {
+      for ( int k = 0; k < keysPerQuery; k++ ) {
+        sql.append( k > 0 ? " OR ( " : "( " );
+        for ( int i = 0; i < keyColumns.length; i++ ) {
+          if ( i > 0 ) {
+            sql.append( " AND " );
+          }
+          sql.append( databaseMeta.quoteField( keyColumns[ i ] ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+    }
+    if ( orderBy != null && orderBy.length() != 0 ) {
+      sql.append( " ORDER BY " ).append( orderBy );
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the number of keys that are looked up with a single query
+   */
+  public int getKeysPerQuery() {
+    return keysPerQuery;
+  }
+
+  /**
+   * @return the lookup query
+   */
+  public String getSQL() {
+    return sql;
+  }
+
+  /**
+   * Create the key to look up from the key values of a row.
+   *
+   * @param keyValues the key values, described by the key metadata of the stream
+   * @return the key or null if one of the key values is null: such a key never matches a row in the table
+   */
+  public RowMetaAndData createKey( Object[] keyValues ) throws KettleValueException {
+    Object[] key = new Object[ keyValues.length ];
+    for ( int i = 0; i < keyValues.length; i++ ) {
+      ValueMetaInterface valueMeta = streamKeyRowMeta.getValueMeta( i );
+      if ( valueMeta.isNull( keyValues[ i ] ) ) {
+        return null;
+      }
+      key[ i ] = valueMeta.convertToNormalStorageType( keyValues[ i ] );
+    }
+    return new RowMetaAndData( keyRowMeta, key );
+  }
+
+  /**
+   * Look up a batch of keys.
+   *
+   * @param keys the keys created with {@link #createKey(Object[])}, duplicates and nulls are ignored
+   * @return the values of the return columns by key, for the keys that are found. If more than one row is found for a
+   * key, the first one is kept.
+   */
+  public Map<RowMetaAndData, RowMetaAndData> lookup( Collection<RowMetaAndData> keys )
+    throws KettleDatabaseException {
+    Set<RowMetaAndData> distinctKeys = new LinkedHashSet<>( keys.size() * 2 );
+    for ( RowMetaAndData key : keys ) {
+      if ( key != null ) {
+        distinctKeys.add( key );
+      }
+    }
+
+    Map<RowMetaAndData, RowMetaAndData> found = new HashMap<>( Math.max( 16, distinctKeys.size() * 2 ) );
+    Iterator<RowMetaAndData> iterator = distinctKeys.iterator();
+    int nrOfKeyColumns = keyRowMeta.size();
+    Object[] parameters = new Object[ parameterRowMeta.size() ];
+
+    while ( iterator.hasNext() ) {
+      Object[] key = null;
+      for ( int k = 0; k < keysPerQuery; k++ ) {
+        if ( iterator.hasNext() ) {
+          key = iterator.next().getData();
+        }
+        // else: repeat the last key to fill up the statement
+        System.arraycopy( key, 0, parameters, k * nrOfKeyColumns, nrOfKeyColumns );
+      }
+      query( parameters, found );
+    }
+    return found;
+  }
+
+  private void query( Object[] parameters, Map<RowMetaAndData, RowMetaAndData> found )
+    throws KettleDatabaseException {
+    if ( preparedStatement == null ) {
+      try {
+        preparedStatement = db.getConnection().prepareStatement( db.getDatabaseMeta().stripCR( sql ) );
+      } catch ( SQLException e ) {
+        throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", e );
+      }
+    }
+
+    ResultSet resultSet = db.openQuery( preparedStatement, parameterRowMeta, parameters );
+    try {
+      if ( returnRowMeta == null ) {
+        List<ValueMetaInterface> returnValueMetas =
+          new ArrayList<>( db.getReturnRowMeta().getValueMetaList().subList( 0, nrOfReturnColumns ) );
+        returnRowMeta = new RowMeta();
+        returnRowMeta.setValueMetaList( returnValueMetas );
+      }
+      RowMetaInterface resultRowMeta = db.getReturnRowMeta();
+
+      Object[] row = db.getRow( resultSet );
+      while ( row != null ) {
+        Object[] key = new Object[ keyRowMeta.size() ];
+        for ( int i = 0; i < key.length; i++ ) {
+          key[ i ] = keyRowMeta.getValueMeta( i ).convertData(
+            resultRowMeta.getValueMeta( nrOfReturnColumns + i ), row[ nrOfReturnColumns + i ] );
+        }
+        Object[] values = new Object[ nrOfReturnColumns ];
+        System.arraycopy( row, 0, values, 0, nrOfReturnColumns );
+        found.putIfAbsent( new RowMetaAndData( keyRowMeta, key ), new RowMetaAndData( returnRowMeta, values ) );
+
+        row = db.getRow( resultSet );
+      }
+    } catch ( KettleValueException e ) {
+      throw new KettleDatabaseException( "Unable to convert a key returned by the lookup query", e );
+    } finally {
+      try {
+        resultSet.close();
+      } catch ( SQLException e ) {
+        // Ignore errors
+      }
+    }
+  }
+
+  /**
+   * Close the prepared statement of the lookup query.
+   */
+  public void close() throws KettleDatabaseException {
+    if ( preparedStatement != null ) {
+      db.closePreparedStatement( preparedStatement );
+      preparedStatement = null;
+    }
+  }
+}
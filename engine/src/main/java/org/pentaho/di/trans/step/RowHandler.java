@@ -13,6 +13,9 @@
 
 package org.pentaho.di.trans.step;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -41,6 +44,27 @@ public interface RowHandler {
   void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                  String fieldNames, String errorCodes ) throws KettleStepException;
 
+  /**
+   * Get up to max rows in one go. Waits like {@link #getRow()} until at least one row is available.
+   * By default this simply calls {@link #getRow()} once.
+   *
+   * @return the rows read, an empty list if there is no more input
+   */
+  default List<Object[]> getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    return row == null ? Collections.emptyList() : Collections.singletonList( row );
+  }
+
+  /**
+   * Put a batch of rows with the same layout. By default this simply calls
+   * {@link #putRow(RowMetaInterface, Object[])} for every row.
+   */
+  default void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    for ( Object[] row : rows ) {
+      putRow( rowMeta, row );
+    }
+  }
+
   default void putRowTo( RowMetaInterface rowMeta, Object[] row, RowSet rowSet )
     throws KettleStepException {
     throw new UnsupportedOperationException(
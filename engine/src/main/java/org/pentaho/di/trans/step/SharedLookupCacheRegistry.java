@@ -0,0 +1,388 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.job.JobAdapter;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
+
+/**
+ * A registry of named, read-only lookup caches that several step copies and transformations can attach to, so the
+ * same reference data is loaded and held in memory only once.<br>
+ * <br>
+ * A cache is built by the first step that attaches to its name, the other steps wait for it and then share it. Every
+ * attach has to be balanced with a {@link #release(String)}. A cache that is no longer referenced is kept for the
+ * next transformation that runs in the same scope, like the sub-transformations of Transformation Executor, until the
+ * scope ends or the memory of the registry goes over {@link Const#KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY}: the least
+ * recently used caches without references are dropped first. The global scope never ends, so it's limited to
+ * {@link #DEFAULT_GLOBAL_MAX_MEMORY_MB} megabytes when no maximum is set.<br>
+ * <br>
+ * The caches are shared between threads: they must not be changed once they are built.
+ */
+public class SharedLookupCacheRegistry {
+  private static Class<?> PKG = BaseStep.class; // for i18n purposes, needed by Translator2!!
+
+  private static final String EXTENSION_DATA_KEY = SharedLookupCacheRegistry.class.getName();
+
+  private static final SharedLookupCacheRegistry GLOBAL_REGISTRY = new SharedLookupCacheRegistry();
+
+  /**
+   * The number of megabytes the caches of the global scope can use when no maximum is set
+   */
+  public static final long DEFAULT_GLOBAL_MAX_MEMORY_MB = 256L;
+
+  /**
+   * Where a shared cache lives, and so which transformations can find it by name.
+   */
+  public enum Scope {
+    /** The transformation, its step copies and the sub-transformations it runs. */
+    TRANSFORMATION( "TRANSFORMATION" ),
+    /** All the transformations started by the same top level job. */
+    JOB( "JOB" ),
+    /** All the transformations running in this JVM or Carte server. */
+    GLOBAL( "GLOBAL" );
+
+    private final String code;
+
+    Scope( String code ) {
+      this.code = code;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getDescription() {
+      return BaseMessages.getString( PKG, "SharedLookupCacheRegistry.Scope." + code );
+    }
+
+    /**
+     * @return the scope with the given code, {@link #TRANSFORMATION} if it's unknown
+     */
+    public static Scope getScopeByCode( String code ) {
+      for ( Scope scope : values() ) {
+        if ( scope.code.equalsIgnoreCase( code ) ) {
+          return scope;
+        }
+      }
+      return TRANSFORMATION;
+    }
+
+    public static String[] getDescriptions() {
+      String[] descriptions = new String[ values().length ];
+      for ( int i = 0; i < descriptions.length; i++ ) {
+        descriptions[ i ] = values()[ i ].getDescription();
+      }
+      return descriptions;
+    }
+  }
+
+  /**
+   * Builds a cache the first time it's attached to.
+   */
+  public interface CacheBuilder<T> {
+    /**
+     * @return the new cache, never null
+     */
+    T build() throws KettleException;
+
+    /**
+     * @return the estimated number of bytes used by the cache that was built
+     */
+    long getMemorySize( T cache );
+  }
+
+  private static class Entry {
+    private final String name;
+    private final String signature;
+    private Object cache;
+    private long memorySize;
+    private int references;
+
+    Entry( String name, String signature ) {
+      this.name = name;
+      this.signature = signature;
+    }
+  }
+
+  /** The entries in access order, guarded by this */
+  private final Map<String, Entry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+  private long memorySize;
+  private long maxMemorySize;
+
+  SharedLookupCacheRegistry() {
+  }
+
+  /**
+   * Get the registry of a scope, it's created the first time it's needed.
+   *
+   * @param scope the scope of the registry
+   * @param trans the running transformation of the step that looks for the registry
+   * @return the registry, the one of the transformation for the job scope when no job runs the transformation
+   */
+  public static SharedLookupCacheRegistry getRegistry( Scope scope, Trans trans ) {
+    SharedLookupCacheRegistry registry;
+    switch ( scope ) {
+      case GLOBAL:
+        registry = GLOBAL_REGISTRY;
+        break;
+      case JOB:
+        Job job = getRootTrans( trans ).getParentJob();
+        if ( job != null ) {
+          while ( job.getParentJob() != null ) {
+            job = job.getParentJob();
+          }
+          registry = getJobRegistry( job );
+          break;
+        }
+        registry = getTransRegistry( getRootTrans( trans ) );
+        break;
+      default:
+        registry = getTransRegistry( getRootTrans( trans ) );
+        break;
+    }
+    long maxMemoryMb = Const.toLong( trans.getVariable( Const.KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY ), 0L );
+    if ( maxMemoryMb <= 0 && scope == Scope.GLOBAL ) {
+      maxMemoryMb = DEFAULT_GLOBAL_MAX_MEMORY_MB;
+    }
+    registry.setMaxMemorySize( maxMemoryMb * 1024L * 1024L );
+    return registry;
+  }
+
+  private static Trans getRootTrans( Trans trans ) {
+    while ( trans.getParentTrans() != null ) {
+      trans = trans.getParentTrans();
+    }
+    return trans;
+  }
+
+  private static SharedLookupCacheRegistry getTransRegistry( Trans trans ) {
+    Map<String, Object> extensionDataMap = trans.getExtensionDataMap();
+    synchronized ( extensionDataMap ) {
+      SharedLookupCacheRegistry registry = (SharedLookupCacheRegistry) extensionDataMap.get( EXTENSION_DATA_KEY );
+      if ( registry == null ) {
+        final SharedLookupCacheRegistry newRegistry = new SharedLookupCacheRegistry();
+        trans.addTransListener( new TransAdapter() {
+          @Override
+          public void transFinished( Trans trans ) {
+            newRegistry.clear();
+          }
+        } );
+        extensionDataMap.put( EXTENSION_DATA_KEY, newRegistry );
+        registry = newRegistry;
+      }
+      return registry;
+    }
+  }
+
+  private static SharedLookupCacheRegistry getJobRegistry( Job job ) {
+    Map<String, Object> extensionDataMap = job.getExtensionDataMap();
+    synchronized ( extensionDataMap ) {
+      SharedLookupCacheRegistry registry = (SharedLookupCacheRegistry) extensionDataMap.get( EXTENSION_DATA_KEY );
+      if ( registry == null ) {
+        final SharedLookupCacheRegistry newRegistry = new SharedLookupCacheRegistry();
+        job.addJobListener( new JobAdapter() {
+          @Override
+          public void jobFinished( Job job ) {
+            newRegistry.clear();
+          }
+        } );
+        extensionDataMap.put( EXTENSION_DATA_KEY, newRegistry );
+        registry = newRegistry;
+      }
+      return registry;
+    }
+  }
+
+  /**
+   * Attach to a cache, build it if it doesn't exist yet. Steps attaching to the same name while the cache is built
+   * wait for it.
+   *
+   * @param name      the name of the cache
+   * @param signature describes what's in the cache, like the connection and the query it was loaded with: a cache
+   *                  nobody is attached to is loaded again for another signature, attaching to a cache in use with
+   *                  another signature fails
+   * @param builder   builds the cache if needed
+   * @return the cache
+   * @throws KettleException if the cache can't be built or is in use with another signature
+   */
+  @SuppressWarnings( "unchecked" )
+  public <T> T attach( String name, String signature, CacheBuilder<T> builder ) throws KettleException {
+    Entry entry;
+    synchronized ( this ) {
+      entry = entries.get( name );
+      if ( entry != null && !entry.signature.equals( signature ) ) {
+        if ( entry.references > 0 ) {
+          throw new KettleException( BaseMessages.getString( PKG,
+            "SharedLookupCacheRegistry.Exception.SignatureMismatch", name ) );
+        }
+        // Nobody uses the old cache anymore, it's stale: load the new data instead
+        entries.remove( name );
+        memorySize -= entry.memorySize;
+        entry = null;
+      }
+      if ( entry == null ) {
+        entry = new Entry( name, signature );
+        entries.put( name, entry );
+      }
+      entry.references++;
+    }
+
+    boolean attached = false;
+    try {
+      synchronized ( entry ) {
+        if ( entry.cache == null ) {
+          T cache = builder.build();
+          long size = builder.getMemorySize( cache );
+          entry.cache = cache;
+          synchronized ( this ) {
+            entry.memorySize = size;
+            memorySize += size;
+            evict();
+          }
+        }
+        attached = true;
+        return (T) entry.cache;
+      }
+    } finally {
+      if ( !attached ) {
+        release( name );
+      }
+    }
+  }
+
+  /**
+   * Release a cache that was attached to. The cache is kept for later use unless the registry needs the memory.
+   */
+  public synchronized void release( String name ) {
+    Entry entry = entries.get( name );
+    if ( entry != null && entry.references > 0 ) {
+      entry.references--;
+      if ( entry.references == 0 && entry.cache == null ) {
+        // The build failed, try again the next time
+        entries.remove( name );
+      } else {
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Drop the least recently used caches nobody is attached to until the memory is below the maximum.
+   */
+  private void evict() {
+    if ( maxMemorySize <= 0 || memorySize <= maxMemorySize ) {
+      return;
+    }
+    Iterator<Entry> iterator = entries.values().iterator();
+    while ( iterator.hasNext() && memorySize > maxMemorySize ) {
+      Entry entry = iterator.next();
+      if ( entry.references == 0 && entry.cache != null ) {
+        iterator.remove();
+        memorySize -= entry.memorySize;
+      }
+    }
+  }
+
+  /**
+   * Drop the caches nobody is attached to.
+   */
+  public synchronized void clear() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while ( iterator.hasNext() ) {
+      Entry entry = iterator.next();
+      if ( entry.references == 0 ) {
+        iterator.remove();
+        memorySize -= entry.memorySize;
+      }
+    }
+  }
+
+  /**
+   * @param maxMemorySize the number of bytes above which caches nobody is attached to are dropped, 0 for no limit
+   */
+  public synchronized void setMaxMemorySize( long maxMemorySize ) {
+    this.maxMemorySize = maxMemorySize;
+    evict();
+  }
+
+  /**
+   * @return the number of bytes above which caches nobody is attached to are dropped, 0 for no limit
+   */
+  public synchronized long getMaxMemorySize() {
+    return maxMemorySize;
+  }
+
+  /**
+   * @return the estimated number of bytes used by all the caches in the registry
+   */
+  public synchronized long getMemorySize() {
+    return memorySize;
+  }
+
+  /**
+   * @return the number of steps attached to a cache, -1 if there is no cache with this name
+   */
+  public synchronized int getReferenceCount( String name ) {
+    Entry entry = entries.get( name );
+    return entry == null ? -1 : entry.references;
+  }
+
+  /**
+   * @return the names of the caches in the registry
+   */
+  public synchronized List<String> getCacheNames() {
+    List<String> names = new ArrayList<>( entries.size() );
+    for ( Entry entry : entries.values() ) {
+      names.add( entry.name );
+    }
+    return names;
+  }
+
+  /**
+   * Estimate the memory used by a row of a cache: the array and the values it holds.
+   *
+   * @param row the row
+   * @return the estimated number of bytes
+   */
+  public static long estimateMemorySize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for ( Object value : row ) {
+      if ( value instanceof String ) {
+        size += 40L + 2L * ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += 64L;
+      } else if ( value != null ) {
+        size += 24L; // Long, Double, Boolean, Date
+      }
+    }
+    return size;
+  }
+}
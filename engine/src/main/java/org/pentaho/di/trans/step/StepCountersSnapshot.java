@@ -0,0 +1,119 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+/**
+ * An immutable copy of the row counters of a step, taken at one point in time. Status pages, the performance
+ * monitoring and the summary log read the counters through a snapshot instead of one getter at a time.<br>
+ * <br>
+ * The counters of a running step keep changing while they are read, so the values aren't taken atomically. They are
+ * read from the end of the data path to its start, outputs before inputs, so a snapshot never shows a step that wrote
+ * more rows than it read.
+ */
+public class StepCountersSnapshot {
+  private final long linesRead;
+  private final long linesWritten;
+  private final long linesInput;
+  private final long linesOutput;
+  private final long linesUpdated;
+  private final long linesSkipped;
+  private final long linesRejected;
+  private final long errors;
+
+  public StepCountersSnapshot( long linesRead, long linesWritten, long linesInput, long linesOutput,
+                               long linesUpdated, long linesSkipped, long linesRejected, long errors ) {
+    this.linesRead = linesRead;
+    this.linesWritten = linesWritten;
+    this.linesInput = linesInput;
+    this.linesOutput = linesOutput;
+    this.linesUpdated = linesUpdated;
+    this.linesSkipped = linesSkipped;
+    this.linesRejected = linesRejected;
+    this.errors = errors;
+  }
+
+  /**
+   * Take a snapshot through the getters of a step.
+   *
+   * @param step the step to read the counters of
+   * @return the snapshot
+   */
+  public static StepCountersSnapshot of( StepInterface step ) {
+    long errors = step.getErrors();
+    long linesRejected = step.getLinesRejected();
+    long linesUpdated = step.getLinesUpdated();
+    long linesOutput = step.getLinesOutput();
+    long linesWritten = step.getLinesWritten();
+    long linesRead = step.getLinesRead();
+    long linesInput = step.getLinesInput();
+    return new StepCountersSnapshot( linesRead, linesWritten, linesInput, linesOutput, linesUpdated, 0L,
+      linesRejected, errors );
+  }
+
+  /**
+   * @return the number of lines read from previous steps
+   */
+  public long getLinesRead() {
+    return linesRead;
+  }
+
+  /**
+   * @return the number of lines written to next steps
+   */
+  public long getLinesWritten() {
+    return linesWritten;
+  }
+
+  /**
+   * @return the number of lines read from an input source: database, file, socket, etc.
+   */
+  public long getLinesInput() {
+    return linesInput;
+  }
+
+  /**
+   * @return the number of lines written to an output target: database, file, socket, etc.
+   */
+  public long getLinesOutput() {
+    return linesOutput;
+  }
+
+  /**
+   * @return the number of lines updated in an output target: database, file, socket, etc.
+   */
+  public long getLinesUpdated() {
+    return linesUpdated;
+  }
+
+  /**
+   * @return the number of lines skipped
+   */
+  public long getLinesSkipped() {
+    return linesSkipped;
+  }
+
+  /**
+   * @return the number of lines rejected to an error handling step
+   */
+  public long getLinesRejected() {
+    return linesRejected;
+  }
+
+  /**
+   * @return the number of errors
+   */
+  public long getErrors() {
+    return errors;
+  }
+}
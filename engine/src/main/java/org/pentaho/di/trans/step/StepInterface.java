@@ -279,6 +279,16 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   long getLinesRejected();
 
+  /**
+   * Read all the row counters of the step at once. Implementations should not block the threads that update the
+   * counters.
+   *
+   * @return a snapshot of the row counters
+   */
+  default StepCountersSnapshot getCountersSnapshot() {
+    return StepCountersSnapshot.of( this );
+  }
+
   /**
    * Put a row on the destination rowsets.
    *
@@ -292,6 +302,33 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   Object[] getRow() throws KettleException;
 
+  /**
+   * Put a batch of rows with the same layout on the destination rowsets.
+   *
+   * @param rowMeta
+   *          The layout of the rows
+   * @param rows
+   *          The rows to send to the destinations steps
+   */
+  default void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleException {
+    for ( Object[] row : rows ) {
+      putRow( rowMeta, row );
+    }
+  }
+
+  /**
+   * Get up to max rows from the source step(s) in one go. This waits like {@link #getRow()} until at least one row is
+   * available.
+   *
+   * @param max
+   *          The maximum number of rows to return
+   * @return the rows read, an empty list if there is no more input.
+   */
+  default List<Object[]> getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    return row == null ? Collections.emptyList() : Collections.singletonList( row );
+  }
+
   /**
    * Signal output done to destination steps
    */
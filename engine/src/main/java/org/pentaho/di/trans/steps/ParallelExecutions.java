@@ -0,0 +1,217 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * Runs the sub-transformations or sub-jobs of the Transformation Executor and Job Executor steps for a number of row
+ * groups at the same time. The step thread submits an execution per group and takes the finished executions to send
+ * their results to the next steps, either in the order the groups were submitted or in the order they finished.<br>
+ * <br>
+ * Only the step thread submits and takes executions. {@link #getRunning()} can be called from any thread.
+ *
+ * @param <T>
+ *          the type of the executed object: a Trans or a Job
+ */
+public class ParallelExecutions<T> {
+
+  /**
+   * One execution of the sub-transformation or sub-job for a group of rows.
+   */
+  public static class Execution<T> {
+    private final T executor;
+    private final long startTime;
+    private Future<Result> future;
+
+    private Execution( T executor, long startTime ) {
+      this.executor = executor;
+      this.startTime = startTime;
+    }
+
+    /**
+     * @return the executed transformation or job
+     */
+    public T getExecutor() {
+      return executor;
+    }
+
+    /**
+     * @return the time the group was submitted, in ms
+     */
+    public long getStartTime() {
+      return startTime;
+    }
+  }
+
+  private final int size;
+  private final boolean ordered;
+  private final ExecutorService executorService;
+
+  private final Deque<Execution<T>> running = new ConcurrentLinkedDeque<>();
+  private final BlockingQueue<Execution<T>> finished = new LinkedBlockingQueue<>();
+
+  /**
+   * @param name
+   *          the name of the threads running the executions
+   * @param size
+   *          the maximum number of executions running at the same time
+   * @param ordered
+   *          true if executions are taken in the order they were submitted, false if they are taken as they finish
+   */
+  public ParallelExecutions( final String name, int size, boolean ordered ) {
+    this.size = size;
+    this.ordered = ordered;
+    this.executorService = Executors.newFixedThreadPool( size, new ThreadFactory() {
+      private final AtomicInteger threadNr = new AtomicInteger( 1 );
+
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( runnable, name + " - execution " + threadNr.getAndIncrement() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+  }
+
+  /**
+   * @return true if the maximum number of executions is running. Take an execution before submitting the next one.
+   */
+  public boolean isFull() {
+    return running.size() >= size;
+  }
+
+  /**
+   * @return true if no execution is running or waiting to be taken
+   */
+  public boolean isEmpty() {
+    return running.isEmpty();
+  }
+
+  /**
+   * Start an execution in the background.
+   *
+   * @param executor
+   *          the transformation or job to execute
+   * @param task
+   *          runs the transformation or job and returns its result
+   */
+  public void submit( T executor, final Callable<Result> task ) {
+    final Execution<T> execution = new Execution<>( executor, System.currentTimeMillis() );
+    running.add( execution );
+    execution.future = executorService.submit( new Callable<Result>() {
+      @Override
+      public Result call() throws Exception {
+        try {
+          return task.call();
+        } finally {
+          finished.add( execution );
+        }
+      }
+    } );
+  }
+
+  /**
+   * Wait for the next execution to finish. Get its result with {@link #getResult(Execution)}.
+   *
+   * @return the next finished execution, or null if no execution is running
+   * @throws KettleException
+   *           if the thread was interrupted while waiting
+   */
+  public Execution<T> take() throws KettleException {
+    if ( running.isEmpty() ) {
+      return null;
+    }
+    try {
+      Execution<T> execution = ordered ? running.peekFirst() : finished.take();
+      try {
+        execution.future.get();
+      } catch ( ExecutionException e ) {
+        // Reported by getResult()
+      }
+      running.remove( execution );
+      finished.remove( execution );
+      return execution;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * @return the next finished execution or null if it isn't finished yet
+   * @throws KettleException
+   *           if the thread was interrupted
+   */
+  public Execution<T> poll() throws KettleException {
+    Execution<T> execution = ordered ? running.peekFirst() : finished.peek();
+    if ( execution == null || !execution.future.isDone() ) {
+      return null;
+    }
+    return take();
+  }
+
+  /**
+   * Get the result of an execution that was taken.
+   *
+   * @param execution
+   *          the execution returned by {@link #take()} or {@link #poll()}
+   * @return the result of the transformation or job
+   * @throws KettleException
+   *           if the execution failed
+   */
+  public Result getResult( Execution<T> execution ) throws KettleException {
+    try {
+      return execution.future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( e.getCause() );
+    }
+  }
+
+  /**
+   * @return the transformations or jobs that are running or not taken yet
+   */
+  public List<T> getRunning() {
+    List<T> executors = new ArrayList<>();
+    for ( Execution<T> execution : running ) {
+      executors.add( execution.executor );
+    }
+    return executors;
+  }
+
+  /**
+   * Stop the threads. Executions that are still running are interrupted.
+   */
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+}
@@ -0,0 +1,390 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.calculator;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Generates a class calculating all the calculations of a Calculator step and compiles it with Janino. The class is
+ * specialized for the types of the fields the calculations use: the values are read from the row with a cast and the
+ * results are written straight into the row, without the type checks and conversions of {@link
+ * org.pentaho.di.core.row.ValueDataUtil}. The calendars the date calculations need are created once.<br>
+ * <br>
+ * Only the common arithmetic and date calculations are compiled, on fields of type Number, Integer and Date with the
+ * normal storage type and when the result doesn't need to be converted to the type of the calculated field. The other
+ * calculations are left to the interpreter of the step, as are the rows where an argument of a compiled calculation is
+ * null: the results and errors of these rows stay those of the interpreter.
+ */
+public class CalculatorCompiler {
+  private final RowMetaInterface calcRowMeta;
+  private final int inputSize;
+
+  private boolean[] compiled;
+  private boolean usesCalendar;
+  private boolean usesISO8601Calendar;
+  private boolean usesTimeZone;
+
+  /**
+   * @param calcRowMeta
+   *          the metadata of the rows the calculations are done in: the input fields followed by the calculated fields
+   * @param inputSize
+   *          the number of input fields
+   */
+  public CalculatorCompiler( RowMetaInterface calcRowMeta, int inputSize ) {
+    this.calcRowMeta = calcRowMeta;
+    this.inputSize = inputSize;
+  }
+
+  /**
+   * Compile the calculations of a step.
+   *
+   * @param calculations
+   *          the calculations
+   * @param fieldIndexes
+   *          the indexes of the arguments of the calculations in the row
+   * @return the compiled calculations or null if none of the calculations can be compiled
+   * @throws KettleException
+   *           when the generated code doesn't compile
+   */
+  public CompiledCalculator compile( CalculatorMetaFunction[] calculations, Calculator.FieldIndexes[] fieldIndexes )
+    throws KettleException {
+    String body = generate( calculations, fieldIndexes );
+    if ( body == null ) {
+      return null;
+    }
+    try {
+      ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+      cbe.setParentClassLoader( CalculatorCompiler.class.getClassLoader() );
+      cbe.setImplementedInterfaces( new Class<?>[] { CompiledCalculator.class } );
+      cbe.setDefaultImports( new String[] {
+        "java.util.Calendar", "java.util.Date", "java.util.TimeZone", "org.pentaho.di.core.Const",
+        "org.pentaho.di.core.exception.KettleFileNotFoundException",
+        "org.pentaho.di.core.exception.KettleValueException",
+        "org.pentaho.di.trans.steps.calculator.CalculatorCompiler",
+        "org.pentaho.di.trans.steps.calculator.CompiledCalculator" } );
+      cbe.cook( body );
+      return (CompiledCalculator) cbe.getClazz().getConstructor().newInstance();
+    } catch ( Exception e ) {
+      throw new KettleException( "Unable to compile the calculations, generated code:" + Const.CR + body, e );
+    }
+  }
+
+  /**
+   * @param calculation
+   *          the index of a calculation
+   * @return true if the last compiled class calculates the calculation itself, false if it is left to the
+   *         interpreter
+   */
+  public boolean isCompiled( int calculation ) {
+    return compiled != null && compiled[calculation];
+  }
+
+  /**
+   * Generate the Java code of the calculations.
+   *
+   * @return the body of a class implementing {@link CompiledCalculator} or null if none of the calculations can be
+   *         compiled
+   */
+  String generate( CalculatorMetaFunction[] calculations, Calculator.FieldIndexes[] fieldIndexes ) {
+    compiled = new boolean[calculations.length];
+    usesCalendar = false;
+    usesISO8601Calendar = false;
+    usesTimeZone = false;
+
+    StringBuilder calculate = new StringBuilder();
+    boolean anyCompiled = false;
+    for ( int i = 0; i < calculations.length; i++ ) {
+      CalculatorMetaFunction fn = calculations[i];
+      Calculator.FieldIndexes indexes = fieldIndexes[i];
+      calculate.append( "  // #" ).append( i + 1 ).append( " " ).append( fn.getCalcTypeDesc() ).append( Const.CR );
+
+      String code = translate( fn, indexes, inputSize + i );
+      if ( code == null ) {
+        calculate.append( "  interpreter.calculate( " ).append( i ).append( ", r );" ).append( Const.CR );
+        continue;
+      }
+      compiled[i] = true;
+      anyCompiled = true;
+
+      String nullCheck = nullCheck( fn.getCalcType(), indexes );
+      if ( nullCheck == null ) {
+        calculate.append( "  " ).append( code ).append( Const.CR );
+      } else {
+        calculate.append( "  if ( " ).append( nullCheck ).append( " ) {" ).append( Const.CR );
+        calculate.append( "    interpreter.calculate( " ).append( i ).append( ", r );" ).append( Const.CR );
+        calculate.append( "  } else {" ).append( Const.CR );
+        calculate.append( "    " ).append( code ).append( Const.CR );
+        calculate.append( "  }" ).append( Const.CR );
+      }
+    }
+    if ( !anyCompiled ) {
+      return null;
+    }
+
+    StringBuilder body = new StringBuilder();
+    if ( usesCalendar ) {
+      body.append( "private final Calendar calendar = Calendar.getInstance();" ).append( Const.CR );
+    }
+    if ( usesISO8601Calendar ) {
+      body.append( "private final Calendar iso8601Calendar = CalculatorCompiler.createISO8601Calendar();" )
+        .append( Const.CR );
+    }
+    if ( usesTimeZone ) {
+      body.append( "private final TimeZone timeZone = TimeZone.getDefault();" ).append( Const.CR );
+    }
+    body.append( "public void calculate( Object[] r, CompiledCalculator.Interpreter interpreter )" )
+      .append( " throws KettleValueException, KettleFileNotFoundException {" ).append( Const.CR );
+    body.append( calculate );
+    body.append( "}" ).append( Const.CR );
+    return body.toString();
+  }
+
+  /**
+   * @return the statement calculating a calculation for a row where its arguments aren't null or null if the
+   *         calculation can't be compiled
+   */
+  private String translate( CalculatorMetaFunction fn, Calculator.FieldIndexes indexes, int target ) {
+    int targetType = getType( target );
+    int typeA = getType( indexes.indexA );
+    int typeB = getType( indexes.indexB );
+    String result = "r[" + target + "] = ";
+
+    switch ( fn.getCalcType() ) {
+      case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+        if ( typeA == ValueMetaInterface.TYPE_NONE || typeA != targetType ) {
+          return null;
+        }
+        return result + "r[" + indexes.indexA + "];";
+      case CalculatorMetaFunction.CALC_CONSTANT:
+        return targetType == ValueMetaInterface.TYPE_STRING ? result + toJavaString( fn.getFieldA() ) + ";" : null;
+      case CalculatorMetaFunction.CALC_ADD:
+        return arithmetic( target, "+", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        return arithmetic( target, "-", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_MULTIPLY:
+        return arithmetic( target, "*", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_DIVIDE:
+        return arithmetic( target, "/", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_SQUARE:
+        if ( typeA != targetType ) {
+          return null;
+        } else if ( typeA == ValueMetaInterface.TYPE_NUMBER ) {
+          return result + "Double.valueOf( " + number( indexes.indexA ) + " * " + number( indexes.indexA ) + " );";
+        } else if ( typeA == ValueMetaInterface.TYPE_INTEGER ) {
+          return result + "Long.valueOf( " + integer( indexes.indexA ) + " * " + integer( indexes.indexA ) + " );";
+        }
+        return null;
+      case CalculatorMetaFunction.CALC_ABS:
+        if ( typeA != targetType ) {
+          return null;
+        } else if ( typeA == ValueMetaInterface.TYPE_NUMBER ) {
+          return result + "Double.valueOf( Math.abs( " + number( indexes.indexA ) + " ) );";
+        } else if ( typeA == ValueMetaInterface.TYPE_INTEGER ) {
+          // Like the interpreter, which takes the absolute value of the integer converted to a number
+          return result + "Long.valueOf( Math.abs( (long) " + integer( indexes.indexA ) + ".doubleValue() ) );";
+        }
+        return null;
+      case CalculatorMetaFunction.CALC_ADD_DAYS:
+        return addToDate( target, "DAY_OF_YEAR", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_ADD_HOURS:
+        return addToDate( target, "HOUR_OF_DAY", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_ADD_MINUTES:
+        return addToDate( target, "MINUTE", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_ADD_SECONDS:
+        return addToDate( target, "SECOND", indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_YEAR_OF_DATE:
+        return datePart( target, "calendar.get( Calendar.YEAR )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_MONTH_OF_DATE:
+        return datePart( target, "calendar.get( Calendar.MONTH ) + 1", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_QUARTER_OF_DATE:
+        return datePart( target, "( calendar.get( Calendar.MONTH ) + 3 ) / 3", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_DAY_OF_YEAR:
+        return datePart( target, "calendar.get( Calendar.DAY_OF_YEAR )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_DAY_OF_MONTH:
+        return datePart( target, "calendar.get( Calendar.DAY_OF_MONTH )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_DAY_OF_WEEK:
+        return datePart( target, "calendar.get( Calendar.DAY_OF_WEEK )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_WEEK_OF_YEAR:
+        return datePart( target, "calendar.get( Calendar.WEEK_OF_YEAR )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_MINUTE_OF_HOUR:
+        return datePart( target, "calendar.get( Calendar.MINUTE )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_SECOND_OF_MINUTE:
+        return datePart( target, "calendar.get( Calendar.SECOND )", indexes, typeA, targetType );
+      case CalculatorMetaFunction.CALC_WEEK_OF_YEAR_ISO8601:
+        if ( typeA != ValueMetaInterface.TYPE_DATE || targetType != ValueMetaInterface.TYPE_INTEGER ) {
+          return null;
+        }
+        usesISO8601Calendar = true;
+        return "iso8601Calendar.setTime( " + date( indexes.indexA ) + " ); " + result
+          + "Long.valueOf( iso8601Calendar.get( Calendar.WEEK_OF_YEAR ) );";
+      case CalculatorMetaFunction.CALC_REMOVE_TIME_FROM_DATE:
+        if ( typeA != ValueMetaInterface.TYPE_DATE || targetType != ValueMetaInterface.TYPE_DATE ) {
+          return null;
+        }
+        return result + "Const.removeTimeFromDate( " + date( indexes.indexA ) + " );";
+      case CalculatorMetaFunction.CALC_DATE_DIFF:
+        return dateDiff( target, 86400000L, indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_DATE_DIFF_MSEC:
+        return dateDiff( target, 1L, indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_DATE_DIFF_SEC:
+        return dateDiff( target, 1000L, indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_DATE_DIFF_MN:
+        return dateDiff( target, 60000L, indexes, typeA, typeB, targetType );
+      case CalculatorMetaFunction.CALC_DATE_DIFF_HR:
+        return dateDiff( target, 3600000L, indexes, typeA, typeB, targetType );
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the condition that leaves a row to the interpreter or null if the calculation handles null arguments
+   */
+  private static String nullCheck( int calcType, Calculator.FieldIndexes indexes ) {
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+      case CalculatorMetaFunction.CALC_CONSTANT:
+        return null;
+      default:
+        String check = "r[" + indexes.indexA + "] == null";
+        if ( indexes.indexB >= 0 ) {
+          check += " || r[" + indexes.indexB + "] == null";
+        }
+        return check;
+    }
+  }
+
+  /**
+   * A + B, A - B, A * B and A / B on numbers or integers, calculated in the type of the arguments.
+   */
+  private String arithmetic( int target, String operator, Calculator.FieldIndexes indexes, int typeA,
+    int typeB, int targetType ) {
+    if ( typeA != typeB || typeA != targetType ) {
+      return null;
+    }
+    String result = "r[" + target + "] = ";
+    if ( typeA == ValueMetaInterface.TYPE_NUMBER ) {
+      return result + "Double.valueOf( " + number( indexes.indexA ) + " " + operator + " "
+        + number( indexes.indexB ) + " );";
+    } else if ( typeA == ValueMetaInterface.TYPE_INTEGER ) {
+      // A division by zero throws the same ArithmeticException as the interpreter
+      return result + "Long.valueOf( " + integer( indexes.indexA ) + " " + operator + " "
+        + integer( indexes.indexB ) + " );";
+    }
+    return null;
+  }
+
+  private String addToDate( int target, String calendarField, Calculator.FieldIndexes indexes, int typeA,
+    int typeB, int targetType ) {
+    if ( typeA != ValueMetaInterface.TYPE_DATE || typeB != ValueMetaInterface.TYPE_INTEGER
+      || targetType != ValueMetaInterface.TYPE_DATE ) {
+      return null;
+    }
+    usesCalendar = true;
+    return "calendar.setTime( " + date( indexes.indexA ) + " ); calendar.add( Calendar." + calendarField
+      + ", (int) " + integer( indexes.indexB ) + " ); r[" + target + "] = calendar.getTime();";
+  }
+
+  private String datePart( int target, String part, Calculator.FieldIndexes indexes, int typeA, int targetType ) {
+    if ( typeA != ValueMetaInterface.TYPE_DATE || targetType != ValueMetaInterface.TYPE_INTEGER ) {
+      return null;
+    }
+    usesCalendar = true;
+    return "calendar.setTime( " + date( indexes.indexA ) + " ); r[" + target + "] = Long.valueOf( " + part + " );";
+  }
+
+  /**
+   * A - B in the local time of the default time zone, divided by the length of the unit.
+   */
+  private String dateDiff( int target, long unit, Calculator.FieldIndexes indexes, int typeA, int typeB,
+    int targetType ) {
+    if ( typeA != ValueMetaInterface.TYPE_DATE || typeB != ValueMetaInterface.TYPE_DATE
+      || targetType != ValueMetaInterface.TYPE_INTEGER ) {
+      return null;
+    }
+    usesTimeZone = true;
+    return "r[" + target + "] = Long.valueOf( ( CalculatorCompiler.localTime( timeZone, "
+      + date( indexes.indexA ) + " ) - CalculatorCompiler.localTime( timeZone, " + date( indexes.indexB )
+      + " ) ) / " + unit + "L );";
+  }
+
+  /**
+   * @return the type of a field of the row or TYPE_NONE if there's no such field or its values aren't stored as
+   *         normal values
+   */
+  private int getType( int index ) {
+    if ( index < 0 || index >= calcRowMeta.size() ) {
+      return ValueMetaInterface.TYPE_NONE;
+    }
+    ValueMetaInterface valueMeta = calcRowMeta.getValueMeta( index );
+    if ( valueMeta == null || valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return ValueMetaInterface.TYPE_NONE;
+    }
+    return valueMeta.getType();
+  }
+
+  private static String number( int index ) {
+    return "( (Double) r[" + index + "] ).doubleValue()";
+  }
+
+  private static String integer( int index ) {
+    return "( (Long) r[" + index + "] ).longValue()";
+  }
+
+  private static String date( int index ) {
+    return "( (Date) r[" + index + "] )";
+  }
+
+  static String toJavaString( String string ) {
+    StringBuilder code = new StringBuilder( "\"" );
+    for ( int i = 0; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c == '"' || c == '\\' ) {
+        code.append( '\\' ).append( c );
+      } else if ( c < 0x20 ) {
+        code.append( String.format( "\\%03o", (int) c ) );
+      } else {
+        code.append( c );
+      }
+    }
+    return code.append( '"' ).toString();
+  }
+
+  // The functions used by the generated code
+
+  /**
+   * @return a calendar with the weeks of ISO 8601: starting on Monday, the first week having at least 4 days
+   */
+  public static Calendar createISO8601Calendar() {
+    Calendar calendar = Calendar.getInstance( Locale.ENGLISH );
+    calendar.setMinimalDaysInFirstWeek( 4 );
+    calendar.setFirstDayOfWeek( Calendar.MONDAY );
+    return calendar;
+  }
+
+  /**
+   * @return the milliseconds of a date shifted to the local time of a time zone
+   */
+  public static long localTime( java.util.TimeZone timeZone, java.util.Date date ) {
+    long time = date.getTime();
+    return time + timeZone.getOffset( time );
+  }
+}
@@ -35,6 +35,8 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private int[] tempIndexes;
 
+  private CompiledCalculator compiledCalculator;
+
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
   public CalculatorData() {
@@ -74,6 +76,14 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  public CompiledCalculator getCompiledCalculator() {
+    return compiledCalculator;
+  }
+
+  public void setCompiledCalculator( CompiledCalculator compiledCalculator ) {
+    this.compiledCalculator = compiledCalculator;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
@@ -0,0 +1,47 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.calculator;
+
+import org.pentaho.di.core.exception.KettleFileNotFoundException;
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * The calculations of a Calculator step, compiled to Java byte code by the {@link CalculatorCompiler}.
+ */
+public interface CompiledCalculator {
+  /**
+   * Calculates one calculation the way the step does without compiling.
+   */
+  interface Interpreter {
+    /**
+     * @param calculation
+     *          the index of the calculation
+     * @param calcData
+     *          the row with the input fields and the calculated fields
+     */
+    void calculate( int calculation, Object[] calcData ) throws KettleValueException, KettleFileNotFoundException;
+  }
+
+  /**
+   * Calculate all the calculations of the step for a row, in order.
+   *
+   * @param calcData
+   *          the row with the input fields, the results are written in the fields of the calculations
+   * @param interpreter
+   *          calculates the calculations that aren't compiled and the rows a compiled calculation leaves to the
+   *          interpreter: when an argument is null for example.
+   */
+  void calculate( Object[] calcData, Interpreter interpreter ) throws KettleValueException,
+    KettleFileNotFoundException;
+}
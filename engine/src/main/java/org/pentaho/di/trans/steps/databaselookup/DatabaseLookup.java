@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -21,11 +22,13 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -38,6 +41,8 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
+import org.pentaho.di.trans.step.SharedLookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -53,6 +58,9 @@ import org.pentaho.di.trans.steps.databaselookup.readallcache.ReadAllCache;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The number of lookup results kept in front of a cache with all the rows when no cache size is given */
+  static final int DEFAULT_LOOKUP_RESULT_CACHE_SIZE = 10000;
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -70,8 +78,14 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = createLookupRow( inputRowMeta, row );
+    return lookupValues( inputRowMeta, row, lookupRow, meta.isCached() ? getRowFromCache( lookupRow ) : null );
+  }
 
+  /**
+   * Build the values to look up from the key fields of an input row, converted to the types of the key columns.
+   */
+  private Object[] createLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -110,22 +124,25 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
+  /**
+   * @param cached the row found in the cache for the lookup row, {@link DefaultCache#NOT_FOUND} or null if the cache
+   *               doesn't know the lookup row or there is no cache
+   */
+  private Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow, Object[] cached )
+    throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+
+    Object[] add = cached;
+    RowMetaInterface returnedRowMeta = null;
     boolean cacheNow = false;
-    boolean cacheHit = false;
+    boolean cacheHit = add != null;
 
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
+    if ( add == DefaultCache.NOT_FOUND ) {
       add = null;
-    }
-
-    if ( add == null && ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) ) {
+    } else if ( add == null && ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) ) {
       // do not go to the database when all rows are in (exception LIKE operator)
       if ( log.isRowLevel() ) {
         logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
@@ -134,9 +151,28 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
           + data.lookupMeta.getString( lookupRow ) );
       }
 
-      data.db.setValuesLookup( data.lookupMeta, lookupRow );
-      add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+      if ( data.batchResults != null ) {
+        // The lookup row is part of a batch that was looked up with a single query
+        RowMetaAndData key = data.batchLookup.createKey( lookupRow );
+        RowMetaAndData found = key == null ? null : data.batchResults.get( key );
+        if ( found != null ) {
+          add = found.getData().clone(); // the same values can be found for several rows of the batch
+          returnedRowMeta = found.getRowMeta();
+        } else {
+          add = null;
+        }
+      } else {
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        returnedRowMeta = data.db.getReturnRowMeta();
+      }
       cacheNow = true;
+
+      // Remember the lookups that found nothing too
+      if ( add == null && meta.isCached() && !meta.isLoadingAllDataInCache() ) {
+        data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, DefaultCache.NOT_FOUND );
+        cacheNow = false;
+      }
     }
 
 
@@ -180,7 +216,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         // that should not be a problem.
         //
         for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
+          ValueMetaInterface returned = returnedRowMeta.getValueMeta( i );
           ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
           if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
@@ -193,8 +229,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
+    // The results are stored by the values of the lookup row, so this works for all the conditions.
     //
-    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() ) {
       data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
     }
 
@@ -205,6 +242,37 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return outputRow;
   }
 
+  /**
+   * Look up a row in the cache, or in the results of the previous lookups when all the rows of the table are in the
+   * cache but the conditions can't be resolved with a hash lookup.
+   *
+   * @return the row found, {@link DefaultCache#NOT_FOUND} if it's known that nothing matches or null if the cache
+   * doesn't know
+   */
+  private Object[] getRowFromCache( Object[] lookupRow ) throws KettleException {
+    Object[] add;
+    if ( data.lookupResultCache == null ) {
+      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+    } else {
+      add = data.lookupResultCache.getRowFromCache( data.lookupMeta, lookupRow );
+      if ( add == null ) {
+        data.cacheMisses++;
+        add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+        if ( !data.hasDBCondition ) {
+          data.lookupResultCache.storeRowInCache( meta, data.lookupMeta, lookupRow,
+            add == null ? DefaultCache.NOT_FOUND : add );
+        }
+        return add;
+      }
+    }
+    if ( add != null ) {
+      data.cacheHits++;
+    } else {
+      data.cacheMisses++;
+    }
+    return add;
+  }
+
   @VisibleForTesting
   boolean isTimelessMask( String dateMask ) {
     if ( dateMask == null ) {
@@ -346,6 +414,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchBuffer != null && !data.batchBuffer.isEmpty() && !lookupBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -404,7 +475,11 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        if ( meta.isLoadingAllDataInCache() ) {
+          data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        } else {
+          data.cache = DefaultCache.newLookupResultCache( data, meta.getCacheSize() );
+        }
       }
 
       determineFieldsTypesQueryingDb();
@@ -418,7 +493,22 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
       if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
-        loadAllTableDataIntoTheCache();
+        String sharedCacheName = environmentSubstitute( meta.getSharedCacheName() );
+        if ( Utils.isEmpty( sharedCacheName ) ) {
+          loadAllTableDataIntoTheCache();
+        } else {
+          attachSharedCache( sharedCacheName );
+        }
+
+        if ( !data.allEquals ) {
+          // Searching the indexes costs more than a hash lookup: remember the results for the values that come back
+          data.lookupResultCache = DefaultCache.newLookupResultCache( data,
+            meta.getCacheSize() > 0 ? meta.getCacheSize() : DEFAULT_LOOKUP_RESULT_CACHE_SIZE );
+        }
+      }
+
+      if ( meta.getLookupBatchSize() > 1 ) {
+        initBatchLookup();
       }
     }
 
@@ -427,37 +517,153 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchLookup != null ) {
+      // Collect the rows until a batch is full, then look up all their keys at once
+      data.batchBuffer.add( r );
+      if ( data.batchBuffer.size() >= meta.getLookupBatchSize() ) {
+        return lookupBatch();
+      }
+      return true;
+    }
+
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      putLookupRow( r, outputRow );
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
 
-      if ( outputRow != null ) {
-        // copy row to output rowset(s);
-        putRow( data.outputRowMeta, outputRow );
+    return true;
+  }
 
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
-            + getInputRowMeta().getString( r ) );
-        }
+  private void putLookupRow( Object[] r, Object[] outputRow ) throws KettleException {
+    if ( outputRow != null ) {
+      // copy row to output rowset(s);
+      putRow( data.outputRowMeta, outputRow );
+
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+          + getInputRowMeta().getString( r ) );
+      }
+
+      long linesRead = getLinesRead();
+      if ( checkFeedback( linesRead ) ) {
+        logBasic( "linenr " + linesRead );
+      }
+    }
+  }
 
-        long linesRead = getLinesRead();
-        if ( checkFeedback( linesRead ) ) {
-          logBasic( "linenr " + linesRead );
+  /**
+   * Send a row that failed to the error handling or stop the transformation.
+   *
+   * @return true if the processing of the rows can continue
+   */
+  private boolean handleLookupError( Object[] r, KettleException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
+      return true;
+    }
+    logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+      + e.getMessage() );
+    setErrors( 1 );
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Batched lookups only work for keys that are compared with "=": other conditions can't be matched with the rows
+   * returned for an IN list. The lookup has to stop on the first row found for a key, so it can't fail on multiple
+   * results either. String keys are compared with the collation of the database, which the rows returned for the
+   * batch can't be matched with.
+   */
+  private void initBatchLookup() {
+    boolean canBatch = !( meta.isCached() && meta.isLoadingAllDataInCache() ) && !meta.isFailingOnMultipleResults();
+    for ( int i = 0; i < data.conditions.length && canBatch; i++ ) {
+      canBatch = data.conditions[ i ] == DatabaseLookupMeta.CONDITION_EQ && data.keynrs[ i ] >= 0
+        && data.keynrs2[ i ] < 0;
+    }
+    if ( !canBatch ) {
+      logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatchingDisabled" ) );
+      return;
+    }
+    for ( ValueMetaInterface keyValueMeta : data.lookupMeta.getValueMetaList() ) {
+      if ( !BatchedKeyLookup.isMatchedExactly( keyValueMeta ) ) {
+        logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatchingDisabledStringKey",
+          keyValueMeta.getName() ) );
+        return;
+      }
+    }
+
+    String schemaTable = meta.getDatabaseMeta().getQuotedSchemaTableCombination(
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) );
+    data.batchLookup = new BatchedKeyLookup( data.db, schemaTable, meta.getTableKeyField(), data.lookupMeta,
+      meta.getReturnValueField(), meta.getOrderByClause(), meta.getLookupBatchSize() );
+    data.batchBuffer = new ArrayList<>( meta.getLookupBatchSize() );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatchSQL", data.batchLookup.getSQL() ) );
+    }
+  }
+
+  /**
+   * Look up the keys of the buffered rows that aren't in the cache with a single query per batch, then pass the rows
+   * on in the order they came in.
+   *
+   * @return true if the processing of the rows can continue
+   */
+  private boolean lookupBatch() throws KettleException {
+    List<Object[]> rows = data.batchBuffer;
+    data.batchBuffer = new ArrayList<>( meta.getLookupBatchSize() );
+
+    Object[][] lookupRows = new Object[ rows.size() ][];
+    // The cache is probed once per row: processing the earlier rows of the batch can evict the entry of a later row
+    Object[][] cachedRows = new Object[ rows.size() ][];
+    KettleException[] errors = new KettleException[ rows.size() ];
+    List<RowMetaAndData> keys = new ArrayList<>( rows.size() );
+    for ( int i = 0; i < rows.size(); i++ ) {
+      try {
+        lookupRows[ i ] = createLookupRow( getInputRowMeta(), rows.get( i ) );
+        if ( meta.isCached() ) {
+          cachedRows[ i ] = getRowFromCache( lookupRows[ i ] );
         }
+        if ( cachedRows[ i ] == null ) {
+          keys.add( data.batchLookup.createKey( lookupRows[ i ] ) );
+        }
+      } catch ( KettleException e ) {
+        errors[ i ] = e;
       }
+    }
+
+    try {
+      data.batchResults = data.batchLookup.lookup( keys );
     } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
-      } else {
-        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
-          + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      // The query failed for all the rows of the batch
+      for ( Object[] r : rows ) {
+        if ( !handleLookupError( r, e ) ) {
+          return false;
+        }
       }
+      return true;
     }
 
+    try {
+      for ( int i = 0; i < rows.size(); i++ ) {
+        Object[] r = rows.get( i );
+        try {
+          if ( errors[ i ] != null ) {
+            throw errors[ i ];
+          }
+          putLookupRow( r, lookupValues( getInputRowMeta(), r, lookupRows[ i ], cachedRows[ i ] ) );
+        } catch ( KettleException e ) {
+          if ( !handleLookupError( r, e ) ) {
+            return false;
+          }
+        }
+      }
+    } finally {
+      data.batchResults = null;
+    }
     return true;
   }
 
@@ -507,6 +713,56 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Attach to the cache with all the rows of the table that is shared with the other step copies and transformations
+   * of the scope. The first one to attach loads the rows, the cache isn't changed after that.
+   */
+  private void attachSharedCache( String sharedCacheName ) throws KettleException {
+    data.sharedCacheRegistry = SharedLookupCacheRegistry.getRegistry(
+      SharedLookupCacheRegistry.Scope.getScopeByCode( meta.getSharedCacheScope() ), getTrans() );
+
+    final boolean[] loaded = new boolean[ 1 ];
+    data.cache = data.sharedCacheRegistry.attach( sharedCacheName, getSharedCacheSignature(),
+      new SharedLookupCacheRegistry.CacheBuilder<DatabaseLookupData.Cache>() {
+        @Override
+        public DatabaseLookupData.Cache build() throws KettleException {
+          data.cacheMemorySize = 0L;
+          loadAllTableDataIntoTheCache();
+          loaded[ 0 ] = true;
+          return data.cache;
+        }
+
+        @Override
+        public long getMemorySize( DatabaseLookupData.Cache cache ) {
+          return data.cacheMemorySize;
+        }
+      } );
+    data.sharedCacheName = sharedCacheName;
+
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, loaded[ 0 ] ? "DatabaseLookup.Log.SharedCacheLoaded"
+          : "DatabaseLookup.Log.SharedCacheAttached", sharedCacheName,
+        String.valueOf( data.sharedCacheRegistry.getMemorySize() ) ) );
+    }
+  }
+
+  /**
+   * Describes the rows in the cache: steps that share a cache by name have to load the same rows the same way. The
+   * connection is described by what it resolves to, not by its name: connections with the same name in other
+   * transformations or with other variable values can point to other databases.
+   */
+  String getSharedCacheSignature() throws KettleException {
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    return environmentSubstitute( dbMeta.getURL( data.db == null ? null : data.db.getPartitionId() ) ) + "|"
+      + Const.NVL( environmentSubstitute( dbMeta.getUsername() ), "" ) + "|"
+      + Const.NVL( environmentSubstitute( dbMeta.getPreferredSchemaName() ), "" ) + "|"
+      + dbMeta.getQuotedSchemaTableCombination(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) ) + "|"
+      + Arrays.toString( meta.getTableKeyField() ) + "|" + Arrays.toString( meta.getKeyCondition() ) + "|"
+      + Arrays.toString( meta.getReturnValueField() ) + "|" + Arrays.toString( meta.getReturnValueDefaultType() )
+      + "|" + Const.NVL( meta.getOrderByClause(), "" );
+  }
+
   private void putToDefaultCache( Database db, String sql ) throws KettleDatabaseException {
     final int keysAmount = meta.getStreamKeyField1().length;
     AtomicReference<RowMetaInterface> prototype = new AtomicReference<>();
@@ -539,6 +795,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     // Store the data...
     //
     data.cache.storeRowInCache( meta, keyMeta, keyData, valueData );
+    data.cacheMemorySize += SharedLookupCacheRegistry.estimateMemorySize( row ) + 32L; // map entry and key
     incrementLinesInput();
   }
 
@@ -572,6 +829,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       System.arraycopy( row, keysAmount, valueData, 0, valuesAmount );
 
       cacheBuilder.add( keyData, valueData );
+      data.cacheMemorySize += SharedLookupCacheRegistry.estimateMemorySize( row );
       incrementLinesInput();
     }
     data.cache = cacheBuilder.build();
@@ -641,13 +899,41 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     meta = (DatabaseLookupMeta) smi;
     data = (DatabaseLookupData) sdi;
 
+    if ( data.batchLookup != null ) {
+      try {
+        data.batchLookup.close();
+      } catch ( KettleDatabaseException e ) {
+        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR0005.UnableToCloseLookupBatch" ), e );
+      }
+      data.batchLookup = null;
+    }
+    data.batchBuffer = null;
+
     if ( data.db != null ) {
       data.db.close();
     }
 
+    if ( meta.isCached() ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheStatistics",
+          String.valueOf( data.cacheHits ), String.valueOf( data.cacheMisses ),
+          String.valueOf( data.cacheEvictions ) ) );
+      }
+      log.snap( Metrics.METRIC_STEP_CACHE_HITS, data.cacheHits );
+      log.snap( Metrics.METRIC_STEP_CACHE_MISSES, data.cacheMisses );
+      log.snap( Metrics.METRIC_STEP_CACHE_EVICTIONS, data.cacheEvictions );
+    }
+
+    if ( data.sharedCacheName != null ) {
+      data.sharedCacheRegistry.release( data.sharedCacheName );
+      data.sharedCacheName = null;
+      data.sharedCacheRegistry = null;
+    }
+
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
     data.cache = null;
+    data.lookupResultCache = null;
 
     super.dispose( smi, sdi );
   }
@@ -13,10 +13,16 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
+import org.pentaho.di.trans.step.SharedLookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 /**
@@ -40,6 +46,25 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** The results of the lookups by the values of the lookup row, in front of a cache with all the rows of the table */
+  public DefaultCache lookupResultCache;
+  public long cacheHits;
+  public long cacheMisses;
+  public long cacheEvictions;
+
+  /** Looks up the keys of a batch of input rows with a single query, null when every row is looked up on its own */
+  public BatchedKeyLookup batchLookup;
+  /** The input rows waiting to be looked up, in input order */
+  public List<Object[]> batchBuffer;
+  /** The values found for the keys of the batch that is being processed */
+  public Map<RowMetaAndData, RowMetaAndData> batchResults;
+
+  /** The registry of the shared cache with all the rows of the table, null if the cache isn't shared */
+  public SharedLookupCacheRegistry sharedCacheRegistry;
+  public String sharedCacheName;
+  /** The estimated number of bytes of the rows loaded into the cache */
+  public long cacheMemorySize;
+
   public DatabaseLookupData() {
     super();
 
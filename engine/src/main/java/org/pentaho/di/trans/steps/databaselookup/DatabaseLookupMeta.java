@@ -41,6 +41,7 @@ import org.pentaho.di.trans.DatabaseImpact;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.SharedLookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepHelperInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -69,6 +70,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   private static final String TAG_LOOKUP_KEY_NAME = "lookup_key_name";
   private static final String TAG_LOOKUP_KEY_NAME2 = "lookup_key_name2";
   private static final String TAG_LOOKUP_ORDERBY = "lookup_orderby";
+  private static final String TAG_LOOKUP_BATCH_SIZE = "lookup_batch_size";
+  private static final String TAG_SHARED_CACHE_NAME = "shared_cache_name";
+  private static final String TAG_SHARED_CACHE_SCOPE = "shared_cache_scope";
   private static final String TAG_LOOKUP_SCHEMA = "lookup_schema";
   private static final String TAG_LOOKUP_TABLE = "lookup_table";
   private static final String TAG_NAME = "name";
@@ -152,6 +156,15 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   /** Have the lookup eat the incoming row when nothing gets found */
   private boolean eatingRowOnLookupFailure;
 
+  /** Look up the keys of this many input rows with a single query, 0 to look up every row on its own */
+  private int lookupBatchSize;
+
+  /** The name of the shared cache with all the rows of the table, empty to load them for this step copy only */
+  private String sharedCacheName;
+
+  /** The code of the scope of the shared cache, see {@link SharedLookupCacheRegistry.Scope} */
+  private String sharedCacheScope;
+
   public DatabaseLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -424,6 +437,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, TAG_CACHE ) );
       loadingAllDataInCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, TAG_CACHE_LOAD_ALL ) );
       cacheSize = Const.toInt( XMLHandler.getTagValue( stepnode, TAG_CACHE_SIZE ), 0 );
+      lookupBatchSize = Const.toInt( XMLHandler.getTagValue( stepnode, TAG_LOOKUP_BATCH_SIZE ), 0 );
+      sharedCacheName = XMLHandler.getTagValue( stepnode, TAG_SHARED_CACHE_NAME );
+      sharedCacheScope = XMLHandler.getTagValue( stepnode, TAG_SHARED_CACHE_SCOPE );
       schemaName = XMLHandler.getTagValue( stepnode, TAG_LOOKUP, TAG_SCHEMA );
       tablename = XMLHandler.getTagValue( stepnode, TAG_LOOKUP, TAG_TABLE );
 
@@ -476,6 +492,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    lookupBatchSize = 0;
+    sharedCacheName = "";
+    sharedCacheScope = SharedLookupCacheRegistry.Scope.TRANSFORMATION.getCode();
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -522,6 +541,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE, cached ) );
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE_LOAD_ALL, loadingAllDataInCache ) );
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE_SIZE, cacheSize ) );
+    retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_LOOKUP_BATCH_SIZE, lookupBatchSize ) );
+    retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_SHARED_CACHE_NAME, sharedCacheName ) );
+    retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_SHARED_CACHE_SCOPE, sharedCacheScope ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( SPACES6 ).append( XMLHandler.addTagValue( TAG_SCHEMA, schemaName ) );
     retval.append( SPACES6 ).append( XMLHandler.addTagValue( TAG_TABLE, tablename ) );
@@ -561,6 +583,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = rep.getStepAttributeBoolean( id_step, TAG_CACHE );
       loadingAllDataInCache = rep.getStepAttributeBoolean( id_step, TAG_CACHE_LOAD_ALL );
       cacheSize = (int) rep.getStepAttributeInteger( id_step, TAG_CACHE_SIZE );
+      lookupBatchSize = (int) rep.getStepAttributeInteger( id_step, TAG_LOOKUP_BATCH_SIZE );
+      sharedCacheName = rep.getStepAttributeString( id_step, TAG_SHARED_CACHE_NAME );
+      sharedCacheScope = rep.getStepAttributeString( id_step, TAG_SHARED_CACHE_SCOPE );
       schemaName = rep.getStepAttributeString( id_step, TAG_LOOKUP_SCHEMA );
       tablename = rep.getStepAttributeString( id_step, TAG_LOOKUP_TABLE );
       orderByClause = rep.getStepAttributeString( id_step, TAG_LOOKUP_ORDERBY );
@@ -599,6 +624,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE, cached );
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE_LOAD_ALL, loadingAllDataInCache );
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE_SIZE, cacheSize );
+      rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_BATCH_SIZE, lookupBatchSize );
+      rep.saveStepAttribute( idTransformation, idStep, TAG_SHARED_CACHE_NAME, sharedCacheName );
+      rep.saveStepAttribute( idTransformation, idStep, TAG_SHARED_CACHE_SCOPE, sharedCacheScope );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_SCHEMA, schemaName );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_TABLE, tablename );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_ORDERBY, orderByClause );
@@ -841,6 +869,51 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     this.eatingRowOnLookupFailure = eatingRowOnLookupFailure;
   }
 
+  /**
+   * @return the number of input rows looked up with a single query, 0 to look up every row on its own
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize
+   *          the number of input rows looked up with a single query, 0 to look up every row on its own
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
+  /**
+   * @return the name of the shared cache with all the rows of the table, empty if every step copy loads its own
+   */
+  public String getSharedCacheName() {
+    return sharedCacheName;
+  }
+
+  /**
+   * @param sharedCacheName
+   *          the name of the shared cache with all the rows of the table, empty if every step copy loads its own
+   */
+  public void setSharedCacheName( String sharedCacheName ) {
+    this.sharedCacheName = sharedCacheName;
+  }
+
+  /**
+   * @return the code of the scope of the shared cache
+   */
+  public String getSharedCacheScope() {
+    return sharedCacheScope;
+  }
+
+  /**
+   * @param sharedCacheScope
+   *          the code of the scope of the shared cache
+   */
+  public void setSharedCacheScope( String sharedCacheScope ) {
+    this.sharedCacheScope = sharedCacheScope;
+  }
+
   /**
    * @return the schemaName
    */
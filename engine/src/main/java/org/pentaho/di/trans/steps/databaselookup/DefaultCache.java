@@ -16,110 +16,61 @@ package org.pentaho.di.trans.steps.databaselookup;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
 
 import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
- * Old code, copied from {@linkplain DatabaseLookup}
+ * Old code, copied from {@linkplain DatabaseLookup}<br>
+ * <br>
+ * A cache created with {@link #newLookupResultCache(DatabaseLookupData, int)} stores the results of the lookups by the
+ * exact values of the lookup row, including the lookups that found nothing ({@link #NOT_FOUND}), so it can be used
+ * whatever the conditions are. Its entries are kept in access order: when it is full the least recently used entry is
+ * evicted, not the oldest one.
  *
  * @author Andrey Khayrutdinov
  */
 public class DefaultCache implements DatabaseLookupData.Cache {
 
+  /**
+   * Stored and returned for a lookup that didn't find anything, to avoid running the same lookup again.
+   */
+  public static final Object[] NOT_FOUND = new Object[ 0 ];
+
   public static DefaultCache newCache( DatabaseLookupData data, int cacheSize ) {
     return new DefaultCache( data, Math.max( 16, (int) ( cacheSize * 1.5 ) ) );
   }
 
+  /**
+   * @param maxSize the maximum number of lookup results to keep, 0 or less to keep them all
+   * @return a cache of the results of the lookups by the values of the lookup row
+   */
+  public static DefaultCache newLookupResultCache( DatabaseLookupData data, int maxSize ) {
+    return new DefaultCache( data, Math.max( 16, (int) ( Math.min( maxSize, 1 << 20 ) * 1.5 ) ), maxSize, true );
+  }
+
   private final DatabaseLookupData data;
   private final LinkedHashMap<RowMetaAndData, Object[]> map;
+  private final int maxSize;
+  private final boolean lookupResults;
 
   DefaultCache( DatabaseLookupData data, int capacity ) {
+    this( data, capacity, 0, false );
+  }
+
+  private DefaultCache( DatabaseLookupData data, int capacity, int maxSize, boolean lookupResults ) {
     this.data = data;
-    map = new LinkedHashMap<>( capacity );
+    this.maxSize = maxSize;
+    this.lookupResults = lookupResults;
+    // Lookup results are kept in access order for the LRU eviction, table rows in the order they were read so the
+    // first matching row is returned
+    map = new LinkedHashMap<>( capacity, 0.75f, lookupResults );
   }
 
   @Override
   public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
-    if ( data.allEquals ) {
-      // only do the map lookup when all equals otherwise conditions >, <, <> will give wrong results
-      Object[] row = map.get( new RowMetaAndData( data.lookupMeta, lookupRow ) );
-      if ( row != null ) {
-        return row;
-      }
-    } else { // special handling of conditions <,>, <> etc.
-      if ( !data.hasDBCondition ) { // e.g. LIKE not handled by this routine, yet
-        // TODO: find an alternative way to look up the data based on the condition.
-        // Not all conditions are "=" so we are going to have to evaluate row by row
-        // A sorted list or index might be a good solution here...
-        //
-        for ( Map.Entry<RowMetaAndData, Object[]> entry : map.entrySet() ) {
-          final RowMetaAndData key = entry.getKey();
-          // Now verify that the key is matching our conditions...
-          //
-          boolean match = true;
-          int lookupIndex = 0;
-          for ( int i = 0; i < data.conditions.length && match; i++ ) {
-            ValueMetaInterface cmpMeta = lookupMeta.getValueMeta( lookupIndex );
-            Object cmpData = lookupRow[ lookupIndex ];
-            ValueMetaInterface keyMeta = key.getValueMeta( i );
-            Object keyData = key.getData()[ i ];
-
-            switch ( data.conditions[ i ] ) {
-              case DatabaseLookupMeta.CONDITION_EQ:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) == 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_NE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) != 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) > 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) >= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) < 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) <= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NULL:
-                match = keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
-                match = !keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_BETWEEN:
-                // Between key >= cmp && key <= cmp2
-                ValueMetaInterface cmpMeta2 = lookupMeta.getValueMeta( lookupIndex + 1 );
-                Object cmpData2 = lookupRow[ lookupIndex + 1 ];
-                match = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
-                if ( match ) {
-                  match = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
-                }
-                lookupIndex++;
-                break;
-              // TODO: add LIKE operator (think of changing the hasDBCondition logic then)
-              default:
-                match = false;
-                data.hasDBCondition = true; // avoid looping in here the next time, also safety when a new condition
-                // will be introduced
-                break;
-            }
-            lookupIndex++;
-          }
-          if ( match ) {
-            Object[] row = entry.getValue();
-            if ( row != null ) {
-              return row;
-            }
-          }
-        }
-      }
-    }
-    return null;
+    // Table rows are only kept here when all the conditions are equalities, a ReadAllCache indexes the others. Lookup
+    // results are stored by the exact lookup row, whatever the conditions are.
+    return map.get( new RowMetaAndData( lookupMeta, lookupRow ) );
   }
 
   @Override
@@ -129,8 +80,18 @@ public class DefaultCache implements DatabaseLookupData.Cache {
 
     // DEinspanjer 2009-02-01: If you had previously set a cache size and then turned on load all, this
     // method would throw out entries if the previous cache size wasn't big enough.
-    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() ) {
+    int limit = lookupResults ? maxSize : ( meta.isLoadingAllDataInCache() ? 0 : meta.getCacheSize() );
+    if ( limit > 0 && map.size() > limit ) {
+      // The first entry is the least recently used lookup result or the oldest table row
       map.remove( map.entrySet().iterator().next().getKey() );
+      data.cacheEvictions++;
     }
   }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public int size() {
+    return map.size();
+  }
 }
@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup.readallcache;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.BitSet;
+
+/**
+ * Index for the BETWEEN condition: the keys between the two lookup values, both included, are a single range of the
+ * sorted keys, found with two binary searches.
+ */
+class BetweenIndex extends Index {
+
+  BetweenIndex( int column, ValueMetaInterface valueMeta, int rowsAmount ) {
+    super( column, valueMeta, rowsAmount );
+  }
+
+  @Override
+  void applyRestrictionsTo( SearchingContext context, RowMetaInterface lookupMeta, Object[] lookupRow,
+                            int lookupIndex ) {
+    Object from = lookupRow[ lookupIndex ];
+    Object to = lookupRow[ lookupIndex + 1 ];
+
+    // the first key not less than "from" and the first key greater than "to"
+    int start = findInsertionPointOf( new IndexedValue( from, -1 ) );
+    int end = findInsertionPointOf( new IndexedValue( to, Integer.MAX_VALUE ) );
+    if ( start >= end ) {
+      context.setEmpty();
+      return;
+    }
+    if ( start == 0 && end == values.length ) {
+      // everything matches
+      return;
+    }
+
+    BitSet bitSet = context.getWorkingSet();
+    boolean inverse = ( end - start ) > values.length / 2;
+    if ( inverse ) {
+      for ( int i = 0; i < start; i++ ) {
+        bitSet.set( values[ i ].row, true );
+      }
+      for ( int i = end; i < values.length; i++ ) {
+        bitSet.set( values[ i ].row, true );
+      }
+    } else {
+      for ( int i = start; i < end; i++ ) {
+        bitSet.set( values[ i ].row, true );
+      }
+    }
+    context.intersect( bitSet, inverse );
+  }
+
+  @Override
+  int getRestrictionPower() {
+    // usually stronger than a single bound, weaker than "=="
+    return -2000;
+  }
+}
@@ -21,7 +21,7 @@ import java.util.BitSet;
 /**
  * @author Andrey Khayrutdinov
  */
-class EqIndex extends Index {
+class EqIndex extends SingleValueIndex {
 
   static Index nonEqualityIndex( int column, ValueMetaInterface valueMeta, int rowsAmount ) {
     return new EqIndex( column, valueMeta, rowsAmount, true );
@@ -20,7 +20,7 @@ import java.util.BitSet;
 /**
  * @author Andrey Khayrutdinov
  */
-class GtIndex extends Index {
+class GtIndex extends SingleValueIndex {
 
   static Index lessOrEqualCache( int column, ValueMetaInterface valueMeta, int rowsAmount ) {
     return new GtIndex( column, valueMeta, rowsAmount, true );
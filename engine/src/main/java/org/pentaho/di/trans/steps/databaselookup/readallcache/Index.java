@@ -13,8 +13,8 @@
 
 package org.pentaho.di.trans.steps.databaselookup.readallcache;
 
-import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 
 import java.util.Comparator;
@@ -65,16 +65,13 @@ abstract class Index {
     return column;
   }
 
-  public void applyRestrictionsTo( SearchingContext context, ValueMetaInterface lookupMeta, Object lookupValue ) {
-    try {
-      doApply( context, lookupMeta, lookupValue );
-    } catch ( KettleException e ) {
-      throw new RuntimeException( e );
-    }
-  }
-
-  abstract void doApply( SearchingContext context, ValueMetaInterface lookupMeta, Object lookupValue )
-    throws KettleException;
+  /**
+   * Apply the restrictions of the index for a lookup row.
+   *
+   * @param lookupIndex the position of the (first) value of the lookup row the index compares with
+   */
+  abstract void applyRestrictionsTo( SearchingContext context, RowMetaInterface lookupMeta, Object[] lookupRow,
+                                     int lookupIndex );
 
   /**
    * Return the "anti-strength" of the restriction of the index. It is a heuristic weight of the restriction, needed
@@ -22,7 +22,7 @@ import java.util.Comparator;
 /**
  * @author Andrey Khayrutdinov
  */
-class IsNullIndex extends Index implements Comparator<Index.IndexedValue> {
+class IsNullIndex extends SingleValueIndex implements Comparator<Index.IndexedValue> {
 
   private final boolean isMatchingNull;
 
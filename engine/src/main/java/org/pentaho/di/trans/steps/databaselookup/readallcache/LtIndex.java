@@ -20,7 +20,7 @@ import java.util.BitSet;
 /**
  * @author Andrey Khayrutdinov
  */
-class LtIndex extends Index {
+class LtIndex extends SingleValueIndex {
 
   static Index greaterOrEqualCache( int column, ValueMetaInterface valueMeta, int rowsAmount ) {
     return new LtIndex( column, valueMeta, rowsAmount, true );
@@ -15,19 +15,18 @@ package org.pentaho.di.trans.steps.databaselookup.readallcache;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.steps.databaselookup.DatabaseLookupData;
 import org.pentaho.di.trans.steps.databaselookup.DatabaseLookupMeta;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 import java.util.PriorityQueue;
 
 /**
  * This is a read-only array-based cache to be used in
  * {@linkplain org.pentaho.di.trans.steps.databaselookup.DatabaseLookup DatabaseLookup} when "Load All Data In Cache"
- * checkbox is selected. Internally, it uses some optimizations to reduce memory consumption.
+ * checkbox is selected. Internally, it uses some optimizations to reduce memory consumption. Every condition except
+ * LIKE is resolved with a sorted index of the keys.
  *
  * @author Andrey Khayrutdinov
  */
@@ -41,6 +40,8 @@ public class ReadAllCache implements DatabaseLookupData.Cache {
   private final Object[][] data;
 
   private final Index[] indexes;
+  // the position in the lookup row of the value(s) each index compares with
+  private final int[] lookupIndexes;
 
   // this is an array of pairs (column; condition),
   // such structure was chosen not to introduce separate data-container class
@@ -55,6 +56,24 @@ public class ReadAllCache implements DatabaseLookupData.Cache {
     Object[] pair = createIndexes( stepData, keysMeta, keys );
     indexes = (Index[]) pair[ 0 ];
     otherConditions = (int[][]) pair[ 1 ];
+
+    lookupIndexes = new int[ indexes.length ];
+    for ( int i = 0; i < indexes.length; i++ ) {
+      lookupIndexes[ i ] = getLookupIndex( stepData.conditions, indexes[ i ].getColumn() );
+    }
+  }
+
+  /**
+   * BETWEEN takes two values of the lookup row, the values of the conditions after it are shifted.
+   */
+  private static int getLookupIndex( int[] conditions, int column ) {
+    int lookupIndex = column;
+    for ( int i = 0; i < column; i++ ) {
+      if ( conditions[ i ] == DatabaseLookupMeta.CONDITION_BETWEEN ) {
+        lookupIndex++;
+      }
+    }
+    return lookupIndex;
   }
 
 
@@ -94,6 +113,9 @@ public class ReadAllCache implements DatabaseLookupData.Cache {
         case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
           index = new IsNullIndex( i, keysMeta.getValueMeta( i ), rowsAmount, false );
           break;
+        case DatabaseLookupMeta.CONDITION_BETWEEN:
+          index = new BetweenIndex( i, keysMeta.getValueMeta( i ), rowsAmount );
+          break;
       }
       if ( index == null ) {
         otherConditions.add( new int[] { i, condition } );
@@ -121,67 +143,24 @@ public class ReadAllCache implements DatabaseLookupData.Cache {
     SearchingContext context = new SearchingContext();
     context.init( keys.length );
 
-    for ( Index index : indexes ) {
-      int column = index.getColumn();
-      // IS (NOT) NULL operation does not require second argument
-      // hence, lookupValue can be absent
-      // basically, the index ignores both meta and value, so we can pass everything there
-      Object lookupValue = ( column < lookupRow.length ) ? lookupRow[ column ] : null;
-      index.applyRestrictionsTo( context, lookupMeta.getValueMeta( column ), lookupValue );
+    for ( int i = 0; i < indexes.length; i++ ) {
+      indexes[ i ].applyRestrictionsTo( context, lookupMeta, lookupRow, lookupIndexes[ i ] );
       if ( context.isEmpty() ) {
         // if nothing matches, break the search
         return null;
       }
     }
 
-    // iterate through all elements survived after filtering stage
-    // and find the first matching
-    BitSet candidates = context.getCandidates();
-    int candidate = candidates.nextSetBit( 0 );
-    while ( candidate != -1 ) {
-      Object[] dataKeys = keys[ candidate ];
-
-      boolean matches = true;
-      int lookupShift = 0;
-      for ( int i = 0, len = otherConditions.length; i < len && matches; i++ ) {
-        int[] columnConditionPair = otherConditions[ i ];
-
-        final int column = columnConditionPair[ 0 ];
-        Object keyData = dataKeys[ column ];
-        ValueMetaInterface keyMeta = keysMeta.getValueMeta( column );
-
-        int lookupIndex = column + lookupShift;
-        Object cmpData = lookupRow[ lookupIndex ];
-        ValueMetaInterface cmpMeta = lookupMeta.getValueMeta( lookupIndex );
-
-        int condition = columnConditionPair[ 1 ];
-        if ( condition == DatabaseLookupMeta.CONDITION_BETWEEN ) {
-          // BETWEEN is a special condition demanding two arguments
-          // technically there are no obstacles to implement it,
-          // as it is just a short form of: (a <= b) && (b <= c)
-          // however, let it be so for now
-          matches = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
-          if ( matches ) {
-            lookupShift++;
-            lookupIndex++;
-            ValueMetaInterface cmpMeta2 = lookupMeta.getValueMeta( lookupIndex );
-            Object cmpData2 = lookupRow[ lookupIndex ];
-            matches = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
-          }
-        } else {
-          // if not BETWEEN, than it is LIKE (or some new operator)
-          // for now, LIKE is not supported here
-          matches = false;
-          stepData.hasDBCondition = true;
-        }
-      }
-      if ( matches ) {
-        return data[ candidate ];
-      } else {
-        candidate = candidates.nextSetBit( candidate + 1 );
-      }
+    if ( otherConditions.length > 0 ) {
+      // if not indexed, than it is LIKE (or some new operator)
+      // for now, LIKE is not supported here
+      stepData.hasDBCondition = true;
+      return null;
     }
-    return null;
+
+    // all the conditions are indexed: the first element survived after filtering stage is the first matching
+    int candidate = context.getCandidates().nextSetBit( 0 );
+    return ( candidate == -1 ) ? null : data[ candidate ];
   }
 
   @Override
@@ -0,0 +1,49 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup.readallcache;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * An index for a condition that compares the key with a single lookup value, or with none for IS (NOT) NULL.
+ */
+abstract class SingleValueIndex extends Index {
+
+  SingleValueIndex( int column, ValueMetaInterface valueMeta, int rowsAmount ) {
+    super( column, valueMeta, rowsAmount );
+  }
+
+  public void applyRestrictionsTo( SearchingContext context, ValueMetaInterface lookupMeta, Object lookupValue ) {
+    try {
+      doApply( context, lookupMeta, lookupValue );
+    } catch ( KettleException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  @Override
+  void applyRestrictionsTo( SearchingContext context, RowMetaInterface lookupMeta, Object[] lookupRow,
+                            int lookupIndex ) {
+    // IS (NOT) NULL operation does not require second argument
+    // hence, lookupValue can be absent
+    // basically, the index ignores both meta and value, so we can pass everything there
+    Object lookupValue = ( lookupIndex < lookupRow.length ) ? lookupRow[ lookupIndex ] : null;
+    applyRestrictionsTo( context, lookupMeta.getValueMeta( lookupIndex ), lookupValue );
+  }
+
+  abstract void doApply( SearchingContext context, ValueMetaInterface lookupMeta, Object lookupValue )
+    throws KettleException;
+}
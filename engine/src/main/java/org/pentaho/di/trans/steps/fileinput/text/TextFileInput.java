@@ -13,11 +13,14 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Date;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.playlist.FilePlayListAll;
 import org.pentaho.di.core.playlist.FilePlayListReplay;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -44,9 +47,76 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
   @Override
   protected IBaseFileInputReader createReader( TextFileInputMeta meta, TextFileInputData data, FileObject file )
     throws Exception {
+    data.blockStart = 0L;
+    data.blockEnd = -1L;
+    if ( data.splittingFiles ) {
+      calculateBlock( file );
+    }
     return new TextFileInputReader( this, meta, data, file, log );
   }
 
+  @Override
+  protected boolean openNextFile() {
+    if ( data.parallel && !data.splittingFiles ) {
+      // Every copy reads its own share of the files
+      while ( data.currentFileIndex < data.files.nrOfFiles()
+        && data.currentFileIndex % data.totalNumberOfSteps != data.stepNumber ) {
+        data.currentFileIndex++;
+      }
+    }
+    return super.openNextFile();
+  }
+
+  /**
+   * Calculate the block of the file this step copy reads. The file is divided in blocks of the same size, and every
+   * block boundary is moved forward to the start of the next line. All copies move a boundary to the same position, so
+   * every line is read by exactly one copy. The header lines always belong to the first block.
+   */
+  private void calculateBlock( FileObject file ) throws IOException {
+    long size = file.getContent().getSize();
+    long blockSize = ( size + data.totalNumberOfSteps - 1 ) / data.totalNumberOfSteps;
+    long start = Math.min( size, blockSize * data.stepNumber );
+    long end = Math.min( size, start + blockSize );
+
+    long headerEnd = 0L;
+    if ( meta.content.header && meta.content.nrHeaderLines > 0 ) {
+      try ( InputStream in = KettleVFS.getInputStream( file ) ) {
+        headerEnd = TextFileInputUtils.getLineStart( in, meta.content.nrHeaderLines );
+      }
+    }
+    data.blockStart = start == 0 ? 0L : Math.max( headerEnd, skipToLineStart( file, start ) );
+    data.blockEnd = Math.max( headerEnd, skipToLineStart( file, end ) );
+
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TextFileInput.Log.ReadingBlock", file.getName().getFriendlyURI(),
+        Long.toString( data.blockStart ), Long.toString( data.blockEnd ) ) );
+    }
+  }
+
+  private long skipToLineStart( FileObject file, long position ) throws IOException {
+    try ( InputStream in = KettleVFS.getInputStream( file ) ) {
+      return TextFileInputUtils.skipToLineStart( in, position );
+    }
+  }
+
+  /**
+   * @return true if the files can be divided in blocks: a line feed always ends a record and can be found without
+   *         decoding the content.
+   */
+  boolean isSplittingFiles() {
+    // Compressed files can only be read from the start
+    if ( meta.content.fileCompression != null && !"None".equalsIgnoreCase( meta.content.fileCompression ) ) {
+      return false;
+    }
+    if ( meta.content.breakInEnclosureAllowed || meta.content.lineWrapped || meta.content.layoutPaged
+      || meta.content.footer ) {
+      return false;
+    }
+    String encoding = environmentSubstitute( meta.getEncoding() );
+    return EncodingType.guessEncodingType( encoding ) == EncodingType.SINGLE
+      && ( encoding == null || !encoding.toUpperCase().startsWith( "UTF-32" ) );
+  }
+
   @Override
   public boolean init() {
     Date replayDate = getTrans().getReplayDate();
@@ -71,6 +141,17 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
     data.separator = environmentSubstitute( meta.content.separator );
     data.enclosure = environmentSubstitute( meta.content.enclosure );
     data.escapeCharacter = environmentSubstitute( meta.content.escapeCharacter );
+
+    // Split the files over the step copies, files from a previous step are already divided over the copies
+    if ( meta.content.runningInParallel && !meta.inputFiles.acceptingFilenames ) {
+      data.stepNumber = getUniqueStepNrAcrossSlaves();
+      data.totalNumberOfSteps = getUniqueStepCountAcrossSlaves();
+      data.parallel = data.totalNumberOfSteps > 1;
+      data.splittingFiles = data.parallel && isSplittingFiles();
+      if ( data.parallel && !data.splittingFiles && log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "TextFileInput.Log.ReadingWholeFilesInParallel" ) );
+      }
+    }
     // CSV without separator defined
     if ( meta.content.fileType.equalsIgnoreCase( "CSV" ) && ( meta.content.separator == null || meta.content.separator
         .isEmpty() ) ) {
@@ -62,6 +62,30 @@ public class TextFileInputData extends BaseFileInputStepData {
 
   public EncodingType encodingType;
 
+  /**
+   * Whether the files are split over the step copies
+   */
+  public boolean parallel;
+
+  /**
+   * Whether the files are divided in blocks of bytes, one for every step copy, instead of being read by a single copy
+   */
+  public boolean splittingFiles;
+
+  public int stepNumber;
+
+  public int totalNumberOfSteps;
+
+  /**
+   * The position of the first byte of the current file to read
+   */
+  public long blockStart;
+
+  /**
+   * The position after the last byte of the current file to read, -1 to read until the end of the file
+   */
+  public long blockEnd = -1L;
+
   public TextFileInputData() {
     // linked list is better, as usually .remove(0) is applied to this list
     lineBuffer = new LinkedList<TextFileLine>();
@@ -199,6 +199,13 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     @Injection( name = "LENGTH" )
     public String length;
 
+    /**
+     * Split the files over the step copies: uncompressed files are divided in blocks of bytes, one for every copy,
+     * other files are read by a single copy.
+     */
+    @Injection( name = "RUNNING_IN_PARALLEL" )
+    public boolean runningInParallel;
+
   }
 
   /** The filters to use... */
@@ -296,6 +303,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       content.filenameField = XMLHandler.getTagValue( stepnode, "include_field" );
       content.includeRowNumber = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "rownum" ) );
       content.rowNumberByFile = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "rownumByFile" ) );
+      content.runningInParallel = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "parallel" ) );
       content.rowNumberField = XMLHandler.getTagValue( stepnode, "rownum_field" );
       content.fileFormat = XMLHandler.getTagValue( stepnode, "format" );
       content.encoding = XMLHandler.getTagValue( stepnode, "encoding" );
@@ -493,6 +501,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     content.rowNumberField = "";
     content.dateFormatLenient = true;
     content.rowNumberByFile = false;
+    content.runningInParallel = false;
 
     errorHandling.errorIgnored = false;
     errorHandling.skipBadFiles = false;
@@ -711,6 +720,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     retval.append( "    " ).append( XMLHandler.addTagValue( "include_field", content.filenameField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownum", content.includeRowNumber ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownumByFile", content.rowNumberByFile ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "parallel", content.runningInParallel ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownum_field", content.rowNumberField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "format", content.fileFormat ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "encoding", content.encoding ) );
@@ -876,6 +886,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       content.filenameField = rep.getStepAttributeString( id_step, "include_field" );
       content.includeRowNumber = rep.getStepAttributeBoolean( id_step, "rownum" );
       content.rowNumberByFile = rep.getStepAttributeBoolean( id_step, "rownumByFile" );
+      content.runningInParallel = rep.getStepAttributeBoolean( id_step, "parallel" );
       content.rowNumberField = rep.getStepAttributeString( id_step, "rownum_field" );
 
       content.fileFormat = rep.getStepAttributeString( id_step, "format" );
@@ -1016,6 +1027,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       rep.saveStepAttribute( id_transformation, id_step, "include_field", content.filenameField );
       rep.saveStepAttribute( id_transformation, id_step, "rownum", content.includeRowNumber );
       rep.saveStepAttribute( id_transformation, id_step, "rownumByFile", content.rowNumberByFile );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel", content.runningInParallel );
       rep.saveStepAttribute( id_transformation, id_step, "rownum_field", content.rowNumberField );
 
       rep.saveStepAttribute( id_transformation, id_step, "format", content.fileFormat );
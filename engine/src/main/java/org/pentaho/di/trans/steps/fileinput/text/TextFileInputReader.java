@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.fileinput.text;
 
 import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 
 import org.apache.commons.vfs2.FileObject;
@@ -50,6 +51,12 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
   private boolean first;
 
+  /**
+   * Whether the header lines are part of what this reader reads: not when the file is split in blocks and this is not
+   * the first block.
+   */
+  private final boolean header;
+
   protected long lineNumberInFile;
 
   protected long linesWritten;
@@ -61,6 +68,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
     this.data = data;
     this.log = log;
     this.linesWritten = step.getLinesWritten();
+    this.header = meta.content.header && data.blockStart == 0;
 
     CompressionProvider provider =
         CompressionProviderFactory.getInstance().getCompressionProviderByName( meta.content.fileCompression );
@@ -69,7 +77,11 @@ public class TextFileInputReader implements IBaseFileInputReader {
       log.logDetailed( "This is a compressed file being handled by the " + provider.getName() + " provider" );
     }
 
-    in = provider.createInputStream( KettleVFS.getInputStream( file ) );
+    InputStream fileStream = KettleVFS.getInputStream( file );
+    if ( data.blockEnd >= 0 ) {
+      fileStream = TextFileInputUtils.getBlockInputStream( fileStream, data.blockStart, data.blockEnd );
+    }
+    in = provider.createInputStream( fileStream );
 
     in.nextEntry();
 
@@ -92,7 +104,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
   }
 
   protected void readInitial() throws Exception {
-    data.doneWithHeader = !meta.content.header;
+    data.doneWithHeader = !header;
     // /////////////////////////////////////////////////////////////////////////////
     // Read the first lines...
 
@@ -105,7 +117,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
      * OK, read a number of lines in the buffer: The header rows The nr rows in the page : optional The footer rows
      */
     int bufferSize = 1;
-    bufferSize += meta.content.header ? meta.content.nrHeaderLines : 0;
+    bufferSize += header ? meta.content.nrHeaderLines : 0;
     bufferSize +=
         meta.content.layoutPaged ? meta.content.nrLinesPerPage * ( Math.max( 0, meta.content.nrWraps ) + 1 ) : Math.max(
             0, meta.content.nrWraps ); // it helps when we have wrapped input w/o header
@@ -119,7 +131,7 @@ public class TextFileInputReader implements IBaseFileInputReader {
     }
 
     for ( int i = 0; i < bufferSize && !data.doneReading; i++ ) {
-      boolean wasNotFiltered = tryToReadLine( !meta.content.header || i >= meta.content.nrHeaderLines );
+      boolean wasNotFiltered = tryToReadLine( !header || i >= meta.content.nrHeaderLines );
       if ( !wasNotFiltered ) {
         // grab another line, this one got filtered
         bufferSize++;
@@ -13,6 +13,8 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -20,6 +22,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
@@ -1020,4 +1023,90 @@ public class TextFileInputUtils {
 
     return textFileLine.lineNumber;
   }
+
+  /**
+   * Find the first line that starts at or after a position of a file. A line starts after a line feed, which also ends
+   * the lines of DOS files, so the result is the same whatever the position within a line.
+   *
+   * @param in
+   *          the content of the file, read from the start
+   * @param position
+   *          the position in bytes
+   * @return the position of the start of the line or the number of bytes in the file if no line starts after the
+   *         position
+   */
+  public static long skipToLineStart( InputStream in, long position ) throws IOException {
+    if ( position <= 0 ) {
+      return 0L;
+    }
+    // The line starts at the position itself if the byte before it ends a line
+    long pos = skipBytes( in, position - 1 );
+    int b = in.read();
+    while ( b != -1 ) {
+      pos++;
+      if ( b == '\n' ) {
+        break;
+      }
+      b = in.read();
+    }
+    return pos;
+  }
+
+  /**
+   * @param in
+   *          the content of the file, read from the start
+   * @param nrLines
+   *          the number of lines to skip
+   * @return the position of the start of the line after the given number of lines
+   */
+  public static long getLineStart( InputStream in, int nrLines ) throws IOException {
+    long pos = 0L;
+    int lines = 0;
+    while ( lines < nrLines ) {
+      int b = in.read();
+      if ( b == -1 ) {
+        break;
+      }
+      pos++;
+      if ( b == '\n' ) {
+        lines++;
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * Limit the content of a file to a block of bytes.
+   *
+   * @param in
+   *          the content of the file, read from the start
+   * @param start
+   *          the position of the first byte of the block
+   * @param end
+   *          the position after the last byte of the block
+   * @return the content of the block
+   */
+  public static InputStream getBlockInputStream( InputStream in, long start, long end ) throws IOException {
+    skipBytes( in, start );
+    return new BoundedInputStream( in, Math.max( 0L, end - start ) );
+  }
+
+  /**
+   * @return the number of bytes skipped, less than asked for at the end of the stream only
+   */
+  private static long skipBytes( InputStream in, long nrBytes ) throws IOException {
+    long skipped = 0L;
+    while ( skipped < nrBytes ) {
+      // skip() seeks in files, but it is allowed to skip nothing before the end of the stream
+      long n = in.skip( nrBytes - skipped );
+      if ( n <= 0 ) {
+        if ( in.read() == -1 ) {
+          break;
+        }
+        n = 1;
+      }
+      skipped += n;
+    }
+    return skipped;
+  }
 }
@@ -0,0 +1,35 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.formula;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A formula that is compiled to Java byte code by the {@link FormulaCompiler}.
+ */
+public interface CompiledFormula {
+  /**
+   * Calculate the formula for a row.
+   *
+   * @param rowMeta
+   *          the metadata of the row
+   * @param row
+   *          the row, with the results of the previous formulas
+   * @return the result converted to the type of the output field or null if the formula needs to be calculated by
+   *         the interpreter for this row: when a field it uses is null for example.
+   * @throws Exception
+   *           when the formula can't be calculated for this row, it needs to be calculated by the interpreter as well
+   */
+  Object evaluate( RowMetaInterface rowMeta, Object[] row ) throws Exception;
+}
@@ -25,6 +25,7 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
@@ -42,6 +43,8 @@ import org.pentaho.reporting.libraries.formula.parser.FormulaParser;
  * @since 8-sep-2005
  */
 public class Formula extends BaseStep implements StepInterface {
+  private static Class<?> PKG = FormulaMeta.class; // for i18n purposes, needed by Translator2!!
+
   private FormulaMeta meta;
   private FormulaData data;
   public Formula( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
@@ -128,6 +131,9 @@ public class Formula extends BaseStep implements StepInterface {
               + Const.NVL( fn.getFormula(), "" ) + "]" );
           }
         }
+        if ( meta.isCompiled() ) {
+          compileFormulas( rowMeta );
+        }
       }
 
       for ( int i = 0; i < meta.getFormula().length; i++ ) {
@@ -137,6 +143,17 @@ public class Formula extends BaseStep implements StepInterface {
             data.formulas[i] = data.createFormula( meta.getFormula()[i].getFormula() );
           }
 
+          int realIndex = ( data.replaceIndex[i] < 0 ) ? tempIndex++ : data.replaceIndex[i];
+
+          if ( data.compiledFormulas != null && data.compiledFormulas[i] != null ) {
+            Object value = evaluateCompiledFormula( data.compiledFormulas[i], outputRowData );
+            if ( value != null ) {
+              outputRowData[realIndex] = value;
+              continue;
+            }
+            // else: leave this row to the interpreter
+          }
+
           // this is main part of all this step: calculate formula
           Object formulaResult = data.formulas[i].evaluate();
           if ( formulaResult instanceof LibFormulaErrorValue ) {
@@ -185,7 +202,6 @@ public class Formula extends BaseStep implements StepInterface {
             }
           }
 
-          int realIndex = ( data.replaceIndex[i] < 0 ) ? tempIndex++ : data.replaceIndex[i];
           outputRowData[realIndex] = getReturnValue( formulaResult, data.returnType[i], realIndex, fn );
         }
       }
@@ -196,6 +212,48 @@ public class Formula extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Compile the formulas that can be compiled, the others are interpreted.
+   */
+  private void compileFormulas( RowMetaInterface rowMeta ) {
+    FormulaCompiler compiler = new FormulaCompiler( data.outputRowMeta, data.context.getOperatorFactory() );
+    data.compiledFormulas = new CompiledFormula[meta.getFormula().length];
+    int tempIndex = rowMeta.size();
+    for ( int i = 0; i < meta.getFormula().length; i++ ) {
+      FormulaMetaFunction fn = meta.getFormula()[i];
+      int realIndex = ( data.replaceIndex[i] < 0 ) ? tempIndex++ : data.replaceIndex[i];
+      try {
+        data.compiledFormulas[i] =
+          compiler.compile( fn.getFormula(), data.outputRowMeta.getValueMeta( realIndex ).getType() );
+      } catch ( KettleException e ) {
+        // Only this formula is interpreted, the others are still compiled
+        logBasic( BaseMessages.getString( PKG, "Formula.Log.FormulaNotCompiled", fn.getFieldName(),
+          fn.getFormula() ) );
+        if ( log.isDetailed() ) {
+          logDetailed( Const.getStackTracker( e ) );
+        }
+        continue;
+      }
+      if ( data.compiledFormulas[i] == null ) {
+        logBasic( BaseMessages.getString( PKG, "Formula.Log.FormulaInterpreted", fn.getFieldName(),
+          fn.getFormula() ) );
+      } else if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "Formula.Log.FormulaCompiled", fn.getFieldName() ) );
+      }
+    }
+  }
+
+  /**
+   * @return the result of the compiled formula or null if the interpreter needs to calculate it
+   */
+  private Object evaluateCompiledFormula( CompiledFormula compiledFormula, Object[] outputRowData ) {
+    try {
+      return compiledFormula.evaluate( data.outputRowMeta, outputRowData );
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
   protected Object getReturnValue( Object formulaResult, int returnType, int realIndex, FormulaMetaFunction fn )
     throws KettleException {
     if ( formulaResult == null ) {
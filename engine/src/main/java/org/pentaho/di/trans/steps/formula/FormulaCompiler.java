@@ -0,0 +1,606 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.formula;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.reporting.libraries.formula.lvalues.ContextLookup;
+import org.pentaho.reporting.libraries.formula.lvalues.FormulaFunction;
+import org.pentaho.reporting.libraries.formula.lvalues.LValue;
+import org.pentaho.reporting.libraries.formula.lvalues.PrefixTerm;
+import org.pentaho.reporting.libraries.formula.lvalues.StaticValue;
+import org.pentaho.reporting.libraries.formula.lvalues.Term;
+import org.pentaho.reporting.libraries.formula.operators.InfixOperator;
+import org.pentaho.reporting.libraries.formula.operators.OperatorFactory;
+import org.pentaho.reporting.libraries.formula.operators.PrefixOperator;
+import org.pentaho.reporting.libraries.formula.parser.FormulaParser;
+import org.pentaho.reporting.libraries.formula.parser.ParseException;
+
+/**
+ * Translates formulas into Java code that is compiled with Janino. The fields the formula uses are read once into
+ * local variables of a primitive type. The arithmetic of Integer fields and whole number constants is calculated
+ * exactly with longs, an overflow leaves the row to the interpreter. The interpreter calculates with decimal numbers:
+ * the arithmetic of Number fields and decimal constants, divisions, powers, percentages and the mathematical functions
+ * would give a different result in double precision, they aren't compiled.<br>
+ * <br>
+ * Only a part of OpenFormula is supported: fields of type Number, Integer, String and Boolean, the integer arithmetic
+ * and text operators, the comparison of integers and a set of common functions whose result is exact and doesn't
+ * depend on the context of the formula. The interpreter compares decimal numbers, text and booleans with its own rules,
+ * those comparisons aren't compiled. A formula using anything else isn't compiled and is left to the interpreter. A
+ * compiled formula also leaves a row to the interpreter when a field it uses is null or is not a number, so the
+ * interpreter decides what these rows return or which error they raise.
+ */
+public class FormulaCompiler {
+  static final int TYPE_NUMBER = 1;
+  static final int TYPE_STRING = 2;
+  static final int TYPE_BOOLEAN = 3;
+  static final int TYPE_INTEGER = 4;
+
+  private static final String[] INFIX_OPERATORS =
+    new String[] { "+", "-", "*", "/", "^", "&", "=", "<>", "<", "<=", ">", ">=" };
+
+  private final RowMetaInterface rowMeta;
+  private final FormulaParser parser;
+  private final Map<Class<?>, String> infixOperators = new HashMap<>();
+  private final Map<Class<?>, String> prefixOperators = new HashMap<>();
+
+  /** The indexes of the fields used by the formula being compiled, with their type */
+  private final Map<Integer, Integer> fieldTypes = new TreeMap<>();
+
+  /**
+   * An expression of the generated code.
+   */
+  private static class Expression {
+    private final int type;
+    private final String code;
+
+    Expression( int type, String code ) {
+      this.type = type;
+      this.code = code;
+    }
+  }
+
+  /**
+   * @param rowMeta
+   *          the metadata of the rows the formulas are calculated for
+   * @param operatorFactory
+   *          the factory of the operators of the parsed formulas
+   */
+  public FormulaCompiler( RowMetaInterface rowMeta, OperatorFactory operatorFactory ) {
+    this.rowMeta = rowMeta;
+    this.parser = new FormulaParser();
+
+    // The operators are recognized by class, whatever the classes the factory is configured with
+    for ( String operator : INFIX_OPERATORS ) {
+      InfixOperator infixOperator = operatorFactory.createInfixOperator( operator );
+      if ( infixOperator != null ) {
+        infixOperators.put( infixOperator.getClass(), operator );
+      }
+    }
+    for ( String operator : new String[] { "+", "-" } ) {
+      PrefixOperator prefixOperator = operatorFactory.createPrefixOperator( operator );
+      if ( prefixOperator != null ) {
+        prefixOperators.put( prefixOperator.getClass(), operator );
+      }
+    }
+  }
+
+  /**
+   * Compile a formula.
+   *
+   * @param formula
+   *          the formula
+   * @param resultType
+   *          the type of the output field
+   * @return the compiled formula or null if the formula can't be compiled
+   * @throws KettleException
+   *           when the code can't be generated or doesn't compile, the formula has to be interpreted
+   */
+  public CompiledFormula compile( String formula, int resultType ) throws KettleException {
+    String body;
+    try {
+      body = generate( formula, resultType );
+    } catch ( RuntimeException e ) {
+      throw new KettleException( "Unable to generate the code of formula [" + formula + "]", e );
+    }
+    if ( body == null ) {
+      return null;
+    }
+    try {
+      ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+      cbe.setParentClassLoader( FormulaCompiler.class.getClassLoader() );
+      cbe.setImplementedInterfaces( new Class<?>[] { CompiledFormula.class } );
+      cbe.setDefaultImports( new String[] {
+        "org.pentaho.di.core.row.RowMetaInterface", "org.pentaho.di.trans.steps.formula.FormulaCompiler" } );
+      cbe.cook( body );
+      return (CompiledFormula) cbe.getClazz().getConstructor().newInstance();
+    } catch ( Exception e ) {
+      throw new KettleException( "Unable to compile formula [" + formula + "], generated code:" + Const.CR + body, e );
+    }
+  }
+
+  /**
+   * Generate the Java code of a formula.
+   *
+   * @return the body of a class implementing {@link CompiledFormula} or null if the formula can't be compiled
+   */
+  String generate( String formula, int resultType ) {
+    fieldTypes.clear();
+    Expression expression;
+    try {
+      expression = translate( parser.parse( formula ) );
+    } catch ( ParseException e ) {
+      // The interpreter reports the error
+      return null;
+    }
+    if ( expression == null ) {
+      return null;
+    }
+
+    String result;
+    if ( expression.type == TYPE_INTEGER && resultType == ValueMetaInterface.TYPE_INTEGER ) {
+      result = "Long.valueOf( " + expression.code + " )";
+    } else if ( expression.type == TYPE_INTEGER && resultType == ValueMetaInterface.TYPE_NUMBER ) {
+      result = "Double.valueOf( (double) " + expression.code + " )";
+    } else if ( expression.type == TYPE_NUMBER && resultType == ValueMetaInterface.TYPE_NUMBER ) {
+      result = "Double.valueOf( FormulaCompiler.checkNumber( " + expression.code + " ) )";
+    } else if ( expression.type == TYPE_NUMBER && resultType == ValueMetaInterface.TYPE_INTEGER ) {
+      // Like the conversion of the big number the interpreter returns: the decimals are dropped
+      result = "Long.valueOf( (long) FormulaCompiler.checkNumber( " + expression.code + " ) )";
+    } else if ( expression.type == TYPE_STRING && resultType == ValueMetaInterface.TYPE_STRING ) {
+      result = expression.code;
+    } else if ( expression.type == TYPE_BOOLEAN && resultType == ValueMetaInterface.TYPE_BOOLEAN ) {
+      result = "Boolean.valueOf( " + expression.code + " )";
+    } else {
+      return null;
+    }
+
+    StringBuilder body = new StringBuilder();
+    body.append( "public Object evaluate( RowMetaInterface rowMeta, Object[] row ) throws Exception {" )
+      .append( Const.CR );
+    for ( Map.Entry<Integer, Integer> field : fieldTypes.entrySet() ) {
+      int index = field.getKey();
+      switch ( field.getValue() ) {
+        case TYPE_INTEGER:
+          body.append( "  Long n" ).append( index ).append( " = rowMeta.getInteger( row, " ).append( index )
+            .append( " );" ).append( Const.CR );
+          body.append( "  if ( n" ).append( index ).append( " == null ) { return null; }" ).append( Const.CR );
+          body.append( "  long f" ).append( index ).append( " = n" ).append( index ).append( ".longValue();" )
+            .append( Const.CR );
+          break;
+        case TYPE_NUMBER:
+          body.append( "  Double n" ).append( index ).append( " = rowMeta.getNumber( row, " ).append( index )
+            .append( " );" ).append( Const.CR );
+          body.append( "  if ( n" ).append( index ).append( " == null ) { return null; }" ).append( Const.CR );
+          body.append( "  double f" ).append( index ).append( " = n" ).append( index ).append( ".doubleValue();" )
+            .append( Const.CR );
+          break;
+        case TYPE_STRING:
+          body.append( "  String f" ).append( index ).append( " = rowMeta.getString( row, " ).append( index )
+            .append( " );" ).append( Const.CR );
+          body.append( "  if ( f" ).append( index ).append( " == null ) { return null; }" ).append( Const.CR );
+          break;
+        default:
+          body.append( "  Boolean n" ).append( index ).append( " = rowMeta.getBoolean( row, " ).append( index )
+            .append( " );" ).append( Const.CR );
+          body.append( "  if ( n" ).append( index ).append( " == null ) { return null; }" ).append( Const.CR );
+          body.append( "  boolean f" ).append( index ).append( " = n" ).append( index ).append( ".booleanValue();" )
+            .append( Const.CR );
+          break;
+      }
+    }
+    body.append( "  return " ).append( result ).append( ";" ).append( Const.CR );
+    body.append( "}" ).append( Const.CR );
+    return body.toString();
+  }
+
+  private Expression translate( LValue value ) {
+    if ( value instanceof ContextLookup ) {
+      return translateField( ( (ContextLookup) value ).getName() );
+    } else if ( value instanceof StaticValue ) {
+      return translateStaticValue( ( (StaticValue) value ).getValue() );
+    } else if ( value instanceof Term ) {
+      return translateTerm( (Term) value );
+    } else if ( value instanceof PrefixTerm ) {
+      PrefixTerm term = (PrefixTerm) value;
+      String operator = prefixOperators.get( term.getOperator().getClass() );
+      Expression operand = translate( term.getValue() );
+      if ( operator == null || operand == null || !isNumeric( operand.type ) ) {
+        return null;
+      }
+      if ( !"-".equals( operator ) ) {
+        return operand;
+      }
+      return operand.type == TYPE_INTEGER
+        ? new Expression( TYPE_INTEGER, "Math.negateExact( " + operand.code + " )" )
+        : new Expression( TYPE_NUMBER, "( -" + operand.code + " )" );
+    } else if ( value instanceof FormulaFunction ) {
+      return translateFunction( (FormulaFunction) value );
+    }
+    return null;
+  }
+
+  private Expression translateField( String name ) {
+    int index = rowMeta.indexOfValue( name );
+    if ( index < 0 ) {
+      return null;
+    }
+    int type;
+    switch ( rowMeta.getValueMeta( index ).getType() ) {
+      case ValueMetaInterface.TYPE_NUMBER:
+        type = TYPE_NUMBER;
+        break;
+      case ValueMetaInterface.TYPE_INTEGER:
+        type = TYPE_INTEGER;
+        break;
+      case ValueMetaInterface.TYPE_STRING:
+        type = TYPE_STRING;
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        type = TYPE_BOOLEAN;
+        break;
+      default:
+        return null;
+    }
+    fieldTypes.put( index, type );
+    return new Expression( type, "f" + index );
+  }
+
+  private Expression translateStaticValue( Object value ) {
+    if ( value instanceof Long || value instanceof Integer ) {
+      return new Expression( TYPE_INTEGER, ( (Number) value ).longValue() + "L" );
+    } else if ( value instanceof BigDecimal && isWholeNumber( (BigDecimal) value ) ) {
+      return new Expression( TYPE_INTEGER, ( (BigDecimal) value ).longValueExact() + "L" );
+    } else if ( value instanceof Number ) {
+      double number = ( (Number) value ).doubleValue();
+      if ( Double.isNaN( number ) || Double.isInfinite( number ) ) {
+        return null;
+      }
+      return new Expression( TYPE_NUMBER, Double.toString( number ) );
+    } else if ( value instanceof String ) {
+      return new Expression( TYPE_STRING, toJavaString( (String) value ) );
+    } else if ( value instanceof Boolean ) {
+      return new Expression( TYPE_BOOLEAN, value.toString() );
+    }
+    return null;
+  }
+
+  /**
+   * The operators of a term are in the order of the formula: apply them by precedence, from left to right.
+   */
+  private Expression translateTerm( Term term ) {
+    Expression head = translate( term.getHeadValue() );
+    if ( head == null ) {
+      return null;
+    }
+    InfixOperator[] operators = term.getOperators();
+    LValue[] operands = term.getOperands();
+    if ( operators == null || operators.length == 0 ) {
+      return head;
+    }
+
+    Deque<Expression> values = new ArrayDeque<>();
+    Deque<String> pending = new ArrayDeque<>();
+    values.push( head );
+    for ( int i = 0; i < operators.length; i++ ) {
+      String operator = infixOperators.get( operators[i].getClass() );
+      Expression operand = translate( operands[i] );
+      if ( operator == null || operand == null ) {
+        return null;
+      }
+      while ( !pending.isEmpty() && getPrecedence( pending.peek() ) >= getPrecedence( operator ) ) {
+        if ( !reduce( values, pending ) ) {
+          return null;
+        }
+      }
+      pending.push( operator );
+      values.push( operand );
+    }
+    while ( !pending.isEmpty() ) {
+      if ( !reduce( values, pending ) ) {
+        return null;
+      }
+    }
+    return values.pop();
+  }
+
+  private static boolean isWholeNumber( BigDecimal value ) {
+    try {
+      value.longValueExact();
+      return true;
+    } catch ( ArithmeticException e ) {
+      return false;
+    }
+  }
+
+  private static boolean isNumeric( int type ) {
+    return type == TYPE_NUMBER || type == TYPE_INTEGER;
+  }
+
+  private static int getPrecedence( String operator ) {
+    switch ( operator ) {
+      case "^":
+        return 4;
+      case "*":
+      case "/":
+        return 3;
+      case "+":
+      case "-":
+        return 2;
+      case "&":
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  private boolean reduce( Deque<Expression> values, Deque<String> pending ) {
+    String operator = pending.pop();
+    Expression right = values.pop();
+    Expression left = values.pop();
+    Expression result = translateOperator( operator, left, right );
+    if ( result == null ) {
+      return false;
+    }
+    values.push( result );
+    return true;
+  }
+
+  private Expression translateOperator( String operator, Expression left, Expression right ) {
+    // Only integers are calculated: the interpreter calculates decimal numbers, divisions and powers with its own
+    // precision and rounding
+    boolean integers = left.type == TYPE_INTEGER && right.type == TYPE_INTEGER;
+    switch ( operator ) {
+      case "+":
+        return integers ? new Expression( TYPE_INTEGER, call( "Math.addExact", left, right ) ) : null;
+      case "-":
+        return integers ? new Expression( TYPE_INTEGER, call( "Math.subtractExact", left, right ) ) : null;
+      case "*":
+        return integers ? new Expression( TYPE_INTEGER, call( "Math.multiplyExact", left, right ) ) : null;
+      case "&":
+        return left.type == TYPE_STRING && right.type == TYPE_STRING
+          ? new Expression( TYPE_STRING, "( " + left.code + " + " + right.code + " )" ) : null;
+      case "=":
+        return integers ? new Expression( TYPE_BOOLEAN, "( " + left.code + " == " + right.code + " )" ) : null;
+      case "<>":
+        return integers ? new Expression( TYPE_BOOLEAN, "( " + left.code + " != " + right.code + " )" ) : null;
+      default:
+        // The other comparisons, the interpreter compares decimal numbers with its own precision
+        return integers ? new Expression( TYPE_BOOLEAN, "( " + left.code + " " + operator + " " + right.code + " )" )
+          : null;
+    }
+  }
+
+  private Expression translateFunction( FormulaFunction function ) {
+    LValue[] childValues = function.getChildValues();
+    Expression[] args = new Expression[childValues == null ? 0 : childValues.length];
+    for ( int i = 0; i < args.length; i++ ) {
+      args[i] = translate( childValues[i] );
+      if ( args[i] == null ) {
+        return null;
+      }
+    }
+
+    switch ( function.getFunctionName().toUpperCase( Locale.ROOT ) ) {
+      case "ABS":
+        return hasTypes( args, TYPE_INTEGER )
+          ? new Expression( TYPE_INTEGER, call( "FormulaCompiler.abs", args ) )
+          : numberFunction( "Math.abs", args, TYPE_NUMBER );
+      case "INT":
+        return hasTypes( args, TYPE_INTEGER ) ? args[0] : numberFunction( "Math.floor", args, TYPE_NUMBER );
+      case "SIGN":
+        return hasTypes( args, TYPE_INTEGER )
+          ? new Expression( TYPE_INTEGER, "( (long) " + call( "Long.signum", args ) + " )" )
+          : numberFunction( "Math.signum", args, TYPE_NUMBER );
+      case "MIN":
+        return fold( "Math.min", args );
+      case "MAX":
+        return fold( "Math.max", args );
+      case "IF":
+        if ( args.length != 3 || args[0].type != TYPE_BOOLEAN ) {
+          return null;
+        }
+        int type;
+        if ( args[1].type == args[2].type ) {
+          type = args[1].type;
+        } else if ( isNumeric( args[1].type ) && isNumeric( args[2].type ) ) {
+          // An integer and a number: the integer is converted to a double
+          type = TYPE_NUMBER;
+        } else {
+          return null;
+        }
+        return new Expression( type, "( " + args[0].code + " ? " + args[1].code + " : " + args[2].code + " )" );
+      case "AND":
+        return join( " && ", args, TYPE_BOOLEAN );
+      case "OR":
+        return join( " || ", args, TYPE_BOOLEAN );
+      case "NOT":
+        return hasTypes( args, TYPE_BOOLEAN ) ? new Expression( TYPE_BOOLEAN, "( !" + args[0].code + " )" ) : null;
+      case "TRUE":
+        return args.length == 0 ? new Expression( TYPE_BOOLEAN, "true" ) : null;
+      case "FALSE":
+        return args.length == 0 ? new Expression( TYPE_BOOLEAN, "false" ) : null;
+      case "LEN":
+        return hasTypes( args, TYPE_STRING )
+          ? new Expression( TYPE_INTEGER, "( (long) " + args[0].code + ".length() )" ) : null;
+      case "UPPER":
+        return hasTypes( args, TYPE_STRING )
+          ? new Expression( TYPE_STRING, args[0].code + ".toUpperCase()" ) : null;
+      case "LOWER":
+        return hasTypes( args, TYPE_STRING )
+          ? new Expression( TYPE_STRING, args[0].code + ".toLowerCase()" ) : null;
+      case "LEFT":
+        return substring( "FormulaCompiler.left", args );
+      case "RIGHT":
+        return substring( "FormulaCompiler.right", args );
+      case "MID":
+        return hasTypes( args, TYPE_STRING, TYPE_NUMBER, TYPE_NUMBER )
+          ? new Expression( TYPE_STRING, call( "FormulaCompiler.mid", args ) ) : null;
+      case "CONCATENATE":
+        return join( " + ", args, TYPE_STRING );
+      case "EXACT":
+        return hasTypes( args, TYPE_STRING, TYPE_STRING )
+          ? new Expression( TYPE_BOOLEAN, args[0].code + ".equals( " + args[1].code + " )" ) : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Check the types of the arguments, an integer is accepted where a number is expected: Java converts it to a double.
+   */
+  private static boolean hasTypes( Expression[] args, int... types ) {
+    if ( args.length != types.length ) {
+      return false;
+    }
+    for ( int i = 0; i < args.length; i++ ) {
+      if ( args[i].type != types[i] && !( types[i] == TYPE_NUMBER && args[i].type == TYPE_INTEGER ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Expression numberFunction( String method, Expression[] args, int... types ) {
+    return hasTypes( args, types ) ? new Expression( TYPE_NUMBER, call( method, args ) ) : null;
+  }
+
+  private static Expression substring( String method, Expression[] args ) {
+    if ( hasTypes( args, TYPE_STRING ) ) {
+      return new Expression( TYPE_STRING, method + "( " + args[0].code + ", 1.0 )" );
+    }
+    return hasTypes( args, TYPE_STRING, TYPE_NUMBER ) ? new Expression( TYPE_STRING, call( method, args ) ) : null;
+  }
+
+  /**
+   * Combine any number of numeric arguments with a method of two arguments. The result is an integer if all the
+   * arguments are integers.
+   */
+  private static Expression fold( String method, Expression[] args ) {
+    if ( args.length == 0 ) {
+      return null;
+    }
+    int type = TYPE_INTEGER;
+    String code = null;
+    for ( int i = 0; i < args.length; i++ ) {
+      if ( !isNumeric( args[i].type ) ) {
+        return null;
+      }
+      if ( args[i].type == TYPE_NUMBER ) {
+        type = TYPE_NUMBER;
+      }
+      code = i == 0 ? args[i].code : method + "( " + code + ", " + args[i].code + " )";
+    }
+    return new Expression( type, code );
+  }
+
+  /**
+   * Combine any number of arguments of the same type with an operator.
+   */
+  private static Expression join( String operator, Expression[] args, int type ) {
+    if ( args.length == 0 ) {
+      return null;
+    }
+    StringBuilder code = new StringBuilder( "( " );
+    for ( int i = 0; i < args.length; i++ ) {
+      if ( args[i].type != type ) {
+        return null;
+      }
+      if ( i > 0 ) {
+        code.append( operator );
+      }
+      code.append( args[i].code );
+    }
+    return new Expression( type, code.append( " )" ).toString() );
+  }
+
+  private static String call( String method, Expression... args ) {
+    StringBuilder code = new StringBuilder( method ).append( "( " );
+    for ( int i = 0; i < args.length; i++ ) {
+      if ( i > 0 ) {
+        code.append( ", " );
+      }
+      code.append( args[i].code );
+    }
+    return code.append( " )" ).toString();
+  }
+
+  static String toJavaString( String string ) {
+    StringBuilder code = new StringBuilder( "\"" );
+    for ( int i = 0; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c == '"' || c == '\\' ) {
+        code.append( '\\' ).append( c );
+      } else if ( c < 0x20 ) {
+        code.append( String.format( "\\%03o", (int) c ) );
+      } else {
+        code.append( c );
+      }
+    }
+    return code.append( '"' ).toString();
+  }
+
+  // The functions called by the generated code. An exception leaves the row to the interpreter.
+
+  public static double checkNumber( double value ) {
+    if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+      throw new ArithmeticException( "The result is not a number" );
+    }
+    return value;
+  }
+
+  public static long abs( long value ) {
+    if ( value == Long.MIN_VALUE ) {
+      throw new ArithmeticException( "long overflow" );
+    }
+    return Math.abs( value );
+  }
+
+  public static String left( String string, double length ) {
+    int end = toLength( length );
+    return end >= string.length() ? string : string.substring( 0, end );
+  }
+
+  public static String right( String string, double length ) {
+    int count = toLength( length );
+    return count >= string.length() ? string : string.substring( string.length() - count );
+  }
+
+  public static String mid( String string, double start, double length ) {
+    if ( start < 1.0 ) {
+      throw new IllegalArgumentException( "The start of MID must be 1 or more" );
+    }
+    int count = toLength( length );
+    int begin = (int) Math.min( start - 1.0, string.length() );
+    return string.substring( begin, (int) Math.min( (long) begin + count, string.length() ) );
+  }
+
+  private static int toLength( double length ) {
+    if ( length < 0.0 ) {
+      throw new IllegalArgumentException( "A length can't be negative" );
+    }
+    return (int) Math.min( length, Integer.MAX_VALUE );
+  }
+}
@@ -42,6 +42,7 @@ public class FormulaData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface outputRowMeta;
   public int[] returnType;
   public int[] replaceIndex;
+  public CompiledFormula[] compiledFormulas;
 
   public FormulaData() {
     super();
@@ -56,6 +56,9 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
   /** The formula calculations to be performed */
   private FormulaMetaFunction[] formula;
 
+  /** Compile the formulas to Java byte code where possible instead of interpreting them */
+  private boolean compiled;
+
   public FormulaMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -68,6 +71,21 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
     this.formula = calcTypes;
   }
 
+  /**
+   * @return true if the formulas are compiled to Java byte code where possible
+   */
+  public boolean isCompiled() {
+    return compiled;
+  }
+
+  /**
+   * @param compiled
+   *          true to compile the formulas to Java byte code where possible
+   */
+  public void setCompiled( boolean compiled ) {
+    this.compiled = compiled;
+  }
+
   public void allocate( int nrCalcs ) {
     formula = new FormulaMetaFunction[nrCalcs];
   }
@@ -79,6 +97,7 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
       Node calcnode = XMLHandler.getSubNodeByNr( stepnode, FormulaMetaFunction.XML_TAG, i );
       formula[i] = new FormulaMetaFunction( calcnode );
     }
+    compiled = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compiled" ) );
   }
 
   public String getXML() {
@@ -89,6 +108,7 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
         retval.append( "       " + formula[i].getXML() + Const.CR );
       }
     }
+    retval.append( "    " ).append( XMLHandler.addTagValue( "compiled", compiled ) );
 
     return retval.toString();
   }
@@ -123,6 +143,7 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
 
   public void setDefault() {
     formula = new FormulaMetaFunction[0];
+    compiled = false;
   }
 
   public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases ) throws KettleException {
@@ -131,12 +152,14 @@ public class FormulaMeta extends BaseStepMeta implements StepMetaInterface {
     for ( int i = 0; i < nrCalcs; i++ ) {
       formula[i] = new FormulaMetaFunction( rep, id_step, i );
     }
+    compiled = rep.getStepAttributeBoolean( id_step, "compiled" );
   }
 
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     for ( int i = 0; i < formula.length; i++ ) {
       formula[i].saveRep( rep, metaStore, id_transformation, id_step, i );
     }
+    rep.saveStepAttribute( id_transformation, id_step, "compiled", compiled );
   }
 
   @Override
@@ -13,13 +13,10 @@
 
 package org.pentaho.di.trans.steps.groupby;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -29,10 +26,12 @@ import java.util.TreeSet;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.TempFileCompression;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -272,6 +271,7 @@ public class GroupBy extends BaseStep implements StepInterface {
         calcAggregate( data.previous );
         addToBuffer( data.previous );
       }
+      closeOutput();
       data.groupResult = getAggregateResult();
 
       Object[] row = getRowFromBuffer();
@@ -779,7 +779,7 @@ public class GroupBy extends BaseStep implements StepInterface {
   // Method is defined as package-protected in order to be accessible by unit tests
   void addToBuffer( Object[] row ) throws KettleFileException {
     data.bufferList.add( row );
-    if ( data.bufferList.size() > 5000 && data.rowsOnFile == 0 ) {
+    if ( data.bufferList.size() > 5000 && data.rowsOnFile == 0 && data.dosToTempFile == null ) {
       String pathToTmp = environmentSubstitute( getMeta().getDirectory() );
       try {
         File ioFile = new File( pathToTmp );
@@ -787,17 +787,26 @@ public class GroupBy extends BaseStep implements StepInterface {
           // try to resolve as Apache VFS file
           pathToTmp = retrieveVfsPath( pathToTmp );
         }
+        if ( data.tempFile != null ) {
+          // The rows of the previous group were all read back
+          data.tempFile.delete();
+        }
         data.tempFile = File.createTempFile( getMeta().getPrefix(), ".tmp", new File( pathToTmp ) );
         data.fosToTempFile = new FileOutputStream( data.tempFile );
-        data.dosToTempFile = new DataOutputStream( data.fosToTempFile );
+        data.dosToTempFile = TempFileCompression.getOutputStream( data.fosToTempFile, data.compression );
         data.firstRead = true;
+        if ( data.codec == null ) {
+          data.codec = new CompactRowCodec( data.inputRowMeta );
+        }
       } catch ( IOException e ) {
         throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.UnableToCreateTemporaryFile" ),
             e );
       }
+    }
+    if ( data.bufferList.size() > 5000 && data.dosToTempFile != null ) {
       // OK, save the oldest rows to disk!
       Object[] oldest = data.bufferList.get( 0 );
-      data.inputRowMeta.writeData( data.dosToTempFile, oldest );
+      data.codec.writeData( data.dosToTempFile, oldest );
       data.bufferList.remove( 0 );
       data.rowsOnFile++;
     }
@@ -816,7 +825,7 @@ public class GroupBy extends BaseStep implements StepInterface {
         // Open the inputstream first...
         try {
           data.fisToTmpFile = new FileInputStream( data.tempFile );
-          data.disToTmpFile = new DataInputStream( data.fisToTmpFile );
+          data.disToTmpFile = TempFileCompression.getInputStream( data.fisToTmpFile, data.compression );
           data.firstRead = false;
         } catch ( IOException e ) {
           throw new KettleFileException( BaseMessages.getString(
@@ -825,12 +834,7 @@ public class GroupBy extends BaseStep implements StepInterface {
       }
 
       // Read one row from the file!
-      Object[] row;
-      try {
-        row = data.inputRowMeta.readData( data.disToTmpFile );
-      } catch ( SocketTimeoutException e ) {
-        throw new KettleFileException( e ); // Shouldn't happen on files
-      }
+      Object[] row = data.codec.readData( data.disToTmpFile );
       data.rowsOnFile--;
 
       return row;
@@ -888,6 +892,13 @@ public class GroupBy extends BaseStep implements StepInterface {
 
       data.rowsOnFile = 0;
 
+      try {
+        data.compression = TempFileCompression.getCompressionProvider( this, null );
+      } catch ( KettleException e ) {
+        logError( e.getMessage(), e );
+        return false;
+      }
+
       return true;
     }
     return false;
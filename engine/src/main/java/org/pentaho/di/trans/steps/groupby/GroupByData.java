@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -68,6 +70,10 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
   public FileInputStream fisToTmpFile;
   public DataInputStream disToTmpFile;
 
+  /** The compression of the temp file, null if it isn't compressed */
+  public CompressionProvider compression;
+  public CompactRowCodec codec;
+
   public Object[] groupResult;
 
   public boolean hasOutput;
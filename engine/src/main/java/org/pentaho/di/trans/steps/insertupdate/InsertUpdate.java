@@ -13,11 +13,15 @@
 
 package org.pentaho.di.trans.steps.insertupdate;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.lang.ArrayUtils;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
@@ -28,6 +32,7 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -52,9 +57,8 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
   }
 
-  protected synchronized void lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
-    // OK, now do the lookup.
-    // We need the lookupvalues for that.
+  private Object[] getLookupRow( Object[] row ) {
+    // We need the lookupvalues for the lookup
     Object[] lookupRow = new Object[ data.lookupParameterRowMeta.size() ];
     int lookupIndex = 0;
 
@@ -68,6 +72,12 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
+
+  protected synchronized void lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    // OK, now do the lookup.
+    Object[] lookupRow = getLookupRow( row );
 
     data.db.setValues( data.lookupParameterRowMeta, lookupRow, data.prepStatementLookup );
 
@@ -78,6 +88,19 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
     Object[] add = data.db.getLookup( data.prepStatementLookup );
     incrementLinesInput();
 
+    insertOrUpdate( rowMeta, row, lookupRow, add, add == null ? null : data.db.getReturnRowMeta() );
+  }
+
+  /**
+   * Insert the row if it wasn't found, otherwise update the changed values.
+   *
+   * @param lookupRow    the values of the lookup parameters
+   * @param add          the values found in the table or null if the row wasn't found
+   * @param addRowMeta   the metadata of the values found in the table
+   * @return true if the row was inserted or updated
+   */
+  private boolean insertOrUpdate( RowMetaInterface rowMeta, Object[] row, Object[] lookupRow, Object[] add,
+                                  RowMetaInterface addRowMeta ) throws KettleException {
     if ( add == null ) {
       /*
        * nothing was found:
@@ -100,9 +123,15 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
       data.db.setValuesInsert( data.insertRowMeta, insertRow );
 
       // Insert the row
-      data.db.insertRow();
+      if ( data.batchLookup != null ) {
+        addBatch( data.db.getPrepStatementInsert() );
+        data.batchInserts++;
+      } else {
+        data.db.insertRow();
+      }
 
       incrementLinesOutput();
+      return true;
     } else {
       if ( !meta.isUpdateBypassed() ) {
         if ( log.isRowLevel() ) {
@@ -119,7 +148,7 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         for ( int i = 0; i < data.valuenrs.length; i++ ) {
           if ( meta.getUpdateFields()[ i ].getUpdate().booleanValue() ) {
             ValueMetaInterface valueMeta = rowMeta.getValueMeta( data.valuenrs[ i ] );
-            ValueMetaInterface retMeta = data.db.getReturnRowMeta().getValueMeta( i );
+            ValueMetaInterface retMeta = addRowMeta.getValueMeta( i );
 
             Object rowvalue = row[ data.valuenrs[ i ] ];
             Object retvalue = add[ i ];
@@ -149,8 +178,14 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
               + data.lookupParameterRowMeta.getString( lookupRow ) );
           }
           data.db.setValues( data.updateParameterRowMeta, updateRow, data.prepStatementUpdate );
-          data.db.insertRow( data.prepStatementUpdate );
+          if ( data.batchLookup != null ) {
+            addBatch( data.prepStatementUpdate );
+            data.batchUpdates++;
+          } else {
+            data.db.insertRow( data.prepStatementUpdate );
+          }
           incrementLinesUpdated();
+          return true;
         } else {
           incrementLinesSkipped();
         }
@@ -161,6 +196,123 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         incrementLinesSkipped();
       }
     }
+    return false;
+  }
+
+  /**
+   * Look up all the buffered rows with a single query, then insert or update them in batches and pass them on.
+   */
+  void processBatch() throws KettleException {
+    RowMetaInterface rowMeta = getInputRowMeta();
+    int nrOfRows = data.batchBuffer.size();
+
+    List<Object[]> lookupRows = new ArrayList<>( nrOfRows );
+    List<RowMetaAndData> keys = new ArrayList<>( nrOfRows );
+    for ( Object[] row : data.batchBuffer ) {
+      Object[] lookupRow = getLookupRow( row );
+      lookupRows.add( lookupRow );
+      keys.add( data.batchLookup.createKey( lookupRow ) );
+    }
+    Map<RowMetaAndData, RowMetaAndData> found = data.batchLookup.lookup( keys );
+
+    for ( int i = 0; i < nrOfRows; i++ ) {
+      Object[] row = data.batchBuffer.get( i );
+      RowMetaAndData key = keys.get( i );
+      RowMetaAndData add = key == null ? null : found.get( key );
+      incrementLinesInput();
+
+      boolean written = add == null
+        ? insertOrUpdate( rowMeta, row, lookupRows.get( i ), null, null )
+        : insertOrUpdate( rowMeta, row, lookupRows.get( i ), add.getData(), add.getRowMeta() );
+
+      if ( written && key != null ) {
+        // The next rows of the batch with the same key have to find the values as they are now
+        Object[] values = new Object[ data.valuenrs.length ];
+        for ( int v = 0; v < data.valuenrs.length; v++ ) {
+          values[ v ] = row[ data.valuenrs[ v ] ];
+        }
+        found.put( key, new RowMetaAndData( data.lookupReturnRowMeta, values ) );
+      }
+    }
+
+    executeBatch();
+
+    for ( Object[] row : data.batchBuffer ) {
+      putRow( data.outputRowMeta, row );
+    }
+    data.batchBuffer.clear();
+  }
+
+  private void addBatch( PreparedStatement ps ) throws KettleDatabaseException {
+    try {
+      if ( data.useJdbcBatch ) {
+        ps.addBatch();
+      } else {
+        ps.executeUpdate();
+      }
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error inserting/updating row", ex );
+    }
+  }
+
+  private void executeBatch() throws KettleDatabaseException {
+    try {
+      // Inserts go first: a row inserted by this batch can be updated by a later row of the same batch
+      if ( data.useJdbcBatch && data.batchInserts > 0 ) {
+        data.db.getPrepStatementInsert().executeBatch();
+        data.db.getPrepStatementInsert().clearBatch();
+      }
+      if ( data.useJdbcBatch && data.batchUpdates > 0 ) {
+        data.prepStatementUpdate.executeBatch();
+        data.prepStatementUpdate.clearBatch();
+      }
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error inserting/updating a batch of rows", ex );
+    }
+
+    data.rowsSinceCommit += data.batchInserts + data.batchUpdates;
+    data.batchInserts = 0;
+    data.batchUpdates = 0;
+    if ( !data.db.isAutoCommit() && data.rowsSinceCommit >= data.commitSize ) {
+      data.db.commit();
+      data.rowsSinceCommit = 0;
+    }
+  }
+
+  private void initBatchLookup() throws KettleDatabaseException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.LookupBatchDisabledErrorHandling" ) );
+      return;
+    }
+    String[] keyColumns = new String[ meta.getKeyFields().length ];
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      if ( !"=".equals( meta.getKeyFields()[ i ].getKeyCondition() ) ) {
+        logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.LookupBatchDisabledCondition",
+          meta.getKeyFields()[ i ].getKeyCondition() ) );
+        return;
+      }
+      keyColumns[ i ] = meta.getKeyFields()[ i ].getKeyLookup();
+    }
+    for ( ValueMetaInterface keyValueMeta : data.lookupParameterRowMeta.getValueMetaList() ) {
+      if ( !BatchedKeyLookup.isMatchedExactly( keyValueMeta ) ) {
+        logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.LookupBatchDisabledStringKey",
+          keyValueMeta.getName() ) );
+        return;
+      }
+    }
+    String[] returnColumns = new String[ meta.getUpdateFields().length ];
+    for ( int i = 0; i < returnColumns.length; i++ ) {
+      returnColumns[ i ] = meta.getUpdateFields()[ i ].getUpdateLookup();
+    }
+
+    data.batchLookup = new BatchedKeyLookup( data.db, data.schemaTable, keyColumns, data.lookupParameterRowMeta,
+      returnColumns, meta.getLookupBatchSize() );
+    data.batchBuffer = new ArrayList<>( meta.getLookupBatchSize() );
+    data.useJdbcBatch = !data.db.isAutoCommit() && data.db.getUseBatchInsert( true );
+    data.commitSize = meta.getCommitSize( this );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting batch lookup preparedStatement to [" + data.batchLookup.getSQL() + "]" );
+    }
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
@@ -173,6 +325,15 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) {
       // no more input to be expected...
+      if ( data.batchLookup != null && !data.batchBuffer.isEmpty() ) {
+        try {
+          processBatch();
+        } catch ( KettleException e ) {
+          logError( BaseMessages.getString( PKG, "InsertUpdate.Log.ErrorInStep" ), e );
+          setErrors( 1 );
+          stopAll();
+        }
+      }
 
       setOutputDone();
       return false;
@@ -286,12 +447,23 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         }
         prepareUpdate( getInputRowMeta() );
       }
+
+      if ( meta.getLookupBatchSize() > 0 ) {
+        initBatchLookup();
+      }
     }
 
     try {
-      lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
-      putRow( data.outputRowMeta, r ); // Nothing changed to the input, return the same row, pass a "cloned" metadata
-      // row.
+      if ( data.batchLookup != null ) {
+        data.batchBuffer.add( r );
+        if ( data.batchBuffer.size() >= meta.getLookupBatchSize() ) {
+          processBatch();
+        }
+      } else {
+        lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
+        putRow( data.outputRowMeta, r ); // Nothing changed to the input, return the same row, pass a "cloned"
+        // metadata row.
+      }
 
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
@@ -495,6 +667,9 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
             data.db.rollback();
           }
         }
+        if ( data.batchLookup != null ) {
+          data.batchLookup.close();
+        }
         data.db.closeUpdate();
         data.db.closeInsert();
       } catch ( KettleDatabaseException e ) {
@@ -15,9 +15,11 @@ package org.pentaho.di.trans.steps.insertupdate;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 import java.sql.PreparedStatement;
+import java.util.List;
 
 /**
  * Stores data for the Insert/Update step.
@@ -43,6 +45,15 @@ public class InsertUpdateData extends BaseDatabaseStepData implements StepDataIn
   public RowMetaInterface lookupReturnRowMeta;
   public RowMetaInterface insertRowMeta;
 
+  /** Looks up the buffered rows with a single query, null if every row is looked up on its own */
+  public BatchedKeyLookup batchLookup;
+  public List<Object[]> batchBuffer;
+  public boolean useJdbcBatch;
+  public int batchInserts;
+  public int batchUpdates;
+  public int commitSize;
+  public int rowsSinceCommit;
+
   /**
    * Default constructor.
    */
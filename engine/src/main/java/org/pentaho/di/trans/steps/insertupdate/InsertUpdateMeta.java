@@ -100,6 +100,12 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
   @Injection( name = "DO_NOT" )
   private boolean updateBypassed;
 
+  /**
+   * The number of rows to look up with a single query and to write as a batch, 0 looks up every row on its own
+   */
+  @Injection( name = "LOOKUP_BATCH_SIZE" )
+  private int lookupBatchSize;
+
   @Injection( name = "CONNECTIONNAME", required = true )
   public void setConnection( String connectionName ) {
     databaseMeta = DatabaseMeta.findDatabase( databases, connectionName );
@@ -239,6 +245,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tableName = XMLHandler.getTagValue( stepnode, "lookup", "table" );
       updateBypassed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "update_bypassed" ) );
+      lookupBatchSize = Const.toInt( XMLHandler.getTagValue( stepnode, "lookup_batch_size" ), 0 );
 
       Node lookup = XMLHandler.getSubNode( stepnode, "lookup" );
       nrkeys = XMLHandler.countNodes( lookup, "key" );
@@ -287,6 +294,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
   public void setDefault() {
     databaseMeta = null;
     commitSize = "100";
+    lookupBatchSize = 0;
     schemaName = "";
     tableName = BaseMessages.getString( PKG, "InsertUpdateMeta.DefaultTableName" );
 
@@ -318,6 +326,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
         XMLHandler.addTagValue( "connection", databaseMeta == null ? "" : databaseMeta.getName() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "commit", commitSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "update_bypassed", updateBypassed ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "table", tableName ) );
@@ -366,6 +375,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       schemaName = rep.getStepAttributeString( id_step, "schema" );
       tableName = rep.getStepAttributeString( id_step, "table" );
       updateBypassed = rep.getStepAttributeBoolean( id_step, "update_bypassed" );
+      lookupBatchSize = (int) rep.getStepAttributeInteger( id_step, "lookup_batch_size" );
 
       int nrkeys = rep.countNrStepAttributes( id_step, "key_field" );
       int nrvalues = rep.countNrStepAttributes( id_step, "value_name" );
@@ -399,6 +409,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
       rep.saveStepAttribute( id_transformation, id_step, "update_bypassed", updateBypassed );
+      rep.saveStepAttribute( id_transformation, id_step, "lookup_batch_size", lookupBatchSize );
 
       for ( int i = 0; i < keyFields.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "key_name", keyFields[ i ].getKeyStream() );
@@ -794,6 +805,22 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
     this.updateBypassed = updateBypassed;
   }
 
+  /**
+   * @return the number of rows to look up with a single query and to write as a batch, 0 to look up every row on
+   * its own
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize the number of rows to look up with a single query and to write as a batch, 0 to look up
+   *                        every row on its own
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   public RowMetaInterface getRequiredFields( VariableSpace space ) throws KettleException {
     String realSchemaName = space.environmentSubstitute( schemaName );
     String realTableName = space.environmentSubstitute( tableName );
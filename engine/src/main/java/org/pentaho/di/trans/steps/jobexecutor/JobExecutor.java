@@ -17,6 +17,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -35,6 +36,7 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.DelegationListener;
 import org.pentaho.di.job.Job;
@@ -49,6 +51,7 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.ParallelExecutions;
 
 /**
  * Execute a job for every input row.
@@ -91,6 +94,7 @@ public class JobExecutor extends BaseStep implements StepInterface {
         if ( !data.groupBuffer.isEmpty() ) {
           executeJob();
         }
+        collectParallelExecutions( false );
         setOutputDone();
         return false;
       }
@@ -187,13 +191,23 @@ public class JobExecutor extends BaseStep implements StepInterface {
       discardLogLines( data );
     }
 
-    data.executorJob = createJob( meta.getRepository(), data.executorJobMeta, this );
+    boolean parallel = data.executions != null;
+    JobMeta executorJobMeta = data.executorJobMeta;
+    if ( parallel ) {
+      // Wait for a free slot, the finished execution gives its copy of the job back
+      while ( data.executions.isFull() ) {
+        collectParallelExecution( data.executions.take() );
+      }
+      executorJobMeta = data.executorJobMetaPool.remove();
+    }
+
+    data.executorJob = createJob( meta.getRepository(), executorJobMeta, this );
 
-    data.executorJob.shareVariablesWith( data.executorJobMeta );
+    data.executorJob.shareVariablesWith( executorJobMeta );
     data.executorJob.setParentTrans( getTrans() );
     data.executorJob.setLogLevel( getLogLevel() );
     data.executorJob.setInternalKettleVariables( this );
-    data.executorJob.copyParametersFrom( data.executorJobMeta );
+    data.executorJob.copyParametersFrom( executorJobMeta );
     data.executorJob.setArguments( getTrans().getArguments() );
 
     // data.executorJob.setInteractive(); TODO: pass interactivity through the transformation too for drill-down.
@@ -204,9 +218,9 @@ public class JobExecutor extends BaseStep implements StepInterface {
      * data.executorJob.getJobEntryListeners().addAll(parentJob.getJobEntryListeners()); }
      */
 
-    // Pass the accumulated rows
+    // Pass the accumulated rows, the group buffer is cleared while a parallel execution still reads them
     //
-    data.executorJob.setSourceRows( data.groupBuffer );
+    data.executorJob.setSourceRows( parallel ? new ArrayList<>( data.groupBuffer ) : data.groupBuffer );
 
     // Pass parameter values
     //
@@ -216,10 +230,23 @@ public class JobExecutor extends BaseStep implements StepInterface {
     //
     getTrans().getActiveSubjobs().put( getStepname(), data.executorJob );
 
-    ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.JobStart.id, data.executorJob );
+    if ( parallel ) {
+      final Job job = data.executorJob;
+      data.executions.submit( job, () -> runJob( job ) );
+      collectParallelExecutions( true );
+    } else {
+      Result result = runJob( data.executorJob );
+      collectJobResults( data.executorJob, result, data.groupTimeStart );
+    }
+
+    data.groupBuffer.clear();
+  }
+
+  private Result runJob( Job job ) throws KettleException {
+    ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.JobStart.id, job );
 
-    data.executorJob.setInitialLogBufferStartLine();
-    data.executorJob.beginProcessing();
+    job.setInitialLogBufferStartLine();
+    job.beginProcessing();
 
     Result result = new Result();
 
@@ -229,30 +256,59 @@ public class JobExecutor extends BaseStep implements StepInterface {
       // TODO: copy some settings in the job execution configuration, not strictly needed
       // but the execution configuration information is useful in case of a job re-start on Carte
       //
-      delegationListener.jobDelegationStarted( data.executorJob, new JobExecutionConfiguration() );
+      delegationListener.jobDelegationStarted( job, new JobExecutionConfiguration() );
     }
 
     // Now go execute this job
     //
     try {
-      result = data.executorJob.execute( 0, result );
+      result = job.execute( 0, result );
     } catch ( KettleException e ) {
       log.logError( "An error occurred executing the job: ", e );
       result.setResult( false );
       result.setNrErrors( 1 );
     } finally {
       try {
-        ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.JobFinish.id, data.executorJob );
-        getExecutorJob().getJobMeta().disposeEmbeddedMetastoreProvider();
-        log.logDebug( BaseMessages.getString( PKG, "JobExecutor.Log.DisposeEmbeddedMetastore" ) );
-        data.executorJob.fireJobFinishListeners();
+        ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.JobFinish.id, job );
+        // The copies of the job executed in parallel share the embedded metastore, it's disposed with the step
+        if ( data.executions == null ) {
+          getExecutorJob().getJobMeta().disposeEmbeddedMetastoreProvider();
+          log.logDebug( BaseMessages.getString( PKG, "JobExecutor.Log.DisposeEmbeddedMetastore" ) );
+        }
+        job.fireJobFinishListeners();
       } catch ( KettleException e ) {
         result.setNrErrors( 1 );
         result.setResult( false );
         log.logError( BaseMessages.getString( PKG, "JobExecutor.Log.ErrorExecJob", e.getMessage() ), e );
       }
     }
+    return result;
+  }
 
+  /**
+   * Send the results of the parallel executions on as they finish.
+   *
+   * @param onlyFinished
+   *          true to collect only the executions that already finished, false to wait for all of them
+   */
+  private void collectParallelExecutions( boolean onlyFinished ) throws KettleException {
+    if ( data.executions == null ) {
+      return;
+    }
+    ParallelExecutions.Execution<Job> execution = onlyFinished ? data.executions.poll() : data.executions.take();
+    while ( execution != null ) {
+      collectParallelExecution( execution );
+      execution = onlyFinished ? data.executions.poll() : data.executions.take();
+    }
+  }
+
+  private void collectParallelExecution( ParallelExecutions.Execution<Job> execution ) throws KettleException {
+    Job job = execution.getExecutor();
+    data.executorJobMetaPool.add( job.getJobMeta() );
+    collectJobResults( job, data.executions.getResult( execution ), execution.getStartTime() );
+  }
+
+  private void collectJobResults( Job job, Result result, long startTime ) throws KettleException {
     // First the natural output...
     //
     if ( meta.getExecutionResultTargetStepMeta() != null ) {
@@ -260,7 +316,7 @@ public class JobExecutor extends BaseStep implements StepInterface {
       int idx = 0;
 
       if ( !Utils.isEmpty( meta.getExecutionTimeField() ) ) {
-        outputRow[idx++] = Long.valueOf( System.currentTimeMillis() - data.groupTimeStart );
+        outputRow[idx++] = Long.valueOf( System.currentTimeMillis() - startTime );
       }
       if ( !Utils.isEmpty( meta.getExecutionResultField() ) ) {
         outputRow[idx++] = Boolean.valueOf( result.getResult() );
@@ -296,12 +352,12 @@ public class JobExecutor extends BaseStep implements StepInterface {
         outputRow[idx++] = Long.valueOf( result.getExitStatus() );
       }
       if ( !Utils.isEmpty( meta.getExecutionLogTextField() ) ) {
-        String channelId = data.executorJob.getLogChannelId();
+        String channelId = job.getLogChannelId();
         String logText = KettleLogStore.getAppender().getBuffer( channelId, false ).toString();
         outputRow[idx++] = logText;
       }
       if ( !Utils.isEmpty( meta.getExecutionLogChannelIdField() ) ) {
-        outputRow[idx++] = data.executorJob.getLogChannelId();
+        outputRow[idx++] = job.getLogChannelId();
       }
 
       putRowTo( data.executionResultsOutputRowMeta, outputRow, data.executionResultRowSet );
@@ -339,8 +395,6 @@ public class JobExecutor extends BaseStep implements StepInterface {
         putRowTo( data.resultFilesOutputRowMeta, targetRow, data.resultFilesRowSet );
       }
     }
-
-    data.groupBuffer.clear();
   }
 
   @VisibleForTesting
@@ -348,6 +402,20 @@ public class JobExecutor extends BaseStep implements StepInterface {
     return new Job( repository, jobMeta, parentLogging );
   }
 
+  @VisibleForTesting
+  JobMeta cloneExecutorJobMeta() {
+    JobMeta clone = (JobMeta) data.executorJobMeta.realClone( false );
+    clone.shareVariablesWith( new Variables() );
+    clone.copyVariablesFrom( data.executorJobMeta );
+    clone.copyParametersFrom( data.executorJobMeta );
+    return clone;
+  }
+
+  @VisibleForTesting
+  JobMeta loadExecutorJobMeta() throws KettleException {
+    return JobExecutorMeta.loadJobMeta( getTransMeta().getBowl(), meta, meta.getRepository(), this );
+  }
+
   @VisibleForTesting
   void discardLogLines( JobExecutorData data ) {
     // Keep the strain on the logging back-end conservative.
@@ -392,7 +460,7 @@ public class JobExecutor extends BaseStep implements StepInterface {
         //
         meta.setRepository( getTransMeta().getRepository() );
 
-        data.executorJobMeta = JobExecutorMeta.loadJobMeta( getTransMeta().getBowl(), meta, meta.getRepository(), this );
+        data.executorJobMeta = loadExecutorJobMeta();
 
         // Do we have a job at all?
         //
@@ -421,6 +489,19 @@ public class JobExecutor extends BaseStep implements StepInterface {
             data.groupField = environmentSubstitute( meta.getGroupField() );
           }
 
+          // How many groups are executed at the same time?
+          //
+          int parallelExecutions = Const.toInt( environmentSubstitute( meta.getParallelExecutions() ), 1 );
+          if ( parallelExecutions > 1 ) {
+            // Every execution that runs at the same time gets its own copy of the job
+            data.executorJobMetaPool = new ArrayBlockingQueue<>( parallelExecutions );
+            for ( int i = 0; i < parallelExecutions; i++ ) {
+              data.executorJobMetaPool.add( cloneExecutorJobMeta() );
+            }
+            data.executions =
+              new ParallelExecutions<>( getStepname() + "." + getCopy(), parallelExecutions, meta.isKeepOutputOrder() );
+          }
+
           // That's all for now...
           return true;
         } else {
@@ -437,21 +518,23 @@ public class JobExecutor extends BaseStep implements StepInterface {
 
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     data.groupBuffer = null;
+    if ( data.executions != null ) {
+      data.executions.shutdown();
+      data.executions = null;
+      data.executorJobMeta.disposeEmbeddedMetastoreProvider();
+    }
+    data.executorJobMetaPool = null;
 
     super.dispose( smi, sdi );
   }
 
   public void stopRunning( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) throws KettleException {
-    if ( data.executorJob != null ) {
-      data.executorJob.stopAll();
-    }
+    stopExecutorJobs();
   }
 
   public void stopAll() {
     // Stop the job execution.
-    if ( data.executorJob != null ) {
-      data.executorJob.stopAll();
-    }
+    stopExecutorJobs();
 
     // Also stop this step
     super.stopAll();
@@ -478,6 +561,18 @@ public class JobExecutor extends BaseStep implements StepInterface {
    * data.executorJob.getResult()!=null) return data.executorJob.getResult().getNrLinesWritten(); else return 0; }
    */
 
+  private void stopExecutorJobs() {
+    if ( data.executorJob != null ) {
+      data.executorJob.stopAll();
+    }
+    ParallelExecutions<Job> executions = data.executions;
+    if ( executions != null ) {
+      for ( Job job : executions.getRunning() ) {
+        job.stopAll();
+      }
+    }
+  }
+
   public Job getExecutorJob() {
     return data.executorJob;
   }
@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.jobexecutor;
 
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
@@ -23,6 +24,7 @@ import org.pentaho.di.job.Job;
 import org.pentaho.di.job.JobMeta;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.ParallelExecutions;
 
 /**
  * @author Matt
@@ -49,6 +51,11 @@ public class JobExecutorData extends BaseStepData implements StepDataInterface {
   public RowSet resultFilesRowSet;
   public RowSet executionResultRowSet;
 
+  /** The groups executed at the same time, null if the groups are executed one after the other */
+  public ParallelExecutions<Job> executions;
+  /** A copy of the job for every execution that can run at the same time */
+  public BlockingQueue<JobMeta> executorJobMetaPool;
+
   public JobExecutorData() {
     super();
   }
@@ -105,6 +105,16 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
    */
   private String groupTime;
 
+  /**
+   * The number of groups that are executed at the same time, defaults to "1"
+   */
+  private String parallelExecutions;
+
+  /**
+   * Send the results of groups executed at the same time on in the order of the groups (default) or as they finish
+   */
+  private boolean keepOutputOrder;
+
   private JobExecutorParameters parameters;
 
   private String executionResultTargetStep;
@@ -218,6 +228,8 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_size", groupSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_field", groupField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_time", groupTime ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "parallel_executions", parallelExecutions ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "keep_output_order", keepOutputOrder ) );
 
     // Add the mapping parameters too
     //
@@ -290,6 +302,8 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
       groupSize = XMLHandler.getTagValue( stepnode, "group_size" );
       groupField = XMLHandler.getTagValue( stepnode, "group_field" );
       groupTime = XMLHandler.getTagValue( stepnode, "group_time" );
+      parallelExecutions = XMLHandler.getTagValue( stepnode, "parallel_executions" );
+      keepOutputOrder = !"N".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "keep_output_order" ) );
 
       // Load the mapping parameters too..
       //
@@ -353,6 +367,8 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
     groupSize = rep.getStepAttributeString( id_step, "group_size" );
     groupField = rep.getStepAttributeString( id_step, "group_field" );
     groupTime = rep.getStepAttributeString( id_step, "group_time" );
+    parallelExecutions = rep.getStepAttributeString( id_step, "parallel_executions" );
+    keepOutputOrder = rep.getStepAttributeBoolean( id_step, 0, "keep_output_order", true );
 
     parameters = new JobExecutorParameters( rep, id_step );
 
@@ -404,6 +420,8 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
     rep.saveStepAttribute( id_transformation, id_step, "group_size", groupSize );
     rep.saveStepAttribute( id_transformation, id_step, "group_field", groupField );
     rep.saveStepAttribute( id_transformation, id_step, "group_time", groupTime );
+    rep.saveStepAttribute( id_transformation, id_step, "parallel_executions", parallelExecutions );
+    rep.saveStepAttribute( id_transformation, id_step, "keep_output_order", keepOutputOrder );
 
     // save the mapping parameters too
     //
@@ -465,6 +483,8 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
     groupSize = "1";
     groupField = "";
     groupTime = "";
+    parallelExecutions = "1";
+    keepOutputOrder = true;
 
     executionTimeField = "ExecutionTime";
     executionResultField = "ExecutionResult";
@@ -1347,6 +1367,37 @@ public class JobExecutorMeta extends BaseStepMeta implements StepMetaInterface,
     this.groupTime = groupTime;
   }
 
+  /**
+   * @return the number of groups that are executed at the same time
+   */
+  public String getParallelExecutions() {
+    return parallelExecutions;
+  }
+
+  /**
+   * @param parallelExecutions
+   *          the number of groups that are executed at the same time
+   */
+  public void setParallelExecutions( String parallelExecutions ) {
+    this.parallelExecutions = parallelExecutions;
+  }
+
+  /**
+   * @return true if the results of groups executed at the same time are sent on in the order of the groups
+   */
+  public boolean isKeepOutputOrder() {
+    return keepOutputOrder;
+  }
+
+  /**
+   * @param keepOutputOrder
+   *          true to send the results of groups executed at the same time on in the order of the groups, false to send
+   *          them on as they finish
+   */
+  public void setKeepOutputOrder( boolean keepOutputOrder ) {
+    this.keepOutputOrder = keepOutputOrder;
+  }
+
   @Override
   public boolean excludeFromCopyDistributeVerification() {
     return true;
@@ -13,6 +13,9 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,10 +24,13 @@ import java.util.TreeSet;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
+import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.TempFileCompression;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -34,6 +40,8 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.IKettleVFS;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -43,6 +51,7 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.SpillPartition;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -162,6 +171,10 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       data.groupAggMeta = new RowMeta();
       data.groupAggMeta.addRowMeta( data.groupMeta );
       data.groupAggMeta.addRowMeta( data.aggMeta );
+
+      if ( r != null ) {
+        initPrimitiveAggregation();
+      }
     }
 
     // Here is where we start to do the real work...
@@ -180,7 +193,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       data.newBatch = false;
     }
 
-    addToAggregate( r );
+    aggregateRow( r );
 
     if ( checkFeedback( getLinesRead() ) ) {
       if ( log.isBasic() ) {
@@ -191,28 +204,222 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     return true;
   }
 
-  private void handleLastOfGroup() throws KettleException {
-    // Dump the content of the map...
+  /**
+   * Use the group index and primitive aggregates instead of the map if the group fields and all the aggregates are
+   * supported by them.
+   *
+   * @return true if the primitive aggregation is used
+   */
+  @VisibleForTesting
+  boolean initPrimitiveAggregation() {
+    data.index = null;
+    data.accumulators = null;
+
+    MemoryGroupByAccumulators accumulators = MemoryGroupByAccumulators.create( meta.getAggregateType(),
+      data.subjectnrs, data.inputRowMeta, compatibilityMode, minNullIsValued, MemoryGroupByIndex.STANDARD_INDEX_SIZE );
+    MemoryGroupByIndex index =
+      accumulators == null ? null : MemoryGroupByIndex.create( data.groupMeta, data.groupnrs );
+    if ( index == null ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.UsingGenericHashTable" ) );
+      }
+      return false;
+    }
+
+    // The primitive aggregates are always returned in normal storage
     //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
+    for ( ValueMetaInterface valueMeta : data.aggMeta.getValueMetaList() ) {
+      valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+    }
+    data.index = index;
+    data.accumulators = accumulators;
+    return true;
+  }
 
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+  /**
+   * Add a row to the aggregates of its group. Once the free memory drops below the limit no new groups are added: the
+   * rows of groups that aren't in memory yet are spilled to disk, partitioned by the hash of the group.
+   */
+  private void aggregateRow( Object[] r ) throws KettleException {
+    if ( data.spilling && !isInMemory( r ) ) {
+      spillRow( r );
+      return;
+    }
+
+    if ( data.index != null ) {
+      data.accumulators.add( data.index.getGroupNr( r ), r );
+    } else {
+      addToAggregate( r );
+    }
+
+    // Check the free memory every 1000 rows...
+    //
+    if ( data.spillToDisk && !data.spilling && ++data.freeCounter >= 1000 ) {
+      data.freeCounter = 0;
+      int freeMemoryPct = Const.getPercentageFreeMemory();
+      if ( freeMemoryPct < data.freeMemoryPctLimit ) {
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.StartSpilling", freeMemoryPct,
+            getNrOfGroups() ) );
+        }
+        data.spilling = true;
       }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+    }
+  }
+
+  private boolean isInMemory( Object[] r ) throws KettleValueException {
+    if ( data.index != null ) {
+      return data.index.findGroupNr( r ) >= 0;
+    }
+    return data.map.containsKey( data.getHashEntry( getGroupData( r ) ) );
+  }
+
+  private Object[] getGroupData( Object[] r ) {
+    Object[] groupData = new Object[data.groupnrs.length];
+    for ( int i = 0; i < data.groupnrs.length; i++ ) {
+      groupData[i] = r[data.groupnrs[i]];
+    }
+    return groupData;
+  }
+
+  private int getNrOfGroups() {
+    return data.index != null ? data.index.size() : data.map.size();
+  }
+
+  /**
+   * The partition of a row at the current level. Every level mixes the hash of the group with another seed, so the
+   * groups of a partition are split over all the partitions of the next level.
+   */
+  @VisibleForTesting
+  int getPartitionNr( Object[] r ) {
+    int hash = data.getHashEntry( getGroupData( r ) ).hashCode() ^ ( data.spillLevel * 0x9E3779B9 );
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash & ( MemoryGroupByData.NR_OF_SPILL_PARTITIONS - 1 );
+  }
+
+  private void spillRow( Object[] r ) throws KettleException {
+    if ( data.spillOutputs == null ) {
+      data.spillFiles = new FileObject[MemoryGroupByData.NR_OF_SPILL_PARTITIONS];
+      data.spillOutputs = new DataOutputStream[MemoryGroupByData.NR_OF_SPILL_PARTITIONS];
+      data.spillRows = new long[MemoryGroupByData.NR_OF_SPILL_PARTITIONS];
+      if ( data.codec == null ) {
+        data.codec = new CompactRowCodec( data.inputRowMeta );
       }
-      putRow( data.outputRowMeta, outputRowData );
     }
 
+    int partitionNr = getPartitionNr( r );
+    if ( data.spillOutputs[partitionNr] == null ) {
+      try {
+        IKettleVFS vfs = KettleVFS.getInstance( getTransMeta().getBowl() );
+        data.spillFiles[partitionNr] = vfs.createTempFile( meta.getPrefix(), ".tmp",
+          environmentSubstitute( meta.getDirectory() ), getTransMeta() );
+        data.spillOutputs[partitionNr] = TempFileCompression.getOutputStream(
+          vfs.getOutputStream( data.spillFiles[partitionNr], false ), data.compression );
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToCreateTemporaryFile" ),
+          e );
+      }
+    }
+    data.codec.writeData( data.spillOutputs[partitionNr], r );
+    data.spillRows[partitionNr]++;
+  }
+
+  /**
+   * Close the files of the rows spilled at the current level and queue them to be aggregated one after the other.
+   */
+  private void closeSpillFiles() throws KettleException {
+    if ( data.spillOutputs == null ) {
+      return;
+    }
+    IOException exception = null;
+    for ( int i = 0; i < data.spillOutputs.length; i++ ) {
+      if ( data.spillOutputs[i] != null ) {
+        try {
+          data.spillOutputs[i].close();
+        } catch ( IOException e ) {
+          exception = e;
+        }
+        data.partitions.push( new SpillPartition( data.spillFiles[i], data.spillRows[i], data.spillLevel + 1 ) );
+      }
+    }
+    data.spillFiles = null;
+    data.spillOutputs = null;
+    data.spillRows = null;
+    data.spilling = false;
+
+    if ( exception != null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToCloseTemporaryFile" ),
+        exception );
+    }
+  }
+
+  /**
+   * Aggregate the spilled partitions one at a time. A partition that still doesn't fit in memory is spilled again to
+   * the partitions of the next level.
+   */
+  private void aggregateSpilledPartitions() throws KettleException {
+    while ( !data.partitions.isEmpty() && !isStopped() ) {
+      SpillPartition partition = data.partitions.pop();
+      clearGroups();
+      data.spillLevel = partition.level;
+      data.freeCounter = 0;
+
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregatingPartition",
+          KettleVFS.getFilename( partition.file ), partition.nrOfRows, partition.level ) );
+      }
+
+      try ( DataInputStream input =
+              TempFileCompression.getInputStream( KettleVFS.getInputStream( partition.file ), data.compression ) ) {
+        for ( long i = 0; i < partition.nrOfRows; i++ ) {
+          aggregateRow( data.codec.readData( input ) );
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "MemoryGroupBy.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+      } finally {
+        deleteFile( partition.file );
+      }
+
+      closeSpillFiles();
+      putGroups();
+    }
+    clearGroups();
+    data.spillLevel = 0;
+  }
+
+  private void deleteFile( FileObject file ) {
+    try {
+      file.delete();
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToDeleteTemporaryFile",
+        KettleVFS.getFilename( file ) ), e );
+    }
+  }
+
+  private void clearGroups() {
+    data.map.clear();
+    if ( data.index != null ) {
+      data.index.clear();
+      data.accumulators.clear();
+    }
+  }
+
+  private void handleLastOfGroup() throws KettleException {
+    closeSpillFiles();
+    boolean spilled = !data.partitions.isEmpty();
+    boolean empty = getNrOfGroups() == 0;
+
+    putGroups();
+
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( empty && !spilled && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
@@ -229,6 +436,52 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       }
       putRow( data.outputRowMeta, outputRowData );
     }
+
+    aggregateSpilledPartitions();
+  }
+
+  /**
+   * Pass the groups that are in memory to the next steps.
+   */
+  private void putGroups() throws KettleException {
+    if ( data.index != null ) {
+      putPrimitiveGroups();
+    }
+
+    // Dump the content of the map...
+    //
+    for ( HashEntry entry : data.map.keySet() ) {
+      Aggregate aggregate = data.map.get( entry );
+      Object[] aggregateResult = getAggregateResult( aggregate );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+  }
+
+  private void putPrimitiveGroups() throws KettleException {
+    int nrOfGroups = data.index.size();
+    for ( int groupNr = 0; groupNr < nrOfGroups; groupNr++ ) {
+      Object[] groupData = data.index.getGroupData( groupNr );
+      Object[] aggregateResult = getAggregateResult( data.accumulators.getAggregate( groupNr ) );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      System.arraycopy( groupData, 0, outputRowData, 0, groupData.length );
+      System.arraycopy( aggregateResult, 0, outputRowData, groupData.length, aggregateResult.length );
+      putRow( data.outputRowMeta, outputRowData );
+    }
+
+    if ( log.isDetailed() ) {
+      long bytes = data.index.estimateMemory() + data.accumulators.estimateMemory();
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.MemoryEstimate", nrOfGroups, bytes / 1024 ) );
+    }
   }
 
   @VisibleForTesting
@@ -575,6 +828,20 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+
+      data.spillToDisk = meta.isSpillToDisk();
+      if ( data.spillToDisk ) {
+        data.freeMemoryPctLimit = Const.toInt( environmentSubstitute( meta.getFreeMemoryLimit() ), -1 );
+        if ( data.freeMemoryPctLimit <= 0 ) {
+          data.freeMemoryPctLimit = Const.toInt( MemoryGroupByMeta.DEFAULT_FREE_MEMORY_LIMIT, 25 );
+        }
+        try {
+          data.compression = TempFileCompression.getCompressionProvider( this, null );
+        } catch ( KettleException e ) {
+          logError( e.getMessage(), e );
+          return false;
+        }
+      }
       return true;
     }
     return false;
@@ -582,6 +849,27 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    // Remove the temp files left behind when the step is stopped
+    //
+    data = (MemoryGroupByData) sdi;
+    if ( data.spillOutputs != null ) {
+      for ( int i = 0; i < data.spillOutputs.length; i++ ) {
+        if ( data.spillOutputs[i] != null ) {
+          try {
+            data.spillOutputs[i].close();
+          } catch ( IOException e ) {
+            // Ignore, the file is deleted anyway
+          }
+          deleteFile( data.spillFiles[i] );
+        }
+      }
+      data.spillOutputs = null;
+      data.spillFiles = null;
+    }
+    while ( !data.partitions.isEmpty() ) {
+      deleteFile( data.partitions.pop().file );
+    }
+
     super.dispose( smi, sdi );
     ( (MemoryGroupByData) sdi ).clear();
   }
@@ -594,7 +882,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     // Clear the complete cache...
     //
-    data.map.clear();
+    clearGroups();
 
     data.newBatch = true;
   }
@@ -0,0 +1,339 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * The aggregates of all the groups, stored per aggregate in primitive arrays indexed by the group number of
+ * {@link MemoryGroupByIndex}. This avoids an {@link Aggregate} with boxed values for every group.<br>
+ * <br>
+ * Only the aggregates that fit in a long, a double or a counter are supported: sum, average, minimum and maximum of
+ * integers and numbers, and the counts without distinct. The results are the same as the ones of
+ * {@link MemoryGroupBy#addToAggregate(Object[])}.
+ */
+class MemoryGroupByAccumulators {
+  private static final int KIND_COUNT = 0;
+  private static final int KIND_LONG = 1;
+  private static final int KIND_DOUBLE = 2;
+
+  private final int[] aggregateTypes;
+  private final int[] subjectnrs;
+  private final ValueMetaInterface[] subjectMetas;
+  private final int[] kinds;
+  private final boolean minNullIsValued;
+
+  private final long[][] longs;
+  private final double[][] doubles;
+  private final long[][] counts;
+  private final BitSet[] hasValue; // the value is not null
+
+  private int capacity;
+  private int size;
+
+  private MemoryGroupByAccumulators( int[] aggregateTypes, int[] subjectnrs, ValueMetaInterface[] subjectMetas,
+                                     int[] kinds, boolean minNullIsValued, int initialCapacity ) {
+    this.aggregateTypes = aggregateTypes;
+    this.subjectnrs = subjectnrs;
+    this.subjectMetas = subjectMetas;
+    this.kinds = kinds;
+    this.minNullIsValued = minNullIsValued;
+    this.capacity = initialCapacity;
+
+    int nrAggregates = subjectnrs.length;
+    longs = new long[ nrAggregates ][];
+    doubles = new double[ nrAggregates ][];
+    counts = new long[ nrAggregates ][];
+    hasValue = new BitSet[ nrAggregates ];
+    for ( int i = 0; i < nrAggregates; i++ ) {
+      switch ( kinds[ i ] ) {
+        case KIND_LONG:
+          longs[ i ] = new long[ capacity ];
+          hasValue[ i ] = new BitSet( capacity );
+          break;
+        case KIND_DOUBLE:
+          doubles[ i ] = new double[ capacity ];
+          hasValue[ i ] = new BitSet( capacity );
+          break;
+        default:
+          break;
+      }
+      if ( usesCount( aggregateTypes[ i ] ) ) {
+        counts[ i ] = new long[ capacity ];
+      }
+    }
+  }
+
+  /**
+   * Create the accumulators for the aggregates of the step.
+   *
+   * @param aggregateTypes    the aggregate types, see {@link MemoryGroupByMeta#getAggregateType()}
+   * @param subjectnrs        the indexes of the subject fields in the input row
+   * @param inputRowMeta      the input row metadata
+   * @param compatibilityMode true if sums and averages always return a number
+   * @param minNullIsValued   true if null is the minimum of a group with a null value
+   * @param initialCapacity   the initial number of groups to allocate
+   * @return the accumulators or null if one of the aggregates isn't supported
+   */
+  static MemoryGroupByAccumulators create( int[] aggregateTypes, int[] subjectnrs, RowMetaInterface inputRowMeta,
+                                           boolean compatibilityMode, boolean minNullIsValued,
+                                           int initialCapacity ) {
+    ValueMetaInterface[] subjectMetas = new ValueMetaInterface[ subjectnrs.length ];
+    int[] kinds = new int[ subjectnrs.length ];
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      subjectMetas[ i ] = inputRowMeta.getValueMeta( subjectnrs[ i ] );
+      kinds[ i ] = getKind( aggregateTypes[ i ], subjectMetas[ i ], compatibilityMode );
+      if ( kinds[ i ] < 0 ) {
+        return null;
+      }
+    }
+    return new MemoryGroupByAccumulators( aggregateTypes, subjectnrs, subjectMetas, kinds, minNullIsValued,
+      initialCapacity );
+  }
+
+  private static int getKind( int aggregateType, ValueMetaInterface subjMeta, boolean compatibilityMode ) {
+    int type = subjMeta.getType();
+    switch ( aggregateType ) {
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+        return KIND_COUNT;
+      case MemoryGroupByMeta.TYPE_GROUP_SUM:
+      case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+        if ( type == ValueMetaInterface.TYPE_INTEGER ) {
+          return compatibilityMode ? KIND_DOUBLE : KIND_LONG;
+        }
+        return type == ValueMetaInterface.TYPE_NUMBER ? KIND_DOUBLE : -1;
+      case MemoryGroupByMeta.TYPE_GROUP_MIN:
+      case MemoryGroupByMeta.TYPE_GROUP_MAX:
+        // A descending sort order turns the comparison around
+        if ( subjMeta.isSortedDescending() ) {
+          return -1;
+        }
+        if ( type == ValueMetaInterface.TYPE_INTEGER ) {
+          return KIND_LONG;
+        }
+        return type == ValueMetaInterface.TYPE_NUMBER ? KIND_DOUBLE : -1;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean usesCount( int aggregateType ) {
+    return aggregateType == MemoryGroupByMeta.TYPE_GROUP_AVERAGE
+      || aggregateType == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
+      || aggregateType == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY;
+  }
+
+  /**
+   * Add a row to the aggregates of a group.
+   *
+   * @param groupNr the group number, equal to {@link #size()} for a new group
+   * @param row     the input row
+   */
+  void add( int groupNr, Object[] row ) throws KettleValueException {
+    if ( groupNr == size ) {
+      newGroup( groupNr, row );
+    }
+
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      ValueMetaInterface subjMeta = subjectMetas[ i ];
+      Object subj = row[ subjectnrs[ i ] ];
+      boolean subjIsNull = subjMeta.isNull( subj );
+
+      switch ( aggregateTypes[ i ] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          if ( !subjIsNull ) {
+            sum( i, groupNr, subjMeta, subj );
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          if ( !subjIsNull ) {
+            sum( i, groupNr, subjMeta, subj );
+            counts[ i ][ groupNr ]++;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+          if ( !subjIsNull ) {
+            counts[ i ][ groupNr ]++;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          counts[ i ][ groupNr ]++;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean valueIsNull = !hasValue[ i ].get( groupNr );
+          if ( minNullIsValued || ( !subjIsNull && !valueIsNull ) ) {
+            // Null is smaller than any value
+            if ( subjIsNull ) {
+              hasValue[ i ].clear( groupNr );
+            } else if ( !valueIsNull && compare( i, groupNr, subjMeta, subj ) < 0 ) {
+              set( i, groupNr, subjMeta, subj );
+            }
+          } else if ( valueIsNull && !subjIsNull ) {
+            // By default set aggregate to first not null value
+            set( i, groupNr, subjMeta, subj );
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( !subjIsNull && ( !hasValue[ i ].get( groupNr ) || compare( i, groupNr, subjMeta, subj ) > 0 ) ) {
+            set( i, groupNr, subjMeta, subj );
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private void newGroup( int groupNr, Object[] row ) throws KettleValueException {
+    if ( groupNr == capacity ) {
+      grow();
+    }
+    size++;
+
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      if ( longs[ i ] != null ) {
+        longs[ i ][ groupNr ] = 0L;
+      }
+      if ( doubles[ i ] != null ) {
+        doubles[ i ][ groupNr ] = 0.0;
+      }
+      if ( counts[ i ] != null ) {
+        counts[ i ][ groupNr ] = 0L;
+      }
+      if ( hasValue[ i ] != null ) {
+        hasValue[ i ].clear( groupNr );
+      }
+
+      // Minimum and maximum start with the value of the first row, like MemoryGroupBy.newAggregate()
+      //
+      if ( aggregateTypes[ i ] == MemoryGroupByMeta.TYPE_GROUP_MIN
+        || aggregateTypes[ i ] == MemoryGroupByMeta.TYPE_GROUP_MAX ) {
+        Object subj = row[ subjectnrs[ i ] ];
+        if ( !subjectMetas[ i ].isNull( subj ) ) {
+          set( i, groupNr, subjectMetas[ i ], subj );
+        }
+      }
+    }
+  }
+
+  private void grow() {
+    capacity *= 2;
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      if ( longs[ i ] != null ) {
+        longs[ i ] = Arrays.copyOf( longs[ i ], capacity );
+      }
+      if ( doubles[ i ] != null ) {
+        doubles[ i ] = Arrays.copyOf( doubles[ i ], capacity );
+      }
+      if ( counts[ i ] != null ) {
+        counts[ i ] = Arrays.copyOf( counts[ i ], capacity );
+      }
+    }
+  }
+
+  private void set( int i, int groupNr, ValueMetaInterface subjMeta, Object subj ) throws KettleValueException {
+    if ( kinds[ i ] == KIND_LONG ) {
+      longs[ i ][ groupNr ] = subjMeta.getInteger( subj );
+    } else {
+      doubles[ i ][ groupNr ] = subjMeta.getNumber( subj );
+    }
+    hasValue[ i ].set( groupNr );
+  }
+
+  private void sum( int i, int groupNr, ValueMetaInterface subjMeta, Object subj ) throws KettleValueException {
+    if ( !hasValue[ i ].get( groupNr ) ) {
+      set( i, groupNr, subjMeta, subj );
+    } else if ( kinds[ i ] == KIND_LONG ) {
+      longs[ i ][ groupNr ] += subjMeta.getInteger( subj );
+    } else {
+      doubles[ i ][ groupNr ] += subjMeta.getNumber( subj );
+    }
+  }
+
+  private int compare( int i, int groupNr, ValueMetaInterface subjMeta, Object subj ) throws KettleValueException {
+    if ( kinds[ i ] == KIND_LONG ) {
+      return Long.compare( subjMeta.getInteger( subj ), longs[ i ][ groupNr ] );
+    }
+    return Double.compare( subjMeta.getNumber( subj ), doubles[ i ][ groupNr ] );
+  }
+
+  /**
+   * Get the aggregates of a group in the form {@link MemoryGroupBy#getAggregateResult(Aggregate)} expects them.
+   *
+   * @param groupNr the group number
+   * @return the aggregates of the group with boxed values
+   */
+  Aggregate getAggregate( int groupNr ) {
+    Aggregate aggregate = new Aggregate();
+    aggregate.agg = new Object[ subjectnrs.length ];
+    aggregate.counts = new long[ subjectnrs.length ];
+    aggregate.mean = new double[ subjectnrs.length ];
+
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      if ( counts[ i ] != null ) {
+        aggregate.counts[ i ] = counts[ i ][ groupNr ];
+      }
+      if ( hasValue[ i ] != null && hasValue[ i ].get( groupNr ) ) {
+        if ( kinds[ i ] == KIND_LONG ) {
+          aggregate.agg[ i ] = longs[ i ][ groupNr ];
+        } else {
+          aggregate.agg[ i ] = doubles[ i ][ groupNr ];
+        }
+      }
+    }
+    return aggregate;
+  }
+
+  /**
+   * @return the number of groups
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Remove all the groups, the allocated arrays are kept.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return a rough estimate of the memory used by the aggregates in bytes
+   */
+  long estimateMemory() {
+    long bytes = 0L;
+    for ( int i = 0; i < subjectnrs.length; i++ ) {
+      if ( longs[ i ] != null ) {
+        bytes += 8L * longs[ i ].length;
+      }
+      if ( doubles[ i ] != null ) {
+        bytes += 8L * doubles[ i ].length;
+      }
+      if ( counts[ i ] != null ) {
+        bytes += 8L * counts[ i ].length;
+      }
+      if ( hasValue[ i ] != null ) {
+        bytes += hasValue[ i ].size() / 8;
+      }
+    }
+    return bytes;
+  }
+}
@@ -13,9 +13,16 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.compress.CompressionProvider;
+
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -66,8 +73,32 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
     }
   }
 
+  /**
+   * A temp file with the input rows of the groups of one hash partition that didn't fit in memory.
+   */
+  static class SpillPartition {
+    final FileObject file;
+    final long nrOfRows;
+    final int level;
+
+    SpillPartition( FileObject file, long nrOfRows, int level ) {
+      this.file = file;
+      this.nrOfRows = nrOfRows;
+      this.level = level;
+    }
+  }
+
+  /** The number of hash partitions the rows are spilled to, a power of 2 */
+  public static final int NR_OF_SPILL_PARTITIONS = 32;
+
   public HashMap<HashEntry, Aggregate> map;
 
+  /**
+   * The group index and primitive aggregates, used instead of the map when the group fields and aggregates allow it.
+   */
+  MemoryGroupByIndex index;
+  MemoryGroupByAccumulators accumulators;
+
   public RowMetaInterface aggMeta;
   public RowMetaInterface groupMeta;
   public RowMetaInterface entryMeta;
@@ -90,6 +121,23 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  public boolean spillToDisk;
+  public int freeMemoryPctLimit;
+  public int freeCounter;
+
+  /** True if the rows of new groups are spilled to disk */
+  public boolean spilling;
+  /** The partitioning level, 0 for the input rows, incremented each time a partition is split again */
+  public int spillLevel;
+  FileObject[] spillFiles;
+  DataOutputStream[] spillOutputs;
+  long[] spillRows;
+  /** The partitions that still need to be aggregated */
+  Deque<SpillPartition> partitions = new ArrayDeque<>();
+
+  public CompressionProvider compression;
+  public CompactRowCodec codec;
+
   public MemoryGroupByData() {
     super();
 
@@ -104,5 +152,7 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
    */
   public void clear() {
     map = new HashMap<MemoryGroupByData.HashEntry, Aggregate>();
+    index = null;
+    accumulators = null;
   }
 }
@@ -0,0 +1,340 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.hash.ByteArrayHashMap;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Assigns a dense group number (0, 1, 2, ...) to every distinct combination of group field values, in the order in
+ * which the groups are first seen. The aggregates of a group are stored at that number in
+ * {@link MemoryGroupByAccumulators}.<br>
+ * <br>
+ * A single integer group field is kept in an open addressing table of primitive longs. Other group fields are
+ * serialized and kept in a {@link ByteArrayHashMap}, which only works for types where equal values have an equal
+ * serialized form: see {@link #isSupported(ValueMetaInterface)}.
+ */
+abstract class MemoryGroupByIndex {
+  static final int STANDARD_INDEX_SIZE = 5000;
+
+  /**
+   * Create an index for the group fields.
+   *
+   * @param groupMeta the metadata of the group fields
+   * @param groupnrs  the indexes of the group fields in the input row
+   * @return the index or null if one of the group fields can't be indexed
+   */
+  static MemoryGroupByIndex create( RowMetaInterface groupMeta, int[] groupnrs ) {
+    for ( int i = 0; i < groupMeta.size(); i++ ) {
+      if ( !isSupported( groupMeta.getValueMeta( i ) ) ) {
+        return null;
+      }
+    }
+    if ( groupMeta.size() == 1 && groupMeta.getValueMeta( 0 ).getType() == ValueMetaInterface.TYPE_INTEGER ) {
+      return new LongIndex( groupMeta.getValueMeta( 0 ), groupnrs[ 0 ], STANDARD_INDEX_SIZE );
+    }
+    return new ByteArrayIndex( groupMeta, groupnrs, STANDARD_INDEX_SIZE );
+  }
+
+  /**
+   * Values are only grouped by their serialized form when values that compare equal are serialized in the same way.
+   * Big numbers (1.0 and 1.00) and strings that are compared ignoring case, white space or with a collator are not.
+   */
+  static boolean isSupported( ValueMetaInterface valueMeta ) {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_NUMBER:
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return true;
+      case ValueMetaInterface.TYPE_STRING:
+        return valueMeta.isCollatorDisabled() && !valueMeta.isCaseInsensitive() && !valueMeta.isIgnoreWhitespace();
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Look up the group of a row, a new group is added if it wasn't seen before.
+   *
+   * @param row the input row
+   * @return the group number, equal to the previous {@link #size()} for a new group
+   */
+  abstract int getGroupNr( Object[] row ) throws KettleValueException;
+
+  /**
+   * Look up the group of a row without adding it.
+   *
+   * @param row the input row
+   * @return the group number or -1 if the group wasn't seen before
+   */
+  abstract int findGroupNr( Object[] row ) throws KettleValueException;
+
+  /**
+   * @return the group field values of a group, in normal storage
+   */
+  abstract Object[] getGroupData( int groupNr );
+
+  /**
+   * @return the number of groups
+   */
+  abstract int size();
+
+  /**
+   * @return a rough estimate of the memory used by the index in bytes
+   */
+  abstract long estimateMemory();
+
+  /**
+   * Remove all the groups.
+   */
+  abstract void clear();
+
+  /**
+   * Open addressing (linear probing) index on a single integer group field. Null is kept aside as a separate group.
+   */
+  static class LongIndex extends MemoryGroupByIndex {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final ValueMetaInterface keyMeta;
+    private final int keynr;
+    private final int initialSize;
+
+    private long[] keys;
+    private int[] slots; // group number + 1, 0 for an empty slot
+    private int resizeThreshold;
+    private int nrOfKeys;
+
+    private long[] groupKeys;
+    private int size;
+    private int nullGroupNr;
+
+    LongIndex( ValueMetaInterface keyMeta, int keynr, int initialSize ) {
+      this.keyMeta = keyMeta;
+      this.keynr = keynr;
+      this.initialSize = initialSize;
+      clear();
+    }
+
+    @Override
+    void clear() {
+      int capacity = 1;
+      while ( capacity * LOAD_FACTOR < initialSize ) {
+        capacity <<= 1;
+      }
+      keys = new long[ capacity ];
+      slots = new int[ capacity ];
+      resizeThreshold = (int) ( capacity * LOAD_FACTOR );
+      nrOfKeys = 0;
+      groupKeys = new long[ initialSize ];
+      size = 0;
+      nullGroupNr = -1;
+    }
+
+    @Override
+    int getGroupNr( Object[] row ) throws KettleValueException {
+      Object value = row[ keynr ];
+      if ( keyMeta.isNull( value ) ) {
+        if ( nullGroupNr < 0 ) {
+          nullGroupNr = addGroup( 0L );
+        }
+        return nullGroupNr;
+      }
+
+      long key = keyMeta.getInteger( value );
+      int slot = findSlot( key );
+      if ( slots[ slot ] != 0 ) {
+        return slots[ slot ] - 1;
+      }
+
+      int groupNr = addGroup( key );
+      keys[ slot ] = key;
+      slots[ slot ] = groupNr + 1;
+      if ( ++nrOfKeys >= resizeThreshold ) {
+        resize();
+      }
+      return groupNr;
+    }
+
+    @Override
+    int findGroupNr( Object[] row ) throws KettleValueException {
+      Object value = row[ keynr ];
+      if ( keyMeta.isNull( value ) ) {
+        return nullGroupNr;
+      }
+      return slots[ findSlot( keyMeta.getInteger( value ) ) ] - 1;
+    }
+
+    /**
+     * @return the slot of the key or the empty slot where it belongs
+     */
+    private int findSlot( long key ) {
+      int mask = slots.length - 1;
+      int slot = hash( key ) & mask;
+      while ( slots[ slot ] != 0 && keys[ slot ] != key ) {
+        slot = ( slot + 1 ) & mask;
+      }
+      return slot;
+    }
+
+    private int addGroup( long key ) {
+      if ( size == groupKeys.length ) {
+        groupKeys = Arrays.copyOf( groupKeys, size * 2 );
+      }
+      groupKeys[ size ] = key;
+      return size++;
+    }
+
+    private void resize() {
+      long[] oldKeys = keys;
+      int[] oldSlots = slots;
+
+      keys = new long[ oldKeys.length * 2 ];
+      slots = new int[ oldSlots.length * 2 ];
+      resizeThreshold = (int) ( slots.length * LOAD_FACTOR );
+
+      int mask = slots.length - 1;
+      for ( int i = 0; i < oldSlots.length; i++ ) {
+        if ( oldSlots[ i ] != 0 ) {
+          int slot = hash( oldKeys[ i ] ) & mask;
+          while ( slots[ slot ] != 0 ) {
+            slot = ( slot + 1 ) & mask;
+          }
+          keys[ slot ] = oldKeys[ i ];
+          slots[ slot ] = oldSlots[ i ];
+        }
+      }
+    }
+
+    /**
+     * Spread the bits: consecutive keys are common and linear probing doesn't like clusters.
+     */
+    private static int hash( long key ) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) ( h ^ ( h >>> 32 ) );
+    }
+
+    @Override
+    Object[] getGroupData( int groupNr ) {
+      return new Object[] { groupNr == nullGroupNr ? null : Long.valueOf( groupKeys[ groupNr ] ) };
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    long estimateMemory() {
+      return 8L * keys.length + 4L * slots.length + 8L * groupKeys.length;
+    }
+  }
+
+  /**
+   * Index on the serialized group field values.
+   */
+  static class ByteArrayIndex extends MemoryGroupByIndex {
+    /**
+     * Array headers of the key and the value, the map entry and its slot in the map.
+     */
+    private static final int ENTRY_OVERHEAD = 80;
+
+    private final RowMetaInterface groupMeta;
+    private final RowMetaInterface keyMeta;
+    private final int[] groupnrs;
+    private final int initialSize;
+
+    private ByteArrayHashMap map;
+    private byte[][] groupKeys;
+    private int size;
+    private long keyBytes;
+
+    ByteArrayIndex( RowMetaInterface groupMeta, int[] groupnrs, int initialSize ) {
+      this.groupMeta = groupMeta;
+      this.groupnrs = groupnrs;
+      this.initialSize = initialSize;
+
+      // The keys are serialized in normal storage: lazy conversion doesn't change the group
+      //
+      keyMeta = new RowMeta();
+      for ( int i = 0; i < groupMeta.size(); i++ ) {
+        ValueMetaInterface valueMeta = groupMeta.getValueMeta( i ).clone();
+        valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+        keyMeta.addValueMeta( valueMeta );
+      }
+      clear();
+    }
+
+    @Override
+    void clear() {
+      map = new ByteArrayHashMap( initialSize, keyMeta );
+      groupKeys = new byte[ initialSize ][];
+      size = 0;
+      keyBytes = 0L;
+    }
+
+    private byte[] getKey( Object[] row ) throws KettleValueException {
+      Object[] keyData = new Object[ groupnrs.length ];
+      for ( int i = 0; i < groupnrs.length; i++ ) {
+        keyData[ i ] = groupMeta.getValueMeta( i ).convertToNormalStorageType( row[ groupnrs[ i ] ] );
+      }
+      return RowMeta.extractData( keyMeta, keyData );
+    }
+
+    @Override
+    int findGroupNr( Object[] row ) throws KettleValueException {
+      byte[] value = map.get( getKey( row ) );
+      return value == null ? -1 : ByteBuffer.wrap( value ).getInt();
+    }
+
+    @Override
+    int getGroupNr( Object[] row ) throws KettleValueException {
+      byte[] key = getKey( row );
+      byte[] value = map.get( key );
+      if ( value != null ) {
+        return ByteBuffer.wrap( value ).getInt();
+      }
+
+      if ( size == groupKeys.length ) {
+        groupKeys = Arrays.copyOf( groupKeys, size * 2 );
+      }
+      int groupNr = size++;
+      groupKeys[ groupNr ] = key;
+      keyBytes += key.length;
+      map.put( key, ByteBuffer.allocate( 4 ).putInt( groupNr ).array() );
+      return groupNr;
+    }
+
+    @Override
+    Object[] getGroupData( int groupNr ) {
+      return RowMeta.getRow( keyMeta, groupKeys[ groupNr ] );
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    long estimateMemory() {
+      return keyBytes + (long) ENTRY_OVERHEAD * size + 8L * groupKeys.length;
+    }
+  }
+}
@@ -91,6 +91,12 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   public static final int TYPE_GROUP_COUNT_ANY = 16;
 
+  public static final String DEFAULT_DIRECTORY = "%%java.io.tmpdir%%";
+
+  public static final String DEFAULT_PREFIX = "grp";
+
+  public static final String DEFAULT_FREE_MEMORY_LIMIT = "25";
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
@@ -138,6 +144,22 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  /** Spill the rows of new groups to temp files when the free memory drops below the limit */
+  @Injection( name = "SPILL_TO_DISK" )
+  private boolean spillToDisk;
+
+  /** Directory to store the temp files */
+  @Injection( name = "SPILL_DIRECTORY" )
+  private String directory;
+
+  /** Temp files prefix... */
+  @Injection( name = "SPILL_FILE_PREFIX" )
+  private String prefix;
+
+  /** The free memory limit in percentages, below it the rows of new groups are spilled to disk */
+  @Injection( name = "FREE_MEMORY_THRESHOLD" )
+  private String freeMemoryLimit;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -281,6 +303,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+
+      spillToDisk = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "spill_to_disk" ) );
+      directory = Const.NVL( XMLHandler.getTagValue( stepnode, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( XMLHandler.getTagValue( stepnode, "prefix" ), DEFAULT_PREFIX );
+      freeMemoryLimit = XMLHandler.getTagValue( stepnode, "free_memory" );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -321,6 +348,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     int nrfields = 0;
 
     allocate( sizegroup, nrfields );
+
+    spillToDisk = false;
+    directory = DEFAULT_DIRECTORY;
+    prefix = DEFAULT_PREFIX;
+    freeMemoryLimit = DEFAULT_FREE_MEMORY_LIMIT;
   }
 
   @Override
@@ -437,6 +469,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "spill_to_disk", spillToDisk ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "directory", directory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "prefix", prefix ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "free_memory", freeMemoryLimit ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -486,6 +522,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+
+      spillToDisk = rep.getStepAttributeBoolean( id_step, "spill_to_disk" );
+      directory = Const.NVL( rep.getStepAttributeString( id_step, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( rep.getStepAttributeString( id_step, "prefix" ), DEFAULT_PREFIX );
+      freeMemoryLimit = rep.getStepAttributeString( id_step, "free_memory" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -496,6 +537,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "spill_to_disk", spillToDisk );
+      rep.saveStepAttribute( id_transformation, id_step, "directory", directory );
+      rep.saveStepAttribute( id_transformation, id_step, "prefix", prefix );
+      rep.saveStepAttribute( id_transformation, id_step, "free_memory", freeMemoryLimit );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -559,6 +604,66 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return true if the rows of new groups are spilled to temp files when the free memory drops below the limit
+   */
+  public boolean isSpillToDisk() {
+    return spillToDisk;
+  }
+
+  /**
+   * @param spillToDisk
+   *          true to spill the rows of new groups to temp files when the free memory drops below the limit
+   */
+  public void setSpillToDisk( boolean spillToDisk ) {
+    this.spillToDisk = spillToDisk;
+  }
+
+  /**
+   * @return Returns the directory of the temp files.
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory
+   *          The directory of the temp files to set.
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return Returns the prefix of the temp files.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix
+   *          The prefix of the temp files to set.
+   */
+  public void setPrefix( String prefix ) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return the free memory limit in percentages
+   */
+  public String getFreeMemoryLimit() {
+    return freeMemoryLimit;
+  }
+
+  /**
+   * @param freeMemoryLimit
+   *          the free memory limit in percentages to set
+   */
+  public void setFreeMemoryLimit( String freeMemoryLimit ) {
+    this.freeMemoryLimit = freeMemoryLimit;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
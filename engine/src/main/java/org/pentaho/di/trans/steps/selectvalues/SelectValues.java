@@ -331,23 +331,14 @@ public class SelectValues extends BaseStep implements StepInterface {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
 
-    Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
-    if ( rowData == null ) { // no more input to be expected...
+    long linesBefore = getLinesRead();
+    List<Object[]> rows = getRows( ROW_BATCH_SIZE ); // get rows from rowset, wait for our turn, indicate busy!
+    if ( rows.isEmpty() ) { // no more input to be expected...
 
       setOutputDone();
       return false;
     }
 
-    Object[] rowCopy = null;
-    if ( getStepMeta().isDoingErrorHandling() ) {
-      rowCopy = getInputRowMeta().cloneRow( rowData );
-    }
-
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
-        + getInputRowMeta().getString( rowData ) );
-    }
-
     if ( first ) {
       first = false;
 
@@ -359,6 +350,42 @@ public class SelectValues extends BaseStep implements StepInterface {
       meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
     }
 
+    List<Object[]> outputRows = new ArrayList<>( rows.size() );
+    for ( Object[] rowData : rows ) {
+      if ( !processRow( rowData, outputRows ) ) {
+        putRows( data.metadataRowMeta, outputRows );
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+    }
+
+    // Send the rows on their way
+    //
+    putRows( data.metadataRowMeta, outputRows );
+
+    if ( checkFeedback( linesBefore, getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
+    }
+
+    return true;
+  }
+
+  /**
+   * Select, remove and change the metadata of a single row and add the result to the output rows.
+   *
+   * @return false if no more rows should be processed
+   */
+  private boolean processRow( Object[] rowData, List<Object[]> outputRows ) throws KettleException {
+    Object[] rowCopy = null;
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      rowCopy = getInputRowMeta().cloneRow( rowData );
+    }
+
+    if ( log.isRowLevel() ) {
+      logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
+        + getInputRowMeta().getString( rowData ) );
+    }
+
     try {
       Object[] outputData = rowData;
 
@@ -373,19 +400,21 @@ public class SelectValues extends BaseStep implements StepInterface {
       }
 
       if ( outputData == null ) {
-        setOutputDone(); // signal end to receiver(s)
         return false;
       }
 
-      // Send the row on its way
-      //
-      putRow( data.metadataRowMeta, outputData );
+      outputRows.add( outputData );
       if ( log.isRowLevel() ) {
         logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
           + data.metadataRowMeta.getString( outputData ) );
       }
 
     } catch ( KettleException e ) {
+      // The rows of the batch before this one go first
+      //
+      putRows( data.metadataRowMeta, outputRows );
+      outputRows.clear();
+
       if ( getStepMeta().isDoingErrorHandling() ) {
         String field;
         if ( e instanceof KettleConversionException ) {
@@ -399,11 +428,6 @@ public class SelectValues extends BaseStep implements StepInterface {
         throw e;
       }
     }
-
-    if ( checkFeedback( getLinesRead() ) ) {
-      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
-    }
-
     return true;
   }
 
@@ -0,0 +1,209 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.TempFileCompression;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.CompactRowCodec;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Merges a number of sorted temporary files into a single sorted stream of rows.<br>
+ * <br>
+ * The current row of every file is kept in a binary heap: taking the smallest row and replacing it with the next row
+ * of the same file costs O(log(n)) comparisons, whatever the number of files. Rows that compare equal are returned in
+ * the order of the files, so the merge is stable.<br>
+ * <br>
+ * Files are closed and deleted as soon as all their rows have been read.
+ */
+class RowTempFileMerge implements Closeable {
+  private static Class<?> PKG = SortRows.class; // for i18n
+
+  private final CompactRowCodec codec;
+  private final Comparator<RowTempFile> comparator;
+  private final List<FileObject> files;
+  private final DataInputStream[] inputs;
+  private final int[] remaining;
+
+  private final RowTempFile[] heap;
+  private int heapSize;
+
+  /**
+   * Open the files and read the first row of each of them.
+   *
+   * @param log        the log channel to report on
+   * @param codec      reads the rows from the files
+   * @param comparator compares the rows, see {@link #compare(RowTempFile, RowTempFile)} for the tie breaker
+   * @param files      the sorted temporary files to merge, in the order they were written
+   * @param nrOfRows   the number of rows in each file
+   * @param bufferSize the size of the read buffer of each file in bytes
+   * @param compression the compression provider the files were written with, null if they aren't compressed
+   */
+  RowTempFileMerge( LogChannelInterface log, CompactRowCodec codec, Comparator<RowTempFile> comparator,
+                    List<FileObject> files, List<Integer> nrOfRows, int bufferSize, CompressionProvider compression )
+    throws KettleException {
+    this.codec = codec;
+    this.comparator = comparator;
+    this.files = files;
+    this.inputs = new DataInputStream[ files.size() ];
+    this.remaining = new int[ files.size() ];
+    this.heap = new RowTempFile[ files.size() ];
+
+    try {
+      for ( int f = 0; f < files.size(); f++ ) {
+        FileObject fileObject = files.get( f );
+        remaining[ f ] = nrOfRows.get( f );
+        if ( log.isDetailed() ) {
+          String filename = KettleVFS.getFilename( fileObject );
+          log.logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
+          log.logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
+            filename, remaining[ f ] ) );
+        }
+
+        inputs[ f ] = TempFileCompression.getInputStream( KettleVFS.getInputStream( fileObject ), compression,
+          bufferSize );
+
+        Object[] row = readRow( f );
+        if ( row != null ) {
+          heap[ heapSize++ ] = new RowTempFile( row, f );
+        }
+      }
+    } catch ( IOException e ) {
+      close();
+      throw new KettleException( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+    } catch ( KettleException e ) {
+      close();
+      throw e;
+    }
+
+    // Build the heap bottom-up
+    for ( int i = heapSize / 2 - 1; i >= 0; i-- ) {
+      siftDown( i );
+    }
+  }
+
+  /**
+   * @return the next row in sort order or null if all the files have been read.
+   */
+  Object[] next() throws KettleException {
+    if ( heapSize == 0 ) {
+      return null;
+    }
+
+    RowTempFile top = heap[ 0 ];
+    Object[] row = top.row;
+
+    Object[] nextRow = readRow( top.fileNumber );
+    if ( nextRow != null ) {
+      // Replace the top: a single sift down instead of a removal and an insert
+      top.row = nextRow;
+    } else {
+      heap[ 0 ] = heap[ --heapSize ];
+      heap[ heapSize ] = null;
+    }
+    if ( heapSize > 1 ) {
+      siftDown( 0 );
+    }
+    return row;
+  }
+
+  /**
+   * @return the number of files that still have rows to read
+   */
+  int getNrOfOpenFiles() {
+    return heapSize;
+  }
+
+  private Object[] readRow( int f ) throws KettleException {
+    if ( remaining[ f ] <= 0 ) {
+      closeFile( f );
+      return null;
+    }
+    Object[] row = codec.readData( inputs[ f ] );
+    remaining[ f ]--;
+    return row;
+  }
+
+  private void closeFile( int f ) throws KettleException {
+    if ( inputs[ f ] == null ) {
+      return;
+    }
+    FileObject file = files.get( f );
+    try {
+      inputs[ f ].close();
+      inputs[ f ] = null;
+      file.delete();
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", f, file.toString() ),
+        e );
+    }
+  }
+
+  private void siftDown( int i ) {
+    RowTempFile element = heap[ i ];
+    int half = heapSize >>> 1;
+    while ( i < half ) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if ( right < heapSize && compare( heap[ right ], heap[ child ] ) < 0 ) {
+        child = right;
+      }
+      if ( compare( element, heap[ child ] ) <= 0 ) {
+        break;
+      }
+      heap[ i ] = heap[ child ];
+      i = child;
+    }
+    heap[ i ] = element;
+  }
+
+  /**
+   * Compare the rows, rows that are equal are ordered by file number to keep the merge stable.
+   */
+  private int compare( RowTempFile o1, RowTempFile o2 ) {
+    int cmp = comparator.compare( o1, o2 );
+    if ( cmp != 0 ) {
+      return cmp;
+    }
+    return Integer.compare( o1.fileNumber, o2.fileNumber );
+  }
+
+  /**
+   * Close all the files that are still open. The files themselves are not deleted.
+   */
+  @Override
+  public void close() {
+    for ( int f = 0; f < inputs.length; f++ ) {
+      if ( inputs[ f ] != null ) {
+        try {
+          inputs[ f ].close();
+        } catch ( IOException e ) {
+          // Ignore errors
+        }
+        inputs[ f ] = null;
+      }
+    }
+    heapSize = 0;
+  }
+}
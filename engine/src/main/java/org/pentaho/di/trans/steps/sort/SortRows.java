@@ -13,29 +13,27 @@
 
 package org.pentaho.di.trans.steps.sort;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.TempFileCompression;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.ExecutorUtil;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -121,162 +119,183 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // First sort the rows in buffer[]
     quickSort( data.buffer );
+    int bufferSize = data.buffer.size();
 
     // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
-
     try {
-      FileObject fileObject =
-          KettleVFS.getInstance( getTransMeta().getBowl() )
-            .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ), getTransMeta() );
-
+      FileObject fileObject = createTempFile();
       data.files.add( fileObject ); // Remember the files!
-      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
-        .getOutputStream( fileObject, false );
-      if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
+
+      if ( data.parallelSort ) {
+        // Only one file is written at a time: this keeps at most two sort buffers in memory
+        waitForTempFile();
+
+        // Write the sorted rows in the background while the next buffer fills up
+        final List<Object[]> rows = data.buffer;
+        data.buffer = new ArrayList<Object[]>( rows.size() );
+        data.pendingTempFile = ExecutorUtil.getExecutor().submit( () -> writeTempFile( fileObject, rows ) );
       } else {
-        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
+        data.bufferSizes.add( writeTempFile( fileObject, data.buffer ) );
       }
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    }
 
-      // Just write the data, nothing else
-      List<Integer> duplicates = new ArrayList<Integer>();
-      Object[] previousRow = null;
-      if ( meta.isOnlyPassingUniqueRows() ) {
-        int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
-          if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
-            if ( result == 0 ) {
-              duplicates.add( index );
-              if ( log.isRowLevel() ) {
-                logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
-                    .getString( row ) ) );
-              }
-            }
-          }
-          index++;
-          previousRow = row;
-        }
+    if ( data.sortSize < 0 ) {
+      if ( bufferSize > data.minSortSize ) {
+        data.minSortSize = bufferSize; // if we did it once, we can do
+                                       // it again.
+
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
       }
+    }
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
+    // Clear the list
+    data.buffer.clear();
 
-      int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
-        boolean skip = false;
-        if ( duplicatesIndex < duplicates.size() ) {
-          if ( p == duplicates.get( duplicatesIndex ) ) {
-            skip = true;
-            duplicatesIndex++;
-          }
-        }
-        if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
+    // How much memory do we have left?
+    //
+    data.freeMemoryPct = Const.getPercentageFreeMemory();
+    data.freeCounter = 0;
+    if ( data.sortSize <= 0 ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
       }
+    }
 
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-                                                 // it again.
+    data.getBufferIndex = 0;
+  }
 
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
+  /**
+   * Write the sorted rows to a temp file, leaving out the duplicates if only unique rows are passed. This is called from
+   * a background thread when sorting in parallel.
+   *
+   * @return the number of rows written to the file
+   */
+  private int writeTempFile( FileObject fileObject, List<Object[]> rows ) throws KettleException, IOException {
+    int nrRows = 0;
+    try ( DataOutputStream dos = getTempFileOutputStream( fileObject ) ) {
+      Object[] previousRow = null;
+      for ( Object[] row : rows ) {
+        if ( previousRow != null && meta.isOnlyPassingUniqueRows()
+          && data.outputRowMeta.compare( row, previousRow, data.fieldnrs ) == 0 ) {
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+                .getString( row ) ) );
+          }
+        } else {
+          data.codec.writeData( dos, row );
+          nrRows++;
         }
+        previousRow = row;
       }
+    } // also closes the gzip and file streams
+    return nrRows;
+  }
+
+  /**
+   * Wait until the temp file that is written in the background, if any, is complete.
+   */
+  void waitForTempFile() throws KettleException {
+    if ( data.pendingTempFile == null ) {
+      return;
+    }
+    try {
+      data.bufferSizes.add( data.pendingTempFile.get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while writing temp-file!", e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( "Error processing temp-file!", e.getCause() );
+    } finally {
+      data.pendingTempFile = null;
+    }
+  }
 
-      // Clear the list
-      data.buffer.clear();
+  private FileObject createTempFile() throws KettleFileException {
+    return KettleVFS.getInstance( getTransMeta().getBowl() )
+      .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ), getTransMeta() );
+  }
 
-      // Close temp-file
-      dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
+  private DataOutputStream getTempFileOutputStream( FileObject fileObject ) throws KettleFileException, IOException {
+    OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() ).getOutputStream( fileObject, false );
+    return TempFileCompression.getOutputStream( outputStream, data.compression, 500000 );
+  }
+
+  /**
+   * Merge groups of temp files into larger ones until no more than the maximum number of open files are left. Only as
+   * many files as needed are merged, and the merged file takes the place of its group to keep the sort stable.
+   */
+  void mergeTempFiles() throws KettleException {
+    int start = 0;
+    while ( data.files.size() > data.maxOpenFiles && !isStopped() ) {
+      int nrFiles = Math.min( data.maxOpenFiles, data.files.size() - data.maxOpenFiles + 1 );
+      if ( start + nrFiles > data.files.size() ) {
+        start = 0; // Start over with the merged files
+      }
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.MergingTempFiles", nrFiles, data.files.size(),
+          data.maxOpenFiles ) );
       }
-      outputStream.close(); // close file stream
 
-      // How much memory do we have left?
-      //
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
-      if ( data.sortSize <= 0 ) {
-        if ( log.isDetailed() ) {
-          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+      List<FileObject> group = data.files.subList( start, start + nrFiles );
+      List<Integer> groupSizes = data.bufferSizes.subList( start, start + nrFiles );
+
+      FileObject fileObject = createTempFile();
+      int nrRows = 0;
+      try ( DataOutputStream dos = getTempFileOutputStream( fileObject );
+            RowTempFileMerge merge = new RowTempFileMerge( log, data.codec, data.comparator, group,
+              groupSizes, data.mergeBufferSize, data.compression ) ) {
+        Object[] row = merge.next();
+        while ( row != null && !isStopped() ) {
+          data.codec.writeData( dos, row );
+          nrRows++;
+          row = merge.next();
+        }
+      } catch ( Exception e ) {
+        try {
+          fileObject.delete();
+        } catch ( IOException ignored ) {
+          // We're failing anyway
         }
+        throw new KettleException( "Error merging temp-files!", e );
       }
 
-    } catch ( Exception e ) {
-      throw new KettleException( "Error processing temp-file!", e );
+      // The merged file takes the place of the group. The merge deleted the files it read to the end, the others are
+      // left when the step was stopped during the merge.
+      try {
+        deleteTempFiles( group );
+      } finally {
+        group.clear();
+        groupSizes.clear();
+      }
+      data.files.add( start, fileObject );
+      data.bufferSizes.add( start, nrRows );
+      start++;
     }
-
-    data.getBufferIndex = 0;
-  }
-
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
   }
 
   // get sorted rows from available files in iterative manner.
   // that means call to this method will continue to return rows
   // till all temp files will not be read to the end.
-  Object[] getBuffer() throws KettleValueException {
+  Object[] getBuffer() throws KettleException {
     Object[] retval;
 
     // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
+    if ( data.files.size() > 0 && data.merge == null ) {
+      mergeTempFiles();
+
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
       }
-
-      try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
-          String filename = KettleVFS.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = KettleVFS.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
-
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
-
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-                filename, buffersize ) );
-          }
-
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
-        }
-
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
-      }
+      data.merge = new RowTempFileMerge( log, data.codec, data.comparator, data.files, data.bufferSizes,
+        data.mergeBufferSize, data.compression );
     }
 
     if ( data.files.size() == 0 ) {
@@ -289,77 +308,8 @@ public class SortRows extends BaseStep implements StepInterface {
         retval = null;
       }
     } else {
-      // read from disk processing
-
-      if ( data.rowbuffer.size() == 0 ) {
-        retval = null;
-      } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
-        retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
-
-        // now get another Row for position smallest
-
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
-        try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
-        } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
-          try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
-            file.delete();
-          } catch ( IOException e ) {
-            logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
-        } catch ( SocketTimeoutException e ) {
-          throw new KettleValueException( e ); // should never happen on local files
-        }
-      }
+      // read from disk processing: the smallest row of all the files
+      retval = data.merge.next();
     }
     return retval;
   }
@@ -431,6 +381,15 @@ public class SortRows extends BaseStep implements StepInterface {
         i++;
       }
       data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+
+      // The keys that are converted to their native type are written to the temp files that way
+      RowMetaInterface tempFileRowMeta = data.outputRowMeta.clone();
+      if ( data.convertKeysToNative != null ) {
+        for ( int index : data.convertKeysToNative ) {
+          tempFileRowMeta.getValueMeta( index ).setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+        }
+      }
+      data.codec = new CompactRowCodec( tempFileRowMeta );
     } // end if first
 
     // it is not first row and it is null
@@ -563,13 +522,22 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
+    try {
+      data.compression = TempFileCompression.getCompressionProvider( this,
+        data.compressFiles ? TempFileCompression.DEFAULT_COMPRESSION : null );
+    } catch ( KettleException e ) {
+      logError( e.getMessage(), e );
+      return false;
+    }
+    data.parallelSort = meta.isParallelSort();
 
-    data.tempRows = new ArrayList<RowTempFile>();
+    // Merging the temp files
+    //
+    data.mergeBufferSize = Math.max( 1024, Const.toInt( getVariable( Const.KETTLE_SORT_MERGE_BUFFER_SIZE ),
+      SortRowsData.DEFAULT_MERGE_BUFFER_SIZE ) );
+    data.maxOpenFiles = Math.max( 2, Const.toInt( getVariable( Const.KETTLE_SORT_MAX_OPEN_FILES ),
+      SortRowsData.DEFAULT_MAX_OPEN_FILES ) );
 
     data.minSortSize = 5000;
 
@@ -587,23 +555,28 @@ public class SortRows extends BaseStep implements StepInterface {
     // Clean out the sort buffer
     data.buffer.clear();
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
 
-    // close any open DataInputStream objects
-    if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
-      for ( DataInputStream dis : data.dis ) {
-        BaseStep.closeQuietly( dis );
+    // let the temp file that is being written finish first
+    if ( data.pendingTempFile != null ) {
+      try {
+        waitForTempFile();
+      } catch ( KettleException e ) {
+        logError( e.getLocalizedMessage(), e );
       }
     }
-    // close any open InputStream objects
-    if ( ( data.fis != null ) && ( data.fis.size() > 0 ) ) {
-      for ( InputStream is : data.fis ) {
-        BaseStep.closeQuietly( is );
-      }
+    // close any open temp files
+    if ( data.merge != null ) {
+      data.merge.close();
+      data.merge = null;
     }
     // remove temp files
-    for ( int f = 0; f < data.files.size(); f++ ) {
-      FileObject fileToDelete = data.files.get( f );
+    deleteTempFiles( data.files );
+    data.files.clear();
+    data.bufferSizes.clear();
+  }
+
+  private void deleteTempFiles( List<FileObject> files ) {
+    for ( FileObject fileToDelete : files ) {
       try {
         if ( fileToDelete != null && fileToDelete.exists() ) {
           fileToDelete.delete();
@@ -619,7 +592,16 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.parallelSort ) {
+        // Sort on all cores, the sort is stable like Collections.sort()
+        Object[][] rows = elements.toArray( new Object[ elements.size() ][] );
+        Arrays.parallelSort( rows, data.rowComparator );
+        for ( int i = 0; i < rows.length; i++ ) {
+          elements.set( i, rows[ i ] );
+        }
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -647,6 +629,7 @@ public class SortRows extends BaseStep implements StepInterface {
     if ( data.files.size() > 0 ) {
       // dump to dist and then read from disk
       sortExternalRows();
+      waitForTempFile();
     } else {
       // sort in memory
       quickSort( data.buffer );
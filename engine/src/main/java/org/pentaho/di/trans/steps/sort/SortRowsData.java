@@ -13,14 +13,14 @@
 
 package org.pentaho.di.trans.steps.sort;
 
-import java.io.DataInputStream;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.Future;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.row.CompactRowCodec;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -30,24 +30,34 @@ import org.pentaho.di.trans.step.StepDataInterface;
  * @since 24-jan-2005
  */
 public class SortRowsData extends BaseStepData implements StepDataInterface {
+  /** The default size of the read buffer of every temp file during the merge, in bytes */
+  public static final int DEFAULT_MERGE_BUFFER_SIZE = 65536;
+
+  /** The default maximum number of temp files to read from at the same time */
+  public static final int DEFAULT_MAX_OPEN_FILES = 512;
+
   public List<FileObject> files;
   public List<Object[]> buffer;
   public int getBufferIndex;
 
-  public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
-  public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // Merges the sorted temp files
+  RowTempFileMerge merge;
+  public int mergeBufferSize;
+  public int maxOpenFiles;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
   public RowMetaInterface outputRowMeta;
   public int sortSize;
   public boolean compressFiles;
+  public CompressionProvider compression;
+  public CompactRowCodec codec;
+
+  // Sorting in parallel and writing the temp files in the background
+  public boolean parallelSort;
+  Future<Integer> pendingTempFile;
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
@@ -71,9 +81,6 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
     super();
 
     files = new ArrayList<FileObject>();
-    fis = new ArrayList<InputStream>();
-    gzis = new ArrayList<GZIPInputStream>();
-    dis = new ArrayList<DataInputStream>();
     bufferSizes = new ArrayList<Integer>();
 
     previous = null; // Heroic
@@ -113,6 +113,13 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
   /** The variable to use to set the compressFiles option boolean */
   private String compressFilesVariable;
 
+  /**
+   * Parallel sort: if set to true, the rows in memory are sorted using all available cores and temporary files are
+   * written in the background while the next rows are read
+   */
+  @Injection( name = "PARALLEL_SORT" )
+  private boolean parallelSort;
+
   public SortRowsMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -218,6 +225,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       compressFiles = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compress" ) );
       compressFilesVariable = XMLHandler.getTagValue( stepnode, "compress_variable" );
       onlyPassingUniqueRows = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "unique_rows" ) );
+      parallelSort = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "parallel_sort" ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrfields = XMLHandler.countNodes( fields, "field" );
@@ -254,6 +262,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     compressFiles = false;
     compressFilesVariable = null;
     onlyPassingUniqueRows = false;
+    parallelSort = false;
 
     int nrfields = 0;
 
@@ -284,6 +293,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress", compressFiles ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress_variable", compressFilesVariable ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "unique_rows", onlyPassingUniqueRows ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "parallel_sort", parallelSort ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
     for ( int i = 0; i < fieldName.length; i++ ) {
@@ -314,6 +324,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       compressFilesVariable = rep.getStepAttributeString( id_step, "compress_variable" );
 
       onlyPassingUniqueRows = rep.getStepAttributeBoolean( id_step, "unique_rows" );
+      parallelSort = rep.getStepAttributeBoolean( id_step, "parallel_sort" );
 
       int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
 
@@ -366,6 +377,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       rep.saveStepAttribute( id_transformation, id_step, "compress", compressFiles );
       rep.saveStepAttribute( id_transformation, id_step, "compress_variable", compressFilesVariable );
       rep.saveStepAttribute( id_transformation, id_step, "unique_rows", onlyPassingUniqueRows );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel_sort", parallelSort );
 
       for ( int i = 0; i < fieldName.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "field_name", fieldName[i] );
@@ -574,6 +586,21 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     this.compressFilesVariable = compressFilesVariable;
   }
 
+  /**
+   * @return true if the rows are sorted in parallel and temporary files are written in the background
+   */
+  public boolean isParallelSort() {
+    return parallelSort;
+  }
+
+  /**
+   * @param parallelSort
+   *          Whether to sort the rows in parallel and to write temporary files in the background
+   */
+  public void setParallelSort( boolean parallelSort ) {
+    this.parallelSort = parallelSort;
+  }
+
   /**
    * @return the caseSensitive
    */
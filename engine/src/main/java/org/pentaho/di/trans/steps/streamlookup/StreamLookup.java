@@ -19,6 +19,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -209,6 +210,13 @@ public class StreamLookup extends BaseStep implements StepInterface {
       rowData = getRowFrom( rowSet );
     }
 
+    if ( data.offHeapIndex != null ) {
+      logBasic( BaseMessages.getString( PKG, "StreamLookup.Log.OffHeapIndexMemory",
+        String.valueOf( data.offHeapIndex.getSize() ), String.valueOf( data.offHeapIndex.getMemorySize() ),
+        String.valueOf( data.offHeapIndex.getArenaBytesUsed() ), String.valueOf( data.offHeapIndex.getNrOfArenas() ),
+        String.valueOf( data.offHeapIndex.getCapacity() ) ) );
+    }
+
     return true;
   }
 
@@ -285,7 +293,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
   private void addToCache( RowMetaInterface keyMeta, Object[] keyData, RowMetaInterface valueMeta,
     Object[] valueData ) throws KettleValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( meta.isUsingOffHeapIndex() ) {
+      if ( data.offHeapIndex == null ) {
+        data.offHeapIndex = new OffHeapHashIndex();
+      }
+      data.offHeapIndex.put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -327,7 +340,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
   }
 
   private Object[] getFromCache( RowMetaInterface keyMeta, Object[] keyData ) throws KettleValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( meta.isUsingOffHeapIndex() ) {
+      // Only the value that matches is copied back on the heap
+      byte[] value = data.offHeapIndex == null ? null
+        : data.offHeapIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+      return value == null ? null : RowMeta.getRow( data.cacheValueMeta, value );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, null );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -474,6 +492,7 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    data.offHeapIndex = null;
 
     super.dispose( smi, sdi );
   }
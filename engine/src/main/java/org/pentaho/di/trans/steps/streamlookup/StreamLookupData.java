@@ -23,6 +23,7 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -64,6 +65,7 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
+  public OffHeapHashIndex offHeapIndex;
 
   public RowMetaInterface lookupMeta;
 
@@ -94,6 +94,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "INTEGER_PAIR" )
   private boolean usingIntegerPair;
 
+  /** Store the serialized keys and values outside of the Java heap */
+  @Injection( name = "OFF_HEAP_INDEX" )
+  private boolean usingOffHeapIndex;
+
   public StreamLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -156,6 +160,7 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "preserve_memory" ) ) );
       setUsingSortedList( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "sorted_list" ) ) );
       setUsingIntegerPair( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "integer_pair" ) ) );
+      setUsingOffHeapIndex( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "off_heap_index" ) ) );
 
       Node lookup = XMLHandler.getSubNode( stepnode, "lookup" );
       nrkeys = XMLHandler.countNodes( lookup, "key" );
@@ -204,6 +209,7 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     setMemoryPreservationActive( true );
     setUsingSortedList( false );
     setUsingIntegerPair( false );
+    setUsingOffHeapIndex( false );
 
     allocate( 0, 0 );
   }
@@ -247,6 +253,7 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "preserve_memory", isMemoryPreservationActive() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sorted_list", isUsingSortedList() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "integer_pair", isUsingIntegerPair() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "off_heap_index", isUsingOffHeapIndex() ) );
 
     retval.append( "    <lookup>" ).append( Const.CR );
     for ( int i = 0; i < getKeystream().length; i++ ) {
@@ -281,6 +288,7 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( rep.getStepAttributeBoolean( id_step, "preserve_memory" ) );
       setUsingSortedList( rep.getStepAttributeBoolean( id_step, "sorted_list" ) );
       setUsingIntegerPair( rep.getStepAttributeBoolean( id_step, "integer_pair" ) );
+      setUsingOffHeapIndex( rep.getStepAttributeBoolean( id_step, "off_heap_index" ) );
 
       int nrkeys = rep.countNrStepAttributes( id_step, "lookup_key_name" );
       int nrvalues = rep.countNrStepAttributes( id_step, "return_value_name" );
@@ -318,6 +326,7 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "preserve_memory", isMemoryPreservationActive() );
       rep.saveStepAttribute( id_transformation, id_step, "sorted_list", isUsingSortedList() );
       rep.saveStepAttribute( id_transformation, id_step, "integer_pair", isUsingIntegerPair() );
+      rep.saveStepAttribute( id_transformation, id_step, "off_heap_index", isUsingOffHeapIndex() );
 
       for ( int i = 0; i < getKeystream().length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "lookup_key_name", getKeystream()[i] );
@@ -660,6 +669,21 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     this.usingIntegerPair = usingIntegerPair;
   }
 
+  /**
+   * @return true if the keys and values are stored outside of the Java heap, whatever the other storage options are
+   */
+  public boolean isUsingOffHeapIndex() {
+    return usingOffHeapIndex;
+  }
+
+  /**
+   * @param usingOffHeapIndex
+   *          true to store the keys and values outside of the Java heap
+   */
+  public void setUsingOffHeapIndex( boolean usingOffHeapIndex ) {
+    this.usingOffHeapIndex = usingOffHeapIndex;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
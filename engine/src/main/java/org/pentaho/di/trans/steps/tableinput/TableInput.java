@@ -13,8 +13,13 @@
 
 package org.pentaho.di.trans.steps.tableinput;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -222,7 +227,7 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     }
   }
 
-  private boolean doQuery( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleDatabaseException {
+  private boolean doQuery( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleException {
     boolean success = true;
 
     // Open the query with the optional parameters received from the source steps.
@@ -233,6 +238,21 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
       sql = meta.getSQL();
     }
 
+    if ( data.partitionColumn != null ) {
+      RowMetaAndData partition = getPartition( sql, parametersMeta, parameters );
+      if ( partition == null ) {
+        // Only nulls or no rows at all: there is nothing to split, the first copy reads everything
+        if ( data.partitionNr > 0 ) {
+          return true;
+        }
+      } else {
+        sql = getPartitionSQL( data.db.getDatabaseMeta(), sql, data.partitionColumn, data.partitionNr == 0,
+          data.partitionNr == data.nrOfPartitions - 1 );
+        parametersMeta = partition.getRowMeta();
+        parameters = partition.getData();
+      }
+    }
+
     if ( log.isDetailed() ) {
       logDetailed( BaseMessages.getString( PKG, "TableInput.Log.SqlQuery", sql ) );
     }
@@ -272,6 +292,160 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     return success;
   }
 
+  /**
+   * Look up the smallest and largest value of the partition column in the result of the query and compute the range of
+   * this step copy.
+   *
+   * @return the parameters of the query followed by the lower and upper bound of the range of this copy, or null if the
+   * partition column only contains nulls
+   */
+  private RowMetaAndData getPartition( String sql, RowMetaInterface parametersMeta, Object[] parameters )
+    throws KettleException {
+    String rangeSQL = getPartitionRangeSQL( data.db.getDatabaseMeta(), sql, data.partitionColumn );
+    ResultSet rs;
+    if ( parametersMeta.isEmpty() ) {
+      rs = data.db.openQuery( rangeSQL, null, null, ResultSet.FETCH_FORWARD, false );
+    } else {
+      rs = data.db.openQuery( rangeSQL, parametersMeta, parameters, ResultSet.FETCH_FORWARD, false );
+    }
+    if ( rs == null ) {
+      throw new KettleDatabaseException( BaseMessages.getString( PKG, "TableInput.Log.CanNotOpenQuery", rangeSQL ) );
+    }
+    Object[] range;
+    ValueMetaInterface rangeMeta;
+    try {
+      range = data.db.getRow( rs );
+      rangeMeta = data.db.getReturnRowMeta().getValueMeta( 0 );
+    } finally {
+      data.db.closeQuery( rs );
+    }
+    if ( range == null || range[ 0 ] == null || range[ 1 ] == null ) {
+      return null;
+    }
+
+    Object[] bounds = getPartitionBounds( rangeMeta, range[ 0 ], range[ 1 ], data.partitionNr, data.nrOfPartitions );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TableInput.Log.PartitionRange", String.valueOf( data.partitionNr + 1 ),
+        String.valueOf( data.nrOfPartitions ), data.partitionColumn, rangeMeta.getString( bounds[ 0 ] ),
+        rangeMeta.getString( bounds[ 1 ] ) ) );
+    }
+
+    RowMetaInterface partitionMeta = parametersMeta.clone();
+    ValueMetaInterface lowerMeta = rangeMeta.clone();
+    lowerMeta.setName( "partition_lower_bound" );
+    partitionMeta.addValueMeta( lowerMeta );
+    ValueMetaInterface upperMeta = rangeMeta.clone();
+    upperMeta.setName( "partition_upper_bound" );
+    partitionMeta.addValueMeta( upperMeta );
+
+    return new RowMetaAndData( partitionMeta, RowDataUtil.addRowData( parameters, parametersMeta.size(), bounds ) );
+  }
+
+  /**
+   * @return the query returning the smallest and the largest value of the partition column of a query
+   */
+  static String getPartitionRangeSQL( DatabaseMeta databaseMeta, String sql, String partitionColumn ) {
+    return "SELECT MIN(" + partitionColumn + "), MAX(" + partitionColumn + ") FROM ( "
+      + stripTerminator( databaseMeta, sql ) + " ) kettle_partition";
+  }
+
+  /**
+   * Wrap a query so it only returns the rows with a value of the partition column between two parameters, added after
+   * the parameters of the query. The upper bound is included for the last partition only, and the rows with a null
+   * value are returned by the first partition.
+   */
+  static String getPartitionSQL( DatabaseMeta databaseMeta, String sql, String partitionColumn,
+                                 boolean firstPartition, boolean lastPartition ) {
+    StringBuilder partitionSQL = new StringBuilder( "SELECT * FROM ( " );
+    partitionSQL.append( stripTerminator( databaseMeta, sql ) ).append( " ) kettle_partition WHERE ( " );
+    partitionSQL.append( partitionColumn ).append( " >= ? AND " ).append( partitionColumn );
+    partitionSQL.append( lastPartition ? " <= ?" : " < ?" ).append( " )" );
+    if ( firstPartition ) {
+      partitionSQL.append( " OR " ).append( partitionColumn ).append( " IS NULL" );
+    }
+    return partitionSQL.toString();
+  }
+
+  private static String stripTerminator( DatabaseMeta databaseMeta, String sql ) {
+    String stripped = Const.trim( databaseMeta.stripCR( sql ) );
+    while ( stripped.endsWith( ";" ) ) {
+      stripped = Const.trim( stripped.substring( 0, stripped.length() - 1 ) );
+    }
+    return stripped;
+  }
+
+  /**
+   * Split the range between the smallest and the largest value in equal parts. Adjacent partitions compute the same
+   * boundary, so every value belongs to exactly one partition.
+   *
+   * @return the lower and the upper bound of the partition, described by the value metadata
+   */
+  static Object[] getPartitionBounds( ValueMetaInterface valueMeta, Object min, Object max, int partitionNr,
+                                      int nrOfPartitions ) throws KettleException {
+    boolean integral;
+    BigDecimal low;
+    BigDecimal high;
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        integral = true;
+        low = BigDecimal.valueOf( valueMeta.getInteger( min ) );
+        high = BigDecimal.valueOf( valueMeta.getInteger( max ) );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        integral = true;
+        low = BigDecimal.valueOf( valueMeta.getDate( min ).getTime() );
+        high = BigDecimal.valueOf( valueMeta.getDate( max ).getTime() );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        integral = false;
+        low = valueMeta.getBigNumber( min );
+        high = valueMeta.getBigNumber( max );
+        break;
+      default:
+        throw new KettleException( BaseMessages.getString( PKG, "TableInput.Exception.PartitionColumnType",
+          valueMeta.getName() ) );
+    }
+
+    // The outer bounds are the smallest and the largest value as the database returned them: a conversion could drop
+    // a precision the database keeps, like the nanoseconds of a timestamp, and lose the rows holding these values.
+    //
+    BigDecimal span = high.subtract( low );
+    Object lower = partitionNr == 0
+      ? min : toValue( valueMeta, getPartitionBoundary( low, span, partitionNr, nrOfPartitions, integral ) );
+    Object upper = partitionNr == nrOfPartitions - 1
+      ? max : toValue( valueMeta, getPartitionBoundary( low, span, partitionNr + 1, nrOfPartitions, integral ) );
+
+    return new Object[] { lower, upper };
+  }
+
+  private static BigDecimal getPartitionBoundary( BigDecimal low, BigDecimal span, int partitionNr,
+                                                  int nrOfPartitions, boolean integral ) {
+    BigDecimal offset = span.multiply( BigDecimal.valueOf( partitionNr ) );
+    if ( integral ) {
+      offset = offset.divide( BigDecimal.valueOf( nrOfPartitions ), 0, RoundingMode.FLOOR );
+    } else {
+      offset = offset.divide( BigDecimal.valueOf( nrOfPartitions ), MathContext.DECIMAL64 );
+    }
+    return low.add( offset );
+  }
+
+  private static Object toValue( ValueMetaInterface valueMeta, BigDecimal value ) {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return value.longValue();
+      case ValueMetaInterface.TYPE_DATE:
+        return new Date( value.longValue() );
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return new Timestamp( value.longValue() );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return value.doubleValue();
+      default:
+        return value;
+    }
+  }
+
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     dbLock.lock();
     try {
@@ -332,6 +506,18 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
         if ( meta.getDatabaseMeta().isRequiringTransactionsOnQueries() ) {
           data.db.setCommitSize( 100 ); // needed for PGSQL it seems...
         }
+
+        // Give every step copy its own range of the partition column
+        String partitionColumn = environmentSubstitute( meta.getPartitionColumn() );
+        if ( !Utils.isEmpty( partitionColumn ) && getUniqueStepCountAcrossSlaves() > 1 ) {
+          if ( meta.isExecuteEachInputRow() ) {
+            logBasic( BaseMessages.getString( PKG, "TableInput.Log.PartitionIgnoredEachRow" ) );
+          } else {
+            data.partitionColumn = meta.getDatabaseMeta().quoteField( partitionColumn );
+            data.partitionNr = getUniqueStepNrAcrossSlaves();
+            data.nrOfPartitions = getUniqueStepCountAcrossSlaves();
+          }
+        }
         return true;
       }
       return false;
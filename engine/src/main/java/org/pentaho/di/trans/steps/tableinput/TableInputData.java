@@ -36,6 +36,11 @@ public class TableInputData extends BaseDatabaseStepData implements StepDataInte
   public boolean isCanceled;
   public StreamInterface infoStream;
 
+  /** The quoted column used to split the query over the step copies, null if every copy reads all the rows */
+  public String partitionColumn;
+  public int partitionNr;
+  public int nrOfPartitions;
+
   public TableInputData() {
     super();
 
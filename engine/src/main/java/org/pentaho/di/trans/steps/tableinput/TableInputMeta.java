@@ -85,6 +85,10 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
   @Injection( name = "CACHED_ROW_META" )
   private boolean cachedRowMetaActive;
 
+  /** The numeric or date column used to split the query over the step copies, empty to read everything in each copy */
+  @Injection( name = "PARTITION_COLUMN" )
+  private String partitionColumn;
+
   private RowMetaInterface cachedRowMeta;
 
   public TableInputMeta() {
@@ -181,6 +185,7 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       variableReplacementActive = "Y".equals( XMLHandler.getTagValue( stepnode, "variables_active" ) );
       lazyConversionActive = "Y".equals( XMLHandler.getTagValue( stepnode, "lazy_conversion_active" ) );
       cachedRowMetaActive = "Y".equals( XMLHandler.getTagValue( stepnode, "cached_row_meta_active" ) );
+      partitionColumn = XMLHandler.getTagValue( stepnode, "partition_column" );
       cachedRowMeta = new RowMeta( XMLHandler.getSubNode( stepnode, RowMeta.XML_META_TAG ) );
 
     } catch ( Exception e ) {
@@ -301,6 +306,7 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     retval.append( "    " + XMLHandler.addTagValue( "variables_active", variableReplacementActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "lazy_conversion_active", lazyConversionActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "cached_row_meta_active", cachedRowMetaActive ) );
+    retval.append( "    " + XMLHandler.addTagValue( "partition_column", partitionColumn ) );
     storeCachedRowMeta( retval );
     return retval.toString();
   }
@@ -354,6 +360,7 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       variableReplacementActive = rep.getStepAttributeBoolean( id_step, "variables_active" );
       lazyConversionActive = rep.getStepAttributeBoolean( id_step, "lazy_conversion_active" );
       cachedRowMetaActive = rep.getStepAttributeBoolean( id_step, "cached_row_meta_active" );
+      partitionColumn = rep.getStepAttributeString( id_step, "partition_column" );
 
       String sRowMeta = rep.getStepAttributeString( id_step, RowMeta.XML_META_TAG );
       if ( sRowMeta != null ) {
@@ -380,6 +387,7 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       rep.saveStepAttribute( id_transformation, id_step, "variables_active", variableReplacementActive );
       rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion_active", lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, "cached_row_meta_active", cachedRowMetaActive );
+      rep.saveStepAttribute( id_transformation, id_step, "partition_column", partitionColumn );
       if ( cachedRowMeta != null ) {
         rep.saveStepAttribute( id_transformation, id_step, RowMeta.XML_META_TAG, cachedRowMeta.getMetaXML() );
       }
@@ -606,6 +614,21 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     this.cachedRowMetaActive = cachedRowMetaActive;
   }
 
+  /**
+   * @return the numeric or date column used to split the query over the step copies
+   */
+  public String getPartitionColumn() {
+    return partitionColumn;
+  }
+
+  /**
+   * @param partitionColumn the numeric or date column used to split the query over the step copies, empty to let every
+   *                        copy read all the rows of the query
+   */
+  public void setPartitionColumn( String partitionColumn ) {
+    this.partitionColumn = partitionColumn;
+  }
+
   /**
    * @return the cachedRowMetaActive
    */
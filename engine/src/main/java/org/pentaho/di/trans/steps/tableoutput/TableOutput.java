@@ -37,6 +37,7 @@ import org.pentaho.di.trans.step.*;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +59,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
   private TableOutputMeta meta;
   private TableOutputData data;
 
+  /** The rows written to the table that are not passed on yet */
+  private final List<Object[]> outputRows = new ArrayList<>();
+
   public TableOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
     Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -67,8 +71,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
-    Object[] r = getRow(); // this also waits for a previous step to be finished.
-    if ( r == null ) { // no more input to be expected...
+    long linesBefore = getLinesRead();
+    List<Object[]> rows = getRows( ROW_BATCH_SIZE ); // this also waits for a previous step to be finished.
+    if ( rows.isEmpty() ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this step
       if ( first && meta.truncateTable() ) {
         truncateTable();
@@ -119,18 +124,23 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
+      for ( Object[] r : rows ) {
+        Object[] outputRowData = writeToTable( getInputRowMeta(), r );
+        if ( outputRowData != null ) {
+          outputRows.add( outputRowData );
+          incrementLinesOutput();
+        }
       }
+      putOutputRows(); // in case we want it go further...
 
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( linesBefore, getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( "linenr " + getLinesRead() );
         }
       }
     } catch ( KettleException e ) {
+      // The rows written before the error are passed on
+      putOutputRows();
       logError( "Because of an error, this step can't continue: ", e );
       setErrors( 1 );
       stopAll();
@@ -397,6 +407,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           processBatchException( errorMessage, updateCounts, exceptionsList );
         } else {
           // Simply add this row to the error row
+          putOutputRows();
           putError( rowMeta, r, 1L, errorMessage, null, "TOP001" );
           outputRowData = null;
         }
@@ -416,6 +427,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       }
     } else {
       if ( sendToErrorRow ) {
+        putOutputRows();
         putError( rowMeta, r, 1, errorMessage, null, "TOP001" );
         outputRowData = null;
       }
@@ -428,6 +440,16 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  /**
+   * Pass on the rows written so far, before an error row so the rows keep their order.
+   */
+  private void putOutputRows() throws KettleStepException {
+    if ( !outputRows.isEmpty() ) {
+      putRows( data.outputRowMeta, outputRows );
+      outputRows.clear();
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
@@ -432,9 +432,10 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       meta.setEncoding( CharsetToolkit.getDefaultSystemCharset().name() );
     }
 
-    Object[] row = getRow(); // This also waits for a row to be finished.
+    List<Object[]> rows = getRows( ROW_BATCH_SIZE ); // This also waits for a row to be finished.
 
     if ( first ) {
+      Object[] row = rows.isEmpty() ? null : rows.get( 0 );
 
       if ( row != null ) {
         data.inputRowMeta = getInputRowMeta();
@@ -452,7 +453,17 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       }
     }
 
-    return writeRowTo( row );
+    if ( rows.isEmpty() ) {
+      return writeRowTo( null );
+    }
+    // Rows are written one by one: subclasses and the servlet output hook into writeRowTo()
+    //
+    for ( Object[] row : rows ) {
+      if ( !writeRowTo( row ) ) {
+        return false;
+      }
+    }
+    return true;
   }
 
   protected boolean writeRowTo( Object[] row ) throws KettleException {
@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.Const;
@@ -31,6 +32,7 @@ import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.DelegationListener;
 import org.pentaho.di.trans.StepWithMappingMeta;
@@ -42,6 +44,7 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.ParallelExecutions;
 import org.pentaho.di.trans.steps.TransStepUtil;
 
 /**
@@ -82,6 +85,7 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
       if ( row == null ) {
         executeTransformation( null );
+        collectParallelExecutions( false );
         setOutputDone();
         return false;
       }
@@ -197,7 +201,17 @@ public class TransExecutor extends BaseStep implements StepInterface {
       discardLogLines( transExecutorData );
     }
 
-    Trans executorTrans = createInternalTrans();
+    boolean parallel = transExecutorData.executions != null;
+    Trans executorTrans;
+    if ( parallel ) {
+      // Wait for a free slot, the finished execution gives its copy of the transformation back
+      while ( transExecutorData.executions.isFull() ) {
+        collectParallelExecution( transExecutorData.executions.take() );
+      }
+      executorTrans = createInternalTrans( transExecutorData.executorTransMetaPool.remove() );
+    } else {
+      executorTrans = createInternalTrans();
+    }
     transExecutorData.setExecutorTrans( executorTrans );
     if ( incomingFieldValues != null ) {
       // Pass parameter values
@@ -214,9 +228,24 @@ public class TransExecutor extends BaseStep implements StepInterface {
     getTrans().addActiveSubTransformation( getStepname(), executorTrans );
 
     Result result = new Result();
-    result.setRows( transExecutorData.groupBuffer );
+    // The group buffer is cleared while a parallel execution still reads its rows
+    result.setRows( parallel ? new ArrayList<>( transExecutorData.groupBuffer ) : transExecutorData.groupBuffer );
     executorTrans.setPreviousResult( result );
 
+    if ( parallel ) {
+      final Trans trans = executorTrans;
+      final Result previousResult = result;
+      transExecutorData.executions.submit( executorTrans, () -> runInternalTrans( trans, previousResult ) );
+      collectParallelExecutions( true );
+    } else {
+      result = runInternalTrans( executorTrans, result );
+      collectResults( executorTrans, result, transExecutorData.groupTimeStart );
+    }
+
+    transExecutorData.groupBuffer.clear();
+  }
+
+  private Result runInternalTrans( Trans executorTrans, Result result ) throws KettleException {
     try {
       executorTrans.prepareExecution( getTrans().getArguments() );
 
@@ -239,16 +268,41 @@ public class TransExecutor extends BaseStep implements StepInterface {
       result.setResult( false );
       result.setNrErrors( 1 );
     }
+    return result;
+  }
 
+  private void collectResults( Trans executorTrans, Result result, long startTime ) throws KettleException {
     if ( result.isSafeStop() ) {
       getTrans().safeStop();
     }
 
     collectTransResults( result );
-    collectExecutionResults( result );
+    collectExecutionResults( result, executorTrans, startTime );
     collectExecutionResultFiles( result );
+  }
 
-    transExecutorData.groupBuffer.clear();
+  /**
+   * Send the results of the parallel executions on as they finish.
+   *
+   * @param onlyFinished
+   *          true to collect only the executions that already finished, false to wait for all of them
+   */
+  private void collectParallelExecutions( boolean onlyFinished ) throws KettleException {
+    ParallelExecutions<Trans> executions = getData().executions;
+    if ( executions == null ) {
+      return;
+    }
+    ParallelExecutions.Execution<Trans> execution = onlyFinished ? executions.poll() : executions.take();
+    while ( execution != null ) {
+      collectParallelExecution( execution );
+      execution = onlyFinished ? executions.poll() : executions.take();
+    }
+  }
+
+  private void collectParallelExecution( ParallelExecutions.Execution<Trans> execution ) throws KettleException {
+    Trans executorTrans = execution.getExecutor();
+    getData().executorTransMetaPool.add( executorTrans.getTransMeta() );
+    collectResults( executorTrans, getData().executions.getResult( execution ), execution.getStartTime() );
   }
 
   @VisibleForTesting
@@ -263,7 +317,12 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   @VisibleForTesting
   Trans createInternalTrans() throws KettleException {
-    Trans executorTrans = new Trans( getData().getExecutorTransMeta(), this );
+    return createInternalTrans( getData().getExecutorTransMeta() );
+  }
+
+  @VisibleForTesting
+  Trans createInternalTrans( TransMeta executorTransMeta ) throws KettleException {
+    Trans executorTrans = new Trans( executorTransMeta, this );
 
     executorTrans.setParentTrans( getTrans() );
     executorTrans.setRepository( getTrans().getRepository() );
@@ -405,13 +464,17 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   @VisibleForTesting
   void collectExecutionResults( Result result ) throws KettleException {
+    collectExecutionResults( result, getData().getExecutorTrans(), getData().groupTimeStart );
+  }
+
+  private void collectExecutionResults( Result result, Trans executorTrans, long startTime ) throws KettleException {
     RowSet executionResultsRowSet = getData().getExecutionResultRowSet();
     if ( meta.getExecutionResultTargetStepMeta() != null && executionResultsRowSet != null ) {
       Object[] outputRow = RowDataUtil.allocateRowData( getData().getExecutionResultsOutputRowMeta().size() );
       int idx = 0;
 
       if ( !Utils.isEmpty( meta.getExecutionTimeField() ) ) {
-        outputRow[ idx++ ] = Long.valueOf( System.currentTimeMillis() - getData().groupTimeStart );
+        outputRow[ idx++ ] = Long.valueOf( System.currentTimeMillis() - startTime );
       }
       if ( !Utils.isEmpty( meta.getExecutionResultField() ) ) {
         outputRow[ idx++ ] = Boolean.valueOf( result.getResult() );
@@ -447,12 +510,12 @@ public class TransExecutor extends BaseStep implements StepInterface {
         outputRow[ idx++ ] = Long.valueOf( result.getExitStatus() );
       }
       if ( !Utils.isEmpty( meta.getExecutionLogTextField() ) ) {
-        String channelId = getData().getExecutorTrans().getLogChannelId();
+        String channelId = executorTrans.getLogChannelId();
         String logText = KettleLogStore.getAppender().getBuffer( channelId, false ).toString();
         outputRow[ idx++ ] = logText;
       }
       if ( !Utils.isEmpty( meta.getExecutionLogChannelIdField() ) ) {
-        outputRow[ idx++ ] = getData().getExecutorTrans().getLogChannelId();
+        outputRow[ idx++ ] = executorTrans.getLogChannelId();
       }
 
       putRowTo( getData().getExecutionResultsOutputRowMeta(), outputRow, executionResultsRowSet );
@@ -510,6 +573,18 @@ public class TransExecutor extends BaseStep implements StepInterface {
           if ( !Utils.isEmpty( meta.getGroupField() ) ) {
             transExecutorData.groupField = environmentSubstitute( meta.getGroupField() );
           }
+
+          // How many groups are executed at the same time?
+          int parallelExecutions = Const.toInt( environmentSubstitute( meta.getParallelExecutions() ), 1 );
+          if ( parallelExecutions > 1 ) {
+            // Every execution that runs at the same time gets its own copy of the transformation
+            transExecutorData.executorTransMetaPool = new ArrayBlockingQueue<>( parallelExecutions );
+            for ( int i = 0; i < parallelExecutions; i++ ) {
+              transExecutorData.executorTransMetaPool.add( cloneExecutorTransMeta() );
+            }
+            transExecutorData.executions =
+              new ParallelExecutions<>( getStepname() + "." + getCopy(), parallelExecutions, meta.isKeepOutputOrder() );
+          }
           // That's all for now...
           return true;
         } else {
@@ -524,6 +599,16 @@ public class TransExecutor extends BaseStep implements StepInterface {
     return false;
   }
 
+  @VisibleForTesting
+  TransMeta cloneExecutorTransMeta() {
+    TransMeta executorTransMeta = getData().getExecutorTransMeta();
+    TransMeta clone = (TransMeta) executorTransMeta.realClone( false );
+    clone.shareVariablesWith( new Variables() );
+    clone.copyVariablesFrom( executorTransMeta );
+    clone.copyParametersFrom( executorTransMeta );
+    return clone;
+  }
+
   @VisibleForTesting
   TransMeta loadExecutorTransMeta() throws KettleException {
     return TransExecutorMeta.loadMappingMeta( getTransMeta().getBowl(), meta, meta.getRepository(),
@@ -533,26 +618,39 @@ public class TransExecutor extends BaseStep implements StepInterface {
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     TransExecutorData transExecutorData = getData();
     transExecutorData.groupBuffer = null;
+    if ( transExecutorData.executions != null ) {
+      transExecutorData.executions.shutdown();
+      transExecutorData.executions = null;
+    }
+    transExecutorData.executorTransMetaPool = null;
     super.dispose( smi, sdi );
   }
 
   public void stopRunning( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface )
     throws KettleException {
-    if ( getData().getExecutorTrans() != null ) {
-      getData().getExecutorTrans().stopAll();
-    }
+    stopExecutorTransformations();
   }
 
   public void stopAll() {
     // Stop the transformation execution.
-    if ( getData().getExecutorTrans() != null ) {
-      getData().getExecutorTrans().stopAll();
-    }
+    stopExecutorTransformations();
 
     // Also stop this step
     super.stopAll();
   }
 
+  private void stopExecutorTransformations() {
+    if ( getData().getExecutorTrans() != null ) {
+      getData().getExecutorTrans().stopAll();
+    }
+    ParallelExecutions<Trans> executions = getData().executions;
+    if ( executions != null ) {
+      for ( Trans executorTrans : executions.getRunning() ) {
+        executorTrans.stopAll();
+      }
+    }
+  }
+
   public Trans getExecutorTrans() {
     return getData().getExecutorTrans();
   }
@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.transexecutor;
 
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
@@ -23,6 +24,7 @@ import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.ParallelExecutions;
 
 /**
  * @author Matt
@@ -50,6 +52,11 @@ public class TransExecutorData extends BaseStepData implements StepDataInterface
 
   public Object prevGroupFieldData;
 
+  /** The groups executed at the same time, null if the groups are executed one after the other */
+  public ParallelExecutions<Trans> executions;
+  /** A copy of the transformation for every execution that can run at the same time */
+  public BlockingQueue<TransMeta> executorTransMetaPool;
+
   private RowSet executorStepOutputRowSet;
   private RowSet resultRowsRowSet;
   private RowSet resultFilesRowSet;
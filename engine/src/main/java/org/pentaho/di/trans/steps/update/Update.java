@@ -15,11 +15,13 @@ package org.pentaho.di.trans.steps.update;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.json.simple.JSONObject;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -51,21 +53,8 @@ public class Update extends BaseDatabaseStep implements StepInterface {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
   }
 
-  private synchronized Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = row;
-    Object[] add;
-
-    // Create the output row and copy the input values
-    if ( !Utils.isEmpty( meta.getIgnoreFlagField() ) ) { // add flag field!
-
-      outputRow = new Object[data.outputRowMeta.size()];
-      for ( int i = 0; i < rowMeta.size(); i++ ) {
-        outputRow[i] = row[i];
-      }
-    }
-
-    // OK, now do the lookup.
-    // We need the lookupvalues for that.
+  private Object[] getLookupRow( Object[] row ) {
+    // We need the lookupvalues for the lookup
     Object[] lookupRow = new Object[data.lookupParameterRowMeta.size()];
     int lookupIndex = 0;
 
@@ -80,6 +69,14 @@ public class Update extends BaseDatabaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
+
+  private synchronized Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    Object[] add;
+
+    // OK, now do the lookup.
+    Object[] lookupRow = getLookupRow( row );
     RowMetaInterface returnRowMeta = null;
     if ( !meta.isSkipLookup() ) {
       data.db.setValues( data.lookupParameterRowMeta, lookupRow, data.prepStatementLookup );
@@ -95,6 +92,30 @@ public class Update extends BaseDatabaseStep implements StepInterface {
 
     incrementLinesInput();
 
+    return updateValues( rowMeta, row, lookupRow, add, returnRowMeta );
+  }
+
+  /**
+   * Update the changed values of a row that was found, or handle the row that wasn't found.
+   *
+   * @param lookupRow     the values of the lookup parameters
+   * @param add           the values found in the table or null if the row wasn't found
+   * @param returnRowMeta the metadata of the values found in the table
+   * @return the output row or null if the row went to the error handling
+   */
+  private Object[] updateValues( RowMetaInterface rowMeta, Object[] row, Object[] lookupRow, Object[] add,
+                                 RowMetaInterface returnRowMeta ) throws KettleException {
+    Object[] outputRow = row;
+
+    // Create the output row and copy the input values
+    if ( !Utils.isEmpty( meta.getIgnoreFlagField() ) ) { // add flag field!
+
+      outputRow = new Object[data.outputRowMeta.size()];
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        outputRow[i] = row[i];
+      }
+    }
+
     if ( add == null && !meta.isSkipLookup() ) {
       /*
        * nothing was found: throw error!
@@ -176,7 +197,11 @@ public class Update extends BaseDatabaseStep implements StepInterface {
             + data.lookupParameterRowMeta.getString( lookupRow ) );
         }
         data.db.setValues( data.updateParameterRowMeta, updateRow, data.prepStatementUpdate );
-        data.db.insertRow( data.prepStatementUpdate, meta.useBatchUpdate(), true );
+        if ( data.batchLookup != null ) {
+          addBatch();
+        } else {
+          data.db.insertRow( data.prepStatementUpdate, meta.useBatchUpdate(), true );
+        }
         incrementLinesUpdated();
       } else {
         incrementLinesSkipped();
@@ -191,6 +216,113 @@ public class Update extends BaseDatabaseStep implements StepInterface {
     return outputRow;
   }
 
+  /**
+   * Look up all the buffered rows with a single query, then update them in a batch and pass them on.
+   */
+  void processBatch() throws KettleException {
+    RowMetaInterface rowMeta = getInputRowMeta();
+    int nrOfRows = data.batchBuffer.size();
+
+    List<Object[]> lookupRows = new ArrayList<Object[]>( nrOfRows );
+    List<RowMetaAndData> keys = new ArrayList<RowMetaAndData>( nrOfRows );
+    for ( Object[] row : data.batchBuffer ) {
+      Object[] lookupRow = getLookupRow( row );
+      lookupRows.add( lookupRow );
+      keys.add( data.batchLookup.createKey( lookupRow ) );
+    }
+    Map<RowMetaAndData, RowMetaAndData> found = data.batchLookup.lookup( keys );
+
+    List<Object[]> outputRows = new ArrayList<Object[]>( nrOfRows );
+    for ( int i = 0; i < nrOfRows; i++ ) {
+      Object[] row = data.batchBuffer.get( i );
+      RowMetaAndData key = keys.get( i );
+      RowMetaAndData add = key == null ? null : found.get( key );
+      incrementLinesInput();
+
+      if ( add == null ) {
+        outputRows.add( updateValues( rowMeta, row, lookupRows.get( i ), null, null ) );
+      } else {
+        outputRows.add( updateValues( rowMeta, row, lookupRows.get( i ), add.getData(), add.getRowMeta() ) );
+
+        // The next rows of the batch with the same key have to find the values as they are now
+        Object[] values = new Object[data.valuenrs.length];
+        for ( int v = 0; v < data.valuenrs.length; v++ ) {
+          values[v] = row[data.valuenrs[v]];
+        }
+        found.put( key, new RowMetaAndData( data.lookupReturnRowMeta, values ) );
+      }
+    }
+
+    executeBatch();
+
+    for ( Object[] outputRow : outputRows ) {
+      if ( outputRow != null ) {
+        putRow( data.outputRowMeta, outputRow );
+      }
+    }
+    data.batchBuffer.clear();
+  }
+
+  private void addBatch() throws KettleDatabaseException {
+    try {
+      if ( data.useJdbcBatch ) {
+        data.prepStatementUpdate.addBatch();
+      } else {
+        data.prepStatementUpdate.executeUpdate();
+      }
+      data.batchUpdates++;
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error updating row", ex );
+    }
+  }
+
+  private void executeBatch() throws KettleDatabaseException {
+    if ( data.useJdbcBatch && data.batchUpdates > 0 ) {
+      try {
+        data.prepStatementUpdate.executeBatch();
+        data.prepStatementUpdate.clearBatch();
+      } catch ( SQLException ex ) {
+        throw new KettleDatabaseException( "Error updating a batch of rows", ex );
+      }
+    }
+
+    data.rowsSinceCommit += data.batchUpdates;
+    data.batchUpdates = 0;
+    if ( !data.db.isAutoCommit() && data.rowsSinceCommit >= data.commitSize ) {
+      data.db.commit();
+      data.rowsSinceCommit = 0;
+    }
+  }
+
+  private void initBatchLookup() throws KettleDatabaseException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      logBasic( BaseMessages.getString( PKG, "Update.Log.LookupBatchDisabledErrorHandling" ) );
+      return;
+    }
+    for ( int i = 0; i < meta.getKeyCondition().length; i++ ) {
+      if ( !"=".equals( meta.getKeyCondition()[i] ) ) {
+        logBasic( BaseMessages.getString( PKG, "Update.Log.LookupBatchDisabledCondition",
+          meta.getKeyCondition()[i] ) );
+        return;
+      }
+    }
+    for ( ValueMetaInterface keyValueMeta : data.lookupParameterRowMeta.getValueMetaList() ) {
+      if ( !BatchedKeyLookup.isMatchedExactly( keyValueMeta ) ) {
+        logBasic( BaseMessages.getString( PKG, "Update.Log.LookupBatchDisabledStringKey", keyValueMeta.getName() ) );
+        return;
+      }
+    }
+
+    data.batchLookup = new BatchedKeyLookup( data.db, data.schemaTable, meta.getKeyLookup(),
+      data.lookupParameterRowMeta, meta.getUpdateLookup(), meta.getLookupBatchSize() );
+    data.batchBuffer = new ArrayList<Object[]>( meta.getLookupBatchSize() );
+    data.useJdbcBatch = meta.useBatchUpdate() && !data.db.isAutoCommit() && data.db.getUseBatchInsert( true );
+    data.commitSize = meta.getCommitSize( this );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting batch lookup preparedStatement to [" + data.batchLookup.getSQL() + "]" );
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (UpdateMeta) smi;
     data = (UpdateData) sdi;
@@ -200,6 +332,15 @@ public class Update extends BaseDatabaseStep implements StepInterface {
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchLookup != null && !data.batchBuffer.isEmpty() ) {
+        try {
+          processBatch();
+        } catch ( KettleException e ) {
+          logError( BaseMessages.getString( PKG, "Update.Log.ErrorInStep" ), e );
+          setErrors( 1 );
+          stopAll();
+        }
+      }
 
       setOutputDone();
       return false;
@@ -303,12 +444,24 @@ public class Update extends BaseDatabaseStep implements StepInterface {
         setLookup( getInputRowMeta() );
       }
       prepareUpdate( getInputRowMeta() );
+
+      // Skipping the lookup already updates the rows in batches of the commit size when batch updates are used
+      if ( meta.getLookupBatchSize() > 0 && !meta.isSkipLookup() ) {
+        initBatchLookup();
+      }
     }
 
     try {
-      Object[] outputRow = lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
-      if ( outputRow != null ) {
-        putRow( data.outputRowMeta, outputRow ); // copy non-ignored rows to output rowset(s);
+      if ( data.batchLookup != null ) {
+        data.batchBuffer.add( r );
+        if ( data.batchBuffer.size() >= meta.getLookupBatchSize() ) {
+          processBatch();
+        }
+      } else {
+        Object[] outputRow = lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
+        if ( outputRow != null ) {
+          putRow( data.outputRowMeta, outputRow ); // copy non-ignored rows to output rowset(s);
+        }
       }
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
@@ -497,6 +650,9 @@ public class Update extends BaseDatabaseStep implements StepInterface {
             data.db.rollback();
           }
         }
+        if ( data.batchLookup != null ) {
+          data.batchLookup.close();
+        }
         data.db.closePreparedStatement( data.prepStatementUpdate );
         data.db.closePreparedStatement( data.prepStatementLookup );
       } catch ( KettleDatabaseException e ) {
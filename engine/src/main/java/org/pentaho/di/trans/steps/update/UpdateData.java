@@ -14,11 +14,13 @@
 package org.pentaho.di.trans.steps.update;
 
 import java.sql.PreparedStatement;
+import java.util.List;
 
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 /**
@@ -47,6 +49,14 @@ public class UpdateData extends BaseDatabaseStepData implements StepDataInterfac
   public RowMetaInterface lookupReturnRowMeta;
   public RowMetaInterface updateParameterRowMeta;
 
+  /** Looks up the buffered rows with a single query, null if every row is looked up on its own */
+  public BatchedKeyLookup batchLookup;
+  public List<Object[]> batchBuffer;
+  public boolean useJdbcBatch;
+  public int batchUpdates;
+  public int commitSize;
+  public int rowsSinceCommit;
+
   public UpdateData() {
     super();
 
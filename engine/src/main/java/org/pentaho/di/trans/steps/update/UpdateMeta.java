@@ -114,6 +114,10 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
   @Injection( name = "BATCH_UPDATE" )
   private boolean useBatchUpdate;
 
+  /** The number of rows to look up with a single query and to update as a batch, 0 looks up every row on its own */
+  @Injection( name = "LOOKUP_BATCH_SIZE" )
+  private int lookupBatchSize;
+
   @Injection( name = "CONNECTIONNAME" )
   public void setConnection( String connectionName ) {
     databaseMeta = DatabaseMeta.findDatabase( databases, connectionName );
@@ -374,6 +378,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
       commitSize = ( csize == null ) ? "0" : csize;
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
       skipLookup = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "skip_lookup" ) );
+      lookupBatchSize = Const.toInt( XMLHandler.getTagValue( stepnode, "lookup_batch_size" ), 0 );
       errorIgnored = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "error_ignored" ) );
       ignoreFlagField = XMLHandler.getTagValue( stepnode, "ignore_flag_field" );
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
@@ -419,6 +424,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
     updateLookup = null;
     databaseMeta = null;
     commitSize = "100";
+    lookupBatchSize = 0;
     schemaName = "";
     tableName = BaseMessages.getString( PKG, "UpdateMeta.DefaultTableName" );
 
@@ -449,6 +455,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
     retval.append( "    " + XMLHandler.addTagValue( "skip_lookup", skipLookup ) );
     retval.append( "    " + XMLHandler.addTagValue( "commit", commitSize ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XMLHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    " + XMLHandler.addTagValue( "error_ignored", errorIgnored ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_flag_field", ignoreFlagField ) );
     retval.append( "    <lookup>" + Const.CR );
@@ -495,6 +502,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
         }
       }
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
+      lookupBatchSize = (int) rep.getStepAttributeInteger( id_step, "lookup_batch_size" );
       schemaName = rep.getStepAttributeString( id_step, "schema" );
       tableName = rep.getStepAttributeString( id_step, "table" );
 
@@ -539,6 +547,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( id_transformation, id_step, "skip_lookup", skipLookup );
       rep.saveStepAttribute( id_transformation, id_step, "commit", commitSize );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
+      rep.saveStepAttribute( id_transformation, id_step, "lookup_batch_size", lookupBatchSize );
       rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
 
@@ -929,6 +938,23 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
     this.useBatchUpdate = useBatchUpdate;
   }
 
+  /**
+   * @return the number of rows to look up with a single query and to update as a batch, 0 to look up every row on
+   *         its own
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize
+   *          the number of rows to look up with a single query and to update as a batch, 0 to look up every row on
+   *          its own
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
@@ -0,0 +1,289 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.StepCountersSnapshot;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the counters of the transformations and jobs on the server, and a few JVM statistics, in the Prometheus
+ * text format. Scraping reads the row counters and row set sizes the steps keep anyway: it doesn't block the step
+ * threads and doesn't include any log text.
+ */
+@SuppressWarnings( {"squid:S1192", "squid:S1075" } ) // suppress warnings related to dup'd strings & non-config path
+public class GetMetricsServlet extends BaseHttpServlet implements CartePluginInterface {
+  private static final Class<?> PKG = GetMetricsServlet.class; // for i18n purposes, needed by Translator2!!
+
+  private static final long serialVersionUID = -2437716548562196043L;
+
+  public static final String CONTEXT_PATH = "/kettle/metrics";
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String COUNTER = "counter";
+  private static final String GAUGE = "gauge";
+
+  /**
+   * Collects the samples per metric and writes every metric under a single HELP and TYPE line.
+   */
+  private static class PrometheusText {
+    private final Map<String, StringBuilder> samples = new LinkedHashMap<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    void add( String name, String help, String type, String[] labels, double value ) {
+      StringBuilder builder = samples.get( name );
+      if ( builder == null ) {
+        builder = new StringBuilder();
+        samples.put( name, builder );
+        headers.put( name, "# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n" );
+      }
+      builder.append( name );
+      if ( labels.length > 0 ) {
+        builder.append( '{' );
+        for ( int i = 0; i < labels.length; i += 2 ) {
+          if ( i > 0 ) {
+            builder.append( ',' );
+          }
+          builder.append( labels[i] ).append( "=\"" );
+          escapeLabelValue( builder, labels[i + 1] );
+          builder.append( '"' );
+        }
+        builder.append( '}' );
+      }
+      builder.append( ' ' );
+      if ( value == Math.rint( value ) && !Double.isInfinite( value ) ) {
+        builder.append( (long) value );
+      } else {
+        builder.append( value );
+      }
+      builder.append( '\n' );
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder text = new StringBuilder();
+      for ( Map.Entry<String, StringBuilder> entry : samples.entrySet() ) {
+        text.append( headers.get( entry.getKey() ) ).append( entry.getValue() );
+      }
+      return text.toString();
+    }
+  }
+
+  public GetMetricsServlet() {
+  }
+
+  public GetMetricsServlet( TransformationMap transformationMap, JobMap jobMap ) {
+    super( transformationMap, jobMap );
+  }
+
+  /**
+   <div id="mindtouch">
+   <h1>/kettle/metrics</h1>
+   <a name="GET"></a>
+   <h2>GET</h2>
+   <p>Retrieve the metrics of the server in the Prometheus text format: the row counters, row set sizes and
+   states of the transformations and jobs present on the server, and the memory and threads of the JVM.
+   Rows per second are calculated from the counters by the monitoring system, for example with
+   <code>rate(kettle_step_rows_written_total[1m])</code>.</p>
+
+   <p><b>Example Request:</b><br />
+   <pre function="syntax.xml">
+   GET /kettle/metrics
+   </pre>
+   </p>
+
+   <h3>Response Body</h3>
+   <pre function="syntax.xml">
+   # HELP kettle_step_rows_written_total Rows written to the next steps.
+   # TYPE kettle_step_rows_written_total counter
+   kettle_step_rows_written_total{trans="dummy-trans",id="c56961b2",step="Dummy",copy="0"} 1000
+   </pre>
+   </div>
+   */
+  public void doGet( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    if ( isJettyMode() && !request.getContextPath().startsWith( CONTEXT_PATH ) ) {
+      return;
+    }
+
+    if ( log.isDebug() ) {
+      logDebug( BaseMessages.getString( PKG, "GetMetricsServlet.MetricsRequested" ) );
+    }
+    response.setStatus( HttpServletResponse.SC_OK );
+    response.setContentType( CONTENT_TYPE );
+
+    PrintWriter out = response.getWriter();
+    out.print( getMetrics() );
+    out.flush();
+  }
+
+  /**
+   * @return the current metrics in the Prometheus text format
+   */
+  String getMetrics() {
+    PrometheusText metrics = new PrometheusText();
+
+    for ( CarteObjectEntry entry : getTransformationMap().getTransformationObjects() ) {
+      Trans trans = getTransformationMap().getTransformation( entry );
+      if ( trans != null ) {
+        addTransMetrics( metrics, entry, trans );
+      }
+    }
+    for ( CarteObjectEntry entry : getJobMap().getJobObjects() ) {
+      Job job = getJobMap().getJob( entry );
+      if ( job != null ) {
+        addJobMetrics( metrics, entry, job );
+      }
+    }
+    addJvmMetrics( metrics );
+    return metrics.toString();
+  }
+
+  private void addTransMetrics( PrometheusText metrics, CarteObjectEntry entry, Trans trans ) {
+    String[] labels = { "trans", entry.getName(), "id", entry.getId() };
+
+    metrics.add( "kettle_trans_running", "1 if the transformation is running.", GAUGE, labels,
+      trans.isRunning() ? 1 : 0 );
+    metrics.add( "kettle_trans_paused", "1 if the transformation is paused.", GAUGE, labels,
+      trans.isPaused() ? 1 : 0 );
+    metrics.add( "kettle_trans_finished", "1 if the transformation is finished.", GAUGE, labels,
+      trans.isFinished() ? 1 : 0 );
+    if ( trans.getTransMeta() != null ) {
+      metrics.add( "kettle_trans_rowset_capacity_rows", "The number of rows a row set between two steps can hold.",
+        GAUGE, labels, trans.getTransMeta().getSizeRowset() );
+    }
+
+    // Copy the list, the steps of a transformation that is prepared again are replaced
+    List<StepMetaDataCombi> steps = trans.getSteps() == null ? null : new ArrayList<>( trans.getSteps() );
+    long errors = 0;
+    if ( steps != null ) {
+      for ( StepMetaDataCombi combi : steps ) {
+        StepInterface step = combi.step;
+        if ( step == null ) {
+          continue;
+        }
+        String[] stepLabels =
+          { "trans", entry.getName(), "id", entry.getId(), "step", combi.stepname, "copy",
+            Integer.toString( combi.copy ) };
+
+        StepCountersSnapshot counters = step.getCountersSnapshot();
+        errors += counters.getErrors();
+        metrics.add( "kettle_step_rows_read_total", "Rows read from the previous steps.", COUNTER, stepLabels,
+          counters.getLinesRead() );
+        metrics.add( "kettle_step_rows_written_total", "Rows written to the next steps.", COUNTER, stepLabels,
+          counters.getLinesWritten() );
+        metrics.add( "kettle_step_rows_input_total", "Rows read from a file, database, etc.", COUNTER, stepLabels,
+          counters.getLinesInput() );
+        metrics.add( "kettle_step_rows_output_total", "Rows written to a file, database, etc.", COUNTER, stepLabels,
+          counters.getLinesOutput() );
+        metrics.add( "kettle_step_rows_updated_total", "Rows updated in a database.", COUNTER, stepLabels,
+          counters.getLinesUpdated() );
+        metrics.add( "kettle_step_rows_rejected_total", "Rows sent to error handling.", COUNTER, stepLabels,
+          counters.getLinesRejected() );
+        metrics.add( "kettle_step_errors_total", "Errors of the step.", COUNTER, stepLabels, counters.getErrors() );
+
+        // A full output row set means the step waits for the next step, an empty input row set for the previous one
+        metrics.add( "kettle_step_input_buffer_rows", "Rows waiting in the input row sets of the step.", GAUGE,
+          stepLabels, step.rowsetInputSize() );
+        metrics.add( "kettle_step_output_buffer_rows", "Rows waiting in the output row sets of the step.", GAUGE,
+          stepLabels, step.rowsetOutputSize() );
+        metrics.add( "kettle_step_running", "1 if the step is running.", GAUGE, stepLabels, step.isRunning() ? 1 : 0 );
+      }
+    }
+    metrics.add( "kettle_trans_errors", "Errors of the steps of the transformation.", GAUGE, labels, errors );
+  }
+
+  private void addJobMetrics( PrometheusText metrics, CarteObjectEntry entry, Job job ) {
+    String[] labels = { "job", entry.getName(), "id", entry.getId() };
+
+    metrics.add( "kettle_job_running", "1 if the job is running.", GAUGE, labels, job.isActive() ? 1 : 0 );
+    metrics.add( "kettle_job_finished", "1 if the job is finished.", GAUGE, labels, job.isFinished() ? 1 : 0 );
+    metrics.add( "kettle_job_errors", "Errors of the job.", GAUGE, labels, job.getErrors() );
+  }
+
+  private void addJvmMetrics( PrometheusText metrics ) {
+    Runtime runtime = Runtime.getRuntime();
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    String[] noLabels = {};
+
+    metrics.add( "jvm_memory_used_bytes", "Used heap memory.", GAUGE, noLabels,
+      runtime.totalMemory() - runtime.freeMemory() );
+    metrics.add( "jvm_memory_committed_bytes", "Heap memory allocated by the JVM.", GAUGE, noLabels,
+      runtime.totalMemory() );
+    metrics.add( "jvm_memory_max_bytes", "Maximum heap memory.", GAUGE, noLabels, runtime.maxMemory() );
+    metrics.add( "jvm_threads_live", "Live threads.", GAUGE, noLabels, threadMXBean.getThreadCount() );
+    metrics.add( "jvm_threads_peak", "Peak number of live threads.", GAUGE, noLabels,
+      threadMXBean.getPeakThreadCount() );
+    metrics.add( "jvm_available_processors", "Processors available to the JVM.", GAUGE, noLabels,
+      runtime.availableProcessors() );
+    metrics.add( "jvm_uptime_seconds", "Time since the JVM started.", GAUGE, noLabels,
+      ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0 );
+    double loadAverage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+    if ( loadAverage >= 0 ) {
+      metrics.add( "system_load_average_1m", "System load average over the last minute.", GAUGE, noLabels,
+        loadAverage );
+    }
+  }
+
+  static void escapeLabelValue( StringBuilder builder, String value ) {
+    if ( value == null ) {
+      return;
+    }
+    for ( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      switch ( c ) {
+        case '\\':
+          builder.append( "\\\\" );
+          break;
+        case '"':
+          builder.append( "\\\"" );
+          break;
+        case '\n':
+          builder.append( "\\n" );
+          break;
+        default:
+          builder.append( c );
+          break;
+      }
+    }
+  }
+
+  public String toString() {
+    return "Metrics Handler";
+  }
+
+  public String getService() {
+    return CONTEXT_PATH + " (" + toString() + ")";
+  }
+
+  public String getContextPath() {
+    return CONTEXT_PATH;
+  }
+}
@@ -29,6 +29,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.compress.hadoopsnappy.HadoopSnappyCompressionProvider;
+import org.pentaho.di.core.compress.lz4.LZ4CompressionProvider;
 import org.pentaho.di.core.compress.snappy.SnappyCompressionProvider;
 import org.pentaho.di.core.compress.zip.ZIPCompressionProvider;
 import org.pentaho.di.core.plugins.PluginRegistry;
@@ -94,6 +95,12 @@ public class CompressionProviderFactoryTest {
     assertTrue( provider.getClass().isAssignableFrom( HadoopSnappyCompressionProvider.class ) );
     assertEquals( "Hadoop-snappy", provider.getName() );
     assertEquals( "Hadoop Snappy compression", provider.getDescription() );
+
+    provider = factory.createCompressionProviderInstance( "LZ4" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( LZ4CompressionProvider.class ) );
+    assertEquals( "LZ4", provider.getName() );
+    assertEquals( "LZ4 compression", provider.getDescription() );
   }
 
   /**
@@ -109,6 +116,7 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "LZ4", false );
       }
     };
 
@@ -140,6 +148,7 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "LZ4", false );
       }
     };
 
@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.compress.lz4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionPluginType;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class LZ4CompressionProviderTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  public static final String PROVIDER_NAME = "LZ4";
+
+  public CompressionProviderFactory factory = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    PluginRegistry.addPluginType( CompressionPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    factory = CompressionProviderFactory.getInstance();
+  }
+
+  @Test
+  public void testGetName() {
+    LZ4CompressionProvider provider = (LZ4CompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertNotNull( provider );
+    assertEquals( PROVIDER_NAME, provider.getName() );
+  }
+
+  @Test
+  public void testGetProviderAttributes() {
+    LZ4CompressionProvider provider = (LZ4CompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertEquals( "LZ4 compression", provider.getDescription() );
+    assertTrue( provider.supportsInput() );
+    assertTrue( provider.supportsOutput() );
+    assertEquals( "lz4", provider.getDefaultExtension() );
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    LZ4CompressionProvider provider = new LZ4CompressionProvider();
+    byte[] testBytes = "Test Test Test Test Test Test Test Test".getBytes();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    LZ4CompressionOutputStream outStream = provider.createOutputStream( out );
+    outStream.write( testBytes );
+    outStream.close();
+
+    LZ4CompressionInputStream inStream = provider.createInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+    assertArrayEquals( testBytes, IOUtils.toByteArray( inStream ) );
+    inStream.close();
+  }
+}
@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.performance;
+
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StepPerformanceHistoryTest {
+
+  private static void add( StepPerformanceHistory history, int seqNr, long time, long linesWritten, long bufferSize ) {
+    history.addSnapShot( seqNr, 1L, time, 0L, linesWritten, 0L, 0L, 0L, 0L, 0L, bufferSize, 0L );
+  }
+
+  @Test
+  public void testLimitKeepsTheLastSnapShots() {
+    StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 3 );
+    for ( int i = 1; i <= 10; i++ ) {
+      add( history, i, i * 1000L, i * 100L, 0L );
+    }
+
+    List<StepPerformanceSnapShot> snapShots = history.getSnapShots();
+    assertEquals( 3, snapShots.size() );
+    assertEquals( 3, history.size() );
+    assertEquals( 8, snapShots.get( 0 ).getSeqNr() );
+    assertEquals( 10, history.getLastSeqNr() );
+    // The oldest snapshot that is kept still has its difference with the one before it
+    assertEquals( 100L, snapShots.get( 0 ).getLinesWritten() );
+    assertEquals( 1000L, snapShots.get( 0 ).getTimeDifference() );
+    assertEquals( "step", snapShots.get( 0 ).getStepName() );
+    assertEquals( "trans", snapShots.get( 0 ).getTransName() );
+  }
+
+  @Test
+  public void testBuffersGrowUpToTheLimit() {
+    StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 100 );
+    for ( int i = 1; i <= 250; i++ ) {
+      add( history, i, i * 1000L, i * 10L, 0L );
+    }
+
+    List<StepPerformanceSnapShot> snapShots = history.getSnapShots();
+    assertEquals( 100, snapShots.size() );
+    assertEquals( 151, snapShots.get( 0 ).getSeqNr() );
+    assertEquals( 10L, snapShots.get( 0 ).getLinesWritten() );
+    assertEquals( 250, snapShots.get( 99 ).getSeqNr() );
+    // 250 seconds: 5 minutes
+    assertEquals( 5, history.getSnapShots( StepPerformanceHistory.RESOLUTION_MINUTE, 0 ).size() );
+  }
+
+  @Test
+  public void testWithoutLimitTheDefaultLimitIsUsed() {
+    String old = System.getProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT );
+    try {
+      System.setProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT, "50" );
+      StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 0 );
+      for ( int i = 1; i <= 200; i++ ) {
+        add( history, i, i * 1000L, i * 10L, 0L );
+      }
+
+      List<StepPerformanceSnapShot> snapShots = history.getSnapShots();
+      assertEquals( 50, snapShots.size() );
+      assertEquals( 151, snapShots.get( 0 ).getSeqNr() );
+      assertEquals( 10L, snapShots.get( 0 ).getLinesWritten() );
+    } finally {
+      if ( old == null ) {
+        System.clearProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT );
+      } else {
+        System.setProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_DEFAULT_LIMIT, old );
+      }
+    }
+  }
+
+  @Test
+  public void testWithoutLimitAllSnapShotsUpToTheDefaultLimitAreKept() {
+    StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 0 );
+    for ( int i = 1; i <= 200; i++ ) {
+      add( history, i, i * 1000L, i * 10L, 0L );
+    }
+
+    List<StepPerformanceSnapShot> snapShots = history.getSnapShots();
+    assertEquals( 200, snapShots.size() );
+    assertEquals( 1, snapShots.get( 0 ).getSeqNr() );
+    assertEquals( 10L, snapShots.get( 0 ).getLinesWritten() );
+    assertEquals( 0L, snapShots.get( 0 ).getTimeDifference() );
+    assertEquals( 2000L, snapShots.get( 199 ).getTotalLinesWritten() );
+  }
+
+  @Test
+  public void testSnapShotsAfterASequenceNumber() {
+    StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 0 );
+    for ( int i = 1; i <= 5; i++ ) {
+      add( history, i, i * 1000L, i * i * 10L, 0L );
+    }
+
+    List<StepPerformanceSnapShot> snapShots =
+      history.getSnapShots( StepPerformanceHistory.RESOLUTION_CAPTURED, 3 );
+    assertEquals( 2, snapShots.size() );
+    assertEquals( 4, snapShots.get( 0 ).getSeqNr() );
+    assertEquals( 70L, snapShots.get( 0 ).getLinesWritten() );
+    assertEquals( 90L, snapShots.get( 1 ).getLinesWritten() );
+    assertEquals( 0, history.getSnapShots( StepPerformanceHistory.RESOLUTION_CAPTURED, 5 ).size() );
+  }
+
+  @Test
+  public void testMinutesKeepTheLastSnapShotOfEveryMinute() {
+    StepPerformanceHistory history = new StepPerformanceHistory( "trans", "step", 0, 10 );
+    // A snapshot every 10 seconds during 3 minutes
+    for ( int i = 0; i < 18; i++ ) {
+      add( history, i + 1, i * 10000L, i * 100L, i == 2 ? 50L : 1L );
+    }
+
+    List<StepPerformanceSnapShot> minutes = history.getSnapShots( StepPerformanceHistory.RESOLUTION_MINUTE, 0 );
+    assertEquals( 3, minutes.size() );
+    assertEquals( 6, minutes.get( 0 ).getSeqNr() );
+    assertEquals( 500L, minutes.get( 0 ).getTotalLinesWritten() );
+    assertEquals( 50L, minutes.get( 0 ).getInputBufferSize() );
+    assertEquals( 1100L, minutes.get( 1 ).getTotalLinesWritten() );
+    assertEquals( 600L, minutes.get( 1 ).getLinesWritten() );
+    assertEquals( 60000L, minutes.get( 1 ).getTimeDifference() );
+    assertEquals( 1L, minutes.get( 1 ).getInputBufferSize() );
+
+    List<StepPerformanceSnapShot> hours = history.getSnapShots( StepPerformanceHistory.RESOLUTION_HOUR, 0 );
+    assertEquals( 1, hours.size() );
+    assertEquals( 1700L, hours.get( 0 ).getTotalLinesWritten() );
+    assertEquals( 50L, hours.get( 0 ).getInputBufferSize() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testUnknownResolution() {
+    new StepPerformanceHistory( "trans", "step", 0, 0 ).getSnapShots( 1000L, 0 );
+  }
+}
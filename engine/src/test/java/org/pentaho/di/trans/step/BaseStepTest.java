@@ -486,6 +486,40 @@ public class BaseStepTest {
       0 } );
   }
 
+  @Test( expected = KettleStepException.class )
+  public void emptyFieldNameAddedAfterFirstRow() throws KettleStepException {
+    BaseStep baseStep =
+        new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandler );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaBase( "name", ValueMetaInterface.TYPE_INTEGER ) );
+    baseStep.putRow( rowMeta, new Object[] {
+      0 } );
+
+    rowMeta.addValueMeta( new ValueMetaBase( "", ValueMetaInterface.TYPE_INTEGER ) );
+    baseStep.putRow( rowMeta, new Object[] {
+      0, 1 } );
+  }
+
+  @Test
+  public void fieldNamesCheckedOncePerRowMeta() throws KettleStepException {
+    BaseStep baseStep =
+        new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandler );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaBase( "name", ValueMetaInterface.TYPE_INTEGER ) );
+    RowMetaInterface spyRowMeta = spy( rowMeta );
+
+    for ( int i = 0; i < 10; i++ ) {
+      baseStep.putRow( spyRowMeta, new Object[] {
+        i } );
+    }
+    verify( spyRowMeta, times( 1 ) ).getValueMetaList();
+    verify( rowHandler, times( 10 ) ).putRow( any(), any() );
+  }
+
   @Test
   public void testGetRowSafeModeEnabled() throws KettleException {
     Trans transMock = mock( Trans.class );
@@ -509,4 +543,198 @@ public class BaseStepTest {
     baseStepSpy.getRow();
     verify( mockHelper.transMeta, times( 1 ) ).checkRowMixingStatically( any( StepMeta.class ), any() );
   }
+
+  private BaseStep createReadingStep( Trans trans, RowSet... inputRowSets ) throws KettleException {
+    BaseStep baseStepSpy =
+      spy( new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, trans ) );
+    doNothing().when( baseStepSpy ).waitUntilTransformationIsStarted();
+    doNothing().when( baseStepSpy ).openRemoteInputStepSocketsOnce();
+    baseStepSpy.setInputRowSets( new ArrayList<>( Arrays.asList( inputRowSets ) ) );
+    return baseStepSpy;
+  }
+
+  private RowSet createInputRowSet( String name, int nrRows ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "source" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "nr" ) );
+    RowSet rowSet = new QueueRowSet();
+    for ( long i = 0; i < nrRows; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { name, i } );
+    }
+    return rowSet;
+  }
+
+  @Test
+  public void testGetRowsDrainsTheCurrentRowSet() throws KettleException {
+    RowSet rowSet = createInputRowSet( "a", 5 );
+    BaseStep baseStep = createReadingStep( mockHelper.trans, rowSet );
+    RowListener listener = mock( RowListener.class );
+    baseStep.addRowListener( listener );
+
+    List<Object[]> rows = baseStep.getRows( 3 );
+    assertEquals( 3, rows.size() );
+    assertEquals( 3L, baseStep.getLinesRead() );
+    assertEquals( 2, rowSet.size() );
+
+    rows = baseStep.getRows( 10 );
+    assertEquals( 2, rows.size() );
+    assertEquals( 3L, rows.get( 0 )[ 1 ] );
+    assertEquals( 4L, rows.get( 1 )[ 1 ] );
+    assertEquals( 5L, baseStep.getLinesRead() );
+    verify( listener, times( 5 ) ).rowReadEvent( any( RowMetaInterface.class ), any( Object[].class ) );
+  }
+
+  @Test
+  public void testGetRowsStaysOnTheRowSetOfTheFirstRow() throws KettleException {
+    RowSet rowSet1 = createInputRowSet( "a", 2 );
+    RowSet rowSet2 = createInputRowSet( "b", 3 );
+    BaseStep baseStep = createReadingStep( mockHelper.trans, rowSet1, rowSet2 );
+
+    List<Object[]> rows = baseStep.getRows( 10 );
+    assertEquals( 2, rows.size() );
+    for ( Object[] row : rows ) {
+      assertEquals( "a", row[ 0 ] );
+    }
+    assertEquals( 3, rowSet2.size() );
+  }
+
+  @Test
+  public void testGetRowsDoesNotDrainWhenGetRowIsOverridden() throws KettleException {
+    RowSet rowSet = createInputRowSet( "a", 3 );
+    BaseStep baseStep =
+      spy( new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans ) );
+    baseStep.setInputRowSets( new ArrayList<>( Collections.singletonList( rowSet ) ) );
+    doReturn( new Object[] { "other", 0L } ).when( baseStep ).getRow();
+
+    List<Object[]> rows = baseStep.getRows( 10 );
+    assertEquals( 1, rows.size() );
+    assertEquals( "other", rows.get( 0 )[ 0 ] );
+    assertEquals( 3, rowSet.size() );
+  }
+
+  @Test
+  public void testGetRowsChecksTheDrainedRows() throws KettleException {
+    Trans transMock = mock( Trans.class );
+    when( transMock.isSafeModeEnabled() ).thenReturn( true );
+    BaseStep baseStep = createReadingStep( transMock, createInputRowSet( "a", 4 ) );
+
+    assertEquals( 4, baseStep.getRows( 10 ).size() );
+    // Once for the first row, once for the rows drained after it
+    verify( mockHelper.transMeta, times( 2 ) ).checkRowMixingStatically( any( StepMeta.class ), any() );
+    verify( mockHelper.stepMeta, times( 2 ) ).getStepErrorMeta();
+  }
+
+  @Test
+  public void testPutRowsToASingleRowSet() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    RowSet rowSet = new QueueRowSet();
+    baseStep.setOutputRowSets( new ArrayList<>( Collections.singletonList( rowSet ) ) );
+    RowListener listener = mock( RowListener.class );
+    baseStep.addRowListener( listener );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "nr" ) );
+    baseStep.putRows( rowMeta, Arrays.asList( new Object[] { 0L }, new Object[] { 1L }, new Object[] { 2L } ) );
+
+    assertEquals( 3L, baseStep.getLinesWritten() );
+    verify( listener, times( 3 ) ).rowWrittenEvent( any( RowMetaInterface.class ), any( Object[].class ) );
+    for ( long i = 0; i < 3; i++ ) {
+      assertEquals( i, rowSet.getRow()[ 0 ] );
+    }
+    assertNull( rowSet.getRow() );
+  }
+
+  @Test
+  public void testPutRowsDistributesRoundRobin() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    baseStep.setDistributed( true );
+    RowSet rowSet1 = new QueueRowSet();
+    RowSet rowSet2 = new QueueRowSet();
+    baseStep.setOutputRowSets( new ArrayList<>( Arrays.asList( rowSet1, rowSet2 ) ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "nr" ) );
+    baseStep.putRows( rowMeta,
+      Arrays.asList( new Object[] { 0L }, new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L } ) );
+
+    assertEquals( 4L, baseStep.getLinesWritten() );
+    assertEquals( 0L, rowSet1.getRow()[ 0 ] );
+    assertEquals( 2L, rowSet1.getRow()[ 0 ] );
+    assertEquals( 1L, rowSet2.getRow()[ 0 ] );
+    assertEquals( 3L, rowSet2.getRow()[ 0 ] );
+  }
+
+  @Test
+  public void testCountersAreExactUnderConcurrentUpdates() throws InterruptedException {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrOfThreads = 4;
+    final int nrOfRows = 100000;
+
+    // Every thread reads a row before it writes it, like a step does
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < nrOfThreads; t++ ) {
+      threads.add( new Thread( () -> {
+        for ( int i = 0; i < nrOfRows; i++ ) {
+          baseStep.incrementLinesRead();
+          baseStep.incrementLinesWritten();
+          baseStep.incrementLinesRejected();
+        }
+      } ) );
+    }
+    threads.forEach( Thread::start );
+
+    // A monitor never sees more rows written than read
+    boolean running = true;
+    while ( running ) {
+      StepCountersSnapshot counters = baseStep.getCountersSnapshot();
+      assertTrue( counters.getLinesWritten() <= counters.getLinesRead() );
+      running = threads.stream().anyMatch( Thread::isAlive );
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+
+    StepCountersSnapshot counters = baseStep.getCountersSnapshot();
+    assertEquals( nrOfThreads * nrOfRows, counters.getLinesRead() );
+    assertEquals( nrOfThreads * nrOfRows, counters.getLinesWritten() );
+    assertEquals( nrOfThreads * nrOfRows, counters.getLinesRejected() );
+    assertEquals( baseStep.getLinesRead(), counters.getLinesRead() );
+
+    baseStep.setLinesRead( 5L );
+    baseStep.decrementLinesRead();
+    assertEquals( 4L, baseStep.getLinesRead() );
+    assertEquals( 6L, baseStep.addLinesRead( 2L ) );
+  }
+
+  @Test
+  @SuppressWarnings( "deprecation" )
+  public void testDeprecatedCounterFieldsAreCounted() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    // A plugin that still updates the public fields
+    baseStep.linesRead++;
+    baseStep.linesWritten += 2;
+    baseStep.linesRejected++;
+    baseStep.incrementLinesRead();
+
+    assertEquals( 2L, baseStep.getLinesRead() );
+    assertEquals( 2L, baseStep.getLinesWritten() );
+    assertEquals( 1L, baseStep.getLinesRejected() );
+    StepCountersSnapshot counters = baseStep.getCountersSnapshot();
+    assertEquals( 2L, counters.getLinesRead() );
+    assertEquals( 2L, counters.getLinesWritten() );
+    assertEquals( 1L, counters.getLinesRejected() );
+
+    baseStep.setLinesRead( 5L );
+    assertEquals( 0L, baseStep.linesRead );
+    assertEquals( 5L, baseStep.getLinesRead() );
+  }
 }
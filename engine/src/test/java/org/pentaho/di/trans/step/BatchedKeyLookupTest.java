@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BatchedKeyLookupTest {
+  private Database db;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    dbMeta.setName( "mem:batchedKeyLookup" );
+    dbMeta.setDBName( "mem:batchedKeyLookup" );
+    dbMeta.setDatabaseType( "H2" );
+
+    db = new Database( mock( LoggingObjectInterface.class ), dbMeta );
+    db.connect();
+    db.execStatement( "CREATE TABLE CUSTOMER ( ID INTEGER, CODE VARCHAR(10), NAME VARCHAR(20) )" );
+    for ( int id = 1; id <= 10; id++ ) {
+      db.execStatement( "INSERT INTO CUSTOMER VALUES ( " + id + ", 'c" + id + "', 'name" + id + "' )" );
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    db.execStatement( "DROP TABLE CUSTOMER" );
+    db.disconnect();
+  }
+
+  @Test
+  public void testSingleKeyOverSeveralQueries() throws Exception {
+    RowMetaInterface keyRowMeta = new RowMeta();
+    keyRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    BatchedKeyLookup lookup = new BatchedKeyLookup( db, "CUSTOMER", new String[] { "ID" }, keyRowMeta,
+      new String[] { "NAME" }, 3 );
+    assertEquals( 3, lookup.getKeysPerQuery() );
+    assertTrue( lookup.getSQL(), lookup.getSQL().contains( " IN ( ?, ?, ? )" ) );
+
+    List<RowMetaAndData> keys = new ArrayList<>();
+    for ( long id : new long[] { 1L, 2L, 3L, 2L, 4L, 99L, 5L } ) {
+      keys.add( lookup.createKey( new Object[] { id } ) );
+    }
+    RowMetaAndData nullKey = lookup.createKey( new Object[] { null } );
+    assertNull( nullKey );
+    keys.add( nullKey );
+
+    Map<RowMetaAndData, RowMetaAndData> found = lookup.lookup( keys );
+    lookup.close();
+
+    assertEquals( 5, found.size() );
+    for ( long id = 1L; id <= 5L; id++ ) {
+      RowMetaAndData values = found.get( lookup.createKey( new Object[] { id } ) );
+      assertEquals( 1, values.size() );
+      assertEquals( "name" + id, values.getString( 0, null ) );
+    }
+    assertNull( found.get( lookup.createKey( new Object[] { 99L } ) ) );
+  }
+
+  @Test
+  public void testCompositeKeyWithLazyConversion() throws Exception {
+    ValueMetaInterface code = new ValueMetaString( "code" );
+    code.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    code.setStorageMetadata( new ValueMetaString( "code" ) );
+
+    RowMetaInterface keyRowMeta = new RowMeta();
+    keyRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    keyRowMeta.addValueMeta( code );
+
+    BatchedKeyLookup lookup = new BatchedKeyLookup( db, "CUSTOMER", new String[] { "ID", "CODE" }, keyRowMeta,
+      new String[] { "NAME", "ID" }, 5000 );
+    assertEquals( BatchedKeyLookup.MAX_PARAMETERS_PER_QUERY / 2, lookup.getKeysPerQuery() );
+
+    RowMetaAndData match = lookup.createKey( new Object[] { 7L, bytes( "c7" ) } );
+    RowMetaAndData noMatch = lookup.createKey( new Object[] { 7L, bytes( "c8" ) } );
+    Map<RowMetaAndData, RowMetaAndData> found = lookup.lookup( Arrays.asList( match, noMatch ) );
+    lookup.close();
+
+    assertEquals( 1, found.size() );
+    RowMetaAndData values = found.get( match );
+    assertEquals( "name7", values.getString( 0, null ) );
+    assertEquals( 7L, values.getInteger( 1, -1L ) );
+  }
+
+  @Test
+  public void testOrderByDecidesTheRowThatIsKept() throws Exception {
+    db.execStatement( "INSERT INTO CUSTOMER VALUES ( 3, 'c3', 'zz3' )" );
+
+    RowMetaInterface keyRowMeta = new RowMeta();
+    keyRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    BatchedKeyLookup lookup = new BatchedKeyLookup( db, "CUSTOMER", new String[] { "ID" }, keyRowMeta,
+      new String[] { "NAME" }, "NAME DESC", 10 );
+    assertTrue( lookup.getSQL(), lookup.getSQL().endsWith( " ORDER BY NAME DESC" ) );
+
+    RowMetaAndData key = lookup.createKey( new Object[] { 3L } );
+    Map<RowMetaAndData, RowMetaAndData> found = lookup.lookup( Arrays.asList( key ) );
+    lookup.close();
+
+    assertEquals( "zz3", found.get( key ).getString( 0, null ) );
+  }
+
+  private static byte[] bytes( String string ) {
+    return string.getBytes( StandardCharsets.UTF_8 );
+  }
+}
@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the per-row overhead of {@link BaseStep#putRow(RowMetaInterface, Object[])} on a 50 field row. The rows go
+ * to a row handler that drops them, so only the work done by BaseStep itself is measured.<br>
+ * <br>
+ * The "checked every row" run uses row metadata that doesn't keep a version stamp, which forces the field name and
+ * type check on every row like before. The "checked once" run uses a regular {@link RowMeta}.<br>
+ * <br>
+ * Run the main method with the engine test classpath.
+ */
+public class PutRowBenchmark {
+  public static final int NR_OF_FIELDS = 50;
+  public static final int WARMUP_ITERATIONS = 1000000;
+  public static final int ITERATIONS = 10000000;
+
+  private final BaseStep baseStep;
+  private final Object[] row;
+
+  public PutRowBenchmark( BaseStep baseStep ) {
+    this.baseStep = baseStep;
+    this.baseStep.setRowHandler( new RowHandler() {
+      @Override public Object[] getRow() {
+        return null;
+      }
+
+      @Override public void putRow( RowMetaInterface rowMeta, Object[] row ) {
+      }
+
+      @Override public void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
+                                      String fieldNames, String errorCodes ) {
+      }
+    } );
+    row = new Object[ NR_OF_FIELDS ];
+    for ( int i = 0; i < NR_OF_FIELDS; i++ ) {
+      row[ i ] = "value" + i;
+    }
+  }
+
+  private static RowMetaInterface populate( RowMetaInterface rowMeta ) {
+    for ( int i = 0; i < NR_OF_FIELDS; i++ ) {
+      rowMeta.addValueMeta( new ValueMetaString( "field" + i ) );
+    }
+    return rowMeta;
+  }
+
+  /**
+   * @return the average time spent in putRow() in nanoseconds per row
+   */
+  public double runTest( RowMetaInterface rowMeta, int iterations ) throws KettleStepException {
+    long startTime = System.nanoTime();
+
+    for ( int i = 0; i < iterations; i++ ) {
+      baseStep.putRow( rowMeta, row );
+    }
+
+    long stopTime = System.nanoTime();
+
+    return (double) ( stopTime - startTime ) / iterations;
+  }
+
+  public static void main( String[] args ) throws KettleStepException {
+    StepMockHelper<StepMetaInterface, StepDataInterface> mockHelper =
+      new StepMockHelper<>( "PutRowBenchmark", StepMetaInterface.class, StepDataInterface.class );
+    when( mockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+    try {
+      PutRowBenchmark benchmark = new PutRowBenchmark(
+        new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans ) );
+
+      // Row metadata without a version stamp gets checked for every row
+      RowMetaInterface everyRow = populate( new RowMeta() {
+        @Override
+        public long getVersion() {
+          return -1L;
+        }
+      } );
+      RowMetaInterface once = populate( new RowMeta() );
+
+      benchmark.runTest( everyRow, WARMUP_ITERATIONS );
+      benchmark.runTest( once, WARMUP_ITERATIONS );
+
+      double timeEveryRow = benchmark.runTest( everyRow, ITERATIONS );
+      double timeOnce = benchmark.runTest( once, ITERATIONS );
+
+      System.out.println( String.format( "putRow() with %d fields, %d rows%n"
+          + "  field names checked every row : %8.1f ns/row%n"
+          + "  field names checked once      : %8.1f ns/row",
+        NR_OF_FIELDS, ITERATIONS, timeEveryRow, timeOnce ) );
+    } finally {
+      mockHelper.cleanUp();
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.trans.Trans;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SharedLookupCacheRegistryTest {
+
+  private static class CountingBuilder implements SharedLookupCacheRegistry.CacheBuilder<Object> {
+    private final AtomicInteger builds = new AtomicInteger();
+    private final long memorySize;
+
+    CountingBuilder( long memorySize ) {
+      this.memorySize = memorySize;
+    }
+
+    @Override
+    public Object build() {
+      builds.incrementAndGet();
+      return new Object();
+    }
+
+    @Override
+    public long getMemorySize( Object cache ) {
+      return memorySize;
+    }
+  }
+
+  @Test
+  public void testCacheIsBuiltOnce() throws Exception {
+    SharedLookupCacheRegistry registry = new SharedLookupCacheRegistry();
+    CountingBuilder builder = new CountingBuilder( 100L );
+
+    Object first = registry.attach( "customers", "sig", builder );
+    Object second = registry.attach( "customers", "sig", builder );
+    assertSame( first, second );
+    assertEquals( 1, builder.builds.get() );
+    assertEquals( 2, registry.getReferenceCount( "customers" ) );
+    assertEquals( 100L, registry.getMemorySize() );
+
+    registry.release( "customers" );
+    registry.release( "customers" );
+    assertEquals( 0, registry.getReferenceCount( "customers" ) );
+
+    // Kept for the next user until the registry is cleared
+    assertSame( first, registry.attach( "customers", "sig", builder ) );
+    assertEquals( 1, builder.builds.get() );
+    registry.release( "customers" );
+
+    registry.clear();
+    assertEquals( -1, registry.getReferenceCount( "customers" ) );
+    assertEquals( 0L, registry.getMemorySize() );
+  }
+
+  @Test
+  public void testOtherSignatureFails() throws Exception {
+    SharedLookupCacheRegistry registry = new SharedLookupCacheRegistry();
+    registry.attach( "customers", "sig", new CountingBuilder( 1L ) );
+    try {
+      registry.attach( "customers", "other", new CountingBuilder( 1L ) );
+      fail( "Attaching with another signature should fail" );
+    } catch ( KettleException e ) {
+      // expected
+    }
+    assertEquals( 1, registry.getReferenceCount( "customers" ) );
+  }
+
+  @Test
+  public void testUnreferencedCacheWithOtherSignatureIsReplaced() throws Exception {
+    SharedLookupCacheRegistry registry = new SharedLookupCacheRegistry();
+    Object stale = registry.attach( "customers", "sig", new CountingBuilder( 100L ) );
+    registry.release( "customers" );
+
+    CountingBuilder builder = new CountingBuilder( 40L );
+    Object cache = registry.attach( "customers", "other", builder );
+    assertNotSame( stale, cache );
+    assertEquals( 1, builder.builds.get() );
+    assertEquals( 1, registry.getReferenceCount( "customers" ) );
+    assertEquals( 40L, registry.getMemorySize() );
+
+    // The new cache is shared with the new signature
+    assertSame( cache, registry.attach( "customers", "other", builder ) );
+    assertEquals( 1, builder.builds.get() );
+  }
+
+  @Test
+  public void testFailedBuildIsRetried() throws Exception {
+    SharedLookupCacheRegistry registry = new SharedLookupCacheRegistry();
+    try {
+      registry.attach( "customers", "sig", new SharedLookupCacheRegistry.CacheBuilder<Object>() {
+        @Override
+        public Object build() throws KettleException {
+          throw new KettleException( "connection lost" );
+        }
+
+        @Override
+        public long getMemorySize( Object cache ) {
+          return 0L;
+        }
+      } );
+      fail( "The build should fail" );
+    } catch ( KettleException e ) {
+      // expected
+    }
+    assertEquals( -1, registry.getReferenceCount( "customers" ) );
+
+    CountingBuilder builder = new CountingBuilder( 1L );
+    registry.attach( "customers", "sig", builder );
+    assertEquals( 1, builder.builds.get() );
+  }
+
+  @Test
+  public void testUnreferencedCachesAreEvictedOverTheMaximum() throws Exception {
+    SharedLookupCacheRegistry registry = new SharedLookupCacheRegistry();
+    registry.setMaxMemorySize( 250L );
+
+    registry.attach( "a", "sig", new CountingBuilder( 100L ) );
+    registry.attach( "b", "sig", new CountingBuilder( 100L ) );
+    registry.release( "a" );
+    registry.release( "b" );
+    // "b" is in use again, "a" is the least recently used
+    registry.attach( "b", "sig", new CountingBuilder( 100L ) );
+
+    registry.attach( "c", "sig", new CountingBuilder( 100L ) );
+    assertEquals( -1, registry.getReferenceCount( "a" ) );
+    assertEquals( 1, registry.getReferenceCount( "b" ) );
+    assertEquals( 1, registry.getReferenceCount( "c" ) );
+    assertEquals( 200L, registry.getMemorySize() );
+
+    // Caches in use are never evicted, even over the maximum
+    registry.attach( "d", "sig", new CountingBuilder( 100L ) );
+    assertEquals( 300L, registry.getMemorySize() );
+  }
+
+  @Test
+  public void testScopes() {
+    Trans parent = mock( Trans.class );
+    when( parent.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+    Trans child = mock( Trans.class );
+    when( child.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+    when( child.getParentTrans() ).thenReturn( parent );
+    when( child.getVariable( Const.KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY ) ).thenReturn( "1" );
+
+    // Sub-transformations share the registry of the transformation that runs them
+    SharedLookupCacheRegistry transRegistry =
+      SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.TRANSFORMATION, child );
+    assertSame( transRegistry, SharedLookupCacheRegistry.getRegistry(
+      SharedLookupCacheRegistry.Scope.TRANSFORMATION, parent ) );
+
+    // Without a job the job scope falls back to the transformation
+    assertSame( transRegistry, SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.JOB, child ) );
+
+    Job job = mock( Job.class );
+    when( job.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+    when( parent.getParentJob() ).thenReturn( job );
+    SharedLookupCacheRegistry jobRegistry =
+      SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.JOB, child );
+    assertNotSame( transRegistry, jobRegistry );
+    assertSame( jobRegistry, SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.JOB, parent ) );
+
+    assertSame( SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.GLOBAL, child ),
+      SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.GLOBAL, parent ) );
+  }
+
+  @Test
+  public void testGlobalScopeIsLimitedWithoutAMaximum() {
+    Trans trans = mock( Trans.class );
+    when( trans.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+
+    // Without a maximum only the global scope, which lives as long as the JVM, is limited
+    assertEquals( 0L, SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.TRANSFORMATION, trans )
+      .getMaxMemorySize() );
+    assertEquals( SharedLookupCacheRegistry.DEFAULT_GLOBAL_MAX_MEMORY_MB * 1024L * 1024L,
+      SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.GLOBAL, trans ).getMaxMemorySize() );
+
+    when( trans.getVariable( Const.KETTLE_SHARED_LOOKUP_CACHE_MAX_MEMORY ) ).thenReturn( "2" );
+    assertEquals( 2L * 1024L * 1024L,
+      SharedLookupCacheRegistry.getRegistry( SharedLookupCacheRegistry.Scope.GLOBAL, trans ).getMaxMemorySize() );
+  }
+}
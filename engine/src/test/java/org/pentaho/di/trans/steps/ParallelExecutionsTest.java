@@ -0,0 +1,110 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.exception.KettleException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelExecutionsTest {
+
+  private ParallelExecutions<String> executions;
+
+  @After
+  public void tearDown() {
+    if ( executions != null ) {
+      executions.shutdown();
+    }
+  }
+
+  @Test( timeout = 10000 )
+  public void testOrderedExecutionsAreTakenInSubmitOrder() throws Exception {
+    executions = new ParallelExecutions<>( "test", 2, true );
+    CountDownLatch first = new CountDownLatch( 1 );
+    Result firstResult = new Result();
+    Result secondResult = new Result();
+
+    executions.submit( "first", waitFor( first, firstResult ) );
+    executions.submit( "second", waitFor( new CountDownLatch( 0 ), secondResult ) );
+    assertTrue( executions.isFull() );
+    assertEquals( 2, executions.getRunning().size() );
+
+    // The second execution finishes first but has to wait for the first one
+    Thread.sleep( 100 );
+    assertNull( executions.poll() );
+
+    first.countDown();
+    ParallelExecutions.Execution<String> execution = executions.take();
+    assertEquals( "first", execution.getExecutor() );
+    assertSame( firstResult, executions.getResult( execution ) );
+    execution = executions.take();
+    assertEquals( "second", execution.getExecutor() );
+    assertSame( secondResult, executions.getResult( execution ) );
+
+    assertTrue( executions.isEmpty() );
+    assertNull( executions.take() );
+  }
+
+  @Test( timeout = 10000 )
+  public void testUnorderedExecutionsAreTakenAsTheyFinish() throws Exception {
+    executions = new ParallelExecutions<>( "test", 2, false );
+    CountDownLatch first = new CountDownLatch( 1 );
+
+    executions.submit( "first", waitFor( first, new Result() ) );
+    executions.submit( "second", waitFor( new CountDownLatch( 0 ), new Result() ) );
+
+    assertEquals( "second", executions.take().getExecutor() );
+    assertFalse( executions.isFull() );
+
+    first.countDown();
+    assertEquals( "first", executions.take().getExecutor() );
+    assertTrue( executions.isEmpty() );
+  }
+
+  @Test( timeout = 10000, expected = KettleException.class )
+  public void testFailedExecutionIsReportedByGetResult() throws Exception {
+    executions = new ParallelExecutions<>( "test", 1, true );
+    executions.submit( "failing", new Callable<Result>() {
+      @Override
+      public Result call() throws Exception {
+        throw new KettleException( "failed" );
+      }
+    } );
+
+    ParallelExecutions.Execution<String> execution = executions.take();
+    assertTrue( executions.isEmpty() );
+    executions.getResult( execution );
+  }
+
+  private static Callable<Result> waitFor( final CountDownLatch latch, final Result result ) {
+    return new Callable<Result>() {
+      @Override
+      public Result call() throws Exception {
+        latch.await( 5, TimeUnit.SECONDS );
+        return result;
+      }
+    };
+  }
+}
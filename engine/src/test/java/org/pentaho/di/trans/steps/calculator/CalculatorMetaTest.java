@@ -13,6 +13,7 @@
 package org.pentaho.di.trans.steps.calculator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -50,10 +51,12 @@ public class CalculatorMetaTest implements InitializerInterface<CalculatorMeta>
 
   @Before
   public void setUpLoadSave() throws Exception {
-    List<String> attributes = Arrays.asList( "Calculation" );
+    List<String> attributes = Arrays.asList( "Calculation", "Compiled" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
+    getterMap.put( "Compiled", "isCompiled" );
     Map<String, String> setterMap = new HashMap<String, String>();
+    setterMap.put( "Compiled", "setCompiled" );
     FieldLoadSaveValidator<CalculatorMetaFunction[]> calculationMetaFunctionArrayLoadSaveValidator =
       new ArrayLoadSaveValidator<CalculatorMetaFunction>( new CalculatorMetaFunctionLoadSaveValidator(), 5 );
 
@@ -91,6 +94,7 @@ public class CalculatorMetaTest implements InitializerInterface<CalculatorMeta>
     assertNotNull( meta.getCalculation() );
     assertEquals( 0, meta.getCalculation().length );
     assertTrue( meta.isFailIfNoFile() );
+    assertFalse( meta.isCompiled() );
   }
 
   public class CalculatorMetaFunctionLoadSaveValidator implements FieldLoadSaveValidator<CalculatorMetaFunction> {
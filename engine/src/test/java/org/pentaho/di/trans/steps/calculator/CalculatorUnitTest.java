@@ -1058,4 +1058,85 @@ public class CalculatorUnitTest {
     }
   }
 
+  @Test
+  public void testCompiledCalculationsMatchTheInterpreter() throws Exception {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss" );
+    Object[][] rows = new Object[][] {
+      { 7L, 2L, 2.5, -1.25, format.parse( "2014-03-30 01:30:00" ), format.parse( "2014-01-01 12:00:00" ), "abc" },
+      { -9L, 4L, 0.0, 3.0, format.parse( "2016-02-29 23:59:59" ), format.parse( "2016-12-31 00:00:00" ), "x" },
+      { null, 1L, null, 1.0, format.parse( "2015-01-01 00:00:00" ), format.parse( "2015-06-15 08:00:00" ), null } };
+
+    List<Object[]> compiled = calculate( rows, true );
+    List<Object[]> interpreted = calculate( rows, false );
+
+    Assert.assertEquals( rows.length, compiled.size() );
+    Assert.assertEquals( rows.length, interpreted.size() );
+    for ( int i = 0; i < rows.length; i++ ) {
+      Assert.assertEquals( "row " + i, java.util.Arrays.asList( interpreted.get( i ) ),
+        java.util.Arrays.asList( compiled.get( i ) ) );
+    }
+  }
+
+  private List<Object[]> calculate( Object[][] rows, boolean compiled ) throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "i1" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "i2" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "n1" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "n2" ) );
+    inputRowMeta.addValueMeta( new ValueMetaDate( "d1" ) );
+    inputRowMeta.addValueMeta( new ValueMetaDate( "d2" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "s" ) );
+
+    RowSet inputRowSet = smh.getMockInputRowSet( rows );
+    inputRowSet.setRowMeta( inputRowMeta );
+
+    Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.init( smh.initStepMetaInterface, smh.initStepDataInterface );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCompiled( compiled );
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      calculation( "add", CalculatorMetaFunction.CALC_ADD, "i1", "i2", ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "multiply", CalculatorMetaFunction.CALC_MULTIPLY, "n1", "n2", ValueMetaInterface.TYPE_NUMBER ),
+      calculation( "divide", CalculatorMetaFunction.CALC_DIVIDE, "n2", "n1", ValueMetaInterface.TYPE_NUMBER ),
+      calculation( "abs", CalculatorMetaFunction.CALC_ABS, "i1", null, ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "square", CalculatorMetaFunction.CALC_SQUARE, "add", null, ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "d1", null, ValueMetaInterface.TYPE_DATE ),
+      calculation( "plus_days", CalculatorMetaFunction.CALC_ADD_DAYS, "d1", "i2", ValueMetaInterface.TYPE_DATE ),
+      calculation( "plus_hours", CalculatorMetaFunction.CALC_ADD_HOURS, "d2", "i2", ValueMetaInterface.TYPE_DATE ),
+      calculation( "year", CalculatorMetaFunction.CALC_YEAR_OF_DATE, "d1", null, ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "quarter", CalculatorMetaFunction.CALC_QUARTER_OF_DATE, "d2", null,
+        ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "week", CalculatorMetaFunction.CALC_WEEK_OF_YEAR_ISO8601, "d1", null,
+        ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "no_time", CalculatorMetaFunction.CALC_REMOVE_TIME_FROM_DATE, "d1", null,
+        ValueMetaInterface.TYPE_DATE ),
+      calculation( "days", CalculatorMetaFunction.CALC_DATE_DIFF, "d1", "d2", ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "hours", CalculatorMetaFunction.CALC_DATE_DIFF_HR, "d1", "d2", ValueMetaInterface.TYPE_INTEGER ),
+      calculation( "constant", CalculatorMetaFunction.CALC_CONSTANT, "a \"constant\"", null,
+        ValueMetaInterface.TYPE_STRING ),
+      // These are interpreted: a conversion of the result and a string calculation
+      calculation( "add_string", CalculatorMetaFunction.CALC_ADD, "i1", "i2", ValueMetaInterface.TYPE_STRING ),
+      calculation( "upper", CalculatorMetaFunction.CALC_UPPER_CASE, "s", null, ValueMetaInterface.TYPE_STRING ) } );
+
+    final List<Object[]> output = new ArrayList<>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        output.add( row );
+      }
+    } );
+
+    CalculatorData data = new CalculatorData();
+    calculator.processRow( meta, data );
+    Assert.assertEquals( compiled, data.getCompiledCalculator() != null );
+    return output;
+  }
+
+  private static CalculatorMetaFunction calculation( String name, int calcType, String fieldA, String fieldB,
+    int valueType ) {
+    return new CalculatorMetaFunction( name, calcType, fieldA, fieldB, null, valueType, 0, 0, false, "", "", "", "" );
+  }
 }
@@ -0,0 +1,247 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Looks up rows in batches through the step, with the cache in front of the batch query.
+ */
+public class DatabaseLookupBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<DatabaseLookupMeta, DatabaseLookupData> smh;
+  private RowMetaInterface inputRowMeta;
+  private RowMetaInterface keyMeta;
+  private RowMetaInterface returnMeta;
+  private DatabaseLookupMeta meta;
+  private DatabaseLookupData data;
+  private BatchedKeyLookup batchLookup;
+  private Map<RowMetaAndData, RowMetaAndData> table;
+  private DefaultCache cache;
+  private RowSet outputRowSet;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    KettleEnvironment.reset();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    smh = new StepMockHelper<>( "Database Lookup", DatabaseLookupMeta.class, DatabaseLookupData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    returnMeta = new RowMeta();
+    returnMeta.addValueMeta( new ValueMetaString( "value" ) );
+
+    meta = new DatabaseLookupMeta();
+    meta.allocate( 1, 1 );
+    meta.setStreamKeyField1( new String[] { "id" } );
+    meta.setTableKeyField( new String[] { "id" } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setReturnValueField( new String[] { "value" } );
+    meta.setReturnValueNewName( new String[] { "value" } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setCached( true );
+
+    table = new HashMap<>();
+    table.put( key( 1L ), new RowMetaAndData( returnMeta, "one" ) );
+    table.put( key( 2L ), new RowMetaAndData( returnMeta, "two" ) );
+    table.put( key( 3L ), new RowMetaAndData( returnMeta, "three" ) );
+
+    batchLookup = mock( BatchedKeyLookup.class );
+    when( batchLookup.createKey( any( Object[].class ) ) )
+      .thenAnswer( invocation -> key( (Long) ( (Object[]) invocation.getArgument( 0 ) )[ 0 ] ) );
+    when( batchLookup.lookup( anyCollection() ) ).thenAnswer( invocation -> {
+      Map<RowMetaAndData, RowMetaAndData> found = new HashMap<>();
+      for ( RowMetaAndData key : (Collection<RowMetaAndData>) invocation.getArgument( 0 ) ) {
+        if ( table.containsKey( key ) ) {
+          found.put( key, table.get( key ) );
+        }
+      }
+      return found;
+    } );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaAndData key( Long id ) {
+    return new RowMetaAndData( keyMeta, id );
+  }
+
+  /**
+   * Set up the step as if the first row was processed, with batches of {@code batchSize} rows.
+   */
+  private DatabaseLookup createStep( int batchSize, int cacheSize ) {
+    meta.setLookupBatchSize( batchSize );
+    meta.setCacheSize( cacheSize );
+
+    DatabaseLookup step = new DatabaseLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    step.first = false;
+
+    data = new DatabaseLookupData();
+    data.outputRowMeta = inputRowMeta.clone();
+    data.outputRowMeta.addValueMeta( new ValueMetaString( "value" ) );
+    data.lookupMeta = keyMeta.clone();
+    data.returnMeta = returnMeta.clone();
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.conditions = new int[] { DatabaseLookupMeta.CONDITION_EQ };
+    data.allEquals = true;
+    data.nullif = new Object[] { null };
+    cache = DefaultCache.newLookupResultCache( data, cacheSize );
+    data.cache = cache;
+    data.batchLookup = batchLookup;
+    data.batchBuffer = new ArrayList<>();
+
+    outputRowSet = new QueueRowSet();
+    step.addRowSetToOutputRowSets( outputRowSet );
+    return step;
+  }
+
+  private List<Object> process( DatabaseLookup step, Long... ids ) throws KettleException {
+    RowSet inputRowSet = new QueueRowSet();
+    for ( Long id : ids ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { id } );
+    }
+    inputRowSet.setDone();
+    step.addRowSetToInputRowSets( inputRowSet );
+    step.setInputRowMeta( inputRowMeta );
+
+    while ( step.processRow( meta, data ) ) {
+      // process all the rows
+    }
+
+    List<Object> values = new ArrayList<>();
+    for ( Object[] row = outputRowSet.getRow(); row != null; row = outputRowSet.getRow() ) {
+      values.add( row[ 1 ] );
+    }
+    return values;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private List<Collection<RowMetaAndData>> lookedUpKeys( int nrOfBatches ) throws KettleException {
+    ArrayList<Collection<RowMetaAndData>> batches = new ArrayList<>();
+    ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass( Collection.class );
+    verify( batchLookup, times( nrOfBatches ) ).lookup( captor.capture() );
+    for ( Collection keys : captor.getAllValues() ) {
+      batches.add( new ArrayList<RowMetaAndData>( keys ) );
+    }
+    return batches;
+  }
+
+  @Test
+  public void testCachedKeysAreNotLookedUpAgain() throws Exception {
+    DatabaseLookup step = createStep( 3, 10 );
+    data.cache.storeRowInCache( meta, data.lookupMeta, new Object[] { 1L }, new Object[] { "cached one" } );
+
+    assertEquals( Arrays.asList( "cached one", "two", "three" ), process( step, 1L, 2L, 3L ) );
+
+    List<Collection<RowMetaAndData>> batches = lookedUpKeys( 1 );
+    assertEquals( Arrays.asList( key( 2L ), key( 3L ) ), batches.get( 0 ) );
+    assertEquals( 1, data.cacheHits );
+    assertEquals( 2, data.cacheMisses );
+  }
+
+  @Test
+  public void testKeysThatAreNotFoundAreCached() throws Exception {
+    DatabaseLookup step = createStep( 2, 10 );
+
+    assertEquals( Arrays.asList( "one", null, "two" ), process( step, 1L, 4L, 2L ) );
+
+    // The last batch isn't full: it's looked up when the input is done
+    lookedUpKeys( 2 );
+    assertSame( DefaultCache.NOT_FOUND, data.cache.getRowFromCache( data.lookupMeta, new Object[] { 4L } ) );
+    assertEquals( "two", data.cache.getRowFromCache( data.lookupMeta, new Object[] { 2L } )[ 0 ] );
+  }
+
+  @Test
+  public void testEvictionWithinABatchKeepsTheCachedResult() throws Exception {
+    DatabaseLookup step = createStep( 3, 1 );
+    data.cache.storeRowInCache( meta, data.lookupMeta, new Object[] { 1L }, new Object[] { "cached one" } );
+
+    // Storing the result of key 2 evicts key 1 before the third row is passed on
+    assertEquals( Arrays.asList( "cached one", "two", "cached one" ), process( step, 1L, 2L, 1L ) );
+
+    List<Collection<RowMetaAndData>> batches = lookedUpKeys( 1 );
+    assertEquals( Arrays.asList( key( 2L ) ), batches.get( 0 ) );
+    assertNull( data.cache.getRowFromCache( data.lookupMeta, new Object[] { 1L } ) );
+  }
+
+  @Test
+  public void testSameKeyTwiceInABatch() throws Exception {
+    DatabaseLookup step = createStep( 4, 10 );
+
+    assertEquals( Arrays.asList( "three", "one", "three", "one" ), process( step, 3L, 1L, 3L, 1L ) );
+
+    List<Collection<RowMetaAndData>> batches = lookedUpKeys( 1 );
+    assertTrue( batches.get( 0 ).contains( key( 3L ) ) );
+    assertTrue( batches.get( 0 ).contains( key( 1L ) ) );
+    assertFalse( batches.get( 0 ).contains( key( 2L ) ) );
+    assertEquals( 2, cache.size() );
+  }
+}
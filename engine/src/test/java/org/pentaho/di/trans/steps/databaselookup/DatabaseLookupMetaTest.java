@@ -61,6 +61,7 @@ public class DatabaseLookupMetaTest implements InitializerInterface<StepMetaInte
     List<String> attributes =
         Arrays.asList( "schemaName", "tablename", "databaseMeta", "orderByClause", "cached",
             "cacheSize", "loadingAllDataInCache", "failingOnMultipleResults", "eatingRowOnLookupFailure",
+            "lookupBatchSize", "sharedCacheName", "sharedCacheScope",
             "streamKeyField1", "streamKeyField2", "keyCondition", "tableKeyField", "returnValueField",
             "returnValueNewName", "returnValueDefault", "returnValueDefaultType" );
 
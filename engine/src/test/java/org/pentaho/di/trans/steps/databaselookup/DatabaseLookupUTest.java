@@ -60,7 +60,9 @@ import java.util.function.Consumer;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
@@ -314,8 +316,10 @@ public class DatabaseLookupUTest {
     lookData.cache.storeRowInCache( mockHelper.processRowsStepMetaInterface, lookupMeta, kgsRow1, add1 );
     lookData.cache.storeRowInCache( mockHelper.processRowsStepMetaInterface, lookupMeta, kgsRow2, add2 );
 
-    lookData.conditions = new int[] { DatabaseLookupMeta.CONDITION_GE };
-    Object[] rowToCache = new Object[] { 0L };
+    // The rows of the table are only cached like this when all the conditions are equalities
+    lookData.conditions = new int[] { DatabaseLookupMeta.CONDITION_EQ };
+    assertNull( lookData.cache.getRowFromCache( lookupMeta, new Object[] { 0L } ) );
+    Object[] rowToCache = new Object[] { 1L };
     Object[] dataFromCache = lookData.cache.getRowFromCache( lookupMeta, rowToCache );
 
     assertArrayEquals( add1, dataFromCache );
@@ -534,6 +538,31 @@ public class DatabaseLookupUTest {
     testIsTimelessMaskNullTestVariant("yyyy-MM-dd hh:mm:ss" ,false );
   }
 
+  private String getSharedCacheSignature( DatabaseLookupMeta meta, String host, String user ) throws KettleException {
+    DatabaseLookup lookup = new DatabaseLookup( mockHelper.stepMeta, mockHelper.stepDataInterface, 0,
+      mockHelper.transMeta, mockHelper.trans );
+    setInternalState( lookup, "meta", meta );
+    setInternalState( lookup, "data", new DatabaseLookupData() );
+    lookup.setVariable( "HOST", host );
+    lookup.setVariable( "USER", user );
+    return lookup.getSharedCacheSignature();
+  }
+
+  @Test
+  public void sharedCacheSignatureDescribesTheResolvedConnection() throws KettleException {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setDatabaseMeta( new DatabaseMeta( "lookup", "MYSQL", "Native", "${HOST}", "crm", "3306", "${USER}", "" ) );
+    meta.setTablename( "customers" );
+    meta.setTableKeyField( new String[] { ID_FIELD } );
+    meta.setKeyCondition( new String[] { "=" } );
+
+    String signature = getSharedCacheSignature( meta, "db1", "reader" );
+    assertEquals( signature, getSharedCacheSignature( meta, "db1", "reader" ) );
+    // The connection has the same name but points to another database or logs in as another user
+    assertNotEquals( signature, getSharedCacheSignature( meta, "db2", "reader" ) );
+    assertNotEquals( signature, getSharedCacheSignature( meta, "db1", "writer" ) );
+  }
+
   @Test
   public void isTimelessMaskWithoutMaskTest() {
     testIsTimelessMaskNullTestVariant("yyyy-MM-dd" ,true );
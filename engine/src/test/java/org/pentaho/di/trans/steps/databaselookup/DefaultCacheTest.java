@@ -23,6 +23,8 @@ import java.util.LinkedHashMap;
 
 import static org.mockito.Mockito.mock;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.when;
 import static org.pentaho.test.util.InternalState.getInternalState;
 import static org.pentaho.test.util.InternalState.setInternalState;
@@ -129,7 +131,7 @@ public class DefaultCacheTest {
   }
 
   @Test
-  public void getRowFromCacheNotEqualConditionTest() throws Exception {
+  public void getRowFromCacheIsNullConditionTest() throws Exception {
     DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
     DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
     DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
@@ -140,172 +142,66 @@ public class DefaultCacheTest {
     valueMetaList.add( new ValueMetaInteger( ) );
     rowMeta.setValueMetaList( valueMetaList );
     setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_NE } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 2; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( 100L, result[0] );
-    }
+    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_IS_NULL } );
+    //insert with null lookupdata
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{null}, new Object[]{ 100 } );
+    Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{null} );
+    assertEquals( new Object[] { 100 }[ 0 ], result[ 0 ] );
   }
 
   @Test
-  public void getRowFromCacheLessConditionTest() throws Exception {
+  public void getRowFromCacheOnlyMatchesTheExactKeyTest() throws Exception {
     DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
     DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
     DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
     when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
     RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_LT } );
-    //Several inserts with different key and different values
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
     for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 2; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( 100L, result[0] );
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ i }, new Object[]{ i * 100 } );
     }
+    // Non-equality conditions use a ReadAllCache, the table rows are only found by their key
+    assertEquals( 500L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 5L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 11L } ) );
   }
 
   @Test
-  public void getRowFromCacheLessOrEqualConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
+  public void lookupResultCacheEvictsLeastRecentlyUsedTest() throws Exception {
+    DatabaseLookupData databaseLookupData = new DatabaseLookupData();
     DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
+    DefaultCache defaultCache = DefaultCache.newLookupResultCache( databaseLookupData, 3 );
     RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_LE } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 1; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( 100L, result[0] );
-    }
-  }
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
 
-  @Test
-  public void getRowFromCacheGreaterConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
-    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
-    RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_GT } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 1; i < 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( new Object[]{ ( i + 1 ) * 100 }[0], result[0] );
+    for ( long i = 1; i <= 3; ++i ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ i }, new Object[]{ i * 100 } );
     }
-  }
+    // Use the oldest entry, the second one becomes the least recently used
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 1L } )[0] );
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ 4L }, DefaultCache.NOT_FOUND );
 
-  @Test
-  public void getRowFromCacheGreaterOrEqualConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
-    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
-    RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_GE } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 1; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( new Object[]{ i * 100 }[0], result[0] );
-    }
+    assertEquals( 3, defaultCache.size() );
+    assertEquals( 1L, databaseLookupData.cacheEvictions );
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 1L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 2L } ) );
+    assertEquals( 300L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 3L } )[0] );
+    assertSame( DefaultCache.NOT_FOUND, defaultCache.getRowFromCache( rowMeta, new Object[]{ 4L } ) );
   }
 
   @Test
-  public void getRowFromCacheIsNullConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
+  public void lookupResultCacheIgnoresConditionsTest() throws Exception {
+    DatabaseLookupData databaseLookupData = new DatabaseLookupData();
+    databaseLookupData.allEquals = false;
+    databaseLookupData.conditions = new int[] { DatabaseLookupMeta.CONDITION_LT };
     DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
+    DefaultCache defaultCache = DefaultCache.newLookupResultCache( databaseLookupData, 0 );
     RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_IS_NULL } );
-    //insert with null lookupdata
-    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{null}, new Object[]{ 100 } );
-    Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{null} );
-    assertEquals( new Object[] { 100 }[ 0 ], result[ 0 ] );
-  }
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
 
-  @Test
-  public void getRowFromCacheNotNullConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
-    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
-    RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_IS_NOT_NULL } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
-    }
-    for ( long i = 1; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i} );
-      assertEquals( 100L, result[0] );
-    }
-  }
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ 5L }, new Object[]{ 500L } );
 
-  @Test
-  public void getRowFromCacheInBetweenConditionTest() throws Exception {
-    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
-    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
-    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 10 );
-    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( true );
-    setInternalState( databaseLookupData, "allEquals", false );
-    RowMeta rowMeta = new RowMeta();
-    ArrayList<ValueMetaInterface> valueMetaList = new ArrayList<>(  );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    valueMetaList.add( new ValueMetaInteger( ) );
-    rowMeta.setValueMetaList( valueMetaList );
-    setInternalState( databaseLookupData, "lookupMeta", rowMeta );
-    setInternalState( databaseLookupData, "conditions", new int[]{ DatabaseLookupMeta.CONDITION_BETWEEN } );
-    //Several inserts with different key and different values
-    for ( long i = 1; i <= 10; ++i ) {
-      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i, i * 10}, new Object[]{ i * 100, i * 1000 } );
-    }
-    for ( long i = 1; i <= 10; ++i ) {
-      Object[] result = defaultCache.getRowFromCache( rowMeta, new Object[]{i, i * 10 } );
-      assertEquals( new Object[]{ i * 100 }[0], result[0] );
-    }
+    // The stored value is the lookup value, not a key of the table: only the same lookup value matches
+    assertEquals( 500L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 5L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 10L } ) );
   }
 }
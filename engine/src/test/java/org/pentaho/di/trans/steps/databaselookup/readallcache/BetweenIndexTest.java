@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup.readallcache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith( Parameterized.class )
+public class BetweenIndexTest {
+
+  @Parameterized.Parameters
+  public static List<Object[]> createSampleData() {
+    return IndexTestBase.createSampleData();
+  }
+
+  private final Long[][] rows;
+  private BetweenIndex index;
+  private SearchingContext context;
+  private RowMetaInterface lookupMeta;
+
+  public BetweenIndexTest( Long[][] rows ) {
+    this.rows = rows;
+  }
+
+  @Before
+  public void setUp() {
+    index = new BetweenIndex( 0, new ValueMetaInteger(), rows.length );
+    index.performIndexingOf( rows );
+
+    context = new SearchingContext();
+    context.init( rows.length );
+
+    lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger() );
+    lookupMeta.addValueMeta( new ValueMetaInteger() );
+  }
+
+  @Test
+  public void lookupFor_OneAndTwo() {
+    testFindsCorrectly( 1, 2, 3 );
+  }
+
+  @Test
+  public void lookupFor_TwoAndTwo() {
+    testFindsCorrectly( 2, 2, 2 );
+  }
+
+  @Test
+  public void lookupFor_OneAndHundred() {
+    // more than half of the rows match
+    testFindsCorrectly( 1, 100, 4 );
+  }
+
+  @Test
+  public void lookupFor_All() {
+    testFindsCorrectly( -1, 3, 5 );
+  }
+
+  @Test
+  public void lookupFor_BelowAll() {
+    testFindsNothing( -5, -1 );
+  }
+
+  @Test
+  public void lookupFor_ReversedBounds() {
+    testFindsNothing( 3, 1 );
+  }
+
+  private void testFindsNothing( long from, long to ) {
+    index.applyRestrictionsTo( context, lookupMeta, new Object[] { from, to }, 0 );
+    assertTrue( context.isEmpty() );
+  }
+
+  private void testFindsCorrectly( long from, long to, int expectedAmount ) {
+    index.applyRestrictionsTo( context, lookupMeta, new Object[] { from, to }, 0 );
+    assertFalse( context.isEmpty() );
+
+    BitSet candidates = context.getCandidates();
+    assertEquals( expectedAmount, candidates.cardinality() );
+    for ( int row = candidates.nextSetBit( 0 ); row >= 0; row = candidates.nextSetBit( row + 1 ) ) {
+      long value = rows[ row ][ 0 ];
+      assertTrue( from + " <= " + value + " <= " + to, from <= value && value <= to );
+    }
+  }
+}
@@ -41,7 +41,7 @@ import static org.junit.Assert.fail;
  *
  * @author Andrey Khayrutdinov
  */
-public abstract class IndexTestBase<T extends Index> {
+public abstract class IndexTestBase<T extends SingleValueIndex> {
 
   private static Long[][] toMatrix( long... values ) {
     Long[][] result = new Long[ values.length ][];
@@ -20,6 +20,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
@@ -30,6 +31,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.bowl.DefaultBowl;
@@ -59,6 +61,7 @@ import org.pentaho.di.trans.steps.file.IBaseFileInputStepControl;
 import org.pentaho.di.utils.TestUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -467,6 +470,85 @@ public class TextFileInputTest {
     deleteVfsFile( virtualFile );
   }
 
+  @Test
+  public void readBlocksInParallel() throws Exception {
+    StringBuilder content = new StringBuilder( "col1,col2\n" );
+    for ( int i = 0; i < 50; i++ ) {
+      content.append( "r" ).append( i ).append( ",\"v" ).append( i ).append( "\"\n" );
+    }
+    final String virtualFile = createVirtualFile( "parallel.txt", content.toString() );
+
+    List<Object[]> output = new ArrayList<>();
+    for ( int copy = 0; copy < 3; copy++ ) {
+      TextFileInputMeta meta = createMetaObject( field( "col1" ), field( "col2" ) );
+      meta.content.header = true;
+      meta.content.nrHeaderLines = 1;
+      TextFileInputData data = createDataObject( virtualFile, ",", "col1", "col2" );
+      data.enclosure = "\"";
+      data.parallel = true;
+      data.splittingFiles = true;
+      data.stepNumber = copy;
+      data.totalNumberOfSteps = 3;
+
+      TextFileInput input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+      List<Object[]> rows = readAll( input, meta, data );
+      // every copy reads its share of the lines
+      assertTrue( rows.size() > 10 );
+      output.addAll( rows );
+    }
+
+    assertEquals( 50, output.size() );
+    for ( int i = 0; i < 50; i++ ) {
+      TransTestingUtil.assertResult( new Object[] { "r" + i, "v" + i }, output.get( i ) );
+    }
+
+    deleteVfsFile( virtualFile );
+  }
+
+  @Test
+  public void readWholeFilesInParallel() throws Exception {
+    final String virtualFile1 = createVirtualFile( "parallel1.txt", "a,1\n", "b,2\n" );
+    final String virtualFile2 = createVirtualFile( "parallel2.txt", "c,3\n" );
+
+    for ( int copy = 0; copy < 2; copy++ ) {
+      TextFileInputMeta meta = createMetaObject( field( "col1" ), field( "col2" ) );
+      TextFileInputData data = createDataObject( virtualFile1, ",", "col1", "col2" );
+      data.files.addFile( KettleVFS.getInstance( DefaultBowl.getInstance() ).getFileObject( virtualFile2 ) );
+      data.parallel = true;
+      data.splittingFiles = false;
+      data.stepNumber = copy;
+      data.totalNumberOfSteps = 2;
+
+      TextFileInput input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+      List<Object[]> rows = readAll( input, meta, data );
+      if ( copy == 0 ) {
+        assertEquals( 2, rows.size() );
+        TransTestingUtil.assertResult( new Object[] { "a", "1" }, rows.get( 0 ) );
+        TransTestingUtil.assertResult( new Object[] { "b", "2" }, rows.get( 1 ) );
+      } else {
+        assertEquals( 1, rows.size() );
+        TransTestingUtil.assertResult( new Object[] { "c", "3" }, rows.get( 0 ) );
+      }
+    }
+
+    deleteVfsFile( virtualFile1 );
+    deleteVfsFile( virtualFile2 );
+  }
+
+  private static List<Object[]> readAll( TextFileInput input, TextFileInputMeta meta, TextFileInputData data )
+    throws Exception {
+    RowSet output = new BlockingRowSet( 100 );
+    input.setOutputRowSets( Collections.singletonList( output ) );
+    List<Object[]> rows = new ArrayList<>();
+    while ( input.processRow( meta, data ) ) {
+      Object[] row = output.getRowImmediate();
+      if ( row != null ) {
+        rows.add( row );
+      }
+    }
+    return rows;
+  }
+
   private TextFileInputMeta createMetaObject( BaseFileField... fields ) {
     TextFileInputMeta meta = new TextFileInputMeta();
     meta.content.enclosure = "\"";
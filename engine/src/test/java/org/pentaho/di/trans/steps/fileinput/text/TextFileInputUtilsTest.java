@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -233,4 +234,33 @@ public class TextFileInputUtilsTest {
     Assert.assertNotNull(strings);
     Assert.assertEquals("{\"Example1\":\"\",\"Example\":\"Test\"}", strings[0]);//""""
   }
+
+  @Test
+  public void skipToLineStart() throws Exception {
+    byte[] content = "ab\r\ncd\n\nef".getBytes( StandardCharsets.UTF_8 );
+
+    Assert.assertEquals( 0L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 0L ) );
+    Assert.assertEquals( 4L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 1L ) );
+    Assert.assertEquals( 4L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 4L ) );
+    Assert.assertEquals( 7L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 5L ) );
+    Assert.assertEquals( 8L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 8L ) );
+    Assert.assertEquals( 10L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 9L ) );
+    Assert.assertEquals( 10L, TextFileInputUtils.skipToLineStart( new ByteArrayInputStream( content ), 20L ) );
+  }
+
+  @Test
+  public void getLineStart() throws Exception {
+    byte[] content = "ab\r\ncd\n\nef".getBytes( StandardCharsets.UTF_8 );
+
+    Assert.assertEquals( 7L, TextFileInputUtils.getLineStart( new ByteArrayInputStream( content ), 2 ) );
+    Assert.assertEquals( 10L, TextFileInputUtils.getLineStart( new ByteArrayInputStream( content ), 5 ) );
+  }
+
+  @Test
+  public void getBlockInputStream() throws Exception {
+    byte[] content = "ab\ncd\nef\n".getBytes( StandardCharsets.UTF_8 );
+
+    InputStream block = TextFileInputUtils.getBlockInputStream( new ByteArrayInputStream( content ), 3L, 6L );
+    Assert.assertEquals( "cd\n", new String( IOUtils.toByteArray( block ), StandardCharsets.UTF_8 ) );
+  }
 }
@@ -0,0 +1,186 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.formula;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FormulaCompilerTest {
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private FormulaCompiler compiler;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "qty" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "price" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "active" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "created" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "missing" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "big" ) );
+    // 2^53 + 1 can't be represented by a double
+    row = new Object[] { 3L, 2.5, "Widget", Boolean.TRUE, new Date(), null, 9007199254740993L };
+
+    compiler = new FormulaCompiler( rowMeta, new RowForumulaContext( rowMeta ).getOperatorFactory() );
+  }
+
+  private Object evaluate( String formula, int resultType ) throws Exception {
+    CompiledFormula compiled = compiler.compile( formula, resultType );
+    assertNotNull( formula, compiled );
+    return compiled.evaluate( rowMeta, row );
+  }
+
+  private Object interpret( String formula, int resultType ) throws Exception {
+    RowForumulaContext context = new RowForumulaContext( rowMeta );
+    context.setRowData( row );
+    org.pentaho.reporting.libraries.formula.Formula interpreted =
+      new org.pentaho.reporting.libraries.formula.Formula( formula );
+    interpreted.initialize( context );
+    Object result = interpreted.evaluate();
+    switch ( resultType ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return ( (Number) result ).longValue();
+      case ValueMetaInterface.TYPE_NUMBER:
+        return ( (Number) result ).doubleValue();
+      case ValueMetaInterface.TYPE_STRING:
+        return result.toString();
+      default:
+        return result;
+    }
+  }
+
+  @Test
+  public void testOperatorPrecedence() throws Exception {
+    assertEquals( 14L, evaluate( "[qty] + [qty] * 4 - 1", ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( 4.0, evaluate( "([qty] - 1) * 2", ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( -6L, evaluate( "-[qty] * 2", ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( Boolean.TRUE, evaluate( "[qty] * 2 > [qty] + 1", ValueMetaInterface.TYPE_BOOLEAN ) );
+  }
+
+  @Test
+  public void testIntegersAreCalculatedExactly() throws Exception {
+    assertEquals( 9007199254740993L, evaluate( "[big] * 1 + 0", ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( 9007199254740992L, evaluate( "ABS(-[big]) - 1", ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( Boolean.FALSE, evaluate( "[big] = 9007199254740992", ValueMetaInterface.TYPE_BOOLEAN ) );
+    assertEquals( 9007199254740993L, evaluate( "MAX([qty]; [big])", ValueMetaInterface.TYPE_INTEGER ) );
+  }
+
+  @Test( expected = ArithmeticException.class )
+  public void testIntegerOverflowIsLeftToTheInterpreter() throws Exception {
+    evaluate( "[big] * [big]", ValueMetaInterface.TYPE_INTEGER );
+  }
+
+  @Test
+  public void testCompiledResultsMatchTheInterpreter() throws Exception {
+    Object[][] formulas = {
+      { "[qty] + 2 * [qty] - 1", ValueMetaInterface.TYPE_INTEGER },
+      { "[qty] + 2 * [qty] - 1", ValueMetaInterface.TYPE_NUMBER },
+      { "-[price]", ValueMetaInterface.TYPE_NUMBER },
+      { "MIN([price]; 0.1)", ValueMetaInterface.TYPE_NUMBER },
+      { "ABS([qty] - 10)", ValueMetaInterface.TYPE_INTEGER },
+      { "MIN([qty]; 4) * MAX(1; [qty])", ValueMetaInterface.TYPE_INTEGER },
+      { "MAX([qty]; [price])", ValueMetaInterface.TYPE_NUMBER },
+      { "LEN([name]) + [qty]", ValueMetaInterface.TYPE_INTEGER },
+      { "SIGN(-[qty])", ValueMetaInterface.TYPE_INTEGER },
+      { "INT([qty])", ValueMetaInterface.TYPE_INTEGER },
+      { "IF([qty] >= 3; [qty]; [price])", ValueMetaInterface.TYPE_NUMBER },
+      { "[qty] <> 3", ValueMetaInterface.TYPE_BOOLEAN },
+      { "AND([qty] < 5; [active])", ValueMetaInterface.TYPE_BOOLEAN },
+      { "LEFT([name]; ABS([qty])) & \"-\"", ValueMetaInterface.TYPE_STRING },
+    };
+    long[] quantities = { 3L, 7L, -4L, 0L };
+    for ( long qty : quantities ) {
+      row[0] = qty;
+      for ( Object[] formula : formulas ) {
+        String text = (String) formula[0];
+        int resultType = (Integer) formula[1];
+        Object expected = interpret( text, resultType );
+        Object actual = evaluate( text, resultType );
+        assertEquals( text + " with qty " + qty, expected, actual );
+      }
+    }
+  }
+
+  @Test
+  public void testFunctions() throws Exception {
+    assertEquals( "WIDGET-3", evaluate( "UPPER([name]) & \"-\" & IF([qty] > 2; \"3\"; \"x\")",
+      ValueMetaInterface.TYPE_STRING ) );
+    assertEquals( "idg", evaluate( "MID([name]; 2; 3)", ValueMetaInterface.TYPE_STRING ) );
+    assertEquals( "Wi", evaluate( "LEFT([name]; 2)", ValueMetaInterface.TYPE_STRING ) );
+    assertEquals( "t", evaluate( "RIGHT([name])", ValueMetaInterface.TYPE_STRING ) );
+    assertEquals( 6.0, evaluate( "LEN([name])", ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( 3.0, evaluate( "MAX(1; [qty]; [price])", ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( 2.0, evaluate( "INT(ABS(-[price]))", ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( Boolean.FALSE, evaluate( "AND([active]; NOT(TRUE()))", ValueMetaInterface.TYPE_BOOLEAN ) );
+  }
+
+  @Test
+  public void testNullFieldIsLeftToTheInterpreter() throws Exception {
+    assertNull( evaluate( "[missing] + 1", ValueMetaInterface.TYPE_NUMBER ) );
+  }
+
+  @Test( expected = ArithmeticException.class )
+  public void testNotANumberIsLeftToTheInterpreter() throws Exception {
+    row[1] = Double.NaN;
+    evaluate( "MAX([price]; [qty])", ValueMetaInterface.TYPE_NUMBER );
+  }
+
+  @Test
+  public void testDecimalArithmeticIsLeftToTheInterpreter() throws Exception {
+    // In double precision 0.1 + 0.2 is 0.30000000000000004, the interpreter calculates 0.3
+    assertNull( compiler.compile( "0.1 + 0.2", ValueMetaInterface.TYPE_NUMBER ) );
+    assertNull( compiler.compile( "[qty] * [price]", ValueMetaInterface.TYPE_INTEGER ) );
+    assertNull( compiler.compile( "[qty] / 2", ValueMetaInterface.TYPE_NUMBER ) );
+    assertNull( compiler.compile( "2 ^ [qty]", ValueMetaInterface.TYPE_NUMBER ) );
+    assertNull( compiler.compile( "[qty]%", ValueMetaInterface.TYPE_NUMBER ) );
+    assertNull( compiler.compile( "SQRT([qty])", ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( 0.3, interpret( "0.1 + 0.2", ValueMetaInterface.TYPE_NUMBER ) );
+  }
+
+  @Test
+  public void testUnsupportedFormulasAreNotCompiled() throws Exception {
+    // unsupported field type, function, operand types, result type and an unknown field
+    assertNull( compiler.compile( "[created]", ValueMetaInterface.TYPE_DATE ) );
+    assertNull( compiler.compile( "TRIM([name])", ValueMetaInterface.TYPE_STRING ) );
+    assertNull( compiler.compile( "[name] & [qty]", ValueMetaInterface.TYPE_STRING ) );
+    assertNull( compiler.compile( "[name] = \"Widget\"", ValueMetaInterface.TYPE_BOOLEAN ) );
+    // comparisons of anything but integers
+    assertNull( compiler.compile( "[price] > 1", ValueMetaInterface.TYPE_BOOLEAN ) );
+    assertNull( compiler.compile( "[qty] = 2.5", ValueMetaInterface.TYPE_BOOLEAN ) );
+    assertNull( compiler.compile( "[active] = TRUE()", ValueMetaInterface.TYPE_BOOLEAN ) );
+    assertNull( compiler.compile( "[qty] + 1", ValueMetaInterface.TYPE_STRING ) );
+    assertNull( compiler.compile( "[unknown] + 1", ValueMetaInterface.TYPE_NUMBER ) );
+  }
+
+  @Test
+  public void testToJavaString() {
+    assertEquals( "\"a\\\"b\\\\c\\012d\"", FormulaCompiler.toJavaString( "a\"b\\c\nd" ) );
+  }
+}
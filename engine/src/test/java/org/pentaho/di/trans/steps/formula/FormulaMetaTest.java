@@ -59,13 +59,15 @@ public class FormulaMetaTest {
 
   @Test
   public void testStepMeta() throws KettleException {
-    List<String> attributes = Arrays.asList( "formula" );
+    List<String> attributes = Arrays.asList( "formula", "compiled" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     getterMap.put( "formula", "getFormula" );
+    getterMap.put( "compiled", "isCompiled" );
 
     Map<String, String> setterMap = new HashMap<String, String>();
     setterMap.put( "formula", "setFormula" );
+    setterMap.put( "compiled", "setCompiled" );
 
     Map<String, FieldLoadSaveValidator<?>> fieldLoadSaveValidatorAttributeMap =
       new HashMap<String, FieldLoadSaveValidator<?>>();
@@ -0,0 +1,260 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.insertupdate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Inserts and updates rows in batches through the step, with the lookup of a batch answered from a map.
+ */
+public class InsertUpdateBatchTest {
+  private StepMockHelper<InsertUpdateMeta, InsertUpdateData> smh;
+  private RowMetaInterface inputRowMeta;
+  private RowMetaInterface keyMeta;
+  private RowMetaInterface valueMeta;
+  private InsertUpdateMeta meta;
+  private InsertUpdateData data;
+  private Database db;
+  private PreparedStatement insertStatement;
+  private PreparedStatement updateStatement;
+  private BatchedKeyLookup batchLookup;
+  private Map<RowMetaAndData, RowMetaAndData> table;
+  private List<Object[]> inserted;
+  private List<Object[]> updated;
+  private RowSet outputRowSet;
+
+  @Before
+  public void setUp() throws Exception {
+    smh = new StepMockHelper<>( "Insert/Update", InsertUpdateMeta.class, InsertUpdateData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    valueMeta = new RowMeta();
+    valueMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    meta = new InsertUpdateMeta();
+    meta.allocate( 1, 1 );
+    meta.getKeyFields()[ 0 ].setKeyStream( "id" );
+    meta.getKeyFields()[ 0 ].setKeyLookup( "id" );
+    meta.getKeyFields()[ 0 ].setKeyCondition( "=" );
+    meta.getUpdateFields()[ 0 ].setUpdateStream( "value" );
+    meta.getUpdateFields()[ 0 ].setUpdateLookup( "value" );
+    meta.getUpdateFields()[ 0 ].setUpdate( true );
+
+    table = new HashMap<>();
+    table.put( key( 1L ), new RowMetaAndData( valueMeta, 10L ) );
+    table.put( key( 2L ), new RowMetaAndData( valueMeta, 20L ) );
+
+    batchLookup = mock( BatchedKeyLookup.class );
+    when( batchLookup.createKey( any( Object[].class ) ) )
+      .thenAnswer( invocation -> key( (Long) ( (Object[]) invocation.getArgument( 0 ) )[ 0 ] ) );
+    when( batchLookup.lookup( anyCollection() ) ).thenAnswer( invocation -> {
+      Map<RowMetaAndData, RowMetaAndData> found = new HashMap<>();
+      for ( RowMetaAndData key : (Collection<RowMetaAndData>) invocation.getArgument( 0 ) ) {
+        if ( table.containsKey( key ) ) {
+          found.put( key, table.get( key ) );
+        }
+      }
+      return found;
+    } );
+
+    insertStatement = mock( PreparedStatement.class );
+    updateStatement = mock( PreparedStatement.class );
+    inserted = new ArrayList<>();
+    updated = new ArrayList<>();
+    db = mock( Database.class );
+    when( db.isAutoCommit() ).thenReturn( false );
+    when( db.getPrepStatementInsert() ).thenReturn( insertStatement );
+    doAnswer( invocation -> inserted.add( ( (Object[]) invocation.getArgument( 1 ) ).clone() ) )
+      .when( db ).setValuesInsert( any( RowMetaInterface.class ), any( Object[].class ) );
+    doAnswer( invocation -> updated.add( ( (Object[]) invocation.getArgument( 1 ) ).clone() ) )
+      .when( db ).setValues( any( RowMetaInterface.class ), any( Object[].class ), eq( updateStatement ) );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaAndData key( Long id ) {
+    return new RowMetaAndData( keyMeta, id );
+  }
+
+  /**
+   * Set up the step as if the first row was processed, with batches of {@code batchSize} rows.
+   */
+  private InsertUpdate createStep( int batchSize, int commitSize ) {
+    meta.setLookupBatchSize( batchSize );
+
+    InsertUpdate step = new InsertUpdate( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    step.first = false;
+
+    data = new InsertUpdateData();
+    data.db = db;
+    data.outputRowMeta = inputRowMeta.clone();
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.valuenrs = new int[] { 1 };
+    data.lookupParameterRowMeta = keyMeta.clone();
+    data.lookupReturnRowMeta = valueMeta.clone();
+    data.insertRowMeta = valueMeta.clone();
+    data.updateParameterRowMeta = new RowMeta();
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.prepStatementUpdate = updateStatement;
+    data.batchLookup = batchLookup;
+    data.batchBuffer = new ArrayList<>();
+    data.useJdbcBatch = true;
+    data.commitSize = commitSize;
+
+    outputRowSet = new QueueRowSet();
+    step.addRowSetToOutputRowSets( outputRowSet );
+    return step;
+  }
+
+  private List<Long> process( InsertUpdate step, long[]... rows ) throws KettleException {
+    RowSet inputRowSet = new QueueRowSet();
+    for ( long[] row : rows ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { row[ 0 ], row[ 1 ] } );
+    }
+    inputRowSet.setDone();
+    step.addRowSetToInputRowSets( inputRowSet );
+    step.setInputRowMeta( inputRowMeta );
+
+    while ( step.processRow( meta, data ) ) {
+      // process all the rows
+    }
+
+    List<Long> ids = new ArrayList<>();
+    for ( Object[] row = outputRowSet.getRow(); row != null; row = outputRowSet.getRow() ) {
+      ids.add( (Long) row[ 0 ] );
+    }
+    return ids;
+  }
+
+  @Test
+  public void testSameKeyTwiceInABatch() throws Exception {
+    InsertUpdate step = createStep( 4, 100 );
+
+    List<Long> ids = process( step, new long[] { 3L, 30L }, new long[] { 3L, 31L }, new long[] { 1L, 10L },
+      new long[] { 1L, 10L } );
+
+    assertEquals( Arrays.asList( 3L, 3L, 1L, 1L ), ids );
+    verify( batchLookup, times( 1 ) ).lookup( anyCollection() );
+    // The second row of key 3 finds the row inserted by the first one and updates it
+    assertEquals( 1, inserted.size() );
+    assertEquals( 30L, inserted.get( 0 )[ 0 ] );
+    assertEquals( 1, updated.size() );
+    assertEquals( Arrays.asList( 31L, 3L ), Arrays.asList( updated.get( 0 ) ) );
+    assertEquals( 4, step.getLinesInput() );
+    assertEquals( 1, step.getLinesOutput() );
+    assertEquals( 1, step.getLinesUpdated() );
+    assertEquals( 2, step.getLinesSkipped() );
+
+    // The insert has to be executed before the update of the row it inserts
+    InOrder order = inOrder( insertStatement, updateStatement );
+    order.verify( insertStatement ).executeBatch();
+    order.verify( updateStatement ).executeBatch();
+  }
+
+  @Test
+  public void testUpdateBypassed() throws Exception {
+    meta.setUpdateBypassed( true );
+    InsertUpdate step = createStep( 3, 100 );
+
+    assertEquals( Arrays.asList( 1L, 4L, 4L ),
+      process( step, new long[] { 1L, 11L }, new long[] { 4L, 40L }, new long[] { 4L, 41L } ) );
+
+    assertEquals( 1, inserted.size() );
+    assertEquals( 40L, inserted.get( 0 )[ 0 ] );
+    assertEquals( 0, updated.size() );
+    verify( updateStatement, never() ).addBatch();
+    verify( updateStatement, never() ).executeBatch();
+    assertEquals( 3, step.getLinesInput() );
+    assertEquals( 1, step.getLinesOutput() );
+    assertEquals( 0, step.getLinesUpdated() );
+    assertEquals( 2, step.getLinesSkipped() );
+  }
+
+  @Test
+  public void testCommitAfterTheBatchThatReachesTheCommitSize() throws Exception {
+    InsertUpdate step = createStep( 3, 4 );
+
+    // 2 batches of 3 rows and a last batch of 1 row, only the rows that are written count
+    process( step, new long[] { 5L, 50L }, new long[] { 1L, 10L }, new long[] { 6L, 60L }, new long[] { 7L, 70L },
+      new long[] { 8L, 80L }, new long[] { 9L, 90L }, new long[] { 2L, 21L } );
+
+    verify( batchLookup, times( 3 ) ).lookup( anyCollection() );
+    verify( insertStatement, times( 2 ) ).executeBatch();
+    verify( updateStatement, times( 1 ) ).executeBatch();
+    // 2 rows after the first batch, 5 after the second: commit. The last row stays for the commit at the end.
+    verify( db, times( 1 ) ).commit();
+    assertEquals( 1, data.rowsSinceCommit );
+    assertEquals( 5, step.getLinesOutput() );
+    assertEquals( 1, step.getLinesUpdated() );
+    assertEquals( 1, step.getLinesSkipped() );
+  }
+
+  @Test
+  public void testCommitOnEveryFullBatch() throws Exception {
+    InsertUpdate step = createStep( 2, 2 );
+
+    process( step, new long[] { 5L, 50L }, new long[] { 6L, 60L }, new long[] { 7L, 70L }, new long[] { 8L, 80L },
+      new long[] { 9L, 90L } );
+
+    verify( db, times( 2 ) ).commit();
+    assertEquals( 1, data.rowsSinceCommit );
+    assertEquals( 5, inserted.size() );
+  }
+}
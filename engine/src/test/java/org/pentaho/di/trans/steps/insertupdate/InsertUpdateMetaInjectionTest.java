@@ -49,6 +49,11 @@ public class InsertUpdateMetaInjectionTest extends BaseMetadataInjectionTest<Ins
         return meta.isUpdateBypassed();
       }
     } );
+    check( "LOOKUP_BATCH_SIZE", new IntGetter() {
+      public int get() {
+        return meta.getLookupBatchSize();
+      }
+    } );
     check( "KEY_STREAM", new StringGetter() {
       public String get() {
         return meta.getKeyFields()[ 0 ].getKeyStream();
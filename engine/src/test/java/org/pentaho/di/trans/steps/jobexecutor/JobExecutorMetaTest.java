@@ -71,7 +71,8 @@ public class JobExecutorMetaTest {
 
     List<String> attributes =
         Arrays.asList( "fileName", "jobName", "directoryPath", "groupSize", "groupField", "groupTime",
-            "executionTimeField", "executionFilesRetrievedField", "executionLogTextField",
+            "parallelExecutions", "keepOutputOrder", "executionTimeField", "executionFilesRetrievedField",
+            "executionLogTextField",
             "executionLogChannelIdField", "executionResultField", "executionNrErrorsField", "executionLinesReadField",
             "executionLinesWrittenField", "executionLinesInputField", "executionLinesOutputField",
             "executionLinesRejectedField", "executionLinesUpdatedField", "executionLinesDeletedField",
@@ -14,28 +14,52 @@
 package org.pentaho.di.trans.steps.jobexecutor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.job.Job;
 import org.pentaho.di.job.JobMeta;
 import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.StepMockUtil;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -47,6 +71,13 @@ public class JobExecutorTest {
   private JobExecutorMeta meta;
   private JobExecutorData data;
 
+  // The parallel executions: the copies of the job, the jobs in the order they were created and the latches the
+  // execution of a group waits for, or counts down when it's finished
+  private final List<JobMeta> clonedJobMetas = Collections.synchronizedList( new ArrayList<JobMeta>() );
+  private final List<Job> parallelJobs = Collections.synchronizedList( new ArrayList<Job>() );
+  private final Map<String, CountDownLatch> groupAwaits = new ConcurrentHashMap<>();
+  private final Map<String, CountDownLatch> groupFinished = new ConcurrentHashMap<>();
+
   @Before
   public void setUp() throws Exception {
     executor = StepMockUtil.getStep( JobExecutor.class, JobExecutorMeta.class, "TransExecutorUnitTest" );
@@ -180,4 +211,211 @@ public class JobExecutorTest {
       .doReturn( null )
       .when( executor ).getRow();
   }
+
+  @Test
+  public void parallelExecutionsKeepTheOutputOrder() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( true );
+    // The first group finishes after the second one
+    CountDownLatch secondFinished = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondFinished );
+    groupFinished.put( "b", secondFinished );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "a", "b" ), getFirstValues( rowSet ) );
+  }
+
+  @Test
+  public void parallelExecutionsSendTheOutputAsTheyFinish() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( false );
+    // The first group finishes after the output of the second one is sent
+    final CountDownLatch secondSent = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondSent );
+    doAnswer( invocation -> {
+      invocation.callRealMethod();
+      if ( "b".equals( ( (Object[]) invocation.getArgument( 1 ) )[ 0 ] ) ) {
+        secondSent.countDown();
+      }
+      return null;
+    } ).when( executor ).putRowTo( any(), any(), any() );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "b", "a" ), getFirstValues( rowSet ) );
+  }
+
+  @Test
+  public void parallelExecutionsGiveTheirJobBackToThePool() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( true );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b", "c" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "a", "b", "c" ), getFirstValues( rowSet ) );
+    assertEquals( 2, clonedJobMetas.size() );
+    assertEquals( 3, parallelJobs.size() );
+    // The groups that run at the same time have their own copy, the third group gets the copy of the first one
+    assertNotSame( parallelJobs.get( 0 ).getJobMeta(), parallelJobs.get( 1 ).getJobMeta() );
+    assertSame( parallelJobs.get( 0 ).getJobMeta(), parallelJobs.get( 2 ).getJobMeta() );
+    assertEquals( 2, data.executorJobMetaPool.size() );
+    assertTrue( data.executorJobMetaPool.containsAll( clonedJobMetas ) );
+  }
+
+  @Test
+  public void parallelExecutionsMeasureTheExecutionTimeOfEveryGroup() throws Exception {
+    prepareParallelExecutions( true );
+    meta.setExecutionTimeField( "executionTimeField" );
+    RowSet rowSet = new QueueRowSet();
+    meta.setExecutionResultTargetStepMeta( mockStepAndMapItToRowSet( "executionResults", rowSet ) );
+    CountDownLatch secondFinished = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondFinished );
+    groupFinished.put( "b", secondFinished );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a" );
+    Thread.sleep( 300 );
+    processGroup( inputRowSet, "b" );
+    finishGroups( inputRowSet );
+
+    // Every group is timed from its own start, not from the start of the last group
+    long firstTime = (Long) rowSet.getRowImmediate()[ 0 ];
+    long secondTime = (Long) rowSet.getRowImmediate()[ 0 ];
+    assertTrue( "First execution time: " + firstTime, firstTime >= 300 );
+    assertTrue( "Second execution time: " + secondTime, secondTime < firstTime );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void stopAllStopsTheRunningParallelExecutions() throws Exception {
+    prepareParallelExecutions( true );
+    // Both groups run until they are stopped
+    groupAwaits.put( "a", new CountDownLatch( 1 ) );
+    groupAwaits.put( "b", new CountDownLatch( 1 ) );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    assertSame( parallelJobs.get( 1 ), data.executorJob );
+
+    executor.stopAll();
+    finishGroups( inputRowSet );
+
+    // The first group is no longer the executor job of the step but it's still stopped
+    verify( parallelJobs.get( 0 ), atLeastOnce() ).stopAll();
+    verify( parallelJobs.get( 1 ), atLeastOnce() ).stopAll();
+    assertTrue( data.executions.isEmpty() );
+  }
+
+  /**
+   * Execute groups of one row, 2 at the same time, and send their result rows to the returned row set.
+   */
+  private RowSet prepareParallelExecutions( boolean keepOutputOrder ) throws KettleException {
+    meta.setGroupSize( "1" );
+    meta.setParallelExecutions( "2" );
+    meta.setKeepOutputOrder( keepOutputOrder );
+    meta.setResultRowsField( new String[] { "group" } );
+    meta.setResultRowsType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setResultRowsLength( new int[] { -1 } );
+    meta.setResultRowsPrecision( new int[] { -1 } );
+    RowSet rowSet = new QueueRowSet();
+    meta.setResultRowsTargetStepMeta( mockStepAndMapItToRowSet( "resultRows", rowSet ) );
+
+    doReturn( mock( JobMeta.class ) ).when( executor ).loadExecutorJobMeta();
+    doAnswer( invocation -> {
+      JobMeta clone = mock( JobMeta.class );
+      clonedJobMetas.add( clone );
+      return clone;
+    } ).when( executor ).cloneExecutorJobMeta();
+    doAnswer( invocation -> createParallelJob( invocation.getArgument( 1 ) ) ).when( executor )
+      .createJob( nullable( Repository.class ), any( JobMeta.class ), any( LoggingObjectInterface.class ) );
+    return rowSet;
+  }
+
+  /**
+   * The job of a group returns the rows of the group. It waits for the latch of its group, if any, and counts down
+   * the latch of its group when it's finished. Stopping it releases the latch it waits for.
+   */
+  private Job createParallelJob( JobMeta jobMeta ) throws KettleException {
+    final Job job = mock( Job.class );
+    final AtomicReference<List<RowMetaAndData>> sourceRows = new AtomicReference<>();
+    doReturn( jobMeta ).when( job ).getJobMeta();
+    doReturn( ArrayUtils.EMPTY_STRING_ARRAY ).when( job ).listParameters();
+    doAnswer( invocation -> {
+      sourceRows.set( invocation.getArgument( 0 ) );
+      return null;
+    } ).when( job ).setSourceRows( any() );
+    doAnswer( invocation -> sourceRows.get() ).when( job ).getSourceRows();
+    doAnswer( invocation -> {
+      CountDownLatch await = groupAwaits.get( getGroup( job ) );
+      if ( await != null ) {
+        assertTrue( "Waiting for group " + getGroup( job ), await.await( 10, TimeUnit.SECONDS ) );
+      }
+      CountDownLatch finished = groupFinished.get( getGroup( job ) );
+      if ( finished != null ) {
+        finished.countDown();
+      }
+      Result result = new Result();
+      result.setRows( new ArrayList<>( job.getSourceRows() ) );
+      return result;
+    } ).when( job ).execute( anyInt(), any( Result.class ) );
+    doAnswer( invocation -> {
+      CountDownLatch await = groupAwaits.get( getGroup( job ) );
+      if ( await != null ) {
+        await.countDown();
+      }
+      return null;
+    } ).when( job ).stopAll();
+    parallelJobs.add( job );
+    return job;
+  }
+
+  private static String getGroup( Job job ) {
+    return (String) job.getSourceRows().get( 0 ).getData()[ 0 ];
+  }
+
+  private StepMeta mockStepAndMapItToRowSet( String stepName, RowSet rowSet ) throws KettleStepException {
+    StepMeta stepMeta = mock( StepMeta.class );
+    when( stepMeta.getName() ).thenReturn( stepName );
+    doReturn( rowSet ).when( executor ).findOutputRowSet( stepName );
+    return stepMeta;
+  }
+
+  private RowSet processGroups( String... groups ) throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    RowSet inputRowSet = new QueueRowSet();
+    inputRowSet.setRowMeta( inputRowMeta );
+    executor.addRowSetToInputRowSets( inputRowSet );
+    executor.setInputRowMeta( inputRowMeta );
+    for ( String group : groups ) {
+      processGroup( inputRowSet, group );
+    }
+    return inputRowSet;
+  }
+
+  private void processGroup( RowSet inputRowSet, String group ) throws KettleException {
+    inputRowSet.putRow( inputRowSet.getRowMeta(), new Object[] { group } );
+    assertTrue( executor.processRow( meta, data ) );
+  }
+
+  private void finishGroups( RowSet inputRowSet ) throws KettleException {
+    inputRowSet.setDone();
+    try {
+      assertFalse( executor.processRow( meta, data ) );
+    } finally {
+      data.executions.shutdown();
+    }
+  }
+
+  private static List<Object> getFirstValues( RowSet rowSet ) {
+    List<Object> values = new ArrayList<>();
+    for ( Object[] row = rowSet.getRowImmediate(); row != null; row = rowSet.getRowImmediate() ) {
+      values.add( row[ 0 ] );
+    }
+    return values;
+  }
 }
@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.memgroupby;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -92,6 +93,7 @@ public class MemoryGroupByAggregationTest {
 
   private RowMeta rowMeta;
   private TreeBasedTable<Integer, Integer, Optional<Object>> data;
+  private MemoryGroupByData stepData;
 
   @BeforeClass
   public static void setUpBeforeClass() throws KettleException {
@@ -237,6 +239,65 @@ public class MemoryGroupByAggregationTest {
     assertThat( output.getString( "str_max", "invalid" ), is( "B" ) );
   }
 
+  @Test
+  public void testPrimitiveAggregation() throws Exception {
+    addColumn( new ValueMetaInteger( "intg" ), 0L, 1L, 1L, 10L );
+    addColumn( new ValueMetaInteger( "nul" ) );
+    addColumn( new ValueMetaInteger( "mix2" ), null, 7L );
+    addColumn( new ValueMetaNumber( "mix3" ), -1.0, 2.5 );
+
+    aggregates.remove( "count_distinct" );
+
+    RowMetaAndData output = runStep();
+
+    assertThat( stepData.index, notNullValue() );
+
+    assertThat( output.getInteger( "intg_min" ), is( 0L ) );
+    assertThat( output.getInteger( "intg_max" ), is( 10L ) );
+    assertThat( output.getInteger( "intg_sum" ), is( 12L ) );
+    assertThat( output.getInteger( "intg_ave" ), is( 3L ) );
+    assertThat( output.getInteger( "intg_count" ), is( 4L ) );
+    assertThat( output.getInteger( "intg_count_any" ), is( 4L ) );
+
+    assertThat( output.getInteger( "nul_min" ), nullValue() );
+    assertThat( output.getInteger( "nul_max" ), nullValue() );
+    assertThat( output.getInteger( "nul_sum" ), nullValue() );
+    assertThat( output.getInteger( "nul_ave" ), nullValue() );
+    assertThat( output.getInteger( "nul_count" ), is( 0L ) );
+    assertThat( output.getInteger( "nul_count_any" ), is( 4L ) );
+
+    assertThat( output.getInteger( "mix2_max" ), is( 7L ) );
+    assertThat( output.getInteger( "mix2_min" ), is( 7L ) );
+    assertThat( output.getInteger( "mix2_sum" ), is( 7L ) );
+    assertThat( output.getInteger( "mix2_ave" ), is( 7L ) );
+    assertThat( output.getInteger( "mix2_count" ), is( 1L ) );
+
+    assertThat( output.getNumber( "mix3_max", Double.NaN ), is( 2.5 ) );
+    assertThat( output.getNumber( "mix3_min", Double.NaN ), is( -1.0 ) );
+    assertThat( output.getNumber( "mix3_sum", Double.NaN ), is( 1.5 ) );
+    assertThat( output.getNumber( "mix3_ave", Double.NaN ), is( 0.75 ) );
+    assertThat( output.getInteger( "mix3_count" ), is( 2L ) );
+  }
+
+  @Test
+  public void testPrimitiveNullMin() throws Exception {
+    variables.setVariable( Const.KETTLE_AGGREGATION_MIN_NULL_IS_VALUED, "Y" );
+
+    addColumn( new ValueMetaInteger( "intg" ), null, 0L, 1L, -1L );
+    addColumn( new ValueMetaNumber( "num" ), 2.0, null, 1.0, 3.0 );
+
+    aggregates = Maps.toMap( ImmutableList.of( "min", "max" ), Functions.forMap( default_aggregates ) );
+
+    RowMetaAndData output = runStep();
+
+    assertThat( stepData.index, notNullValue() );
+
+    assertThat( output.getInteger( "intg_min" ), nullValue() );
+    assertThat( output.getInteger( "intg_max" ), is( 1L ) );
+    assertThat( output.getNumber( "num_min", Double.NaN ), is( Double.NaN ) );
+    assertThat( output.getNumber( "num_max", Double.NaN ), is( 3.0 ) );
+  }
+
   @Test
   public void testNullsAreZeroCompatible() throws Exception {
     variables.setVariable( Const.KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO, "Y" );
@@ -333,6 +394,7 @@ public class MemoryGroupByAggregationTest {
 
     MemoryGroupByData data = new MemoryGroupByData();
     data.map = Maps.newHashMap();
+    stepData = data;
 
     // Add to trans
     TransMeta transMeta = mock( TransMeta.class );
@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryGroupByIndexTest {
+
+  @Test
+  public void testLongIndex() throws Exception {
+    RowMetaInterface groupMeta = new RowMeta();
+    groupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    MemoryGroupByIndex index = MemoryGroupByIndex.create( groupMeta, new int[] { 1 } );
+    assertTrue( index instanceof MemoryGroupByIndex.LongIndex );
+
+    // Enough keys to resize the table a couple of times
+    for ( int pass = 0; pass < 2; pass++ ) {
+      for ( long key = 0; key < 20000; key++ ) {
+        assertEquals( (int) key, index.getGroupNr( new Object[] { "x", key * 3 } ) );
+      }
+    }
+    assertEquals( 20000, index.size() );
+    assertEquals( 20000, index.getGroupNr( new Object[] { "x", null } ) );
+    assertEquals( 20000, index.getGroupNr( new Object[] { "y", null } ) );
+    assertEquals( 20001, index.size() );
+
+    assertArrayEquals( new Object[] { 300L }, index.getGroupData( 100 ) );
+    assertArrayEquals( new Object[] { null }, index.getGroupData( 20000 ) );
+    assertTrue( index.estimateMemory() > 0 );
+
+    index.clear();
+    assertEquals( 0, index.size() );
+    assertEquals( 0, index.getGroupNr( new Object[] { "x", 300L } ) );
+  }
+
+  @Test
+  public void testLongIndexLazyConversion() throws Exception {
+    ValueMetaInterface storageMeta = new ValueMetaString( "id" );
+    ValueMetaInterface valueMeta = new ValueMetaInteger( "id" );
+    valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    valueMeta.setStorageMetadata( storageMeta );
+    RowMetaInterface groupMeta = new RowMeta();
+    groupMeta.addValueMeta( valueMeta );
+
+    MemoryGroupByIndex index = MemoryGroupByIndex.create( groupMeta, new int[] { 0 } );
+    assertEquals( 0, index.getGroupNr( new Object[] { "12".getBytes( StandardCharsets.UTF_8 ) } ) );
+    assertEquals( 1, index.getGroupNr( new Object[] { "13".getBytes( StandardCharsets.UTF_8 ) } ) );
+    assertEquals( 0, index.getGroupNr( new Object[] { "12".getBytes( StandardCharsets.UTF_8 ) } ) );
+    assertArrayEquals( new Object[] { 12L }, index.getGroupData( 0 ) );
+  }
+
+  @Test
+  public void testByteArrayIndex() throws Exception {
+    RowMetaInterface groupMeta = new RowMeta();
+    groupMeta.addValueMeta( new ValueMetaString( "name" ) );
+    groupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    MemoryGroupByIndex index = MemoryGroupByIndex.create( groupMeta, new int[] { 2, 0 } );
+    assertTrue( index instanceof MemoryGroupByIndex.ByteArrayIndex );
+
+    assertEquals( 0, index.getGroupNr( new Object[] { 1L, 0.5, "a" } ) );
+    assertEquals( 1, index.getGroupNr( new Object[] { 2L, 0.5, "a" } ) );
+    assertEquals( 2, index.getGroupNr( new Object[] { 1L, 0.5, "b" } ) );
+    assertEquals( 3, index.getGroupNr( new Object[] { null, 0.5, null } ) );
+    assertEquals( 0, index.getGroupNr( new Object[] { 1L, 1.5, "a" } ) );
+    assertEquals( 3, index.getGroupNr( new Object[] { null, 1.5, null } ) );
+    assertEquals( 4, index.size() );
+
+    assertArrayEquals( new Object[] { "b", 1L }, index.getGroupData( 2 ) );
+    assertArrayEquals( new Object[] { null, null }, index.getGroupData( 3 ) );
+  }
+
+  @Test
+  public void testUnsupportedGroupFields() {
+    RowMetaInterface groupMeta = new RowMeta();
+    groupMeta.addValueMeta( new ValueMetaBigNumber( "amount" ) );
+    assertNull( MemoryGroupByIndex.create( groupMeta, new int[] { 0 } ) );
+
+    ValueMetaInterface caseInsensitive = new ValueMetaString( "name" );
+    caseInsensitive.setCaseInsensitive( true );
+    groupMeta = new RowMeta();
+    groupMeta.addValueMeta( caseInsensitive );
+    assertNull( MemoryGroupByIndex.create( groupMeta, new int[] { 0 } ) );
+  }
+}
@@ -63,5 +63,29 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
           return meta.isAlwaysGivingBackOneRow();
         }
       } );
+    check( "SPILL_TO_DISK", new BooleanGetter() {
+      @Override
+      public boolean get() {
+        return meta.isSpillToDisk();
+      }
+    } );
+    check( "SPILL_DIRECTORY", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getDirectory();
+      }
+    } );
+    check( "SPILL_FILE_PREFIX", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getPrefix();
+      }
+    } );
+    check( "FREE_MEMORY_THRESHOLD", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getFreeMemoryLimit();
+      }
+    } );
   }
 }
@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final String STEP_NAME = "testStep";
+
+  private MemoryGroupByData data;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  private MemoryGroupByMeta createMeta( int... aggregateTypes ) {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, aggregateTypes.length );
+    meta.getGroupField()[0] = "key";
+    for ( int i = 0; i < aggregateTypes.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = aggregateTypes[i];
+    }
+    meta.setSpillToDisk( true );
+    meta.setDirectory( folder.getRoot().getAbsolutePath() );
+    meta.setPrefix( "grp" );
+    return meta;
+  }
+
+  /**
+   * Run the rows through the step. The free memory limit is set above 100% so the step starts spilling as soon as it
+   * checks the free memory, after the first 1000 rows.
+   */
+  private List<Object[]> runStep( MemoryGroupByMeta meta, RowMetaInterface rowMeta, List<Object[]> rows )
+    throws KettleException {
+    data = new MemoryGroupByData();
+    data.map = new HashMap<>();
+    data.spillToDisk = true;
+    data.freeMemoryPctLimit = 101;
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    List<Object[]> output = new ArrayList<>();
+    doAnswer( invocation -> output.add( (Object[]) invocation.getArguments()[1] ) ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    for ( Object[] row : rows ) {
+      doReturn( row ).when( step ).getRow();
+      assertTrue( step.processRow( meta, data ) );
+    }
+    assertTrue( data.spilling );
+
+    doReturn( null ).when( step ).getRow();
+    assertFalse( step.processRow( meta, data ) );
+
+    // All the partitions are aggregated and their files are removed
+    assertTrue( data.partitions.isEmpty() );
+    assertEquals( 0, folder.getRoot().list().length );
+    return output;
+  }
+
+  @Test
+  public void testSpillPrimitiveAggregation() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    // 20000 groups of two rows: the partitions are big enough to be spilled again at the next level
+    int nrOfGroups = 20000;
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 2 * nrOfGroups; i++ ) {
+      rows.add( new Object[] { i % nrOfGroups, i } );
+    }
+
+    List<Object[]> output = runStep( createMeta( MemoryGroupByMeta.TYPE_GROUP_SUM,
+      MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ), rowMeta, rows );
+
+    assertNotNull( data.index );
+    assertEquals( nrOfGroups, output.size() );
+    Map<Long, Object[]> byKey = new HashMap<>();
+    for ( Object[] row : output ) {
+      assertNull( byKey.put( (Long) row[0], row ) );
+    }
+    for ( long key = 0; key < nrOfGroups; key++ ) {
+      Object[] row = byKey.get( key );
+      assertNotNull( row );
+      assertEquals( 2 * key + nrOfGroups, row[1] );
+      assertEquals( 2L, row[2] );
+    }
+  }
+
+  @Test
+  public void testSpillGenericAggregation() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    int nrOfGroups = 3000;
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 3 * nrOfGroups; i++ ) {
+      rows.add( new Object[] { "key" + ( i % nrOfGroups ), ( i / nrOfGroups ) % 2 } );
+    }
+
+    List<Object[]> output = runStep( createMeta( MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT,
+      MemoryGroupByMeta.TYPE_GROUP_LAST ), rowMeta, rows );
+
+    assertNull( data.index );
+    assertEquals( nrOfGroups, output.size() );
+    Map<String, Object[]> byKey = new HashMap<>();
+    for ( Object[] row : output ) {
+      assertNull( byKey.put( (String) row[0], row ) );
+    }
+    for ( long key = 0; key < nrOfGroups; key++ ) {
+      Object[] row = byKey.get( "key" + key );
+      assertNotNull( row );
+      assertEquals( 2L, row[1] );
+      assertEquals( 0L, row[2] );
+    }
+  }
+}
@@ -15,7 +15,10 @@ package org.pentaho.di.trans.steps.selectvalues;
 
 import java.math.BigDecimal;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -49,8 +52,10 @@ import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta.SelectField;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
@@ -327,6 +332,39 @@ public class SelectValuesTest {
     assertTrue( properException );
   }
 
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void errorRowsKeepTheirPlaceInTheBatch() throws Exception {
+    SelectValuesMeta stepMeta = new SelectValuesMeta();
+    stepMeta.allocate( 1, 0, 1 );
+    stepMeta.getSelectFields()[0] = new SelectField();
+    stepMeta.getSelectFields()[0].setName( SELECTED_FIELD );
+    stepMeta.getMeta()[ 0 ] =
+      new SelectMetadataChange( stepMeta, SELECTED_FIELD, null, ValueMetaInterface.TYPE_INTEGER, -2, -2,
+        ValueMetaInterface.STORAGE_TYPE_NORMAL, null, false, null, null, false, null, null, null );
+
+    SelectValuesData stepData = new SelectValuesData();
+    stepData.select = true;
+    stepData.metadata = true;
+    stepData.firstselect = true;
+    stepData.firstmetadata = true;
+
+    List<String> written = new ArrayList<>();
+    doReturn( Arrays.asList( new Object[] { "1" }, inputRow, new Object[] { "3" } ) ).when( step ).getRows( anyInt() );
+    doAnswer( invocation -> {
+      for ( Object[] row : (List<Object[]>) invocation.getArgument( 1 ) ) {
+        written.add( "row " + row[ 0 ] );
+      }
+      return null;
+    } ).when( step ).putRows( any( RowMetaInterface.class ), any() );
+    doAnswer( invocation -> written.add( "error " + ( (Object[]) invocation.getArgument( 1 ) )[ 0 ] ) )
+      .when( step ).putError( any(), any(), anyLong(), any(), any(), any() );
+
+    step.processRow( stepMeta, stepData );
+
+    assertEquals( Arrays.asList( "row 1", "error a string", "row 3" ), written );
+  }
+
   public static class SelectValuesHandler extends SelectValues {
     private RowMetaInterface rowMeta;
     private RowSet rowset;
@@ -341,6 +379,11 @@ public class SelectValuesTest {
       rowMeta = rm;
     }
 
+    @Override
+    public void putRows( RowMetaInterface rm, List<Object[]> rows ) throws KettleStepException {
+      rowMeta = rm;
+    }
+
     /**
      * Find input row set.
      *
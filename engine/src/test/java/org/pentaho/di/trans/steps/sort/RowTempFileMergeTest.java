@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import org.apache.commons.vfs2.FileObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.TempFileCompression;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.CompactRowCodec;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class RowTempFileMergeTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private RowMetaInterface rowMeta;
+  private CompactRowCodec codec;
+  private Comparator<RowTempFile> comparator;
+  private int fileNr;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "origin" ) );
+    codec = new CompactRowCodec( rowMeta );
+    final int[] fieldNrs = new int[] { 0 };
+    comparator = ( o1, o2 ) -> {
+      try {
+        return rowMeta.compare( o1.row, o2.row, fieldNrs );
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( e );
+      }
+    };
+  }
+
+  private FileObject writeFile( CompressionProvider compression, long... keys ) throws Exception {
+    File file = folder.newFile( "sort" + ( fileNr++ ) + ".tmp" );
+    try ( DataOutputStream dos = TempFileCompression.getOutputStream( new FileOutputStream( file ), compression ) ) {
+      for ( long key : keys ) {
+        codec.writeData( dos, new Object[] { key, file.getName() } );
+      }
+    }
+    return KettleVFS.getFileObject( file.getAbsolutePath() );
+  }
+
+  private List<Object[]> mergeAll( List<FileObject> files, List<Integer> sizes, CompressionProvider compression )
+    throws Exception {
+    List<Object[]> rows = new ArrayList<>();
+    try ( RowTempFileMerge merge = new RowTempFileMerge( mock( LogChannelInterface.class ), codec, comparator,
+      files, sizes, 1024, compression ) ) {
+      Object[] row = merge.next();
+      while ( row != null ) {
+        rows.add( row );
+        row = merge.next();
+      }
+      assertEquals( 0, merge.getNrOfOpenFiles() );
+      assertNull( merge.next() );
+    }
+    return rows;
+  }
+
+  @Test
+  public void testMergeIsSortedAndStable() throws Exception {
+    List<FileObject> files = Arrays.asList(
+      writeFile( null, 1L, 4L, 4L, 9L ),
+      writeFile( null ),
+      writeFile( null, 2L, 4L, 10L ),
+      writeFile( null, 0L, 4L ) );
+    List<Integer> sizes = Arrays.asList( 4, 0, 3, 2 );
+
+    List<Object[]> rows = mergeAll( files, sizes, null );
+
+    long[] expectedKeys = new long[] { 0L, 1L, 2L, 4L, 4L, 4L, 4L, 9L, 10L };
+    assertEquals( expectedKeys.length, rows.size() );
+    for ( int i = 0; i < expectedKeys.length; i++ ) {
+      assertEquals( expectedKeys[ i ], rows.get( i )[ 0 ] );
+    }
+    // Equal keys come out in the order of the files
+    assertEquals( "sort0.tmp", rows.get( 3 )[ 1 ] );
+    assertEquals( "sort0.tmp", rows.get( 4 )[ 1 ] );
+    assertEquals( "sort2.tmp", rows.get( 5 )[ 1 ] );
+    assertEquals( "sort3.tmp", rows.get( 6 )[ 1 ] );
+
+    // The files are deleted once they are read
+    for ( FileObject file : files ) {
+      assertFalse( file.exists() );
+    }
+  }
+
+  @Test
+  public void testMergeCompressedFiles() throws Exception {
+    CompressionProvider compression = new GZIPCompressionProvider();
+    List<FileObject> files = Arrays.asList(
+      writeFile( compression, 3L, 5L ),
+      writeFile( compression, 1L, 2L, 6L ) );
+
+    List<Object[]> rows = mergeAll( files, Arrays.asList( 2, 3 ), compression );
+
+    long[] expectedKeys = new long[] { 1L, 2L, 3L, 5L, 6L };
+    assertEquals( expectedKeys.length, rows.size() );
+    for ( int i = 0; i < expectedKeys.length; i++ ) {
+      assertEquals( expectedKeys[ i ], rows.get( i )[ 0 ] );
+    }
+  }
+}
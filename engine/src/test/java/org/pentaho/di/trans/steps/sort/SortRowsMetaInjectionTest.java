@@ -64,6 +64,12 @@ public class SortRowsMetaInjectionTest extends BaseMetadataInjectionTest<SortRow
         return meta.getCompressFiles();
       }
     } );
+    check( "PARALLEL_SORT", new BooleanGetter() {
+      @Override
+      public boolean get() {
+        return meta.isParallelSort();
+      }
+    } );
     check( "NAME", new StringGetter() {
       @Override
       public String get() {
@@ -52,7 +52,8 @@ public class StreamLookupMetaTest implements InitializerInterface<StepMetaInterf
     KettleEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-        Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair", "keystream",
+        Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair", "usingOffHeapIndex",
+            "keystream",
             "keylookup", "value", "valueName", "valueDefault", "valueDefaultType" );
 
     FieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
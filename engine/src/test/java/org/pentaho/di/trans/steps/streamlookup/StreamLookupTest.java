@@ -157,6 +157,11 @@ public class StreamLookupTest {
   }
 
   private void doTest( boolean memoryPreservationActive, boolean binaryLookupStream, boolean binaryDataStream ) throws KettleException {
+    doTest( memoryPreservationActive, false, binaryLookupStream, binaryDataStream );
+  }
+
+  private void doTest( boolean memoryPreservationActive, boolean offHeapIndex, boolean binaryLookupStream,
+                       boolean binaryDataStream ) throws KettleException {
     StreamLookup step = new StreamLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
     step.init( smh.initStepMetaInterface, smh.initStepDataInterface );
     step.addRowSetToInputRowSets( mockLookupRowSet( binaryLookupStream ) );
@@ -164,6 +169,7 @@ public class StreamLookupTest {
     step.addRowSetToOutputRowSets( new QueueRowSet() );
 
     StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive );
+    doReturn( offHeapIndex ).when( meta ).isUsingOffHeapIndex();
     StreamLookupData data = new StreamLookupData();
     data.readLookupValues = true;
 
@@ -230,4 +236,14 @@ public class StreamLookupTest {
   public void testMemoryPreservationWithBinaryStreams() throws KettleException {
     doTest( true, false, true );
   }
+
+  @Test
+  public void testOffHeapIndexWithNormalStreams() throws KettleException {
+    doTest( false, true, false, false );
+  }
+
+  @Test
+  public void testOffHeapIndexWithBinaryStreams() throws KettleException {
+    doTest( false, true, true, true );
+  }
 }
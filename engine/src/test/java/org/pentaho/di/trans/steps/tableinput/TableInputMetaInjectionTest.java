@@ -59,6 +59,11 @@ public class TableInputMetaInjectionTest extends BaseMetadataInjectionTest<Table
         return meta.isCachedRowMetaActive();
       }
     } );
+    check( "PARTITION_COLUMN", new StringGetter() {
+      public String get() {
+        return meta.getPartitionColumn();
+      }
+    } );
     skipPropertyTest( "CONNECTIONNAME" );
   }
 }
@@ -16,6 +16,13 @@ package org.pentaho.di.trans.steps.tableinput;
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -25,7 +32,9 @@ import org.pentaho.di.trans.step.StepPartitioningMeta;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +44,7 @@ import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doCallRealMethod;
@@ -138,4 +148,72 @@ public class TableInputTest {
     verify( mockStepDataInterface.db, times( 0 ) ).cancelStatement( any( PreparedStatement.class ) );
     assertFalse( mockStepDataInterface.isCanceled );
   }
+
+  @Test
+  public void testPartitionBoundsCoverTheRange() throws KettleException {
+    ValueMetaInterface valueMeta = new ValueMetaInteger( "id" );
+    int nrOfPartitions = 3;
+    long previousUpper = 1L;
+    for ( int nr = 0; nr < nrOfPartitions; nr++ ) {
+      Object[] bounds = TableInput.getPartitionBounds( valueMeta, 1L, 10L, nr, nrOfPartitions );
+      assertEquals( previousUpper, bounds[ 0 ] );
+      previousUpper = (Long) bounds[ 1 ];
+    }
+    assertEquals( 10L, previousUpper );
+
+    Object[] middle = TableInput.getPartitionBounds( valueMeta, 1L, 10L, 1, nrOfPartitions );
+    assertEquals( 4L, middle[ 0 ] );
+    assertEquals( 7L, middle[ 1 ] );
+
+    // More copies than values: some partitions are empty, none overlap
+    Object[] empty = TableInput.getPartitionBounds( valueMeta, 5L, 6L, 0, 4 );
+    assertEquals( 5L, empty[ 0 ] );
+    assertEquals( 5L, empty[ 1 ] );
+  }
+
+  @Test
+  public void testPartitionBoundsOfNumbersAndDates() throws KettleException {
+    Object[] numbers = TableInput.getPartitionBounds( new ValueMetaNumber( "amount" ), 0.0, 1.0, 1, 4 );
+    assertEquals( 0.25, (Double) numbers[ 0 ], 0.0 );
+    assertEquals( 0.5, (Double) numbers[ 1 ], 0.0 );
+
+    Object[] dates = TableInput.getPartitionBounds( new ValueMetaDate( "created" ), new Date( 1000L ),
+      new Date( 2000L ), 1, 2 );
+    assertEquals( new Date( 1500L ), dates[ 0 ] );
+    assertEquals( new Date( 2000L ), dates[ 1 ] );
+  }
+
+  @Test
+  public void testOuterPartitionBoundsKeepTheNanoseconds() throws KettleException {
+    ValueMetaInterface valueMeta = new ValueMetaTimestamp( "created" );
+    Timestamp min = new Timestamp( 1000L );
+    min.setNanos( 123456 );
+    Timestamp max = new Timestamp( 2000L );
+    max.setNanos( 999999 );
+
+    Object[] first = TableInput.getPartitionBounds( valueMeta, min, max, 0, 2 );
+    Object[] last = TableInput.getPartitionBounds( valueMeta, min, max, 1, 2 );
+    assertSame( min, first[ 0 ] );
+    // The row holding the largest value is still included by the last partition
+    assertSame( max, last[ 1 ] );
+    assertEquals( first[ 1 ], last[ 0 ] );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testPartitionBoundsOfStrings() throws KettleException {
+    TableInput.getPartitionBounds( new ValueMetaString( "code" ), "a", "z", 0, 2 );
+  }
+
+  @Test
+  public void testPartitionSQL() {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.stripCR( anyString() ) ).then( invocation -> invocation.getArgument( 0 ) );
+
+    assertEquals( "SELECT MIN(ID), MAX(ID) FROM ( SELECT * FROM T ) kettle_partition",
+      TableInput.getPartitionRangeSQL( databaseMeta, "SELECT * FROM T;", "ID" ) );
+    assertEquals( "SELECT * FROM ( SELECT * FROM T ) kettle_partition WHERE ( ID >= ? AND ID < ? ) OR ID IS NULL",
+      TableInput.getPartitionSQL( databaseMeta, "SELECT * FROM T", "ID", true, false ) );
+    assertEquals( "SELECT * FROM ( SELECT * FROM T ) kettle_partition WHERE ( ID >= ? AND ID <= ? )",
+      TableInput.getPartitionSQL( databaseMeta, "SELECT * FROM T", "ID", false, true ) );
+  }
 }
@@ -15,7 +15,10 @@ package org.pentaho.di.trans.steps.tableoutput;
 
 import java.lang.reflect.Method;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.json.simple.JSONObject;
@@ -25,6 +28,7 @@ import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowMeta;
@@ -41,8 +45,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -195,6 +203,53 @@ public class TableOutputTest {
     verify( tableOutputSpy, never() ).truncateTable();
   }
 
+  @Test
+  public void testProcessRow_errorRowsKeepTheirPlace() throws Exception {
+    List<String> passedOn = prepareRowsForProcessRow();
+    doReturn( true ).when( stepMeta ).isDoingErrorHandling();
+    doReturn( true ).doThrow( new KettleDatabaseException( "duplicate key" ) ).doReturn( true )
+      .when( db ).insertRow( any(), anyBoolean(), anyBoolean() );
+
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, tableOutputData ) );
+
+    assertEquals( Arrays.asList( "row 1", "error row 2", "row 3" ), passedOn );
+  }
+
+  @Test
+  public void testProcessRow_rowsWrittenBeforeAnErrorArePassedOn() throws Exception {
+    List<String> passedOn = prepareRowsForProcessRow();
+    doNothing().when( tableOutputSpy ).logError( anyString(), any( Throwable.class ) );
+    doNothing().when( tableOutputSpy ).stopAll();
+    doNothing().when( tableOutputSpy ).setOutputDone();
+    doReturn( true ).doThrow( new KettleDatabaseException( "duplicate key" ) )
+      .when( db ).insertRow( any(), anyBoolean(), anyBoolean() );
+
+    assertFalse( tableOutputSpy.processRow( tableOutputMeta, tableOutputData ) );
+
+    assertEquals( Arrays.asList( "row 1" ), passedOn );
+  }
+
+  /**
+   * Read 3 rows in one batch and keep the rows that are passed on, the error rows are prefixed with "error".
+   */
+  private List<String> prepareRowsForProcessRow() throws Exception {
+    tableOutputSpy.first = false;
+    tableOutputSpy.setInputRowMeta( filled );
+    doReturn( Arrays.asList( new Object[] { "row 1", "", "" }, new Object[] { "row 2", "", "" },
+      new Object[] { "row 3", "", "" } ) ).when( tableOutputSpy ).getRows( anyInt() );
+
+    final List<String> passedOn = new ArrayList<>();
+    doAnswer( invocation -> {
+      for ( Object[] row : (List<Object[]>) invocation.getArgument( 1 ) ) {
+        passedOn.add( (String) row[ 0 ] );
+      }
+      return null;
+    } ).when( tableOutputSpy ).putRows( any(), anyList() );
+    doAnswer( invocation -> passedOn.add( "error " + ( (Object[]) invocation.getArgument( 1 ) )[ 0 ] ) )
+      .when( tableOutputSpy ).putError( any(), any(), anyLong(), any(), any(), any() );
+    return passedOn;
+  }
+
   @Test
   public void testInit_unsupportedConnection() {
 
@@ -13,8 +13,15 @@
 
 package org.pentaho.di.trans.steps.transexecutor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -55,12 +62,16 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -87,6 +98,13 @@ public class TransExecutorUnitTest {
   private Trans internalTrans;
   private Result internalResult;
 
+  // The parallel executions: the copies of the transformation, the transformations in the order they were created
+  // and the latches the execution of a group waits for, or counts down when it's finished
+  private final List<TransMeta> clonedTransMetas = Collections.synchronizedList( new ArrayList<TransMeta>() );
+  private final List<Trans> parallelTrans = Collections.synchronizedList( new ArrayList<Trans>() );
+  private final Map<String, CountDownLatch> groupAwaits = new ConcurrentHashMap<>();
+  private final Map<String, CountDownLatch> groupFinished = new ConcurrentHashMap<>();
+
   @Before
   public void setUp() throws Exception {
     executor = StepMockUtil.getStep( TransExecutor.class, TransExecutorMeta.class, "TransExecutorUnitTest" );
@@ -731,4 +749,202 @@ public class TransExecutorUnitTest {
 
   }
 
+  @Test
+  public void parallelExecutionsKeepTheOutputOrder() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( true );
+    // The first group finishes after the second one
+    CountDownLatch secondFinished = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondFinished );
+    groupFinished.put( "b", secondFinished );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "a", "b" ), getFirstValues( rowSet ) );
+  }
+
+  @Test
+  public void parallelExecutionsSendTheOutputAsTheyFinish() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( false );
+    // The first group finishes after the output of the second one is sent
+    final CountDownLatch secondSent = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondSent );
+    doAnswer( invocation -> {
+      invocation.callRealMethod();
+      if ( "b".equals( ( (Object[]) invocation.getArgument( 1 ) )[ 0 ] ) ) {
+        secondSent.countDown();
+      }
+      return null;
+    } ).when( executor ).putRowTo( any(), any(), any() );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "b", "a" ), getFirstValues( rowSet ) );
+  }
+
+  @Test
+  public void parallelExecutionsGiveTheirTransformationBackToThePool() throws Exception {
+    RowSet rowSet = prepareParallelExecutions( true );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b", "c" );
+    finishGroups( inputRowSet );
+
+    assertEquals( Arrays.asList( "a", "b", "c" ), getFirstValues( rowSet ) );
+    assertEquals( 2, clonedTransMetas.size() );
+    assertEquals( 3, parallelTrans.size() );
+    // The groups that run at the same time have their own copy, the third group gets the copy of the first one
+    assertNotSame( parallelTrans.get( 0 ).getTransMeta(), parallelTrans.get( 1 ).getTransMeta() );
+    assertSame( parallelTrans.get( 0 ).getTransMeta(), parallelTrans.get( 2 ).getTransMeta() );
+    assertEquals( 2, data.executorTransMetaPool.size() );
+    assertTrue( data.executorTransMetaPool.containsAll( clonedTransMetas ) );
+  }
+
+  @Test
+  public void parallelExecutionsMeasureTheExecutionTimeOfEveryGroup() throws Exception {
+    prepareParallelExecutions( true );
+    StepMeta parentStepMeta = mock( StepMeta.class );
+    when( parentStepMeta.getName() ).thenReturn( "parentStepMeta" );
+    meta.setParentStepMeta( parentStepMeta );
+    meta.setExecutionTimeField( "executionTimeField" );
+    RowSet rowSet = new QueueRowSet();
+    meta.setExecutionResultTargetStepMeta( mockStepAndMapItToRowSet( "executionResults", rowSet ) );
+    CountDownLatch secondFinished = new CountDownLatch( 1 );
+    groupAwaits.put( "a", secondFinished );
+    groupFinished.put( "b", secondFinished );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a" );
+    Thread.sleep( 300 );
+    processGroup( inputRowSet, "b" );
+    finishGroups( inputRowSet );
+
+    // Every group is timed from its own start, not from the start of the last group
+    long firstTime = (Long) rowSet.getRowImmediate()[ 0 ];
+    long secondTime = (Long) rowSet.getRowImmediate()[ 0 ];
+    assertTrue( "First execution time: " + firstTime, firstTime >= 300 );
+    assertTrue( "Second execution time: " + secondTime, secondTime < firstTime );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void stopAllStopsTheRunningParallelExecutions() throws Exception {
+    prepareParallelExecutions( true );
+    // Both groups run until they are stopped
+    groupAwaits.put( "a", new CountDownLatch( 1 ) );
+    groupAwaits.put( "b", new CountDownLatch( 1 ) );
+
+    executor.init( meta, data );
+    RowSet inputRowSet = processGroups( "a", "b" );
+    assertSame( parallelTrans.get( 1 ), data.getExecutorTrans() );
+
+    executor.stopAll();
+    finishGroups( inputRowSet );
+
+    // The first group is no longer the executor transformation of the step but it's still stopped
+    verify( parallelTrans.get( 0 ), atLeastOnce() ).stopAll();
+    verify( parallelTrans.get( 1 ), atLeastOnce() ).stopAll();
+    assertTrue( data.executions.isEmpty() );
+  }
+
+  /**
+   * Execute groups of one row, 2 at the same time, and send their rows to the returned row set.
+   */
+  private RowSet prepareParallelExecutions( boolean keepOutputOrder ) throws KettleException {
+    meta.setGroupSize( "1" );
+    meta.setParallelExecutions( "2" );
+    meta.setKeepOutputOrder( keepOutputOrder );
+    RowSet rowSet = new QueueRowSet();
+    meta.setOutputRowsSourceStepMeta( mockStepAndMapItToRowSet( "outputRows", rowSet ) );
+
+    doAnswer( invocation -> {
+      TransMeta clone = mock( TransMeta.class );
+      clonedTransMetas.add( clone );
+      return clone;
+    } ).when( executor ).cloneExecutorTransMeta();
+    doAnswer( invocation -> createParallelTrans( invocation.getArgument( 0 ) ) )
+      .when( executor ).createInternalTrans( any( TransMeta.class ) );
+    Mockito.when( executor.getTrans() ).thenReturn( new Trans() );
+    return rowSet;
+  }
+
+  /**
+   * The transformation of a group returns the rows of the group. It waits for the latch of its group, if any, and
+   * counts down the latch of its group when it's finished. Stopping it releases the latch it waits for.
+   */
+  private Trans createParallelTrans( TransMeta transMeta ) throws KettleException {
+    final Trans trans = spy( new Trans() );
+    trans.setLog( mock( LogChannelInterface.class ) );
+    doReturn( transMeta ).when( trans ).getTransMeta();
+    doNothing().when( trans ).prepareExecution( nullable( String[].class ) );
+    doNothing().when( trans ).startThreads();
+    doAnswer( invocation -> {
+      CountDownLatch await = groupAwaits.get( getGroup( trans ) );
+      if ( await != null ) {
+        assertTrue( "Waiting for group " + getGroup( trans ), await.await( 10, TimeUnit.SECONDS ) );
+      }
+      CountDownLatch finished = groupFinished.get( getGroup( trans ) );
+      if ( finished != null ) {
+        finished.countDown();
+      }
+      return null;
+    } ).when( trans ).waitUntilFinished();
+    doAnswer( invocation -> {
+      Result result = new Result();
+      result.setRows( new ArrayList<>( trans.getPreviousResult().getRows() ) );
+      return result;
+    } ).when( trans ).getResult();
+    doAnswer( invocation -> {
+      CountDownLatch await = groupAwaits.get( getGroup( trans ) );
+      if ( await != null ) {
+        await.countDown();
+      }
+      return null;
+    } ).when( trans ).stopAll();
+    parallelTrans.add( trans );
+    return trans;
+  }
+
+  private static String getGroup( Trans trans ) {
+    return (String) trans.getPreviousResult().getRows().get( 0 ).getData()[ 0 ];
+  }
+
+  private RowSet processGroups( String... groups ) throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    RowSet inputRowSet = new QueueRowSet();
+    inputRowSet.setRowMeta( inputRowMeta );
+    executor.addRowSetToInputRowSets( inputRowSet );
+    executor.setInputRowMeta( inputRowMeta );
+    for ( String group : groups ) {
+      processGroup( inputRowSet, group );
+    }
+    return inputRowSet;
+  }
+
+  private void processGroup( RowSet inputRowSet, String group ) throws KettleException {
+    inputRowSet.putRow( inputRowSet.getRowMeta(), new Object[] { group } );
+    assertTrue( executor.processRow( meta, data ) );
+  }
+
+  private void finishGroups( RowSet inputRowSet ) throws KettleException {
+    inputRowSet.setDone();
+    try {
+      assertFalse( executor.processRow( meta, data ) );
+    } finally {
+      data.executions.shutdown();
+    }
+  }
+
+  private static List<Object> getFirstValues( RowSet rowSet ) {
+    List<Object> values = new ArrayList<>();
+    for ( Object[] row = rowSet.getRowImmediate(); row != null; row = rowSet.getRowImmediate() ) {
+      values.add( row[ 0 ] );
+    }
+    return values;
+  }
+
 }
@@ -0,0 +1,238 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.update;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.step.BatchedKeyLookup;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Updates rows in batches through the step, with the lookup of a batch answered from a map.
+ */
+public class UpdateBatchTest {
+  private StepMockHelper<UpdateMeta, UpdateData> smh;
+  private RowMetaInterface inputRowMeta;
+  private RowMetaInterface keyMeta;
+  private RowMetaInterface valueMeta;
+  private UpdateMeta meta;
+  private UpdateData data;
+  private Database db;
+  private PreparedStatement updateStatement;
+  private BatchedKeyLookup batchLookup;
+  private Map<RowMetaAndData, RowMetaAndData> table;
+  private List<Object[]> updated;
+  private RowSet outputRowSet;
+
+  @Before
+  public void setUp() throws Exception {
+    smh = new StepMockHelper<>( "Update", UpdateMeta.class, UpdateData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    valueMeta = new RowMeta();
+    valueMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    meta = new UpdateMeta();
+    meta.allocate( 1, 1 );
+    meta.setKeyStream( new String[] { "id" } );
+    meta.setKeyLookup( new String[] { "id" } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setKeyStream2( new String[] { null } );
+    meta.setUpdateStream( new String[] { "value" } );
+    meta.setUpdateLookup( new String[] { "value" } );
+
+    table = new HashMap<>();
+    table.put( key( 1L ), new RowMetaAndData( valueMeta, 10L ) );
+    table.put( key( 2L ), new RowMetaAndData( valueMeta, 20L ) );
+
+    batchLookup = mock( BatchedKeyLookup.class );
+    when( batchLookup.createKey( any( Object[].class ) ) )
+      .thenAnswer( invocation -> key( (Long) ( (Object[]) invocation.getArgument( 0 ) )[ 0 ] ) );
+    when( batchLookup.lookup( anyCollection() ) ).thenAnswer( invocation -> {
+      Map<RowMetaAndData, RowMetaAndData> found = new HashMap<>();
+      for ( RowMetaAndData key : (Collection<RowMetaAndData>) invocation.getArgument( 0 ) ) {
+        if ( table.containsKey( key ) ) {
+          found.put( key, table.get( key ) );
+        }
+      }
+      return found;
+    } );
+
+    updateStatement = mock( PreparedStatement.class );
+    updated = new ArrayList<>();
+    db = mock( Database.class );
+    when( db.isAutoCommit() ).thenReturn( false );
+    doAnswer( invocation -> updated.add( ( (Object[]) invocation.getArgument( 1 ) ).clone() ) )
+      .when( db ).setValues( any( RowMetaInterface.class ), any( Object[].class ), eq( updateStatement ) );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaAndData key( Long id ) {
+    return new RowMetaAndData( keyMeta, id );
+  }
+
+  /**
+   * Set up the step as if the first row was processed, with batches of {@code batchSize} rows.
+   */
+  private Update createStep( int batchSize, int commitSize ) {
+    meta.setLookupBatchSize( batchSize );
+
+    Update step = new Update( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    step.first = false;
+
+    data = new UpdateData();
+    data.db = db;
+    data.outputRowMeta = inputRowMeta.clone();
+    if ( meta.getIgnoreFlagField() != null ) {
+      data.outputRowMeta.addValueMeta( new ValueMetaBoolean( meta.getIgnoreFlagField() ) );
+    }
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.valuenrs = new int[] { 1 };
+    data.lookupParameterRowMeta = keyMeta.clone();
+    data.lookupReturnRowMeta = valueMeta.clone();
+    data.updateParameterRowMeta = new RowMeta();
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.prepStatementUpdate = updateStatement;
+    data.batchLookup = batchLookup;
+    data.batchBuffer = new ArrayList<>();
+    data.useJdbcBatch = true;
+    data.commitSize = commitSize;
+
+    outputRowSet = new QueueRowSet();
+    step.addRowSetToOutputRowSets( outputRowSet );
+    return step;
+  }
+
+  private List<Object[]> process( Update step, long[]... rows ) throws KettleException {
+    RowSet inputRowSet = new QueueRowSet();
+    for ( long[] row : rows ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { row[ 0 ], row[ 1 ] } );
+    }
+    inputRowSet.setDone();
+    step.addRowSetToInputRowSets( inputRowSet );
+    step.setInputRowMeta( inputRowMeta );
+
+    while ( step.processRow( meta, data ) ) {
+      // process all the rows
+    }
+
+    List<Object[]> output = new ArrayList<>();
+    for ( Object[] row = outputRowSet.getRow(); row != null; row = outputRowSet.getRow() ) {
+      output.add( row );
+    }
+    return output;
+  }
+
+  @Test
+  public void testSameKeyTwiceInABatch() throws Exception {
+    meta.setErrorIgnored( true );
+    meta.setIgnoreFlagField( "found" );
+    Update step = createStep( 4, 100 );
+
+    List<Object[]> output = process( step, new long[] { 1L, 11L }, new long[] { 1L, 11L }, new long[] { 3L, 30L },
+      new long[] { 1L, 10L } );
+
+    assertEquals( 4, output.size() );
+    assertEquals( Arrays.asList( 1L, 11L, true ), Arrays.asList( output.get( 0 ) ) );
+    assertEquals( Arrays.asList( 1L, 11L, true ), Arrays.asList( output.get( 1 ) ) );
+    assertEquals( Arrays.asList( 3L, 30L, false ), Arrays.asList( output.get( 2 ) ) );
+    assertEquals( Arrays.asList( 1L, 10L, true ), Arrays.asList( output.get( 3 ) ) );
+    verify( batchLookup, times( 1 ) ).lookup( anyCollection() );
+
+    // The second row of key 1 finds the value of the first one, the last row changes it back
+    assertEquals( 2, updated.size() );
+    assertEquals( Arrays.asList( 11L, 1L ), Arrays.asList( updated.get( 0 ) ) );
+    assertEquals( Arrays.asList( 10L, 1L ), Arrays.asList( updated.get( 1 ) ) );
+    verify( updateStatement, times( 2 ) ).addBatch();
+    verify( updateStatement, times( 1 ) ).executeBatch();
+    assertEquals( 4, step.getLinesInput() );
+    assertEquals( 2, step.getLinesUpdated() );
+    assertEquals( 1, step.getLinesSkipped() );
+  }
+
+  @Test
+  public void testKeyNotFoundStopsTheBatch() throws Exception {
+    Update step = createStep( 3, 100 );
+
+    assertTrue( process( step, new long[] { 1L, 11L }, new long[] { 3L, 30L }, new long[] { 2L, 21L } ).isEmpty() );
+
+    assertEquals( 1, step.getErrors() );
+    // The update of the first row is never executed
+    verify( updateStatement, times( 1 ) ).addBatch();
+    verify( updateStatement, never() ).executeBatch();
+    verify( db, never() ).commit();
+    assertEquals( 1, step.getLinesUpdated() );
+  }
+
+  @Test
+  public void testCommitAfterTheBatchThatReachesTheCommitSize() throws Exception {
+    Update step = createStep( 2, 3 );
+
+    // 2 batches of 2 rows and a last batch of 1 row, only the rows that are updated count
+    assertEquals( 5, process( step, new long[] { 1L, 11L }, new long[] { 2L, 21L }, new long[] { 1L, 12L },
+      new long[] { 2L, 20L }, new long[] { 1L, 13L } ).size() );
+
+    verify( batchLookup, times( 3 ) ).lookup( anyCollection() );
+    verify( updateStatement, times( 3 ) ).executeBatch();
+    // 2 rows after the first batch, 3 after the second: commit. The last row stays for the commit at the end.
+    verify( db, times( 1 ) ).commit();
+    assertEquals( 1, data.rowsSinceCommit );
+    assertEquals( 4, step.getLinesUpdated() );
+    assertEquals( 1, step.getLinesSkipped() );
+  }
+}
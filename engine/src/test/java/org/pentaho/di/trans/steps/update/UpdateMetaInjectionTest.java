@@ -53,6 +53,11 @@ public class UpdateMetaInjectionTest extends BaseMetadataInjectionTest<UpdateMet
         return meta.isSkipLookup();
       }
     } );
+    check( "LOOKUP_BATCH_SIZE", new IntGetter() {
+      public int get() {
+        return meta.getLookupBatchSize();
+      }
+    } );
     check( "IGNORE_LOOKUP_FAILURE", new BooleanGetter() {
       public boolean get() {
         return meta.isErrorIgnored();
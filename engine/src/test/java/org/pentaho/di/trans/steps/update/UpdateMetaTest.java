@@ -106,7 +106,7 @@ public class UpdateMetaTest implements InitializerInterface<StepMetaInterface> {
 
     List<String> attributes =
         Arrays.asList( "schemaName", "tableName", "commitSize", "errorIgnored", "ignoreFlagField",
-            "skipLookup", "useBatchUpdate", "keyStream", "keyLookup", "keyCondition", "keyStream2",
+            "skipLookup", "useBatchUpdate", "lookupBatchSize", "keyStream", "keyLookup", "keyCondition", "keyStream2",
             "updateLookup", "updateStream", "databaseMeta" );
 
     Map<String, String> getterMap = new HashMap<>() {
@@ -118,6 +118,7 @@ public class UpdateMetaTest implements InitializerInterface<StepMetaInterface> {
         put( "ignoreFlagField", "getIgnoreFlagField" );
         put( "skipLookup", "isSkipLookup" );
         put( "useBatchUpdate", "useBatchUpdate" );
+        put( "lookupBatchSize", "getLookupBatchSize" );
         put( "keyStream", "getKeyStream" );
         put( "keyLookup", "getKeyLookup" );
         put( "keyCondition", "getKeyCondition" );
@@ -136,6 +137,7 @@ public class UpdateMetaTest implements InitializerInterface<StepMetaInterface> {
         put( "ignoreFlagField", "setIgnoreFlagField" );
         put( "skipLookup", "setSkipLookup" );
         put( "useBatchUpdate", "setUseBatchUpdate" );
+        put( "lookupBatchSize", "setLookupBatchSize" );
         put( "keyStream", "setKeyStream" );
         put( "keyLookup", "setKeyLookup" );
         put( "keyCondition", "setKeyCondition" );
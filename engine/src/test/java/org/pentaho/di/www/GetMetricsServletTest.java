@@ -0,0 +1,119 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepCountersSnapshot;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+
+public class GetMetricsServletTest {
+  private TransformationMap mockTransformationMap;
+  private JobMap mockJobMap;
+  private GetMetricsServlet getMetricsServlet;
+
+  @Before
+  public void setup() {
+    mockTransformationMap = mock( TransformationMap.class );
+    mockJobMap = mock( JobMap.class );
+    getMetricsServlet = new GetMetricsServlet( mockTransformationMap, mockJobMap );
+  }
+
+  @Test
+  public void testMetricsOfTransformationsAndJobs() throws Exception {
+    CarteObjectEntry transEntry = new CarteObjectEntry( "my \"trans\"", "trans-id" );
+    Trans trans = mock( Trans.class );
+    TransMeta transMeta = mock( TransMeta.class );
+    StepInterface step = mock( StepInterface.class );
+    StepMetaDataCombi combi = new StepMetaDataCombi();
+    combi.stepname = "Dummy";
+    combi.copy = 1;
+    combi.step = step;
+    when( mockTransformationMap.getTransformationObjects() ).thenReturn( Collections.singletonList( transEntry ) );
+    when( mockTransformationMap.getTransformation( transEntry ) ).thenReturn( trans );
+    when( trans.isRunning() ).thenReturn( true );
+    when( trans.getTransMeta() ).thenReturn( transMeta );
+    when( transMeta.getSizeRowset() ).thenReturn( 10000 );
+    when( trans.getSteps() ).thenReturn( Collections.singletonList( combi ) );
+    when( step.getCountersSnapshot() ).thenReturn( new StepCountersSnapshot( 100L, 90L, 0L, 0L, 0L, 0L, 10L, 2L ) );
+    when( step.rowsetInputSize() ).thenReturn( 42 );
+
+    CarteObjectEntry jobEntry = new CarteObjectEntry( "job", "job-id" );
+    Job job = mock( Job.class );
+    when( mockJobMap.getJobObjects() ).thenReturn( Collections.singletonList( jobEntry ) );
+    when( mockJobMap.getJob( jobEntry ) ).thenReturn( job );
+    when( job.isFinished() ).thenReturn( true );
+
+    String metrics = getMetricsServlet.getMetrics();
+
+    String transLabels = "{trans=\"my \\\"trans\\\"\",id=\"trans-id\"}";
+    String stepLabels = "{trans=\"my \\\"trans\\\"\",id=\"trans-id\",step=\"Dummy\",copy=\"1\"}";
+    assertTrue( metrics.contains( "# TYPE kettle_step_rows_read_total counter\n" ) );
+    assertTrue( metrics.contains( "kettle_step_rows_read_total" + stepLabels + " 100\n" ) );
+    assertTrue( metrics.contains( "kettle_step_rows_written_total" + stepLabels + " 90\n" ) );
+    assertTrue( metrics.contains( "kettle_step_rows_rejected_total" + stepLabels + " 10\n" ) );
+    assertTrue( metrics.contains( "kettle_step_errors_total" + stepLabels + " 2\n" ) );
+    assertTrue( metrics.contains( "kettle_step_input_buffer_rows" + stepLabels + " 42\n" ) );
+    assertTrue( metrics.contains( "kettle_trans_running" + transLabels + " 1\n" ) );
+    assertTrue( metrics.contains( "kettle_trans_rowset_capacity_rows" + transLabels + " 10000\n" ) );
+    assertTrue( metrics.contains( "kettle_trans_errors" + transLabels + " 2\n" ) );
+    assertTrue( metrics.contains( "kettle_job_finished{job=\"job\",id=\"job-id\"} 1\n" ) );
+    assertTrue( metrics.contains( "# TYPE jvm_memory_used_bytes gauge\n" ) );
+    // Every metric is described once
+    String help = "# HELP kettle_step_running";
+    assertEquals( metrics.indexOf( help ), metrics.lastIndexOf( help ) );
+  }
+
+  @Test
+  public void testDoGetWritesPrometheusText() throws Exception {
+    HttpServletRequest mockHttpServletRequest = mock( HttpServletRequest.class );
+    HttpServletResponse mockHttpServletResponse = mock( HttpServletResponse.class );
+    StringWriter out = new StringWriter();
+    when( mockHttpServletRequest.getContextPath() ).thenReturn( GetMetricsServlet.CONTEXT_PATH );
+    when( mockHttpServletResponse.getWriter() ).thenReturn( new PrintWriter( out ) );
+    when( mockTransformationMap.getTransformationObjects() ).thenReturn( Collections.<CarteObjectEntry>emptyList() );
+    when( mockJobMap.getJobObjects() ).thenReturn( Collections.<CarteObjectEntry>emptyList() );
+
+    getMetricsServlet.doGet( mockHttpServletRequest, mockHttpServletResponse );
+
+    verify( mockHttpServletResponse ).setContentType( GetMetricsServlet.CONTENT_TYPE );
+    assertTrue( out.toString().contains( "jvm_threads_live " ) );
+    assertFalse( out.toString().contains( "kettle_trans" ) );
+  }
+
+  @Test
+  public void testEscapeLabelValue() {
+    StringBuilder builder = new StringBuilder();
+    GetMetricsServlet.escapeLabelValue( builder, "a\\b\"c\nd" );
+    assertEquals( "a\\\\b\\\"c\\nd", builder.toString() );
+  }
+}
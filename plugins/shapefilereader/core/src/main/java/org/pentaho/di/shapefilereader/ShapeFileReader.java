@@ -132,7 +132,7 @@ public class ShapeFileReader extends BaseStep implements StepInterface {
             outputRow[ outputIndex++ ] = dbfData[ d ];
           }
 
-          linesInput++;
+          incrementLinesInput();
 
           // Put it out to the rest of the world...
           try {
@@ -196,7 +196,7 @@ public class ShapeFileReader extends BaseStep implements StepInterface {
           for ( int d = 0; d < dbfMeta.size(); d++ ) {
             outputRow[ outputIndex++ ] = dbfData[ d ];
           }
-          linesInput++;
+          incrementLinesInput();
 
           // Put it out to the rest of the world...
           try {
@@ -261,7 +261,7 @@ public class ShapeFileReader extends BaseStep implements StepInterface {
           for ( int d = 0; d < dbfMeta.size(); d++ ) {
             outputRow[ outputIndex++ ] = dbfData[ d ];
           }
-          linesInput++;
+          incrementLinesInput();
 
           // Put it out to the rest of the world...
           try {
@@ -318,7 +318,7 @@ public class ShapeFileReader extends BaseStep implements StepInterface {
           outputRow[ outputIndex++ ] = dbfData[ d ];
         }
 
-        linesInput++;
+        incrementLinesInput();
 
         // Put it out to the rest of the world...
         try {
@@ -57,6 +57,7 @@ import org.jfree.chart.title.TextTitle;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.performance.StepPerformanceHistory;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.ui.core.gui.GUIResource;
 import org.pentaho.di.ui.spoon.Spoon;
@@ -406,6 +407,26 @@ public class TransPerfDelegate extends SpoonDelegate {
     } );
   }
 
+  /**
+   * Add the snapshots the step copy captured since the last refresh, the older ones are kept.
+   */
+  private List<StepPerformanceSnapShot> refreshSnapShots( String stepNameCopy ) {
+    List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( stepNameCopy );
+    Map<String, StepPerformanceHistory> histories =
+      transGraph.trans == null ? null : transGraph.trans.getStepPerformanceHistories();
+    StepPerformanceHistory history = histories == null ? null : histories.get( stepNameCopy );
+    if ( snapShotList == null || history == null ) {
+      return snapShotList;
+    }
+    int lastSeqNr = snapShotList.isEmpty() ? 0 : snapShotList.get( snapShotList.size() - 1 ).getSeqNr();
+    snapShotList.addAll( history.getSnapShots( StepPerformanceHistory.RESOLUTION_CAPTURED, lastSeqNr ) );
+    int size = history.size();
+    if ( snapShotList.size() > size ) {
+      snapShotList.subList( 0, snapShotList.size() - size ).clear();
+    }
+    return snapShotList;
+  }
+
   private void updateCanvas() {
     Rectangle bounds = canvas.getBounds();
     if ( bounds.width <= 0 || bounds.height <= 0 ) {
@@ -439,7 +460,7 @@ public class TransPerfDelegate extends SpoonDelegate {
 
       String stepNameCopy = selectedSteps[t];
 
-      List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( stepNameCopy );
+      List<StepPerformanceSnapShot> snapShotList = refreshSnapShots( stepNameCopy );
       if ( snapShotList != null && snapShotList.size() > 1 ) {
         totalTimeInSeconds =
           (int) Math
@@ -191,6 +191,8 @@ public class TransDialog extends Dialog {
 
   private Button wManageThreads;
 
+  private Button wVirtualThreads;
+
   private boolean directoryChangeAllowed;
 
   private Label wlDirectory;
@@ -1954,6 +1956,26 @@ public class TransDialog extends Dialog {
     fdManageThreads.right = new FormAttachment( 100, 0 );
     wManageThreads.setLayoutData( fdManageThreads );
 
+    // Run the steps on virtual threads?
+    Label wlVirtualThreads = new Label( wMiscComp, SWT.RIGHT );
+    wlVirtualThreads.setText( BaseMessages.getString( PKG, "TransDialog.VirtualThreads.Label" ) );
+    wlVirtualThreads.setToolTipText( BaseMessages.getString( PKG, "TransDialog.VirtualThreads.Tooltip" ) );
+    props.setLook( wlVirtualThreads );
+    FormData fdlVirtualThreads = new FormData();
+    fdlVirtualThreads.left = new FormAttachment( 0, 0 );
+    fdlVirtualThreads.top = new FormAttachment( wManageThreads, margin );
+    fdlVirtualThreads.right = new FormAttachment( middle, -margin );
+    wlVirtualThreads.setLayoutData( fdlVirtualThreads );
+    wVirtualThreads = new Button( wMiscComp, SWT.CHECK );
+    wVirtualThreads.setToolTipText( BaseMessages.getString( PKG, "TransDialog.VirtualThreads.Tooltip" ) );
+    wVirtualThreads.addSelectionListener( lsModSel );
+    props.setLook( wVirtualThreads );
+    FormData fdVirtualThreads = new FormData();
+    fdVirtualThreads.left = new FormAttachment( middle, 0 );
+    fdVirtualThreads.top = new FormAttachment( wManageThreads, margin );
+    fdVirtualThreads.right = new FormAttachment( 100, 0 );
+    wVirtualThreads.setLayoutData( fdVirtualThreads );
+
     // Single threaded option ...
     Label wlTransformationType = new Label( wMiscComp, SWT.RIGHT );
     wlTransformationType.setText( BaseMessages.getString( PKG, "TransDialog.TransformationType.Label" ) );
@@ -1963,7 +1985,7 @@ public class TransDialog extends Dialog {
     FormData fdlTransformationType = new FormData();
     fdlTransformationType.left = new FormAttachment( 0, 0 );
     fdlTransformationType.right = new FormAttachment( middle, -margin );
-    fdlTransformationType.top = new FormAttachment( wManageThreads, margin );
+    fdlTransformationType.top = new FormAttachment( wVirtualThreads, margin );
     wlTransformationType.setLayoutData( fdlTransformationType );
     wTransformationType = new CCombo( wMiscComp, SWT.NORMAL );
     wTransformationType.setToolTipText( BaseMessages.getString(
@@ -1972,7 +1994,7 @@ public class TransDialog extends Dialog {
     props.setLook( wTransformationType );
     FormData fdTransformationType = new FormData();
     fdTransformationType.left = new FormAttachment( middle, 0 );
-    fdTransformationType.top = new FormAttachment( wManageThreads, margin );
+    fdTransformationType.top = new FormAttachment( wVirtualThreads, margin );
     fdTransformationType.right = new FormAttachment( 100, 0 );
     wTransformationType.setLayoutData( fdTransformationType );
     wTransformationType.setItems( TransformationType.getTransformationTypesDescriptions() );
@@ -2179,6 +2201,7 @@ public class TransDialog extends Dialog {
     wShowFeedback.setSelection( transMeta.isFeedbackShown() );
     wFeedbackSize.setText( Integer.toString( transMeta.getFeedbackSize() ) );
     wManageThreads.setSelection( transMeta.isUsingThreadPriorityManagment() );
+    wVirtualThreads.setSelection( transMeta.isUsingVirtualThreads() );
     wTransformationType.setText( transMeta.getTransformationType().getDescription() );
 
     wFields.setRowNums();
@@ -2316,6 +2339,7 @@ public class TransDialog extends Dialog {
     transMeta.setFeedbackShown( wShowFeedback.getSelection() );
     transMeta.setFeedbackSize( Const.toInt( wFeedbackSize.getText(), Const.ROWS_UPDATE ) );
     transMeta.setUsingThreadPriorityManagment( wManageThreads.getSelection() );
+    transMeta.setUsingVirtualThreads( wVirtualThreads.getSelection() );
     transMeta.setTransformationType( TransformationType.values()[Const.indexOfString( wTransformationType
       .getText(), TransformationType.getTransformationTypesDescriptions() )] );
 
@@ -68,6 +68,10 @@ public class CalculatorDialog extends BaseStepDialog implements StepDialogInterf
   private Button wFailIfNoFile;
   private FormData fdlFailIfNoFile, fdFailIfNoFile;
 
+  private Label wlCompiled;
+  private Button wCompiled;
+  private FormData fdlCompiled, fdCompiled;
+
   private Label wlFields;
   private TableView wFields;
   private FormData fdlFields, fdFields;
@@ -168,12 +172,28 @@ public class CalculatorDialog extends BaseStepDialog implements StepDialogInterf
     //fdlFailIfNoFile.right = new FormAttachment( 0, -margin );
     wlFailIfNoFile.setLayoutData( fdlFailIfNoFile );
 
+    // Compile the calculations line
+    wCompiled = new Button( shell, SWT.CHECK );
+    props.setLook( wCompiled );
+    wCompiled.setToolTipText( BaseMessages.getString( PKG, "CalculatorDialog.Compiled.Tooltip" ) );
+    fdCompiled = new FormData();
+    fdCompiled.left = new FormAttachment( 0, 0 );
+    fdCompiled.top = new FormAttachment( wFailIfNoFile, margin );
+    wCompiled.setLayoutData( fdCompiled );
+    wlCompiled = new Label( shell, SWT.LEFT );
+    wlCompiled.setText( BaseMessages.getString( PKG, "CalculatorDialog.Compiled.Label" ) );
+    props.setLook( wlCompiled );
+    fdlCompiled = new FormData();
+    fdlCompiled.left = new FormAttachment( wCompiled, margin );
+    fdlCompiled.top = new FormAttachment( wFailIfNoFile, margin );
+    wlCompiled.setLayoutData( fdlCompiled );
+
     wlFields = new Label( shell, SWT.NONE );
     wlFields.setText( BaseMessages.getString( PKG, "CalculatorDialog.Fields.Label" ) );
     props.setLook( wlFields );
     fdlFields = new FormData();
     fdlFields.left = new FormAttachment( 0, 0 );
-    fdlFields.top = new FormAttachment( wFailIfNoFile, fdMargin );
+    fdlFields.top = new FormAttachment( wCompiled, fdMargin );
     wlFields.setLayoutData( fdlFields );
 
     final int FieldsRows = currentMeta.getCalculation() != null ? currentMeta.getCalculation().length : 1;
@@ -428,6 +448,7 @@ public class CalculatorDialog extends BaseStepDialog implements StepDialogInterf
     }
 
     wFailIfNoFile.setSelection( currentMeta.isFailIfNoFile() );
+    wCompiled.setSelection( currentMeta.isCompiled() );
 
     wFields.setRowNums();
     wFields.optWidth( true );
@@ -450,6 +471,7 @@ public class CalculatorDialog extends BaseStepDialog implements StepDialogInterf
     stepname = wStepname.getText(); // return value
 
     currentMeta.setFailIfNoFile( wFailIfNoFile.getSelection() );
+    currentMeta.setCompiled( wCompiled.getSelection() );
 
     int nrNonEmptyFields = wFields.nrNonEmpty();
     currentMeta.allocate( nrNonEmptyFields );
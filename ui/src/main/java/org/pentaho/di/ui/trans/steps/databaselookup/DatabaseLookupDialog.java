@@ -50,6 +50,7 @@ import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.SharedLookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.trans.steps.databaselookup.DatabaseLookupMeta;
 import org.pentaho.di.ui.core.database.dialog.DatabaseExplorerDialog;
@@ -78,6 +79,18 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
   private Text wCachesize;
   private FormData fdlCachesize, fdCachesize;
 
+  private Label wlSharedCacheName;
+  private TextVar wSharedCacheName;
+  private FormData fdlSharedCacheName, fdSharedCacheName;
+
+  private Label wlSharedCacheScope;
+  private CCombo wSharedCacheScope;
+  private FormData fdlSharedCacheScope, fdSharedCacheScope;
+
+  private Label wlLookupBatchSize;
+  private Text wLookupBatchSize;
+  private FormData fdlLookupBatchSize, fdLookupBatchSize;
+
   private Label wlKey;
   private TableView wKey;
   private FormData fdlKey, fdKey;
@@ -324,12 +337,69 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
       }
     } );
 
+    // Shared cache name line
+    wlSharedCacheName = new Label( shell, SWT.RIGHT );
+    wlSharedCacheName.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.SharedCacheName.Label" ) );
+    props.setLook( wlSharedCacheName );
+    fdlSharedCacheName = new FormData();
+    fdlSharedCacheName.left = new FormAttachment( 0, 0 );
+    fdlSharedCacheName.right = new FormAttachment( middle, -margin );
+    fdlSharedCacheName.top = new FormAttachment( wCacheLoadAll, margin );
+    wlSharedCacheName.setLayoutData( fdlSharedCacheName );
+    wSharedCacheName = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wSharedCacheName.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.SharedCacheName.Tooltip" ) );
+    props.setLook( wSharedCacheName );
+    wSharedCacheName.addModifyListener( lsMod );
+    fdSharedCacheName = new FormData();
+    fdSharedCacheName.left = new FormAttachment( middle, 0 );
+    fdSharedCacheName.right = new FormAttachment( 100, 0 );
+    fdSharedCacheName.top = new FormAttachment( wCacheLoadAll, margin );
+    wSharedCacheName.setLayoutData( fdSharedCacheName );
+
+    // Shared cache scope line
+    wlSharedCacheScope = new Label( shell, SWT.RIGHT );
+    wlSharedCacheScope.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.SharedCacheScope.Label" ) );
+    props.setLook( wlSharedCacheScope );
+    fdlSharedCacheScope = new FormData();
+    fdlSharedCacheScope.left = new FormAttachment( 0, 0 );
+    fdlSharedCacheScope.right = new FormAttachment( middle, -margin );
+    fdlSharedCacheScope.top = new FormAttachment( wSharedCacheName, margin );
+    wlSharedCacheScope.setLayoutData( fdlSharedCacheScope );
+    wSharedCacheScope = new CCombo( shell, SWT.SINGLE | SWT.READ_ONLY | SWT.BORDER );
+    wSharedCacheScope.setItems( SharedLookupCacheRegistry.Scope.getDescriptions() );
+    props.setLook( wSharedCacheScope );
+    wSharedCacheScope.addModifyListener( lsMod );
+    fdSharedCacheScope = new FormData();
+    fdSharedCacheScope.left = new FormAttachment( middle, 0 );
+    fdSharedCacheScope.right = new FormAttachment( 100, 0 );
+    fdSharedCacheScope.top = new FormAttachment( wSharedCacheName, margin );
+    wSharedCacheScope.setLayoutData( fdSharedCacheScope );
+
+    // Lookup batch size line
+    wlLookupBatchSize = new Label( shell, SWT.RIGHT );
+    wlLookupBatchSize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.LookupBatchSize.Label" ) );
+    props.setLook( wlLookupBatchSize );
+    fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment( 0, 0 );
+    fdlLookupBatchSize.right = new FormAttachment( middle, -margin );
+    fdlLookupBatchSize.top = new FormAttachment( wSharedCacheScope, margin );
+    wlLookupBatchSize.setLayoutData( fdlLookupBatchSize );
+    wLookupBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wLookupBatchSize );
+    wLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.LookupBatchSize.Tooltip" ) );
+    wLookupBatchSize.addModifyListener( lsMod );
+    fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment( middle, 0 );
+    fdLookupBatchSize.right = new FormAttachment( 100, 0 );
+    fdLookupBatchSize.top = new FormAttachment( wSharedCacheScope, margin );
+    wLookupBatchSize.setLayoutData( fdLookupBatchSize );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.Keys.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wCacheLoadAll, margin );
+    fdlKey.top = new FormAttachment( wLookupBatchSize, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -521,6 +591,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wTable.addSelectionListener( lsDef );
     wOrderBy.addSelectionListener( lsDef );
     wCachesize.addSelectionListener( lsDef );
+    wLookupBatchSize.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -634,6 +705,11 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wlCachesize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
     wCacheLoadAll.setEnabled( wCache.getSelection() );
     wlCacheLoadAll.setEnabled( wCache.getSelection() );
+    boolean loadAll = wCache.getSelection() && wCacheLoadAll.getSelection();
+    wSharedCacheName.setEnabled( loadAll );
+    wlSharedCacheName.setEnabled( loadAll );
+    wSharedCacheScope.setEnabled( loadAll );
+    wlSharedCacheScope.setEnabled( loadAll );
     wFailMultiple.setEnabled( !wCache.getSelection() );
     wlFailMultiple.setEnabled( !wCache.getSelection() );
   }
@@ -647,6 +723,10 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wCache.setSelection( input.isCached() );
     wCachesize.setText( "" + input.getCacheSize() );
     wCacheLoadAll.setSelection( input.isLoadingAllDataInCache() );
+    wLookupBatchSize.setText( "" + input.getLookupBatchSize() );
+    wSharedCacheName.setText( Const.NVL( input.getSharedCacheName(), "" ) );
+    wSharedCacheScope.setText(
+      SharedLookupCacheRegistry.Scope.getScopeByCode( input.getSharedCacheScope() ).getDescription() );
 
     if ( input.getStreamKeyField1() != null ) {
       for ( int i = 0; i < input.getStreamKeyField1().length; i++ ) {
@@ -731,6 +811,10 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     input.setCached( wCache.getSelection() );
     input.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
     input.setLoadingAllDataInCache( wCacheLoadAll.getSelection() );
+    input.setLookupBatchSize( Const.toInt( wLookupBatchSize.getText(), 0 ) );
+    input.setSharedCacheName( wSharedCacheName.getText() );
+    int scopeIndex = wSharedCacheScope.getSelectionIndex();
+    input.setSharedCacheScope( SharedLookupCacheRegistry.Scope.values()[ Math.max( 0, scopeIndex ) ].getCode() );
 
     logDebug( BaseMessages.getString( PKG, "DatabaseLookupDialog.Log.FoundKeys", String.valueOf( nrkeys ) ) );
     //CHECKSTYLE:Indentation:OFF
@@ -248,6 +248,9 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
   private Button wNoempty;
   private FormData fdlNoempty, fdNoempty;
 
+  private Label wlParallel;
+  private Button wParallel;
+
   private Label wlInclFilename;
   private Button wInclFilename;
   private FormData fdlInclFilename, fdInclFilename;
@@ -1276,12 +1279,29 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     fdCompression.right = new FormAttachment( 100, 0 );
     wCompression.setLayoutData( fdCompression );
 
+    wlParallel = new Label( wContentComp, SWT.RIGHT );
+    wlParallel.setText( BaseMessages.getString( PKG, "TextFileInputDialog.Parallel.Label" ) );
+    props.setLook( wlParallel );
+    FormData fdlParallel = new FormData();
+    fdlParallel.left = new FormAttachment( 0, 0 );
+    fdlParallel.top = new FormAttachment( wCompression, margin );
+    fdlParallel.right = new FormAttachment( middle, -margin );
+    wlParallel.setLayoutData( fdlParallel );
+    wParallel = new Button( wContentComp, SWT.CHECK );
+    props.setLook( wParallel );
+    wParallel.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.Parallel.Tooltip" ) );
+    FormData fdParallel = new FormData();
+    fdParallel.left = new FormAttachment( middle, 0 );
+    fdParallel.top = new FormAttachment( wCompression, margin );
+    fdParallel.right = new FormAttachment( 100, 0 );
+    wParallel.setLayoutData( fdParallel );
+
     wlNoempty = new Label( wContentComp, SWT.RIGHT );
     wlNoempty.setText( BaseMessages.getString( PKG, "TextFileInputDialog.NoEmpty.Label" ) );
     props.setLook( wlNoempty );
     fdlNoempty = new FormData();
     fdlNoempty.left = new FormAttachment( 0, 0 );
-    fdlNoempty.top = new FormAttachment( wCompression, margin );
+    fdlNoempty.top = new FormAttachment( wParallel, margin );
     fdlNoempty.right = new FormAttachment( middle, -margin );
     wlNoempty.setLayoutData( fdlNoempty );
     wNoempty = new Button( wContentComp, SWT.CHECK );
@@ -1289,7 +1309,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     wNoempty.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.NoEmpty.Tooltip" ) );
     fdNoempty = new FormData();
     fdNoempty.left = new FormAttachment( middle, 0 );
-    fdNoempty.top = new FormAttachment( wCompression, margin );
+    fdNoempty.top = new FormAttachment( wParallel, margin );
     fdNoempty.right = new FormAttachment( 100, 0 );
     wNoempty.setLayoutData( fdNoempty );
 
@@ -2202,6 +2222,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     if ( meta.content.fileCompression != null ) {
       wCompression.setText( meta.content.fileCompression );
     }
+    wParallel.setSelection( meta.content.runningInParallel );
     wNoempty.setSelection( meta.content.noEmptyLines );
     wInclFilename.setSelection( meta.content.includeFilename );
     wInclRownum.setSelection( meta.content.includeRowNumber );
@@ -2490,6 +2511,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     meta.content.nrLinesDocHeader = Const.toInt( wNrLinesDocHeader.getText(), 0 );
     meta.content.fileCompression = wCompression.getText();
     meta.content.dateFormatLenient = wDateLenient.getSelection();
+    meta.content.runningInParallel = wParallel.getSelection();
     meta.content.noEmptyLines = wNoempty.getSelection();
     meta.content.encoding = wEncoding.getText();
     meta.content.length = wLength.getText();
@@ -66,6 +66,9 @@ public class FormulaDialog extends BaseStepDialog implements StepDialogInterface
   private TableView wFields;
   private FormData fdlFields, fdFields;
 
+  private Label wlCompiled;
+  private Button wCompiled;
+
   private FormulaMeta currentMeta;
   private FormulaMeta originalMeta;
 
@@ -165,9 +168,32 @@ public class FormulaDialog extends BaseStepDialog implements StepDialogInterface
     fdFields.left = new FormAttachment( 0, 0 );
     fdFields.top = new FormAttachment( wlFields, margin );
     fdFields.right = new FormAttachment( 100, 0 );
-    fdFields.bottom = new FormAttachment( 100, -50 );
+    fdFields.bottom = new FormAttachment( 100, -80 );
     wFields.setLayoutData( fdFields );
 
+    wlCompiled = new Label( shell, SWT.RIGHT );
+    wlCompiled.setText( BaseMessages.getString( PKG, "FormulaDialog.Compiled.Label" ) );
+    props.setLook( wlCompiled );
+    FormData fdlCompiled = new FormData();
+    fdlCompiled.left = new FormAttachment( 0, 0 );
+    fdlCompiled.top = new FormAttachment( wFields, margin );
+    fdlCompiled.right = new FormAttachment( middle, -margin );
+    wlCompiled.setLayoutData( fdlCompiled );
+    wCompiled = new Button( shell, SWT.CHECK );
+    props.setLook( wCompiled );
+    wCompiled.setToolTipText( BaseMessages.getString( PKG, "FormulaDialog.Compiled.Tooltip" ) );
+    FormData fdCompiled = new FormData();
+    fdCompiled.left = new FormAttachment( middle, 0 );
+    fdCompiled.top = new FormAttachment( wFields, margin );
+    fdCompiled.right = new FormAttachment( 100, 0 );
+    wCompiled.setLayoutData( fdCompiled );
+    wCompiled.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        currentMeta.setChanged();
+      }
+    } );
+
     //
     // Search the fields in the background
     //
@@ -347,6 +373,8 @@ public class FormulaDialog extends BaseStepDialog implements StepDialogInterface
       }
     }
 
+    wCompiled.setSelection( currentMeta.isCompiled() );
+
     wFields.setRowNums();
     wFields.optWidth( true );
 
@@ -385,6 +413,8 @@ public class FormulaDialog extends BaseStepDialog implements StepDialogInterface
         valueLength, valuePrecision, replaceField );
     }
 
+    currentMeta.setCompiled( wCompiled.getSelection() );
+
     if ( !originalMeta.equals( currentMeta ) ) {
       currentMeta.setChanged();
       changed = currentMeta.hasChanged();
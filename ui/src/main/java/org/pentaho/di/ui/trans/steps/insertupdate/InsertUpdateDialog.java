@@ -102,6 +102,10 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
   private Button wUpdateBypassed;
   private FormData fdlUpdateBypassed, fdUpdateBypassed;
 
+  private Label wlLookupBatchSize;
+  private Text wLookupBatchSize;
+  private FormData fdlLookupBatchSize, fdLookupBatchSize;
+
   private Button wGetLU;
   private FormData fdGetLU;
   private Listener lsGetLU;
@@ -282,12 +286,31 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
     wUpdateBypassed.setLayoutData( fdUpdateBypassed );
     wUpdateBypassed.addSelectionListener( new ComponentSelectionListener( input ) );
 
+    // Lookup batch size line
+    wlLookupBatchSize = new Label( shell, SWT.RIGHT );
+    wlLookupBatchSize.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.LookupBatchSize.Label" ) );
+    props.setLook( wlLookupBatchSize );
+    fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment( 0, 0 );
+    fdlLookupBatchSize.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlLookupBatchSize.right = new FormAttachment( middle, -margin );
+    wlLookupBatchSize.setLayoutData( fdlLookupBatchSize );
+    wLookupBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "InsertUpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wLookupBatchSize );
+    wLookupBatchSize.addModifyListener( lsMod );
+    fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment( middle, 0 );
+    fdLookupBatchSize.top = new FormAttachment( wUpdateBypassed, margin );
+    fdLookupBatchSize.right = new FormAttachment( 100, 0 );
+    wLookupBatchSize.setLayoutData( fdLookupBatchSize );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.Keys.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlKey.top = new FormAttachment( wLookupBatchSize, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -656,6 +679,7 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
 
     wCommit.setText( input.getCommitSizeVar() );
     wUpdateBypassed.setSelection( input.isUpdateBypassed() );
+    wLookupBatchSize.setText( Integer.toString( input.getLookupBatchSize() ) );
 
     if ( input.getKeyFields() != null ) {
       for ( int i = 0; i < input.getKeyFields().length; i++ ) {
@@ -728,6 +752,7 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
 
     inf.setCommitSize( wCommit.getText() );
     inf.setUpdateBypassed( wUpdateBypassed.getSelection() );
+    inf.setLookupBatchSize( Const.toInt( wLookupBatchSize.getText(), 0 ) );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "InsertUpdateDialog.Log.FoundKeys", nrkeys + "" ) );
@@ -105,6 +105,11 @@ public class JobExecutorDialog extends BaseStepDialog implements StepDialogInter
   private Label wlGroupTime;
   private TextVar wGroupTime;
 
+  private Label wlParallelExecutions;
+  private TextVar wParallelExecutions;
+
+  private Button wKeepOutputOrder;
+
   private Label wlExecutionResultTarget;
   private CCombo wExecutionResultTarget;
   private TableItem tiExecutionTimeField;
@@ -440,6 +445,8 @@ public class JobExecutorDialog extends BaseStepDialog implements StepDialogInter
 
     wGroupSize.setText( Const.NVL( jobExecutorMeta.getGroupSize(), "" ) );
     wGroupTime.setText( Const.NVL( jobExecutorMeta.getGroupTime(), "" ) );
+    wParallelExecutions.setText( Const.NVL( jobExecutorMeta.getParallelExecutions(), "" ) );
+    wKeepOutputOrder.setSelection( jobExecutorMeta.isKeepOutputOrder() );
     wGroupField.setText( Const.NVL( jobExecutorMeta.getGroupField(), "" ) );
 
     wExecutionResultTarget.setText( jobExecutorMeta.getExecutionResultTargetStepMeta() == null
@@ -722,6 +729,37 @@ public class JobExecutorDialog extends BaseStepDialog implements StepDialogInter
     fdGroupTime.left = new FormAttachment( 0, 0 );
     wGroupTime.setLayoutData( fdGroupTime );
 
+    // Parallel executions
+    //
+    wlParallelExecutions = new Label( wInputComposite, SWT.RIGHT );
+    props.setLook( wlParallelExecutions );
+    wlParallelExecutions.setText( BaseMessages.getString( PKG, "JobExecutorDialog.ParallelExecutions.Label" ) );
+    FormData fdlParallelExecutions = new FormData();
+    fdlParallelExecutions.top = new FormAttachment( wGroupTime, 10 );
+    fdlParallelExecutions.left = new FormAttachment( 0, 0 );
+    wlParallelExecutions.setLayoutData( fdlParallelExecutions );
+
+    wParallelExecutions = new TextVar( transMeta, wInputComposite, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wParallelExecutions );
+    wParallelExecutions.setToolTipText( BaseMessages.getString( PKG, "JobExecutorDialog.ParallelExecutions.Tooltip" ) );
+    wParallelExecutions.addModifyListener( lsMod );
+    FormData fdParallelExecutions = new FormData();
+    fdParallelExecutions.width = 250;
+    fdParallelExecutions.top = new FormAttachment( wlParallelExecutions, 5 );
+    fdParallelExecutions.left = new FormAttachment( 0, 0 );
+    wParallelExecutions.setLayoutData( fdParallelExecutions );
+
+    // Keep the order of the groups in the output
+    //
+    wKeepOutputOrder = new Button( wInputComposite, SWT.CHECK );
+    wKeepOutputOrder.setText( BaseMessages.getString( PKG, "JobExecutorDialog.KeepOutputOrder.Label" ) );
+    wKeepOutputOrder.setToolTipText( BaseMessages.getString( PKG, "JobExecutorDialog.KeepOutputOrder.Tooltip" ) );
+    props.setLook( wKeepOutputOrder );
+    FormData fdKeepOutputOrder = new FormData();
+    fdKeepOutputOrder.top = new FormAttachment( wParallelExecutions, 10 );
+    fdKeepOutputOrder.left = new FormAttachment( 0, 0 );
+    wKeepOutputOrder.setLayoutData( fdKeepOutputOrder );
+
     wTab.setControl( wInputComposite );
     wTabFolder.setSelection( wTab );
   }
@@ -1098,6 +1136,8 @@ public class JobExecutorDialog extends BaseStepDialog implements StepDialogInter
     jobExecutorMeta.setGroupSize( wGroupSize.getText() );
     jobExecutorMeta.setGroupField( wGroupField.getText() );
     jobExecutorMeta.setGroupTime( wGroupTime.getText() );
+    jobExecutorMeta.setParallelExecutions( wParallelExecutions.getText() );
+    jobExecutorMeta.setKeepOutputOrder( wKeepOutputOrder.getSelection() );
 
     jobExecutorMeta.setExecutionResultTargetStep( wExecutionResultTarget.getText() );
     jobExecutorMeta.setExecutionResultTargetStepMeta( transMeta.findStep( wExecutionResultTarget.getText() ) );
@@ -49,8 +49,12 @@ import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
 import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterFileDialogTextVar;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterOptions;
+import org.pentaho.di.ui.core.events.dialog.SelectionOperation;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
 public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInterface {
@@ -68,6 +72,23 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
   private Button wAlwaysAddResult;
   private FormData fdlAlwaysAddResult, fdAlwaysAddResult;
 
+  private Label wlSpillToDisk;
+  private Button wSpillToDisk;
+  private FormData fdlSpillToDisk, fdSpillToDisk;
+
+  private Label wlDirectory;
+  private Button wbDirectory;
+  private TextVar wDirectory;
+  private FormData fdlDirectory, fdbDirectory, fdDirectory;
+
+  private Label wlPrefix;
+  private Text wPrefix;
+  private FormData fdlPrefix, fdPrefix;
+
+  private Label wlFreeMemory;
+  private TextVar wFreeMemory;
+  private FormData fdlFreeMemory, fdFreeMemory;
+
   private Button wGet, wGetAgg;
   private FormData fdGet, fdGetAgg;
   private Listener lsGet, lsGetAgg;
@@ -159,12 +180,104 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wAlwaysAddResult.setLayoutData( fdAlwaysAddResult );
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // Spill to disk when the memory runs low
+    wlSpillToDisk = new Label( shell, SWT.RIGHT );
+    wlSpillToDisk.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.Label" ) );
+    wlSpillToDisk.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.ToolTip" ) );
+    props.setLook( wlSpillToDisk );
+    fdlSpillToDisk = new FormData();
+    fdlSpillToDisk.left = new FormAttachment( 0, 0 );
+    fdlSpillToDisk.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlSpillToDisk.right = new FormAttachment( middle, -margin );
+    wlSpillToDisk.setLayoutData( fdlSpillToDisk );
+    wSpillToDisk = new Button( shell, SWT.CHECK );
+    wSpillToDisk.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.SpillToDisk.ToolTip" ) );
+    props.setLook( wSpillToDisk );
+    fdSpillToDisk = new FormData();
+    fdSpillToDisk.left = new FormAttachment( middle, 0 );
+    fdSpillToDisk.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdSpillToDisk.right = new FormAttachment( 100, 0 );
+    wSpillToDisk.setLayoutData( fdSpillToDisk );
+    wSpillToDisk.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+        setSpillFlags();
+      }
+    } );
+
+    // Temp directory for the spilled rows
+    wlDirectory = new Label( shell, SWT.RIGHT );
+    wlDirectory.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Directory.Label" ) );
+    props.setLook( wlDirectory );
+    fdlDirectory = new FormData();
+    fdlDirectory.left = new FormAttachment( 0, 0 );
+    fdlDirectory.right = new FormAttachment( middle, -margin );
+    fdlDirectory.top = new FormAttachment( wSpillToDisk, margin );
+    wlDirectory.setLayoutData( fdlDirectory );
+
+    wbDirectory = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbDirectory );
+    wbDirectory.setText( BaseMessages.getString( PKG, "System.Button.Browse" ) );
+    fdbDirectory = new FormData();
+    fdbDirectory.right = new FormAttachment( 100, 0 );
+    fdbDirectory.top = new FormAttachment( wSpillToDisk, margin );
+    wbDirectory.setLayoutData( fdbDirectory );
+
+    wDirectory = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wDirectory );
+    wDirectory.addModifyListener( lsMod );
+    fdDirectory = new FormData();
+    fdDirectory.left = new FormAttachment( middle, 0 );
+    fdDirectory.top = new FormAttachment( wSpillToDisk, margin );
+    fdDirectory.right = new FormAttachment( wbDirectory, -margin );
+    wDirectory.setLayoutData( fdDirectory );
+
+    wbDirectory.addSelectionListener( new SelectionAdapterFileDialogTextVar( log, wDirectory, transMeta,
+      new SelectionAdapterOptions( transMeta.getBowl(), SelectionOperation.FOLDER ) ) );
+
+    // Prefix of temporary file
+    wlPrefix = new Label( shell, SWT.RIGHT );
+    wlPrefix.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Prefix.Label" ) );
+    props.setLook( wlPrefix );
+    fdlPrefix = new FormData();
+    fdlPrefix.left = new FormAttachment( 0, 0 );
+    fdlPrefix.right = new FormAttachment( middle, -margin );
+    fdlPrefix.top = new FormAttachment( wbDirectory, margin );
+    wlPrefix.setLayoutData( fdlPrefix );
+    wPrefix = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPrefix );
+    wPrefix.addModifyListener( lsMod );
+    fdPrefix = new FormData();
+    fdPrefix.left = new FormAttachment( middle, 0 );
+    fdPrefix.top = new FormAttachment( wbDirectory, margin );
+    fdPrefix.right = new FormAttachment( 100, 0 );
+    wPrefix.setLayoutData( fdPrefix );
+
+    // Free memory to keep
+    wlFreeMemory = new Label( shell, SWT.RIGHT );
+    wlFreeMemory.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemory.Label" ) );
+    props.setLook( wlFreeMemory );
+    fdlFreeMemory = new FormData();
+    fdlFreeMemory.left = new FormAttachment( 0, 0 );
+    fdlFreeMemory.right = new FormAttachment( middle, -margin );
+    fdlFreeMemory.top = new FormAttachment( wPrefix, margin );
+    wlFreeMemory.setLayoutData( fdlFreeMemory );
+    wFreeMemory = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wFreeMemory );
+    wFreeMemory.addModifyListener( lsMod );
+    fdFreeMemory = new FormData();
+    fdFreeMemory.left = new FormAttachment( middle, 0 );
+    fdFreeMemory.top = new FormAttachment( wPrefix, margin );
+    fdFreeMemory.right = new FormAttachment( 100, 0 );
+    wFreeMemory.setLayoutData( fdFreeMemory );
+
     wlGroup = new Label( shell, SWT.NONE );
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook( wlGroup );
     fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlGroup.top = new FormAttachment( wFreeMemory, margin );
     wlGroup.setLayoutData( fdlGroup );
 
     int nrKeyCols = 1;
@@ -317,6 +430,9 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     };
 
     wStepname.addSelectionListener( lsDef );
+    wDirectory.addSelectionListener( lsDef );
+    wPrefix.addSelectionListener( lsDef );
+    wFreeMemory.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -366,6 +482,11 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wSpillToDisk.setSelection( input.isSpillToDisk() );
+    wDirectory.setText( Const.NVL( input.getDirectory(), "" ) );
+    wPrefix.setText( Const.NVL( input.getPrefix(), "" ) );
+    wFreeMemory.setText( Const.NVL( input.getFreeMemoryLimit(), "" ) );
+    setSpillFlags();
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -401,6 +522,17 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wStepname.setFocus();
   }
 
+  private void setSpillFlags() {
+    boolean spillToDisk = wSpillToDisk.getSelection();
+    wlDirectory.setEnabled( spillToDisk );
+    wDirectory.setEnabled( spillToDisk );
+    wbDirectory.setEnabled( spillToDisk );
+    wlPrefix.setEnabled( spillToDisk );
+    wPrefix.setEnabled( spillToDisk );
+    wlFreeMemory.setEnabled( spillToDisk );
+    wFreeMemory.setEnabled( spillToDisk );
+  }
+
   private void cancel() {
     stepname = null;
     input.setChanged( backupChanged );
@@ -416,6 +548,10 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     int nrfields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setSpillToDisk( wSpillToDisk.getSelection() );
+    input.setDirectory( wDirectory.getText() );
+    input.setPrefix( wPrefix.getText() );
+    input.setFreeMemoryLimit( wFreeMemory.getText() );
 
     input.allocate( sizegroup, nrfields );
 
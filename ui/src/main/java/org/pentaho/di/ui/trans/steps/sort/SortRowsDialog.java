@@ -90,6 +90,10 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
   private Button wUniqueRows;
   private FormData fdlUniqueRows, fdUniqueRows;
 
+  private Label wlParallelSort;
+  private Button wParallelSort;
+  private FormData fdlParallelSort, fdParallelSort;
+
   private Label wlFields;
   private TableView wFields;
   private FormData fdlFields, fdFields;
@@ -289,6 +293,25 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wUniqueRows.setLayoutData( fdUniqueRows );
     wUniqueRows.addSelectionListener( new ComponentSelectionListener( input ) );
 
+    // Sorting in parallel?
+    wlParallelSort = new Label( shell, SWT.RIGHT );
+    wlParallelSort.setText( BaseMessages.getString( PKG, "SortRowsDialog.ParallelSort.Label" ) );
+    props.setLook( wlParallelSort );
+    fdlParallelSort = new FormData();
+    fdlParallelSort.left = new FormAttachment( 0, 0 );
+    fdlParallelSort.right = new FormAttachment( middle, -margin );
+    fdlParallelSort.top = new FormAttachment( wUniqueRows, margin );
+    wlParallelSort.setLayoutData( fdlParallelSort );
+    wParallelSort = new Button( shell, SWT.CHECK );
+    wParallelSort.setToolTipText( BaseMessages.getString( PKG, "SortRowsDialog.ParallelSort.Tooltip" ) );
+    props.setLook( wParallelSort );
+    fdParallelSort = new FormData();
+    fdParallelSort.left = new FormAttachment( middle, 0 );
+    fdParallelSort.top = new FormAttachment( wUniqueRows, margin );
+    fdParallelSort.right = new FormAttachment( 100, 0 );
+    wParallelSort.setLayoutData( fdParallelSort );
+    wParallelSort.addSelectionListener( new ComponentSelectionListener( input ) );
+
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
     wGet = new Button( shell, SWT.PUSH );
@@ -304,7 +327,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     props.setLook( wlFields );
     fdlFields = new FormData();
     fdlFields.left = new FormAttachment( 0, 0 );
-    fdlFields.top = new FormAttachment( wUniqueRows, margin );
+    fdlFields.top = new FormAttachment( wParallelSort, margin );
     wlFields.setLayoutData( fdlFields );
 
     final int FieldsRows = input.getFieldName().length;
@@ -480,6 +503,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wCompress.setSelection( input.getCompressFiles() );
     wCompress.setVariableName( input.getCompressFilesVariable() );
     wUniqueRows.setSelection( input.isOnlyPassingUniqueRows() );
+    wParallelSort.setSelection( input.isParallelSort() );
 
     Table table = wFields.table;
     if ( input.getFieldName().length > 0 ) {
@@ -530,6 +554,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     input.setCompressFiles( wCompress.getSelection() );
     input.setCompressFilesVariable( wCompress.getVariableName() );
     input.setOnlyPassingUniqueRows( wUniqueRows.getSelection() );
+    input.setParallelSort( wParallelSort.getSelection() );
 
     // Table table = wFields.table;
     int nrfields = wFields.nrNonEmpty();
@@ -84,6 +84,10 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
   private Button wIntegerPair;
   private FormData fdlIntegerPair, fdIntegerPair;
 
+  private Label wlOffHeapIndex;
+  private Button wOffHeapIndex;
+  private FormData fdlOffHeapIndex, fdOffHeapIndex;
+
   private StreamLookupMeta input;
 
   private Button wGetLU;
@@ -249,7 +253,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     fdReturn.left = new FormAttachment( 0, 0 );
     fdReturn.top = new FormAttachment( wlReturn, margin );
     fdReturn.right = new FormAttachment( 100, 0 );
-    fdReturn.bottom = new FormAttachment( 100, -125 );
+    fdReturn.bottom = new FormAttachment( 100, -150 );
     wReturn.setLayoutData( fdReturn );
 
     wlPreserveMemory = new Label( shell, SWT.RIGHT );
@@ -316,6 +320,30 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
         input.setChanged();
       }
     } );
+
+    wlOffHeapIndex = new Label( shell, SWT.RIGHT );
+    wlOffHeapIndex.setText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeapIndex.Label" ) );
+    wlOffHeapIndex.setToolTipText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeapIndex.Tooltip" ) );
+    props.setLook( wlOffHeapIndex );
+    fdlOffHeapIndex = new FormData();
+    fdlOffHeapIndex.left = new FormAttachment( 0, 0 );
+    fdlOffHeapIndex.top = new FormAttachment( wSortedList, margin );
+    fdlOffHeapIndex.right = new FormAttachment( middle, -margin );
+    wlOffHeapIndex.setLayoutData( fdlOffHeapIndex );
+    wOffHeapIndex = new Button( shell, SWT.CHECK );
+    wOffHeapIndex.setToolTipText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeapIndex.Tooltip" ) );
+    props.setLook( wOffHeapIndex );
+    fdOffHeapIndex = new FormData();
+    fdOffHeapIndex.left = new FormAttachment( middle, 0 );
+    fdOffHeapIndex.top = new FormAttachment( wSortedList, margin );
+    fdOffHeapIndex.right = new FormAttachment( 100, 0 );
+    wOffHeapIndex.setLayoutData( fdOffHeapIndex );
+    wOffHeapIndex.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
     // PDI-2107 preserve memory should be enabled to have this options on.
     wPreserveMemory.addListener( SWT.Selection, new Listener() {
       @Override
@@ -528,6 +556,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     // but user will be forced to choose only one option later.
     wSortedList.setSelection( input.isUsingSortedList() );
     wIntegerPair.setSelection( input.isUsingIntegerPair() );
+    wOffHeapIndex.setSelection( input.isUsingOffHeapIndex() );
 
     wKey.setRowNums();
     wKey.optWidth( true );
@@ -555,6 +584,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     input.setMemoryPreservationActive( wPreserveMemory.getSelection() );
     input.setUsingSortedList( wSortedList.getSelection() );
     input.setUsingIntegerPair( wIntegerPair.getSelection() );
+    input.setUsingOffHeapIndex( wOffHeapIndex.getSelection() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "StreamLookupDialog.Log.FoundKeys", nrkeys + "" ) );
@@ -85,6 +85,10 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
   private TextVar wLimit;
   private FormData fdlLimit, fdLimit;
 
+  private Label wlPartitionColumn;
+  private TextVar wPartitionColumn;
+  private FormData fdlPartitionColumn, fdPartitionColumn;
+
   private Label wlEachRow;
   private Button wEachRow;
   private FormData fdlEachRow, fdEachRow;
@@ -197,6 +201,26 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdLimit.bottom = new FormAttachment( wOK, -2 * margin );
     wLimit.setLayoutData( fdLimit );
 
+    // Partition column ...
+    wlPartitionColumn = new Label( shell, SWT.RIGHT );
+    wlPartitionColumn.setText( BaseMessages.getString( PKG, "TableInputDialog.PartitionColumn" ) );
+    wlPartitionColumn.setToolTipText( BaseMessages.getString( PKG, "TableInputDialog.PartitionColumn.Tooltip" ) );
+    props.setLook( wlPartitionColumn );
+    fdlPartitionColumn = new FormData();
+    fdlPartitionColumn.left = new FormAttachment( 0, 0 );
+    fdlPartitionColumn.right = new FormAttachment( middle, -margin );
+    fdlPartitionColumn.bottom = new FormAttachment( wLimit, -margin );
+    wlPartitionColumn.setLayoutData( fdlPartitionColumn );
+    wPartitionColumn = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wPartitionColumn.setToolTipText( BaseMessages.getString( PKG, "TableInputDialog.PartitionColumn.Tooltip" ) );
+    props.setLook( wPartitionColumn );
+    wPartitionColumn.addModifyListener( lsMod );
+    fdPartitionColumn = new FormData();
+    fdPartitionColumn.left = new FormAttachment( middle, 0 );
+    fdPartitionColumn.right = new FormAttachment( 100, 0 );
+    fdPartitionColumn.bottom = new FormAttachment( wLimit, -margin );
+    wPartitionColumn.setLayoutData( fdPartitionColumn );
+
     // Execute for each row?
     wlEachRow = new Label( shell, SWT.RIGHT );
     wlEachRow.setText( BaseMessages.getString( PKG, "TableInputDialog.ExecuteForEachRow" ) );
@@ -204,14 +228,14 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdlEachRow = new FormData();
     fdlEachRow.left = new FormAttachment( 0, 0 );
     fdlEachRow.right = new FormAttachment( middle, -margin );
-    fdlEachRow.bottom = new FormAttachment( wLimit, -margin );
+    fdlEachRow.bottom = new FormAttachment( wPartitionColumn, -margin );
     wlEachRow.setLayoutData( fdlEachRow );
     wEachRow = new Button( shell, SWT.CHECK );
     props.setLook( wEachRow );
     fdEachRow = new FormData();
     fdEachRow.left = new FormAttachment( middle, 0 );
     fdEachRow.right = new FormAttachment( 100, 0 );
-    fdEachRow.bottom = new FormAttachment( wLimit, -margin );
+    fdEachRow.bottom = new FormAttachment( wPartitionColumn, -margin );
     wEachRow.setLayoutData( fdEachRow );
     SelectionAdapter lsSelMod = new SelectionAdapter() {
       public void widgetSelected( SelectionEvent arg0 ) {
@@ -491,6 +515,7 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
       wConnection.setText( input.getDatabaseMeta().getName() );
     }
     wLimit.setText( Const.NVL( input.getRowLimit(), "" ) );
+    wPartitionColumn.setText( Const.NVL( input.getPartitionColumn(), "" ) );
 
     StreamInterface infoStream = input.getStepIOMeta().getInfoStreams().get( 0 );
     if ( infoStream.getStepMeta() != null ) {
@@ -537,6 +562,7 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     meta.setSQL( preview && !Utils.isEmpty( wSQL.getSelectionText() ) ? wSQL.getSelectionText() : wSQL.getText() );
     meta.setDatabaseMeta( transMeta.findDatabase( wConnection.getText() ) );
     meta.setRowLimit( wLimit.getText() );
+    meta.setPartitionColumn( wPartitionColumn.getText() );
     StreamInterface infoStream = input.getStepIOMeta().getInfoStreams().get( 0 );
     infoStream.setStepMeta( transMeta.findStep( wDatefrom.getText() ) );
     meta.setExecuteEachInputRow( wEachRow.getSelection() );
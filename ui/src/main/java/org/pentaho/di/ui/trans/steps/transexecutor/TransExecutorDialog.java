@@ -105,6 +105,11 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
   private Label wlGroupTime;
   private TextVar wGroupTime;
 
+  private Label wlParallelExecutions;
+  private TextVar wParallelExecutions;
+
+  private Button wKeepOutputOrder;
+
   private Label wlExecutionResultTarget;
   private CCombo wExecutionResultTarget;
   private TableItem tiExecutionTimeField;
@@ -442,6 +447,8 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
 
     wGroupSize.setText( Const.NVL( transExecutorMeta.getGroupSize(), "" ) );
     wGroupTime.setText( Const.NVL( transExecutorMeta.getGroupTime(), "" ) );
+    wParallelExecutions.setText( Const.NVL( transExecutorMeta.getParallelExecutions(), "" ) );
+    wKeepOutputOrder.setSelection( transExecutorMeta.isKeepOutputOrder() );
     wGroupField.setText( Const.NVL( transExecutorMeta.getGroupField(), "" ) );
 
     wExecutionResultTarget.setText( transExecutorMeta.getExecutionResultTargetStepMeta() == null ? ""
@@ -710,6 +717,37 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
     fdGroupTime.left = new FormAttachment( 0, 0 );
     wGroupTime.setLayoutData( fdGroupTime );
 
+    // Parallel executions
+    //
+    wlParallelExecutions = new Label( wInputComposite, SWT.RIGHT );
+    props.setLook( wlParallelExecutions );
+    wlParallelExecutions.setText( BaseMessages.getString( PKG, "TransExecutorDialog.ParallelExecutions.Label" ) );
+    FormData fdlParallelExecutions = new FormData();
+    fdlParallelExecutions.top = new FormAttachment( wGroupTime, 10 );
+    fdlParallelExecutions.left = new FormAttachment( 0, 0 );
+    wlParallelExecutions.setLayoutData( fdlParallelExecutions );
+
+    wParallelExecutions = new TextVar( transMeta, wInputComposite, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wParallelExecutions );
+    wParallelExecutions.setToolTipText( BaseMessages.getString( PKG, "TransExecutorDialog.ParallelExecutions.Tooltip" ) );
+    wParallelExecutions.addModifyListener( lsMod );
+    FormData fdParallelExecutions = new FormData();
+    fdParallelExecutions.width = 250;
+    fdParallelExecutions.top = new FormAttachment( wlParallelExecutions, 5 );
+    fdParallelExecutions.left = new FormAttachment( 0, 0 );
+    wParallelExecutions.setLayoutData( fdParallelExecutions );
+
+    // Keep the order of the groups in the output
+    //
+    wKeepOutputOrder = new Button( wInputComposite, SWT.CHECK );
+    wKeepOutputOrder.setText( BaseMessages.getString( PKG, "TransExecutorDialog.KeepOutputOrder.Label" ) );
+    wKeepOutputOrder.setToolTipText( BaseMessages.getString( PKG, "TransExecutorDialog.KeepOutputOrder.Tooltip" ) );
+    props.setLook( wKeepOutputOrder );
+    FormData fdKeepOutputOrder = new FormData();
+    fdKeepOutputOrder.top = new FormAttachment( wParallelExecutions, 10 );
+    fdKeepOutputOrder.left = new FormAttachment( 0, 0 );
+    wKeepOutputOrder.setLayoutData( fdKeepOutputOrder );
+
     wTab.setControl( wInputComposite );
     wTabFolder.setSelection( wTab );
   }
@@ -1084,6 +1122,8 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
     transExecutorMeta.setGroupSize( wGroupSize.getText() );
     transExecutorMeta.setGroupField( wGroupField.getText() );
     transExecutorMeta.setGroupTime( wGroupTime.getText() );
+    transExecutorMeta.setParallelExecutions( wParallelExecutions.getText() );
+    transExecutorMeta.setKeepOutputOrder( wKeepOutputOrder.getSelection() );
 
     transExecutorMeta.setExecutionResultTargetStep( wExecutionResultTarget.getText() );
     transExecutorMeta.setExecutionResultTargetStepMeta( transMeta.findStep( wExecutionResultTarget.getText() ) );
@@ -120,6 +120,10 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
   private Button wSkipLookup;
   private FormData fdlSkipLookup, fdSkipLookup;
 
+  private Label wlLookupBatchSize;
+  private Text wLookupBatchSize;
+  private FormData fdlLookupBatchSize, fdLookupBatchSize;
+
   /**
    * List of ColumnInfo that should have the field names of the selected database table
    */
@@ -314,12 +318,31 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
       }
     } );
 
+    // Lookup batch size line
+    wlLookupBatchSize = new Label( shell, SWT.RIGHT );
+    wlLookupBatchSize.setText( BaseMessages.getString( PKG, "UpdateDialog.LookupBatchSize.Label" ) );
+    props.setLook( wlLookupBatchSize );
+    fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment( 0, 0 );
+    fdlLookupBatchSize.top = new FormAttachment( wSkipLookup, margin );
+    fdlLookupBatchSize.right = new FormAttachment( middle, -margin );
+    wlLookupBatchSize.setLayoutData( fdlLookupBatchSize );
+    wLookupBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "UpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wLookupBatchSize );
+    wLookupBatchSize.addModifyListener( lsMod );
+    fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment( middle, 0 );
+    fdLookupBatchSize.top = new FormAttachment( wSkipLookup, margin );
+    fdLookupBatchSize.right = new FormAttachment( 100, 0 );
+    wLookupBatchSize.setLayoutData( fdLookupBatchSize );
+
     wlErrorIgnored = new Label( shell, SWT.RIGHT );
     wlErrorIgnored.setText( BaseMessages.getString( PKG, "UpdateDialog.ErrorIgnored.Label" ) );
     props.setLook( wlErrorIgnored );
     fdlErrorIgnored = new FormData();
     fdlErrorIgnored.left = new FormAttachment( 0, 0 );
-    fdlErrorIgnored.top = new FormAttachment( wSkipLookup, margin );
+    fdlErrorIgnored.top = new FormAttachment( wLookupBatchSize, margin );
     fdlErrorIgnored.right = new FormAttachment( middle, -margin );
     wlErrorIgnored.setLayoutData( fdlErrorIgnored );
 
@@ -328,7 +351,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     wErrorIgnored.setToolTipText( BaseMessages.getString( PKG, "UpdateDialog.ErrorIgnored.ToolTip" ) );
     fdErrorIgnored = new FormData();
     fdErrorIgnored.left = new FormAttachment( middle, 0 );
-    fdErrorIgnored.top = new FormAttachment( wSkipLookup, margin );
+    fdErrorIgnored.top = new FormAttachment( wLookupBatchSize, margin );
     wErrorIgnored.setLayoutData( fdErrorIgnored );
     wErrorIgnored.addSelectionListener( new SelectionAdapter() {
       public void widgetSelected( SelectionEvent e ) {
@@ -342,14 +365,14 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     props.setLook( wlIgnoreFlagField );
     fdlIgnoreFlagField = new FormData();
     fdlIgnoreFlagField.left = new FormAttachment( wErrorIgnored, margin );
-    fdlIgnoreFlagField.top = new FormAttachment( wSkipLookup, margin );
+    fdlIgnoreFlagField.top = new FormAttachment( wLookupBatchSize, margin );
     wlIgnoreFlagField.setLayoutData( fdlIgnoreFlagField );
     wIgnoreFlagField = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
     props.setLook( wIgnoreFlagField );
     wIgnoreFlagField.addModifyListener( lsMod );
     fdIgnoreFlagField = new FormData();
     fdIgnoreFlagField.left = new FormAttachment( wlIgnoreFlagField, margin );
-    fdIgnoreFlagField.top = new FormAttachment( wSkipLookup, margin );
+    fdIgnoreFlagField.top = new FormAttachment( wLookupBatchSize, margin );
     fdIgnoreFlagField.right = new FormAttachment( 100, 0 );
     wIgnoreFlagField.setLayoutData( fdIgnoreFlagField );
 
@@ -565,6 +588,8 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     wlErrorIgnored.setEnabled( !wSkipLookup.getSelection() );
     wlIgnoreFlagField.setEnabled( !wSkipLookup.getSelection() && wErrorIgnored.getSelection() );
     wIgnoreFlagField.setEnabled( !wSkipLookup.getSelection() && wErrorIgnored.getSelection() );
+    wlLookupBatchSize.setEnabled( !wSkipLookup.getSelection() );
+    wLookupBatchSize.setEnabled( !wSkipLookup.getSelection() );
 
   }
 
@@ -670,6 +695,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     wCommit.setText( input.getCommitSizeVar() );
     wBatch.setSelection( input.useBatchUpdate() );
     wSkipLookup.setSelection( input.isSkipLookup() );
+    wLookupBatchSize.setText( Integer.toString( input.getLookupBatchSize() ) );
     wErrorIgnored.setSelection( input.isErrorIgnored() );
     if ( input.getIgnoreFlagField() != null ) {
       wIgnoreFlagField.setText( input.getIgnoreFlagField() );
@@ -744,6 +770,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     inf.setCommitSize(  wCommit.getText() );
     inf.setUseBatchUpdate( wBatch.getSelection() );
     inf.setSkipLookup( wSkipLookup.getSelection() );
+    inf.setLookupBatchSize( Const.toInt( wLookupBatchSize.getText(), 0 ) );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "UpdateDialog.Log.FoundKeys", nrkeys + "" ) );